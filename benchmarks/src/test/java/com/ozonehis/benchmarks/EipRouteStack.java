@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.benchmarks;
+
+import static org.openmrs.eip.fhir.Constants.HEADER_FHIR_EVENT_TYPE;
+
+import com.ozonehis.camel.test.infra.odoo.embedded.EmbeddedOdooServer;
+import com.ozonehis.camel.test.infra.openmrs.embedded.EmbeddedOpenmrsFhirServer;
+import com.ozonehis.camel.test.infra.openmrs.embedded.FhirResourceStore;
+import com.ozonehis.eip.odoo.openmrs.Constants;
+import com.ozonehis.eip.odoo.openmrs.client.OdooClient;
+import com.ozonehis.eip.odoo.openmrs.client.OdooUtils;
+import com.ozonehis.eip.odoo.openmrs.it.camel.OdooOpenmrsRoutes;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import java.io.IOException;
+import java.util.stream.Stream;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.support.ResourcePropertySource;
+
+/**
+ * The EIP routes from OpenMRS to Odoo, wired as in the route tests, against an embedded Odoo and an embedded OpenMRS
+ * FHIR API holding the fixtures of the route tests. Everything runs in-process, so a benchmark measures the routes
+ * and the client round trips, not a remote server.
+ */
+final class EipRouteStack implements AutoCloseable {
+
+    private final EmbeddedOdooServer odoo;
+
+    private final EmbeddedOpenmrsFhirServer openmrs;
+
+    private final CamelContext context;
+
+    private final ProducerTemplate producerTemplate;
+
+    private EipRouteStack(EmbeddedOdooServer odoo, EmbeddedOpenmrsFhirServer openmrs, CamelContext context) {
+        this.odoo = odoo;
+        this.openmrs = openmrs;
+        this.context = context;
+        this.producerTemplate = context.createProducerTemplate();
+    }
+
+    static EipRouteStack start() throws Exception {
+        EmbeddedOdooServer odoo = new EmbeddedOdooServer(0).start();
+        OdooOpenmrsRoutes.seedOdoo(odoo.getStore());
+
+        EmbeddedOpenmrsFhirServer openmrs = new EmbeddedOpenmrsFhirServer(0).start();
+        seedOpenmrs(openmrs.getStore());
+
+        OdooClient odooClient = new OdooClient(
+                odoo.getUrl(),
+                odoo.getDatabase(),
+                EmbeddedOdooServer.DEFAULT_USERNAME,
+                EmbeddedOdooServer.DEFAULT_PASSWORD);
+        OdooUtils odooUtils = new OdooUtils();
+        odooUtils.setEnvironment(environment());
+
+        CamelContext context = new DefaultCamelContext();
+        OdooOpenmrsRoutes.configureOdooComponent(context, odooClient, odooUtils);
+        OdooOpenmrsRoutes.addFhirRoutes(
+                context, odooClient, odooUtils, OdooOpenmrsRoutes.openmrsFhirClient(openmrs.getFhirBaseUrl()));
+        OdooOpenmrsRoutes.addOdooRoutes(context);
+        context.start();
+        return new EipRouteStack(odoo, openmrs, context);
+    }
+
+    /**
+     * Sends a resource to a route, as the EIP does on a change in OpenMRS.
+     *
+     * @param endpoint  the endpoint of the route
+     * @param body      the resource or bundle
+     * @param eventType the FHIR event type, c, u or d
+     * @throws IllegalStateException if the route failed
+     */
+    void send(String endpoint, Object body, String eventType) {
+        Exchange exchange = producerTemplate.send(endpoint, e -> {
+            e.getIn().setBody(body);
+            e.getIn().setHeader(HEADER_FHIR_EVENT_TYPE, eventType);
+        });
+        if (exchange.getException() != null) {
+            throw new IllegalStateException("The route of " + endpoint + " failed", exchange.getException());
+        }
+    }
+
+    /**
+     * Stores resources in OpenMRS, e.g. the patient and the visit of a new medication request, which the routes read.
+     */
+    void storeInOpenmrs(Resource... resources) {
+        openmrs.getStore().load(Stream.of(resources));
+    }
+
+    /**
+     * Deletes the partners and sale orders created by previous runs, and the patients and visits stored in OpenMRS for
+     * them, so that every iteration starts from the same state.
+     */
+    void clearCreatedRecords() {
+        odoo.getStore().clear(Constants.PARTNER_MODEL, Constants.SALE_ORDER_MODEL, Constants.SALE_ORDER_LINE_MODEL);
+        openmrs.getStore().clear();
+        seedOpenmrs(openmrs.getStore());
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        openmrs.close();
+        odoo.close();
+    }
+
+    /**
+     * Seeds the resources of the fixtures the routes read from OpenMRS.
+     */
+    private static void seedOpenmrs(FhirResourceStore store) {
+        store.load(Stream.of(
+                FhirResourceParser.parse("fhir.bundle/observation-weight-bundle.json", Bundle.class),
+                FhirResourceParser.parse("fhir.encounter/encounter.json", Encounter.class),
+                FhirResourceParser.parse("fhir/patient/patient-3.json", Patient.class)));
+    }
+
+    private static StandardEnvironment environment() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new ResourcePropertySource("classpath:application-test.properties"));
+        return environment;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.benchmarks;
+
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.SupplyRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exchanges per millisecond and the latency distribution of an exchange of the EIP routes from OpenMRS to Odoo. Run
+ * with {@code mvn verify -Pbenchmarks -pl benchmarks -am}, the results are written as JSON to
+ * {@code benchmarks/target/route-benchmarks-<version>.json}.
+ *
+ * <p>Patients and medication requests are sent with new patient and visit UUIDs, so that every exchange creates a
+ * partner, and a sale order for medication requests. The new patients and visits of medication requests are stored in
+ * the OpenMRS stand-in before the invocation, outside of the measurement, so the routes read them like they would from
+ * OpenMRS. Supply requests are sent for the visit of the encounter served by the OpenMRS stand-in, so that every
+ * exchange but the first of an iteration updates its sale order. Created records are deleted between iterations, in
+ * Odoo and in OpenMRS.
+ *
+ * <p>The stand-ins answer without delayed ACKs only with {@code sun.net.httpserver.nodelay}, which the forked JVM is
+ * started with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class OdooOpenmrsRouteBenchmark {
+
+    private EipRouteStack stack;
+
+    private Patient patient;
+
+    private Bundle medicationRequestBundle;
+
+    private Bundle supplyRequestBundle;
+
+    @Setup(Level.Trial)
+    public void startStack() throws Exception {
+        stack = EipRouteStack.start();
+        patient = FhirResourceParser.parse("fhir/patient/patient-1.json", Patient.class);
+        medicationRequestBundle = FhirResourceParser.parse("fhir.bundle/medication-request-bundle.json", Bundle.class);
+        supplyRequestBundle = new Bundle();
+        supplyRequestBundle
+                .addEntry()
+                .setResource(FhirResourceParser.parse("fhir.supplyrequest/supply-request.json", SupplyRequest.class));
+    }
+
+    /**
+     * A medication request bundle of a new patient and visit, stored in OpenMRS before every invocation.
+     */
+    @State(Scope.Thread)
+    public static class NewPatientAndVisit {
+
+        private Bundle bundle;
+
+        @Setup(Level.Invocation)
+        public void store(OdooOpenmrsRouteBenchmark benchmark) {
+            bundle = benchmark.withNewPatientAndVisit(benchmark.medicationRequestBundle);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCreatedRecords() {
+        stack.clearCreatedRecords();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopStack() {
+        stack.close();
+    }
+
+    @Benchmark
+    public void patientToPartner() {
+        Patient newPatient = patient.copy();
+        newPatient.setId(UUID.randomUUID().toString());
+        stack.send("direct:patient-to-partner-router", newPatient, "c");
+    }
+
+    @Benchmark
+    public void medicationRequestToSaleOrder(NewPatientAndVisit newPatientAndVisit) {
+        stack.send("direct:medication-request-to-sale-order-processor", newPatientAndVisit.bundle, "c");
+    }
+
+    @Benchmark
+    public void supplyRequestToSaleOrder() {
+        stack.send("direct:supplyrequest-to-sale-order-processor", supplyRequestBundle.copy(), "c");
+    }
+
+    /**
+     * Stores the new patient, its encounter and its visit in OpenMRS, like OpenMRS holds them before it emits the
+     * medication request.
+     *
+     * @return a copy of the bundle for a new patient and a new visit
+     */
+    private Bundle withNewPatientAndVisit(Bundle bundle) {
+        Bundle copy = bundle.copy();
+        String patientReference = "Patient/" + UUID.randomUUID();
+        String visitId = UUID.randomUUID().toString();
+        Encounter visit = new Encounter();
+        visit.setId(visitId);
+        visit.getSubject().setReference(patientReference);
+        List<Resource> stored = new ArrayList<>(List.of(visit));
+        for (Bundle.BundleEntryComponent entry : copy.getEntry()) {
+            Resource resource = entry.getResource();
+            if (resource instanceof Patient newPatient) {
+                newPatient.setId(patientReference);
+                stored.add(newPatient.copy());
+            } else if (resource instanceof Encounter encounter) {
+                encounter.getSubject().setReference(patientReference);
+                encounter.getPartOf().setReference("Encounter/" + visitId);
+                stored.add(encounter.copy());
+            } else if (resource instanceof MedicationRequest medicationRequest) {
+                medicationRequest.getSubject().setReference(patientReference);
+            }
+        }
+        stack.storeInOpenmrs(stored.toArray(Resource[]::new));
+        return copy;
+    }
+}
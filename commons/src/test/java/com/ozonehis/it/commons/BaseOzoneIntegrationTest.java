@@ -10,6 +10,7 @@ package com.ozonehis.it.commons;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.client.interceptor.BasicAuthInterceptor;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.ClassOrderer;
 import org.junit.jupiter.api.MethodOrderer;
@@ -25,8 +26,16 @@ public abstract class BaseOzoneIntegrationTest {
 
     protected static boolean started;
 
-    protected static IGenericClient openmrsFhirClient() {
-        FhirContext ctx = FhirContext.forR4();
+    private static IGenericClient openmrsFhirClient;
+
+    /**
+     * @return the FHIR client of OpenMRS, created once and shared by all tests
+     */
+    protected static synchronized IGenericClient openmrsFhirClient() {
+        if (openmrsFhirClient != null) {
+            return openmrsFhirClient;
+        }
+        FhirContext ctx = FhirResourceParser.fhirContext();
         String fhirBaseServerUrl = OzoneApp.OPENMRS.baseUrl() + "/ws/fhir2/R4";
 
         // Set the credentials for the FHIR client
@@ -36,6 +45,7 @@ public abstract class BaseOzoneIntegrationTest {
         IGenericClient client = ctx.newRestfulGenericClient(fhirBaseServerUrl);
         client.registerInterceptor(interceptor);
 
+        openmrsFhirClient = client;
         return client;
     }
 
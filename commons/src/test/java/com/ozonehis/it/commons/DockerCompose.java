@@ -0,0 +1,367 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A thin wrapper around the Docker CLI for the compose project started from the Ozone workspace. Compose labels every
+ * container with the directory it was started from, which is used to find the containers of this project without
+ * knowing its project name.
+ */
+@Slf4j
+public class DockerCompose {
+
+    private static final String WORKING_DIR_LABEL = "com.docker.compose.project.working_dir";
+
+    private static final String SERVICE_LABEL = "com.docker.compose.service";
+
+    private static final String PROJECT_LABEL = "com.docker.compose.project";
+
+    private static final String CONFIG_FILES_LABEL = "com.docker.compose.project.config_files";
+
+    private static final int LONG_COMMAND_TIMEOUT_SECONDS = 600;
+
+    private static final int COMMAND_TIMEOUT_SECONDS = 60;
+
+    private final Path projectDir;
+
+    /**
+     * @param projectDir the directory compose is run from, {@code run/docker} in the Ozone workspace
+     */
+    public DockerCompose(Path projectDir) {
+        this.projectDir = projectDir.toAbsolutePath().normalize();
+    }
+
+    /**
+     * @return the names of the services of this project that have a running container
+     * @throws IOException if the Docker CLI is not available or fails
+     */
+    public Set<String> runningServices() throws IOException {
+        String output = docker(
+                "ps",
+                "--filter",
+                "label=" + WORKING_DIR_LABEL + "=" + projectDir,
+                "--filter",
+                "status=running",
+                "--format",
+                "{{.Label \"" + SERVICE_LABEL + "\"}}");
+        return new TreeSet<>(lines(output));
+    }
+
+    /**
+     * Brings the given services up again without touching the services they depend on. Compose recreates the
+     * containers whose configuration changed, e.g. because a variable they interpolate changed in the env file. The
+     * project name and compose files are taken from the labels of the running containers, so the services are
+     * recreated within the project the start script created.
+     *
+     * @param services the services to recreate
+     * @param envFile  the env file to interpolate the compose files with
+     * @throws IOException if no container of the project is running or compose fails
+     */
+    public void recreate(Collection<String> services, Path envFile) throws IOException {
+        if (services.isEmpty()) {
+            return;
+        }
+        List<String> arguments = composeArguments();
+        arguments.addAll(List.of("--env-file", envFile.toAbsolutePath().toString(), "up", "-d", "--no-deps"));
+        arguments.addAll(services);
+        log.info("Recreating services {} of compose project {}", services, arguments.get(2));
+        docker(LONG_COMMAND_TIMEOUT_SECONDS, arguments.toArray(String[]::new));
+    }
+
+    /**
+     * Stops the containers of the project without removing them.
+     *
+     * @throws IOException if no container of the project exists or compose fails
+     */
+    public void stop() throws IOException {
+        List<String> arguments = composeArguments();
+        arguments.add("stop");
+        docker(LONG_COMMAND_TIMEOUT_SECONDS, arguments.toArray(String[]::new));
+    }
+
+    /**
+     * Starts the stopped containers of the project, in the order of their dependencies.
+     *
+     * @throws IOException if no container of the project exists or compose fails
+     */
+    public void start() throws IOException {
+        List<String> arguments = composeArguments();
+        arguments.add("start");
+        docker(LONG_COMMAND_TIMEOUT_SECONDS, arguments.toArray(String[]::new));
+    }
+
+    /**
+     * @return the named volumes created by compose for this project
+     * @throws IOException if no container of the project exists or the Docker CLI fails
+     */
+    public List<String> projectVolumes() throws IOException {
+        return volumesWithLabel(PROJECT_LABEL + "=" + projectName());
+    }
+
+    /**
+     * @param label a label filter, {@code key} or {@code key=value}
+     * @return the names of the volumes carrying the label
+     * @throws IOException if the Docker CLI fails
+     */
+    public List<String> volumesWithLabel(String label) throws IOException {
+        return lines(docker("volume", "ls", "--filter", "label=" + label, "--format", "{{.Name}}"));
+    }
+
+    /**
+     * @param volume the name of a volume
+     * @param label  the key of a label
+     * @return the value of the label on the volume, empty if the volume has no such label
+     * @throws IOException if the volume does not exist
+     */
+    public String volumeLabel(String volume, String label) throws IOException {
+        return docker("volume", "inspect", "--format", "{{index .Labels \"" + label + "\"}}", volume)
+                .trim();
+    }
+
+    /**
+     * Creates a volume.
+     *
+     * @param volume the name of the volume
+     * @param labels the labels of the volume
+     * @throws IOException if the volume cannot be created
+     */
+    public void createVolume(String volume, Map<String, String> labels) throws IOException {
+        List<String> arguments = new ArrayList<>(List.of("volume", "create"));
+        labels.forEach((key, value) -> {
+            arguments.add("--label");
+            arguments.add(key + "=" + value);
+        });
+        arguments.add(volume);
+        docker(arguments.toArray(String[]::new));
+    }
+
+    /**
+     * Removes volumes.
+     *
+     * @param volumes the names of the volumes
+     * @throws IOException if a volume cannot be removed
+     */
+    public void removeVolumes(Collection<String> volumes) throws IOException {
+        if (volumes.isEmpty()) {
+            return;
+        }
+        List<String> arguments = new ArrayList<>(List.of("volume", "rm", "--force"));
+        arguments.addAll(volumes);
+        docker(arguments.toArray(String[]::new));
+    }
+
+    /**
+     * Replaces the content of a volume with the content of another volume, preserving ownership and permissions. The
+     * copy runs in a throwaway container of the given image, no container may use the target volume meanwhile.
+     *
+     * @param source      the volume to copy from
+     * @param target      the volume to copy to
+     * @param helperImage the image of the container running the copy, it must provide a shell, find and cp
+     * @throws IOException if the copy fails
+     */
+    public void copyVolume(String source, String target, String helperImage) throws IOException {
+        docker(
+                LONG_COMMAND_TIMEOUT_SECONDS,
+                "run",
+                "--rm",
+                "-v",
+                source + ":/from:ro",
+                "-v",
+                target + ":/to",
+                helperImage,
+                "sh",
+                "-c",
+                "find /to -mindepth 1 -delete && cp -a /from/. /to/");
+    }
+
+    /**
+     * Returns the address a port of a running service is reachable at from the host. A port published by compose is
+     * preferred, otherwise the address of the container in its network is used, which the host reaches on Linux.
+     *
+     * @param service the compose service
+     * @param port    the port of the service inside its container
+     * @return the address of the port
+     * @throws IOException if the service has no running container or the Docker CLI fails
+     */
+    public InetSocketAddress serviceAddress(String service, int port) throws IOException {
+        List<String> arguments = composeArguments();
+        arguments.addAll(List.of("port", service, String.valueOf(port)));
+        try {
+            String published = docker(arguments.toArray(String[]::new)).trim();
+            int separator = published.lastIndexOf(':');
+            if (separator > 0 && !published.endsWith(":0")) {
+                String host = published.substring(0, separator);
+                return InetSocketAddress.createUnresolved(
+                        host.equals("0.0.0.0") || host.equals("[::]") ? "localhost" : host,
+                        Integer.parseInt(published.substring(separator + 1)));
+            }
+        } catch (IOException e) {
+            log.debug("Port {} of {} is not published: {}", port, service, e.getMessage());
+        }
+
+        List<String> addresses = lines(docker(
+                "inspect",
+                "--format",
+                "{{range .NetworkSettings.Networks}}{{.IPAddress}}\n{{end}}",
+                runningContainer(service)));
+        if (addresses.isEmpty()) {
+            throw new IOException("The container of " + service + " has no network address");
+        }
+        return InetSocketAddress.createUnresolved(addresses.get(0), port);
+    }
+
+    /**
+     * Returns the standard output a running service logged since the given time, every line prefixed with its
+     * timestamp. Without a time, the log since its container was last started is returned, a stop and start of the stack
+     * does not return the lines logged before the restart.
+     *
+     * @param service the compose service
+     * @param since   the timestamp of the last line read, or null to read from the start of the container
+     * @return the timestamped log lines of the service, the line logged at {@code since} included
+     * @throws IOException if the service has no running container or the Docker CLI fails
+     */
+    public String logsSince(String service, String since) throws IOException {
+        String container = runningContainer(service);
+        String from = since;
+        if (from == null) {
+            from = docker("inspect", "--format", "{{.State.StartedAt}}", container)
+                    .trim();
+        }
+        return docker("logs", "--timestamps", "--since", from, container);
+    }
+
+    private String runningContainer(String service) throws IOException {
+        List<String> containers = lines(docker(
+                "ps",
+                "--filter",
+                "label=" + WORKING_DIR_LABEL + "=" + projectDir,
+                "--filter",
+                "label=" + SERVICE_LABEL + "=" + service,
+                "--filter",
+                "status=running",
+                "--format",
+                "{{.ID}}"));
+        if (containers.isEmpty()) {
+            throw new IOException("No running container of " + service + " found in " + projectDir);
+        }
+        return containers.get(0);
+    }
+
+    /**
+     * @return the name of the compose project, taken from the labels of its containers
+     * @throws IOException if no container of the project exists
+     */
+    public String projectName() throws IOException {
+        return projectLabels()[0];
+    }
+
+    /**
+     * Returns the arguments selecting the compose project the start script created, with the same project name and
+     * compose files.
+     */
+    private List<String> composeArguments() throws IOException {
+        String[] project = projectLabels();
+        List<String> arguments = new ArrayList<>(List.of("compose", "-p", project[0]));
+        for (String configFile : project[1].split(",")) {
+            arguments.add("-f");
+            arguments.add(configFile);
+        }
+        return arguments;
+    }
+
+    private String[] projectLabels() throws IOException {
+        List<String> projects = lines(docker(
+                "ps",
+                "--all",
+                "--filter",
+                "label=" + WORKING_DIR_LABEL + "=" + projectDir,
+                "--format",
+                "{{.Label \"" + PROJECT_LABEL + "\"}}|{{.Label \"" + CONFIG_FILES_LABEL + "\"}}"));
+        if (projects.isEmpty()) {
+            throw new IOException("No compose project found in " + projectDir);
+        }
+        return projects.get(0).split("\\|", 2);
+    }
+
+    /**
+     * Runs a Docker CLI command and returns its standard output.
+     *
+     * @param arguments the arguments of the docker command
+     * @return the standard output of the command
+     * @throws IOException if the command cannot be run, fails or times out
+     */
+    protected String docker(String... arguments) throws IOException {
+        return docker(COMMAND_TIMEOUT_SECONDS, arguments);
+    }
+
+    /**
+     * Runs a Docker CLI command and returns its standard output.
+     *
+     * @param timeoutSeconds the time after which the command is killed
+     * @param arguments      the arguments of the docker command
+     * @return the standard output of the command
+     * @throws IOException if the command cannot be run, fails or times out
+     */
+    protected String docker(int timeoutSeconds, String... arguments) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("docker");
+        command.addAll(Arrays.asList(arguments));
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(projectDir.toFile());
+        Process process = processBuilder.start();
+        CompletableFuture<String> stdout = readAsync(process, false);
+        CompletableFuture<String> stderr = readAsync(process, true);
+        try {
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("Timed out running: " + String.join(" ", command));
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("Failed running: " + String.join(" ", command) + System.lineSeparator()
+                        + stderr.join().trim());
+            }
+            return stdout.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new IOException("Interrupted running: " + String.join(" ", command), e);
+        }
+    }
+
+    protected static List<String> lines(String output) {
+        return output.lines().map(String::trim).filter(line -> !line.isEmpty()).toList();
+    }
+
+    private static CompletableFuture<String> readAsync(Process process, boolean errorStream) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new String(
+                        (errorStream ? process.getErrorStream() : process.getInputStream()).readAllBytes(), UTF_8);
+            } catch (IOException e) {
+                return "";
+            }
+        });
+    }
+}
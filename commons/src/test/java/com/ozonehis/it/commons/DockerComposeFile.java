@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A minimal reader for docker compose files. It only understands the layout of the top-level {@code services} section,
+ * which is all the runner needs to know about the compose files of the distribution.
+ */
+public final class DockerComposeFile {
+
+    private static final Pattern TOP_LEVEL_KEY = Pattern.compile("^([A-Za-z0-9_.-]+):.*$");
+
+    private static final Pattern INDENTED_KEY = Pattern.compile("^(\\s+)([A-Za-z0-9_.-]+):.*$");
+
+    private static final Pattern VARIABLE_REFERENCE =
+            Pattern.compile("(?<!\\$)\\$(?:\\{([A-Za-z_][A-Za-z0-9_]*)|([A-Za-z_][A-Za-z0-9_]*))");
+
+    private static final Pattern DEPENDS_ON_KEY = Pattern.compile("^\\s*depends_on:.*$");
+
+    private static final Pattern ENV_FILE_KEY = Pattern.compile("^\\s*env_file:.*$");
+
+    private static final Pattern DOT_ENV_FILE = Pattern.compile("(^|[\\s/'\"-])\\.env['\"]?\\s*$");
+
+    private final Path path;
+
+    private final Map<String, List<String>> services;
+
+    private DockerComposeFile(Path path, Map<String, List<String>> services) {
+        this.path = path;
+        this.services = services;
+    }
+
+    /**
+     * Reads the services declared in a compose file.
+     *
+     * @param path the compose file
+     * @return the parsed compose file
+     * @throws IOException if the file cannot be read
+     */
+    public static DockerComposeFile read(Path path) throws IOException {
+        return parse(path, Files.readAllLines(path));
+    }
+
+    /**
+     * Parses the services declared in the lines of a compose file, e.g. of a compose file read from the Ozone zip.
+     *
+     * @param path  the path the compose file is known by
+     * @param lines the lines of the compose file
+     * @return the parsed compose file
+     */
+    public static DockerComposeFile parse(Path path, List<String> lines) {
+        Map<String, List<String>> services = new LinkedHashMap<>();
+        boolean inServices = false;
+        String serviceIndent = null;
+        List<String> currentLines = null;
+
+        for (String line : lines) {
+            if (line.isBlank() || line.trim().startsWith("#")) {
+                if (currentLines != null) {
+                    currentLines.add(line);
+                }
+                continue;
+            }
+            Matcher topLevel = TOP_LEVEL_KEY.matcher(line);
+            if (topLevel.matches()) {
+                inServices = topLevel.group(1).equals("services");
+                currentLines = null;
+                continue;
+            }
+            if (!inServices) {
+                continue;
+            }
+            Matcher indented = INDENTED_KEY.matcher(line);
+            if (indented.matches()
+                    && (serviceIndent == null || indented.group(1).equals(serviceIndent))) {
+                serviceIndent = indented.group(1);
+                currentLines = new ArrayList<>();
+                services.put(indented.group(2), currentLines);
+                continue;
+            }
+            if (currentLines != null) {
+                currentLines.add(line);
+            }
+        }
+        return new DockerComposeFile(path, services);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the names of the declared services, in declaration order
+     */
+    public List<String> serviceNames() {
+        return List.copyOf(services.keySet());
+    }
+
+    /**
+     * @param serviceName the name of a declared service
+     * @return the lines of the service definition, without the line declaring the service name
+     */
+    public List<String> serviceDefinition(String serviceName) {
+        return services.getOrDefault(serviceName, List.of());
+    }
+
+    /**
+     * Returns the variables a service definition interpolates, e.g. {@code ${ODOO_DB_NAME}} or
+     * {@code ${ODOO_DB_NAME:-odoo}}. Escaped references such as {@code $$HOME} are ignored.
+     *
+     * @param serviceName the name of a declared service
+     * @return the names of the referenced variables
+     */
+    public Set<String> referencedVariables(String serviceName) {
+        Set<String> variables = new LinkedHashSet<>();
+        for (String line : serviceDefinition(serviceName)) {
+            Matcher matcher = VARIABLE_REFERENCE.matcher(line);
+            while (matcher.find()) {
+                variables.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * Returns the services a service declares in {@code depends_on}, in either the list or the map form.
+     *
+     * @param serviceName the name of a declared service
+     * @return the names of the services it depends on, in declaration order
+     */
+    public Set<String> dependsOn(String serviceName) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        String dependencyIndent = null;
+        boolean inDependsOn = false;
+        for (String line : serviceDefinition(serviceName)) {
+            if (line.isBlank() || line.trim().startsWith("#")) {
+                continue;
+            }
+            if (DEPENDS_ON_KEY.matcher(line).matches()) {
+                inDependsOn = true;
+                dependencyIndent = null;
+                // The flow form, depends_on: [a, b]
+                String value = line.substring(line.indexOf(':') + 1).trim();
+                if (value.startsWith("[") && value.endsWith("]")) {
+                    for (String dependency :
+                            value.substring(1, value.length() - 1).split(",")) {
+                        if (!unquote(dependency).isEmpty()) {
+                            dependencies.add(unquote(dependency));
+                        }
+                    }
+                    inDependsOn = false;
+                }
+                continue;
+            }
+            if (!inDependsOn) {
+                continue;
+            }
+            String indent =
+                    line.substring(0, line.length() - line.stripLeading().length());
+            if (dependencyIndent == null) {
+                dependencyIndent = indent;
+            }
+            if (indent.length() < dependencyIndent.length()) {
+                inDependsOn = false;
+            } else if (indent.equals(dependencyIndent)) {
+                String trimmed = line.trim();
+                // - name in the list form, name: with its condition in the map form
+                String dependency = trimmed.startsWith("-")
+                        ? trimmed.substring(1)
+                        : trimmed.substring(0, Math.max(trimmed.indexOf(':'), 0));
+                if (!unquote(dependency).isEmpty()) {
+                    dependencies.add(unquote(dependency));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private static String unquote(String value) {
+        return value.trim().replaceAll("^['\"]|['\"]$", "");
+    }
+
+    /**
+     * @param serviceName the name of a declared service
+     * @return true if the service loads a {@code .env} file through {@code env_file}, which passes every variable of
+     *     the file to the container
+     */
+    public boolean loadsEnvFile(String serviceName) {
+        boolean inEnvFile = false;
+        for (String line : serviceDefinition(serviceName)) {
+            if (ENV_FILE_KEY.matcher(line).matches()) {
+                inEnvFile = true;
+                String value = line.substring(line.indexOf(':') + 1).trim();
+                if (!value.isEmpty() && DOT_ENV_FILE.matcher(value).find()) {
+                    return true;
+                }
+                continue;
+            }
+            if (inEnvFile) {
+                String trimmed = line.trim();
+                if (!trimmed.startsWith("-")) {
+                    inEnvFile = false;
+                } else if (DOT_ENV_FILE.matcher(trimmed).find()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Creates FHIR resources in OpenMRS in {@code transaction} or {@code batch} bundles instead of one request per
+ * resource. The resources are created in dependency waves: a wave holds the resources whose referenced resources were
+ * all created by earlier waves, e.g. patients before their encounters. The resources of a wave are split into bundles
+ * of a configurable size, which are posted concurrently, and the next wave starts once the wave is created.
+ *
+ * <p>If the server rejects a bundle, the resources of the rejected bundle are created one by one, concurrently, before
+ * the next wave starts. A bundle type the server does not implement is not tried again for the remaining bundles. A
+ * resource referencing a resource that could not be created is not posted and reported as failed. Resources
+ * referencing each other in a cycle are created in a last wave. The ids the server assigned are returned per source
+ * resource instance.
+ *
+ * <p>Within a bundle, a resource is posted with its own id as {@code urn:uuid:} full URL and the references to it are
+ * rewritten to that full URL, so a transaction resolves them to the id the server assigns. References to resources
+ * created by an earlier request are rewritten to their server ids.
+ */
+@Slf4j
+public class FhirBundleSeeder {
+
+    private static final int DEFAULT_BUNDLE_SIZE = 50;
+
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Answers meaning the server does not implement the bundle type at all.
+     */
+    private static final Set<Integer> UNSUPPORTED_STATUSES = Set.of(404, 405, 501);
+
+    private final IGenericClient client;
+
+    private int bundleSize = DEFAULT_BUNDLE_SIZE;
+
+    private Bundle.BundleType bundleType = Bundle.BundleType.TRANSACTION;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * @param client the FHIR client of the server, e.g. {@code openmrsFhirClient()}
+     */
+    public FhirBundleSeeder(IGenericClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @param bundleSize the maximum number of resources per bundle
+     * @return this seeder
+     */
+    public FhirBundleSeeder withBundleSize(int bundleSize) {
+        if (bundleSize < 1) {
+            throw new IllegalArgumentException("Bundle size must be positive");
+        }
+        this.bundleSize = bundleSize;
+        return this;
+    }
+
+    /**
+     * @param bundleType {@link Bundle.BundleType#TRANSACTION} to create every bundle atomically, or
+     *                   {@link Bundle.BundleType#BATCH} to create its entries independently
+     * @return this seeder
+     */
+    public FhirBundleSeeder withBundleType(Bundle.BundleType bundleType) {
+        if (bundleType != Bundle.BundleType.TRANSACTION && bundleType != Bundle.BundleType.BATCH) {
+            throw new IllegalArgumentException("Only transaction and batch bundles can be posted: " + bundleType);
+        }
+        this.bundleType = bundleType;
+        return this;
+    }
+
+    /**
+     * @param parallelism the maximum number of requests in flight
+     * @return this seeder
+     */
+    public FhirBundleSeeder withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Creates the resources and waits until every resource is created or failed.
+     *
+     * @param resources the resources to create, e.g. {@code FhirDataset} resources. They are not modified.
+     * @return the ids assigned by the server and the resources that could not be created
+     */
+    public SeedingResult seed(List<? extends Resource> resources) {
+        long startNanos = System.nanoTime();
+        Map<Resource, IIdType> ids = Collections.synchronizedMap(new IdentityHashMap<>());
+        Map<Resource, String> failures = Collections.synchronizedMap(new IdentityHashMap<>());
+        AtomicBoolean bundlesSupported = new AtomicBoolean(true);
+        AtomicInteger bundled = new AtomicInteger();
+        AtomicInteger singleCreates = new AtomicInteger();
+        // The server reference of every created resource, by the reference of its source resource
+        Map<String, String> serverReferences = new ConcurrentHashMap<>();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "ozone-fhir-seeder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<Resource, List<Resource>> dependencies = new IdentityHashMap<>();
+        try {
+            for (List<Resource> wave : dependencyWaves(resources, dependencies)) {
+                List<Resource> ready = new ArrayList<>();
+                for (Resource resource : wave) {
+                    Resource failedDependency = dependencies.get(resource).stream()
+                            .filter(failures::containsKey)
+                            .findFirst()
+                            .orElse(null);
+                    if (failedDependency == null) {
+                        ready.add(resource);
+                    } else {
+                        failures.put(
+                                resource,
+                                "Not created because " + sourceReference(failedDependency) + " was not created");
+                    }
+                }
+
+                List<CompletableFuture<List<Resource>>> bundles = new ArrayList<>();
+                for (int from = 0; from < ready.size(); from += bundleSize) {
+                    List<Resource> chunk = ready.subList(from, Math.min(from + bundleSize, ready.size()));
+                    bundles.add(CompletableFuture.supplyAsync(
+                            () -> bundlesSupported.get()
+                                    ? postBundle(chunk, ids, serverReferences, bundlesSupported, bundled)
+                                    : new ArrayList<>(chunk),
+                            executor));
+                }
+                List<Resource> remaining = new ArrayList<>();
+                bundles.forEach(bundle -> remaining.addAll(bundle.join()));
+
+                // The resources of a wave do not reference each other, outside of a cycle
+                CompletableFuture.allOf(remaining.stream()
+                                .map(resource -> CompletableFuture.runAsync(
+                                        () -> createSingle(resource, ids, serverReferences, failures, singleCreates),
+                                        executor))
+                                .toArray(CompletableFuture[]::new))
+                        .join();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SeedingResult result = new SeedingResult(
+                ids, failures, bundled.get(), singleCreates.get(), Duration.ofNanos(System.nanoTime() - startNanos));
+        if (failures.isEmpty()) {
+            log.info(result.summary());
+        } else {
+            log.error(result.summary());
+        }
+        return result;
+    }
+
+    /**
+     * Orders the resources in waves, every resource comes after the resources it references. Resources referencing
+     * each other in a cycle are put in a last wave.
+     *
+     * @param dependencies receives the resources every resource references
+     * @return the waves, in creation order
+     */
+    private List<List<Resource>> dependencyWaves(
+            List<? extends Resource> resources, Map<Resource, List<Resource>> dependencies) {
+        Map<String, List<Resource>> byReference = new HashMap<>();
+        for (Resource resource : resources) {
+            String reference = sourceReference(resource);
+            if (reference != null) {
+                byReference.computeIfAbsent(reference, key -> new ArrayList<>()).add(resource);
+            }
+        }
+        Map<Resource, Integer> pendingDependencies = new IdentityHashMap<>();
+        Map<Resource, List<Resource>> dependents = new IdentityHashMap<>();
+        for (Resource resource : resources) {
+            Set<Resource> resourceDependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (String reference : references(resource)) {
+                for (Resource dependency : byReference.getOrDefault(reference, List.of())) {
+                    if (dependency != resource && resourceDependencies.add(dependency)) {
+                        dependents
+                                .computeIfAbsent(dependency, key -> new ArrayList<>())
+                                .add(resource);
+                    }
+                }
+            }
+            dependencies.put(resource, new ArrayList<>(resourceDependencies));
+            pendingDependencies.put(resource, resourceDependencies.size());
+        }
+
+        List<List<Resource>> waves = new ArrayList<>();
+        List<Resource> wave = resources.stream()
+                .filter(resource -> pendingDependencies.get(resource) == 0)
+                .collect(Collectors.toList());
+        while (!wave.isEmpty()) {
+            waves.add(wave);
+            List<Resource> next = new ArrayList<>();
+            for (Resource resource : wave) {
+                for (Resource dependent : dependents.getOrDefault(resource, List.of())) {
+                    if (pendingDependencies.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            wave = next;
+        }
+        List<Resource> cyclic = resources.stream()
+                .filter(resource -> pendingDependencies.get(resource) > 0)
+                .collect(Collectors.toList());
+        if (!cyclic.isEmpty()) {
+            log.warn("{} resources reference each other in a cycle, creating them last", cyclic.size());
+            waves.add(cyclic);
+        }
+        return waves;
+    }
+
+    /**
+     * Posts the resources in one bundle.
+     *
+     * @return the resources the bundle did not create
+     */
+    private List<Resource> postBundle(
+            List<? extends Resource> resources,
+            Map<Resource, IIdType> ids,
+            Map<String, String> serverReferences,
+            AtomicBoolean bundlesSupported,
+            AtomicInteger bundled) {
+        Map<String, String> fullUrls = new HashMap<>();
+        for (Resource resource : resources) {
+            String reference = sourceReference(resource);
+            if (reference != null && !fullUrls.containsKey(reference)) {
+                fullUrls.put(reference, "urn:uuid:" + resource.getIdElement().getIdPart());
+            }
+        }
+        // Only a transaction resolves the references between its entries
+        Function<String, String> rewrite = bundleType == Bundle.BundleType.TRANSACTION
+                ? reference -> fullUrls.getOrDefault(reference, serverReferences.get(reference))
+                : serverReferences::get;
+
+        Bundle bundle = new Bundle();
+        bundle.setType(bundleType);
+        Set<String> usedFullUrls = new HashSet<>();
+        for (Resource resource : resources) {
+            String fullUrl = fullUrls.get(sourceReference(resource));
+            if (fullUrl == null || !usedFullUrls.add(fullUrl)) {
+                fullUrl = "urn:uuid:" + UUID.randomUUID();
+            }
+            bundle.addEntry()
+                    .setFullUrl(fullUrl)
+                    // Bundling assigns the full URL as id, the source resource is left untouched
+                    .setResource(withReferences(resource, rewrite))
+                    .getRequest()
+                    .setMethod(Bundle.HTTPVerb.POST)
+                    .setUrl(resource.fhirType());
+        }
+
+        Bundle response;
+        try {
+            response = client.transaction().withBundle(bundle).execute();
+        } catch (BaseServerResponseException e) {
+            // A rejected bundle, e.g. because of a single invalid entry, is retried one by one to find the culprit
+            if (UNSUPPORTED_STATUSES.contains(e.getStatusCode()) && bundlesSupported.compareAndSet(true, false)) {
+                log.warn(
+                        "The server does not support {} bundles, creating resources one by one: {}",
+                        bundleType.toCode(),
+                        e.getMessage());
+            } else {
+                log.debug(
+                        "{} bundle rejected, creating its resources one by one: {}",
+                        bundleType.toCode(),
+                        e.getMessage());
+            }
+            return new ArrayList<>(resources);
+        }
+
+        // The entries of the response are in the order of the entries of the request
+        List<Resource> remaining = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            Resource resource = resources.get(i);
+            Bundle.BundleEntryResponseComponent entryResponse =
+                    i < response.getEntry().size() ? response.getEntry().get(i).getResponse() : null;
+            if (entryResponse != null
+                    && entryResponse.getStatus() != null
+                    && entryResponse.getStatus().startsWith("2")
+                    && entryResponse.hasLocation()) {
+                created(resource, new IdType(entryResponse.getLocation()), ids, serverReferences);
+                bundled.incrementAndGet();
+            } else {
+                remaining.add(resource);
+            }
+        }
+        return remaining;
+    }
+
+    private void createSingle(
+            Resource resource,
+            Map<Resource, IIdType> ids,
+            Map<String, String> serverReferences,
+            Map<Resource, String> failures,
+            AtomicInteger singleCreates) {
+        try {
+            MethodOutcome outcome = client.create()
+                    .resource(withReferences(resource, serverReferences::get))
+                    .execute();
+            created(resource, outcome.getId(), ids, serverReferences);
+            singleCreates.incrementAndGet();
+        } catch (RuntimeException e) {
+            failures.put(resource, e.getMessage());
+        }
+    }
+
+    private static void created(
+            Resource resource, IIdType serverId, Map<Resource, IIdType> ids, Map<String, String> serverReferences) {
+        IIdType id = serverId.toUnqualifiedVersionless();
+        ids.put(resource, id);
+        String reference = sourceReference(resource);
+        if (reference != null) {
+            serverReferences.put(reference, resource.fhirType() + "/" + id.getIdPart());
+        }
+    }
+
+    /**
+     * Copies a resource and rewrites its references, the source resource is left untouched.
+     *
+     * @param rewrite the new reference of a source reference, or null to keep the reference
+     */
+    private Resource withReferences(Resource resource, Function<String, String> rewrite) {
+        Resource copy = resource.copy();
+        for (Reference reference : relativeReferences(copy)) {
+            String rewritten = rewrite.apply(normalize(reference));
+            if (rewritten != null) {
+                reference.setReference(rewritten);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return the relative references of a resource, e.g. {@code Patient/123}
+     */
+    private List<String> references(Resource resource) {
+        return relativeReferences(resource).stream()
+                .map(FhirBundleSeeder::normalize)
+                .toList();
+    }
+
+    private List<Reference> relativeReferences(Resource resource) {
+        return client
+                .getFhirContext()
+                .newTerser()
+                .getAllPopulatedChildElementsOfType(resource, Reference.class)
+                .stream()
+                .filter(reference ->
+                        reference.hasReference() && !reference.getReference().startsWith("urn:"))
+                .toList();
+    }
+
+    private static String normalize(Reference reference) {
+        return new IdType(reference.getReference()).toUnqualifiedVersionless().getValue();
+    }
+
+    /**
+     * @return the relative reference to a source resource, e.g. {@code Patient/123}, or null if it has no id
+     */
+    private static String sourceReference(Resource resource) {
+        if (!resource.getIdElement().hasIdPart()) {
+            return null;
+        }
+        return resource.fhirType() + "/" + resource.getIdElement().getIdPart();
+    }
+
+    /**
+     * The outcome of a seeding.
+     *
+     * @param ids           the ids assigned by the server, per source resource instance
+     * @param failures      the error of every resource that could not be created, per source resource instance
+     * @param bundled       the number of resources created within bundles
+     * @param singleCreates the number of resources created one by one
+     * @param duration      the time the seeding took
+     */
+    public record SeedingResult(
+            Map<Resource, IIdType> ids,
+            Map<Resource, String> failures,
+            int bundled,
+            int singleCreates,
+            Duration duration) {
+
+        /**
+         * @param resource a source resource
+         * @return the id the server assigned to the resource, or null if it was not created
+         */
+        public IIdType idOf(Resource resource) {
+            return ids.get(resource);
+        }
+
+        public String summary() {
+            return String.format(
+                    "Created %d FHIR resources in %d ms, %d in bundles, %d one by one, %d failed",
+                    ids.size(), duration.toMillis(), bundled, singleCreates, failures.size());
+        }
+    }
+}
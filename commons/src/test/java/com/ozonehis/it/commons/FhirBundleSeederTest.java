@@ -0,0 +1,236 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CapabilityStatement;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FhirBundleSeederTest {
+
+    private static final FhirContext FHIR_CONTEXT = FhirResourceParser.fhirContext();
+
+    private HttpServer server;
+
+    private FhirBundleSeeder seeder;
+
+    private volatile boolean transactionsSupported = true;
+
+    /**
+     * The resources the server created, by server reference.
+     */
+    private final Map<String, Resource> stored = new ConcurrentHashMap<>();
+
+    /**
+     * The references to resources the server did not know when it created the referencing resource.
+     */
+    private final List<String> danglingReferences = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fhir", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        seeder = new FhirBundleSeeder(FHIR_CONTEXT.newRestfulGenericClient(
+                        "http://localhost:" + server.getAddress().getPort() + "/fhir"))
+                .withBundleSize(1)
+                .withParallelism(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("should create referenced resources before the resources in other bundles referencing them.")
+    public void shouldCreateReferencedResourcesFirst() {
+        List<Resource> resources = population();
+
+        FhirBundleSeeder.SeedingResult result = seeder.seed(resources);
+
+        assertCreatedInOrder(resources, result);
+        assertEquals(resources.size(), result.bundled());
+    }
+
+    @Test
+    @DisplayName("should create single resources in dependency order when bundles are not supported.")
+    public void shouldCreateSinglesInDependencyOrder() {
+        transactionsSupported = false;
+        List<Resource> resources = population();
+
+        FhirBundleSeeder.SeedingResult result = seeder.seed(resources);
+
+        assertCreatedInOrder(resources, result);
+        assertEquals(resources.size(), result.singleCreates());
+    }
+
+    @Test
+    @DisplayName("should not post resources referencing a resource that could not be created.")
+    public void shouldSkipDependentsOfFailedResources() {
+        Patient rejected = patient("rejected");
+        rejected.setGender(Enumerations.AdministrativeGender.UNKNOWN);
+        Encounter encounter = encounter("visit-rejected", rejected);
+        Observation observation = observation("weight-rejected", rejected, encounter);
+        Patient accepted = patient("accepted");
+
+        FhirBundleSeeder.SeedingResult result = seeder.seed(List.of(observation, encounter, rejected, accepted));
+
+        assertEquals(3, result.failures().size());
+        assertTrue(
+                result.failures().get(encounter).contains("Patient/rejected"),
+                result.failures().get(encounter));
+        assertNull(result.idOf(observation));
+        assertEquals(List.of(result.idOf(accepted).getValue()), List.copyOf(stored.keySet()));
+        assertEquals(List.of(), danglingReferences);
+    }
+
+    private void assertCreatedInOrder(List<Resource> resources, FhirBundleSeeder.SeedingResult result) {
+        assertEquals(Map.of(), result.failures());
+        assertEquals(List.of(), danglingReferences);
+        assertEquals(resources.size(), stored.size());
+        Encounter encounter = (Encounter) resources.get(1);
+        Encounter storedEncounter =
+                (Encounter) stored.get(result.idOf(encounter).getValue());
+        assertEquals(
+                result.idOf(resources.get(resources.size() - 1)).getValue(),
+                storedEncounter.getSubject().getReference());
+    }
+
+    /**
+     * Returns an observation, its encounter and its patient, in reverse dependency order and each in its own bundle.
+     */
+    private static List<Resource> population() {
+        Patient patient = patient("jane");
+        Encounter encounter = encounter("visit-1", patient);
+        return List.of(observation("weight-1", patient, encounter), encounter, patient);
+    }
+
+    private static Patient patient(String id) {
+        Patient patient = new Patient();
+        patient.setId(id);
+        return patient;
+    }
+
+    private static Encounter encounter(String id, Patient patient) {
+        Encounter encounter = new Encounter();
+        encounter.setId(id);
+        encounter.setSubject(new Reference("Patient/" + patient.getIdElement().getIdPart()));
+        return encounter;
+    }
+
+    private static Observation observation(String id, Patient patient, Encounter encounter) {
+        Observation observation = new Observation();
+        observation.setId(id);
+        observation.setSubject(new Reference("Patient/" + patient.getIdElement().getIdPart()));
+        observation.setEncounter(
+                new Reference("Encounter/" + encounter.getIdElement().getIdPart()));
+        return observation;
+    }
+
+    /**
+     * Answers the capability statement, transactions of POST entries and single creates. Rejects patients of unknown
+     * gender and records references to resources it does not know.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        IParser parser = FHIR_CONTEXT.newJsonParser();
+        String path = exchange.getRequestURI().getPath().substring("/fhir".length());
+        try (exchange) {
+            if (path.equals("/metadata")) {
+                respond(exchange, 200, parser.encodeResourceToString(new CapabilityStatement()), null);
+                return;
+            }
+            Resource resource = (Resource)
+                    parser.parseResource(new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+            if (!(resource instanceof Bundle bundle)) {
+                String location = create(resource);
+                if (location == null) {
+                    respond(exchange, 422, parser.encodeResourceToString(new OperationOutcome()), null);
+                } else {
+                    respond(exchange, 201, parser.encodeResourceToString(resource), location);
+                }
+                return;
+            }
+            if (!transactionsSupported) {
+                respond(exchange, 501, parser.encodeResourceToString(new OperationOutcome()), null);
+                return;
+            }
+            Bundle response = new Bundle();
+            response.setType(Bundle.BundleType.TRANSACTIONRESPONSE);
+            for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+                String location = create(entry.getResource());
+                response.addEntry()
+                        .getResponse()
+                        .setStatus(location == null ? "422 Unprocessable Entity" : "201 Created")
+                        .setLocation(location);
+            }
+            respond(exchange, 200, parser.encodeResourceToString(response), null);
+        }
+    }
+
+    /**
+     * @return the server reference of the created resource, or null if it was rejected
+     */
+    private String create(Resource resource) {
+        if (resource instanceof Patient patient && patient.getGender() == Enumerations.AdministrativeGender.UNKNOWN) {
+            return null;
+        }
+        for (Reference reference :
+                FHIR_CONTEXT.newTerser().getAllPopulatedChildElementsOfType(resource, Reference.class)) {
+            if (!stored.containsKey(reference.getReference())) {
+                danglingReferences.add(reference.getReference());
+            }
+        }
+        String location = resource.fhirType() + "/server-" + nextId.incrementAndGet();
+        resource.setId(location);
+        stored.put(location, resource);
+        return location;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body, String location) throws IOException {
+        byte[] bytes = body.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/fhir+json");
+        if (location != null) {
+            exchange.getResponseHeaders().set("Location", location);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
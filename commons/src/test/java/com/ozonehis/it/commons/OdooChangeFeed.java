@@ -0,0 +1,419 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+/**
+ * Tells waiting tests the moment a row of an Odoo table changes, without polling the Odoo web workers. Row triggers on
+ * the watched tables send a PostgreSQL {@code NOTIFY} with the table, the operation, the row id and the time of the
+ * change. Notifications are delivered when the writing transaction commits, so a notified row is visible to readers.
+ *
+ * <p>A listener thread receives the notifications and checks every changed row against the conditions of the open
+ * subscriptions with a single primary key lookup. The triggers are installed when the feed is opened and dropped when
+ * it is closed, over a new connection if the database was restarted meanwhile. Triggers a feed failed to drop, e.g.
+ * because the database was unreachable, are replaced when the next feed is opened.
+ */
+@Slf4j
+public class OdooChangeFeed implements AutoCloseable {
+
+    public static final String PARTNER_TABLE = "res_partner";
+
+    public static final String SALE_ORDER_TABLE = "sale_order";
+
+    private static final String CHANNEL = "ozone_it_changes";
+
+    private static final String TRIGGER_NAME = "ozone_it_notify_change";
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private static final int LISTEN_TIMEOUT_MILLIS = 500;
+
+    /**
+     * The SQLSTATE class of connection exceptions, any other error of a match query concerns the subscription only.
+     */
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    /**
+     * Queued to wake up the waiter of a failed subscription.
+     */
+    private static final ChangeEvent FAILED = new ChangeEvent(null, null, 0, null, null, 0);
+
+    private static final String CREATE_FUNCTION = "CREATE OR REPLACE FUNCTION " + TRIGGER_NAME
+            + "() RETURNS trigger AS $$ BEGIN PERFORM pg_notify('" + CHANNEL
+            + "', TG_TABLE_NAME || '|' || TG_OP || '|' || NEW.id || '|'"
+            + " || (extract(epoch from clock_timestamp()) * 1000)::bigint); RETURN NEW; END; $$ LANGUAGE plpgsql";
+
+    private final String jdbcUrl;
+
+    private final Properties properties;
+
+    private final Connection listenConnection;
+
+    private final Connection queryConnection;
+
+    private final List<String> tables;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    private final Thread listener;
+
+    private volatile boolean closed;
+
+    private OdooChangeFeed(
+            String jdbcUrl,
+            Properties properties,
+            Connection listenConnection,
+            Connection queryConnection,
+            List<String> tables) {
+        this.jdbcUrl = jdbcUrl;
+        this.properties = properties;
+        this.listenConnection = listenConnection;
+        this.queryConnection = queryConnection;
+        this.tables = tables;
+        this.listener = new Thread(this::listen, "ozone-odoo-change-feed");
+        this.listener.setDaemon(true);
+    }
+
+    /**
+     * Connects to the Odoo database, installs the change triggers on the given tables and starts listening.
+     *
+     * @param jdbcUrl  the JDBC URL of the Odoo database
+     * @param user     the database user, it must be allowed to create triggers on the tables
+     * @param password the password of the database user
+     * @param tables   the tables to watch, e.g. {@link #PARTNER_TABLE}
+     * @return the open feed
+     * @throws SQLException if the database cannot be reached or the triggers cannot be installed
+     */
+    public static OdooChangeFeed open(String jdbcUrl, String user, String password, String... tables)
+            throws SQLException {
+        for (String table : tables) {
+            validateTableName(table);
+        }
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        Connection listenConnection = DriverManager.getConnection(jdbcUrl, properties);
+        Connection queryConnection;
+        try {
+            queryConnection = DriverManager.getConnection(jdbcUrl, properties);
+        } catch (SQLException e) {
+            listenConnection.close();
+            throw e;
+        }
+
+        OdooChangeFeed feed =
+                new OdooChangeFeed(jdbcUrl, properties, listenConnection, queryConnection, List.of(tables));
+        try {
+            try (Statement statement = listenConnection.createStatement()) {
+                statement.execute(CREATE_FUNCTION);
+                for (String table : tables) {
+                    statement.execute("DROP TRIGGER IF EXISTS " + TRIGGER_NAME + " ON " + table);
+                    statement.execute("CREATE TRIGGER " + TRIGGER_NAME + " AFTER INSERT OR UPDATE ON " + table
+                            + " FOR EACH ROW EXECUTE FUNCTION " + TRIGGER_NAME + "()");
+                }
+                statement.execute("LISTEN " + CHANNEL);
+            }
+        } catch (SQLException e) {
+            feed.closeConnections();
+            throw e;
+        }
+        feed.listener.start();
+        log.info("Listening to changes of the Odoo tables {}", feed.tables);
+        return feed;
+    }
+
+    /**
+     * Subscribes to the changes of the rows of a table matching a condition. Only changes committed after this method
+     * returned are delivered, the current state must be checked by the caller once subscribed.
+     *
+     * @param table     the watched table
+     * @param condition an SQL condition on the columns of the table, e.g. {@code ref = ?}
+     * @param params    the parameters of the condition
+     * @return the subscription, to be closed once the caller stopped waiting
+     */
+    public Subscription subscribe(String table, String condition, Object... params) {
+        if (!tables.contains(table)) {
+            throw new IllegalArgumentException("Table " + table + " is not watched, watched tables are " + tables);
+        }
+        if (closed) {
+            throw new IllegalStateException("The change feed is closed");
+        }
+        Subscription subscription =
+                new Subscription(table, "SELECT 1 FROM " + table + " WHERE id = ? AND (" + condition + ")", params);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return true if the feed still receives notifications
+     */
+    public boolean isOpen() {
+        return !closed && listener.isAlive();
+    }
+
+    private void listen() {
+        PGConnection pgConnection;
+        try {
+            pgConnection = listenConnection.unwrap(PGConnection.class);
+        } catch (SQLException e) {
+            log.error("The Odoo change feed needs a PostgreSQL connection", e);
+            return;
+        }
+        while (!closed) {
+            try {
+                PGNotification[] notifications = pgConnection.getNotifications(LISTEN_TIMEOUT_MILLIS);
+                if (notifications == null) {
+                    continue;
+                }
+                Instant receivedAt = Instant.now();
+                long receivedNanos = System.nanoTime();
+                for (PGNotification notification : notifications) {
+                    dispatch(notification.getParameter(), receivedAt, receivedNanos);
+                }
+            } catch (SQLException e) {
+                if (!closed) {
+                    log.error("The Odoo change feed lost its database connection: {}", e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private void dispatch(String payload, Instant receivedAt, long receivedNanos) throws SQLException {
+        String[] parts = payload.split("\\|");
+        if (parts.length != 4) {
+            log.debug("Ignoring malformed change notification {}", payload);
+            return;
+        }
+        ChangeEvent event = new ChangeEvent(
+                parts[0],
+                parts[1],
+                Long.parseLong(parts[2]),
+                Instant.ofEpochMilli(Long.parseLong(parts[3])),
+                receivedAt,
+                receivedNanos);
+        log.debug("{} of {} row {}", event.operation(), event.table(), event.id());
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.table.equals(event.table())) {
+                continue;
+            }
+            boolean matches;
+            try {
+                matches = subscription.matches(event.id());
+            } catch (SQLException e) {
+                if (isConnectionError(e)) {
+                    throw e;
+                }
+                // A bad condition only fails its own subscription, the others keep receiving changes
+                log.error(
+                        "The condition of a subscription to {} changes failed: {}", subscription.table, e.getMessage());
+                subscription.fail(e);
+                continue;
+            }
+            if (matches) {
+                subscription.events.offer(event);
+            }
+        }
+    }
+
+    private boolean isConnectionError(SQLException e) throws SQLException {
+        String sqlState = e.getSQLState();
+        return (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) || queryConnection.isClosed();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            listener.join(LISTEN_TIMEOUT_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            dropTriggers(queryConnection);
+        } catch (SQLException e) {
+            // The connection does not survive a restart of the database, e.g. by a snapshot restore
+            log.debug("Dropping the change triggers over a new connection: {}", e.getMessage());
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, properties)) {
+                dropTriggers(connection);
+            }
+        } finally {
+            closeConnections();
+        }
+    }
+
+    private void dropTriggers(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                statement.execute("DROP TRIGGER IF EXISTS " + TRIGGER_NAME + " ON " + table);
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP FUNCTION IF EXISTS " + TRIGGER_NAME + "()");
+        } catch (SQLException e) {
+            // Another open feed watching other tables still uses the function, the last feed closed drops it
+            log.debug("Keeping the change trigger function: {}", e.getMessage());
+        }
+    }
+
+    private void closeConnections() {
+        for (Connection connection : List.of(listenConnection, queryConnection)) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close the change feed connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void validateTableName(String table) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table);
+        }
+    }
+
+    /**
+     * The changes of the rows of a table matching a condition.
+     */
+    public class Subscription implements OzoneAwait.ChangeSignal, AutoCloseable {
+
+        private final String table;
+
+        private final String matchQuery;
+
+        private final Object[] params;
+
+        private final BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+
+        private volatile ChangeEvent lastEvent;
+
+        private volatile SQLException failure;
+
+        private Subscription(String table, String matchQuery, Object[] params) {
+            this.table = table;
+            this.matchQuery = matchQuery;
+            this.params = params.clone();
+        }
+
+        /**
+         * Waits for the next change of a matching row.
+         *
+         * @param timeout the time to wait
+         * @return the change, or null if no matching row changed within the timeout
+         * @throws InterruptedException  if the thread is interrupted while waiting
+         * @throws IllegalStateException if the condition of the subscription failed on the database
+         */
+        public ChangeEvent next(Duration timeout) throws InterruptedException {
+            throwIfFailed();
+            ChangeEvent event = events.poll(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (event == FAILED) {
+                throwIfFailed();
+            }
+            if (event != null) {
+                lastEvent = event;
+            }
+            return event;
+        }
+
+        /**
+         * Waits for the next change of a matching row, changes that arrived meanwhile are consumed at once.
+         */
+        @Override
+        public boolean awaitChange(Duration timeout) throws InterruptedException {
+            if (next(timeout) == null) {
+                return false;
+            }
+            ChangeEvent event;
+            while ((event = events.poll()) != null) {
+                if (event == FAILED) {
+                    throwIfFailed();
+                }
+                lastEvent = event;
+            }
+            return true;
+        }
+
+        /**
+         * @return the last change consumed, or null if none was
+         */
+        public ChangeEvent getLastEvent() {
+            return lastEvent;
+        }
+
+        /**
+         * Runs on the listener thread only, which is the only user of the query connection.
+         */
+        private boolean matches(long id) throws SQLException {
+            try (PreparedStatement statement = queryConnection.prepareStatement(matchQuery)) {
+                statement.setLong(1, id);
+                for (int i = 0; i < params.length; i++) {
+                    statement.setObject(i + 2, params[i]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            }
+        }
+
+        /**
+         * Stops delivering changes and wakes up the waiter, which then fails. Runs on the listener thread only.
+         */
+        private void fail(SQLException e) {
+            subscriptions.remove(this);
+            failure = e;
+            events.offer(FAILED);
+        }
+
+        private void throwIfFailed() {
+            if (failure != null) {
+                throw new IllegalStateException(
+                        "The subscription to " + table + " changes failed: " + failure.getMessage(), failure);
+            }
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * A committed change of a row.
+     *
+     * @param table      the table of the row
+     * @param operation  INSERT or UPDATE
+     * @param id         the id of the row
+     * @param changedAt  the database time the row was written
+     * @param receivedAt    the time the notification was received
+     * @param receivedNanos the {@link System#nanoTime()} the notification was received at, to measure latencies
+     */
+    public record ChangeEvent(
+            String table, String operation, long id, Instant changedAt, Instant receivedAt, long receivedNanos) {}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A declarative graph of OpenMRS fixtures, e.g. a patient with a visit, an encounter in the visit and an order in the
+ * encounter. Every fixture is created by posting a payload to an OpenMRS REST resource, the payload is built from the
+ * UUIDs of the fixtures it depends on once they are created. A fixture can only depend on fixtures added before it, so
+ * the graph is acyclic and the order of the fixtures is a valid creation order.
+ *
+ * <pre>{@code
+ * OpenmrsFixtureGraph graph = new OpenmrsFixtureGraph();
+ * Fixture patient = graph.add("patient", "patient", uuids -> patientPayload(uuids.copy()));
+ * Fixture visit = graph.add("visit", "visit", uuids -> visitPayload(uuids.of(patient)), patient);
+ * }</pre>
+ *
+ * @see OpenmrsFixtureSeeder
+ */
+public class OpenmrsFixtureGraph {
+
+    private final List<Fixture> fixtures = new ArrayList<>();
+
+    /**
+     * Adds a fixture to the graph.
+     *
+     * @param name         the name of the fixture, unique within the graph
+     * @param resource     the OpenMRS REST resource the fixture is posted to, e.g. {@code visit}
+     * @param payload      builds the JSON payload of the fixture
+     * @param dependencies the fixtures whose UUIDs the payload needs, they must already be part of the graph
+     * @return the added fixture
+     */
+    public Fixture add(String name, String resource, PayloadFactory payload, Fixture... dependencies) {
+        if (fixtures.stream().anyMatch(fixture -> fixture.name().equals(name))) {
+            throw new IllegalArgumentException("Duplicate fixture: " + name);
+        }
+        for (Fixture dependency : dependencies) {
+            if (!fixtures.contains(dependency)) {
+                throw new IllegalArgumentException(
+                        "Fixture " + name + " depends on " + dependency.name() + " which is not part of the graph");
+            }
+        }
+        Fixture fixture = new Fixture(name, resource, payload, List.of(dependencies), fixtures.size());
+        fixtures.add(fixture);
+        return fixture;
+    }
+
+    /**
+     * @return the fixtures in creation order
+     */
+    public List<Fixture> fixtures() {
+        return Collections.unmodifiableList(fixtures);
+    }
+
+    /**
+     * Builds the payload of a fixture.
+     */
+    @FunctionalInterface
+    public interface PayloadFactory {
+
+        /**
+         * @param uuids the UUIDs of the created dependencies
+         * @return the JSON payload as a map, serialized by the seeder
+         */
+        Map<String, Object> payload(Uuids uuids);
+    }
+
+    /**
+     * The UUIDs of the fixtures created so far within one copy of the graph.
+     */
+    public interface Uuids {
+
+        /**
+         * @param fixture a dependency of the fixture being built
+         * @return the UUID of the created fixture
+         */
+        String of(Fixture fixture);
+
+        /**
+         * @return the index of the copy of the graph, e.g. to derive unique names
+         */
+        int copy();
+    }
+
+    /**
+     * A node of the graph.
+     *
+     * @param name         the name of the fixture
+     * @param resource     the OpenMRS REST resource the fixture is posted to
+     * @param payload      builds the JSON payload of the fixture
+     * @param dependencies the fixtures whose UUIDs the payload needs
+     * @param index        the position of the fixture in creation order
+     */
+    public record Fixture(String name, String resource, PayloadFactory payload, List<Fixture> dependencies, int index) {
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
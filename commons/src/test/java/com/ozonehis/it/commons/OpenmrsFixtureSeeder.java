@@ -0,0 +1,274 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import com.ozonehis.it.commons.OpenmrsFixtureGraph.Fixture;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Seeds OpenMRS with copies of an {@link OpenmrsFixtureGraph} through the REST API. Every fixture is posted once the
+ * fixtures it depends on are created, so independent branches of a copy and different copies are created
+ * concurrently. The number of requests in flight is bounded by the parallelism of the seeder.
+ *
+ * <p>Requests failing with a connection error or a 5xx answer are retried with an exponential backoff. A fixture that
+ * still fails is reported, the fixtures depending on it are skipped.
+ */
+@Slf4j
+public class OpenmrsFixtureSeeder {
+
+    private static final Duration INITIAL_RETRY_DELAY = Duration.ofMillis(200);
+
+    private final int parallelism;
+
+    private final int maxAttempts;
+
+    private final Creator creator;
+
+    /**
+     * Posts a payload to an OpenMRS REST resource.
+     */
+    @FunctionalInterface
+    interface Creator {
+
+        /**
+         * @return the UUID of the created entity
+         */
+        String create(String resource, Map<String, Object> payload);
+    }
+
+    /**
+     * @param parallelism the maximum number of requests in flight
+     * @param maxAttempts the number of times a fixture is posted before it is reported as failed
+     */
+    public OpenmrsFixtureSeeder(int parallelism, int maxAttempts) {
+        this(parallelism, maxAttempts, OpenmrsRestClient::create);
+    }
+
+    OpenmrsFixtureSeeder(int parallelism, int maxAttempts, Creator creator) {
+        if (parallelism < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Parallelism and attempts must be positive");
+        }
+        this.parallelism = parallelism;
+        this.maxAttempts = maxAttempts;
+        this.creator = creator;
+    }
+
+    /**
+     * Creates copies of the graph and waits until every fixture is created or failed.
+     *
+     * @param graph  the fixtures of one copy
+     * @param copies the number of copies, e.g. the number of patients
+     * @return the report of the seeding, with the UUIDs of the created fixtures
+     */
+    public SeedingReport seed(OpenmrsFixtureGraph graph, int copies) {
+        List<Fixture> fixtures = graph.fixtures();
+        Map<Fixture, AtomicInteger> created = new LinkedHashMap<>();
+        fixtures.forEach(fixture -> created.put(fixture, new AtomicInteger()));
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        AtomicLong retries = new AtomicLong();
+        List<List<String>> uuids = new ArrayList<>(copies);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "ozone-openmrs-seeder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<String>> all = new ArrayList<>(copies * fixtures.size());
+        try {
+            for (int copy = 0; copy < copies; copy++) {
+                int copyIndex = copy;
+                String[] copyUuids = new String[fixtures.size()];
+                List<CompletableFuture<String>> futures = new ArrayList<>(fixtures.size());
+                OpenmrsFixtureGraph.Uuids lookup = new OpenmrsFixtureGraph.Uuids() {
+
+                    @Override
+                    public String of(Fixture fixture) {
+                        return futures.get(fixture.index()).join();
+                    }
+
+                    @Override
+                    public int copy() {
+                        return copyIndex;
+                    }
+                };
+                for (Fixture fixture : fixtures) {
+                    CompletableFuture<?>[] dependencies = fixture.dependencies().stream()
+                            .map(dependency -> futures.get(dependency.index()))
+                            .toArray(CompletableFuture[]::new);
+                    CompletableFuture<String> future = CompletableFuture.allOf(dependencies)
+                            .thenApplyAsync(
+                                    ignored -> {
+                                        String uuid = create(fixture, lookup, retries);
+                                        copyUuids[fixture.index()] = uuid;
+                                        created.get(fixture).incrementAndGet();
+                                        return uuid;
+                                    },
+                                    executor);
+                    // The seeding waits for the failures to be recorded, not just for the fixtures to complete
+                    all.add(future.whenComplete((uuid, error) -> {
+                        // Only the fixture that failed itself is reported, not the dependents skipped because of it
+                        if (error != null && !(error.getCause() instanceof SkippedException)) {
+                            failures.put(fixture.name() + "#" + copyIndex, rootMessage(error));
+                        }
+                    }));
+                    futures.add(future.exceptionally(error -> {
+                        throw new CompletionException(new SkippedException());
+                    }));
+                }
+                uuids.add(Arrays.asList(copyUuids));
+            }
+            CompletableFuture.allOf(all.toArray(CompletableFuture[]::new))
+                    .handle((result, error) -> null)
+                    .join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Integer> createdCounts = new LinkedHashMap<>();
+        created.forEach((fixture, count) -> createdCounts.put(fixture.name(), count.get()));
+        int createdTotal =
+                created.values().stream().mapToInt(AtomicInteger::get).sum();
+        SeedingReport report = new SeedingReport(
+                Duration.ofNanos(System.nanoTime() - startNanos),
+                createdCounts,
+                copies * fixtures.size() - createdTotal,
+                retries.get(),
+                Map.copyOf(failures),
+                fixtures.stream().map(Fixture::name).toList(),
+                uuids);
+        if (report.failed() == 0) {
+            log.info(report.summary());
+        } else {
+            log.error(report.summary());
+        }
+        return report;
+    }
+
+    private String create(Fixture fixture, OpenmrsFixtureGraph.Uuids uuids, AtomicLong retries) {
+        Map<String, Object> payload = fixture.payload().payload(uuids);
+        long delayMillis = INITIAL_RETRY_DELAY.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return creator.create(fixture.resource(), payload);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                log.debug("Retrying {} after attempt {} failed: {}", fixture.name(), attempt, e.getMessage());
+                retries.incrementAndGet();
+            }
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while seeding " + fixture.name(), e);
+            }
+            delayMillis *= 2;
+        }
+    }
+
+    /**
+     * Connection errors and server errors are transient under load, client errors are caused by the payload.
+     */
+    private static boolean isRetryable(RuntimeException e) {
+        if (e instanceof OpenmrsRestException restException) {
+            return restException.getStatusCode() >= 500;
+        }
+        return e.getCause() instanceof IOException;
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    /**
+     * Marks a fixture skipped because a fixture it depends on failed.
+     */
+    private static final class SkippedException extends RuntimeException {
+
+        private SkippedException() {
+            super("skipped", null, false, false);
+        }
+    }
+
+    /**
+     * The outcome of a seeding.
+     *
+     * @param duration the time the seeding took
+     * @param created  the number of created entities, per fixture
+     * @param failed   the number of entities that failed or were skipped because a dependency failed
+     * @param retries  the number of retried requests
+     * @param failures the error of every failed fixture, keyed by fixture name and copy
+     * @param fixtures the names of the fixtures, in creation order
+     * @param uuids    the UUIDs of the created entities per copy, in creation order, null where not created
+     */
+    public record SeedingReport(
+            Duration duration,
+            Map<String, Integer> created,
+            int failed,
+            long retries,
+            Map<String, String> failures,
+            List<String> fixtures,
+            List<List<String>> uuids) {
+
+        /**
+         * @return the total number of created entities
+         */
+        public int total() {
+            return created.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        /**
+         * @return the number of created entities per second
+         */
+        public double throughput() {
+            return duration.isZero() ? 0 : total() * 1e9 / duration.toNanos();
+        }
+
+        /**
+         * @param copy    the index of the copy
+         * @param fixture the name of the fixture
+         * @return the UUID of the created entity, or null if it was not created
+         */
+        public String uuid(int copy, String fixture) {
+            return uuids.get(copy).get(fixtures.indexOf(fixture));
+        }
+
+        public String summary() {
+            StringBuilder summary = new StringBuilder(String.format(
+                    "Seeded %d OpenMRS entities in %d ms, %.1f entities/s, %d failed, %d retries",
+                    total(), duration.toMillis(), throughput(), failed, retries));
+            created.forEach((name, count) -> summary.append(String.format("%n  %-24s %d created", name, count)));
+            failures.entrySet().stream()
+                    .limit(10)
+                    .forEach(failure ->
+                            summary.append(String.format("%n  failed %s: %s", failure.getKey(), failure.getValue())));
+            return summary.toString();
+        }
+    }
+}
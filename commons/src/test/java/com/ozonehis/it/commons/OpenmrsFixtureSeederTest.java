@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ozonehis.it.commons.OpenmrsFixtureGraph.Fixture;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OpenmrsFixtureSeederTest {
+
+    private final OpenmrsFixtureGraph graph = new OpenmrsFixtureGraph();
+
+    private final Map<String, Map<String, Object>> created = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextUuid = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        Fixture patient = graph.add("patient", "patient", uuids -> Map.of("name", "patient-" + uuids.copy()));
+        Fixture visit = graph.add(
+                "visit",
+                "visit",
+                uuids -> Map.of("name", "visit-" + uuids.copy(), "patient", uuids.of(patient)),
+                patient);
+        graph.add(
+                "encounter",
+                "encounter",
+                uuids -> Map.of(
+                        "name", "encounter-" + uuids.copy(), "patient", uuids.of(patient), "visit", uuids.of(visit)),
+                patient,
+                visit);
+        graph.add("allergy", "allergy", uuids -> Map.of("name", "allergy-" + uuids.copy()), patient);
+    }
+
+    @Test
+    @DisplayName("should create every fixture after the fixtures it depends on.")
+    public void shouldCreateInDependencyOrder() {
+        OpenmrsFixtureSeeder.SeedingReport report = new OpenmrsFixtureSeeder(4, 1, this::create).seed(graph, 5);
+
+        assertEquals(0, report.failed());
+        assertEquals(20, report.total());
+        assertEquals(Map.of("patient", 5, "visit", 5, "encounter", 5, "allergy", 5), report.created());
+        for (int copy = 0; copy < 5; copy++) {
+            String patient = report.uuid(copy, "patient");
+            String visit = report.uuid(copy, "visit");
+            assertEquals("patient-" + copy, created.get(patient).get("name"));
+            assertEquals(patient, created.get(visit).get("patient"));
+            assertEquals(visit, created.get(report.uuid(copy, "encounter")).get("visit"));
+            assertEquals(patient, created.get(report.uuid(copy, "encounter")).get("patient"));
+        }
+    }
+
+    @Test
+    @DisplayName("should retry transient errors and skip the dependents of failed fixtures.")
+    public void shouldRetryAndSkipDependents() {
+        OpenmrsFixtureSeeder seeder = new OpenmrsFixtureSeeder(2, 3, (resource, payload) -> {
+            String name = (String) payload.get("name");
+            int attempt =
+                    attempts.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+            if (name.equals("visit-0") && attempt == 1) {
+                throw new OpenmrsRestException(503, "busy");
+            }
+            if (name.equals("allergy-0") && attempt == 1) {
+                throw new UncheckedIOException(new IOException("connection reset"));
+            }
+            if (name.equals("patient-1")) {
+                throw new OpenmrsRestException(400, "invalid");
+            }
+            return create(resource, payload);
+        });
+
+        OpenmrsFixtureSeeder.SeedingReport report = seeder.seed(graph, 2);
+
+        assertEquals(2, report.retries());
+        assertEquals(4, report.failed());
+        assertEquals(Set.of("patient#1"), report.failures().keySet());
+        assertTrue(report.failures().get("patient#1").contains("400"));
+        assertEquals(1, attempts.get("patient-1").get());
+        assertEquals(Map.of("patient", 1, "visit", 1, "encounter", 1, "allergy", 1), report.created());
+        assertEquals(
+                List.of(),
+                created.values().stream()
+                        .filter(payload -> payload.get("name").toString().endsWith("-1"))
+                        .toList());
+        assertNull(report.uuid(1, "visit"));
+    }
+
+    @Test
+    @DisplayName("should reject a parallelism or attempts below one.")
+    public void shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new OpenmrsFixtureSeeder(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new OpenmrsFixtureSeeder(1, 0));
+    }
+
+    private String create(String resource, Map<String, Object> payload) {
+        String uuid = resource + "-" + nextUuid.incrementAndGet();
+        created.put(uuid, payload);
+        return uuid;
+    }
+}
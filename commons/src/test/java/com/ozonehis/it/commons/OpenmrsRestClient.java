@@ -7,20 +7,66 @@
  */
 package com.ozonehis.it.commons;
 
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_OPENMRS_CONNECT_TIMEOUT_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_OPENMRS_HTTP2_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_OPENMRS_REQUEST_TIMEOUT_PROPERTY;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * A client of the OpenMRS REST API. All requests share one HTTP client, so connections are kept alive and reused
+ * across calls. The client is created on first use and released by {@link #shutdown()}, a later call creates a new
+ * one.
+ *
+ * <p>HTTP/2 is enabled through the {@code ozone.openmrs.http2} system property, the connect and request timeouts
+ * through {@code ozone.openmrs.connect.timeout.ms} and {@code ozone.openmrs.request.timeout.ms}.
+ */
 @Slf4j
 @NoArgsConstructor
 public class OpenmrsRestClient {
 
-    private static String getEncodedBasicAuthCredentials() {
+    private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 30000;
+
+    /**
+     * The visit type of visits created without one.
+     */
+    public static final String DEFAULT_VISIT_TYPE_UUID = "7b0f5697-27e3-40c4-8bae-f4049abfb4ed";
+
+    /**
+     * The location of visits created without one.
+     */
+    public static final String DEFAULT_LOCATION_UUID = "aff27d58-a15c-49a6-9beb-d30dcfc0c66e";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String AUTHORIZATION = encodeBasicAuthCredentials();
+
+    private static Transport transport;
+
+    private static String encodeBasicAuthCredentials() {
         final String userAndPass = OzoneApp.OPENMRS.credentials().username() + ":"
                 + OzoneApp.OPENMRS.credentials().password();
         byte[] auth = Base64.getEncoder().encode(userAndPass.getBytes(UTF_8));
@@ -28,36 +74,210 @@ public class OpenmrsRestClient {
     }
 
     protected static String post(String url, String payload) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(java.net.URI.create(url))
+        return send(postRequest(url, payload));
+    }
+
+    protected static String get(String url) {
+        return send(getRequest(url));
+    }
+
+    /**
+     * Posts a JSON payload without blocking the calling thread.
+     *
+     * @param url     the URL of the resource
+     * @param payload the JSON payload
+     * @return a future completing with the response body, or exceptionally with an {@link OpenmrsRestException} if
+     *     OpenMRS did not answer with 2xx
+     */
+    protected static CompletableFuture<String> postAsync(String url, String payload) {
+        return sendAsync(postRequest(url, payload));
+    }
+
+    /**
+     * Gets a resource without blocking the calling thread.
+     *
+     * @param url the URL of the resource
+     * @return a future completing with the response body, or exceptionally with an {@link OpenmrsRestException} if
+     *     OpenMRS did not answer with 2xx
+     */
+    protected static CompletableFuture<String> getAsync(String url) {
+        return sendAsync(getRequest(url));
+    }
+
+    /**
+     * Releases the shared HTTP client and stops the threads it runs on. Requests in flight are abandoned.
+     */
+    public static synchronized void shutdown() {
+        if (transport != null) {
+            transport.executor.shutdownNow();
+            transport = null;
+            log.debug("Released the OpenMRS REST client");
+        }
+    }
+
+    private static HttpRequest postRequest(String url, String payload) {
+        return requestBuilder(url)
                 .header("Content-Type", "application/json")
-                .header("Authorization", getEncodedBasicAuthCredentials())
-                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .POST(HttpRequest.BodyPublishers.ofString(payload, UTF_8))
                 .build();
+    }
+
+    private static HttpRequest getRequest(String url) {
+        return requestBuilder(url).GET().build();
+    }
+
+    private static HttpRequest.Builder requestBuilder(String url) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(transport().requestTimeout)
+                .header("Accept", "application/json")
+                .header("Authorization", AUTHORIZATION);
+    }
+
+    private static String send(HttpRequest request) {
         try {
-            var client = HttpClient.newHttpClient();
-            var response = client.send(request, java.net.http.HttpResponse.BodyHandlers.ofString());
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                return response.body();
-            } else {
-                throw new RuntimeException("Failed : HTTP error code : " + response.statusCode() + response.body());
-            }
-        } catch (IOException | InterruptedException e) {
+            return body(transport().client.send(request, HttpResponse.BodyHandlers.ofString()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
     }
 
-    // create Visit
+    private static CompletableFuture<String> sendAsync(HttpRequest request) {
+        return transport()
+                .client
+                .sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(OpenmrsRestClient::body);
+    }
+
+    private static String body(HttpResponse<String> response) {
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            return response.body();
+        }
+        throw new OpenmrsRestException(response.statusCode(), response.body());
+    }
+
+    private static synchronized Transport transport() {
+        if (transport == null) {
+            transport = new Transport(
+                    Boolean.getBoolean(OZONE_OPENMRS_HTTP2_PROPERTY),
+                    Duration.ofMillis(
+                            Long.getLong(OZONE_OPENMRS_CONNECT_TIMEOUT_PROPERTY, DEFAULT_CONNECT_TIMEOUT_MILLIS)),
+                    Duration.ofMillis(
+                            Long.getLong(OZONE_OPENMRS_REQUEST_TIMEOUT_PROPERTY, DEFAULT_REQUEST_TIMEOUT_MILLIS)));
+        }
+        return transport;
+    }
+
+    /**
+     * The shared HTTP client with the threads it runs on. Its selector thread ends once the client is no longer
+     * referenced.
+     */
+    private static final class Transport {
+
+        private final ExecutorService executor;
+
+        private final HttpClient client;
+
+        private final Duration requestTimeout;
+
+        private Transport(boolean http2, Duration connectTimeout, Duration requestTimeout) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ozone-openmrs-rest-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.client = HttpClient.newBuilder()
+                    .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(connectTimeout)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .executor(executor)
+                    .build();
+            this.requestTimeout = requestTimeout;
+            log.debug(
+                    "Created the OpenMRS REST client using {} with a request timeout of {} ms",
+                    client.version(),
+                    requestTimeout.toMillis());
+        }
+    }
+
+    /**
+     * Creates an entity through the REST API.
+     *
+     * @param resource the REST resource, e.g. {@code encounter}
+     * @param payload  the JSON payload as a map
+     * @return the UUID of the created entity
+     * @throws OpenmrsRestException if OpenMRS did not answer with 2xx
+     */
+    public static String create(String resource, Map<String, Object> payload) {
+        return uuidOf(post(OzoneApp.OPENMRS.baseUrl() + "/ws/rest/v1/" + resource, toJson(payload)));
+    }
+
+    /**
+     * Creates a visit of the default visit type at the default location, starting now.
+     *
+     * @param patientUuid the UUID of the patient
+     * @return the created visit
+     */
     public static String createVisit(String patientUuid) {
-        String visitPayload = "    \"patient\": \"'" + patientUuid + "'\",\n"
-                + "    \"visitType\": \"7b0f5697-27e3-40c4-8bae-f4049abfb4ed\",\n"
-                + "    \"startDatetime\": \"2025-09-20T04:09:25.000Z\",\n"
-                + "    \"location\": \"aff27d58-a15c-49a6-9beb-d30dcfc0c66e\"\n"
-                + "}";
+        return createVisit(patientUuid, DEFAULT_VISIT_TYPE_UUID, DEFAULT_LOCATION_UUID, Instant.now());
+    }
 
+    /**
+     * Creates a visit.
+     *
+     * @param patientUuid   the UUID of the patient
+     * @param visitTypeUuid the UUID of the visit type
+     * @param locationUuid  the UUID of the location
+     * @param startDatetime the start of the visit
+     * @return the created visit
+     */
+    public static String createVisit(
+            String patientUuid, String visitTypeUuid, String locationUuid, Instant startDatetime) {
         String url = OzoneApp.OPENMRS.baseUrl() + "/ws/rest/v1/visit";
-        var body = post(url, visitPayload);
+        var body = post(url, toJson(visitPayload(patientUuid, visitTypeUuid, locationUuid, startDatetime)));
         log.info("Created visit: {}", body);
         return body;
     }
+
+    /**
+     * @return the payload creating a visit, e.g. for an {@link OpenmrsFixtureGraph}
+     */
+    public static Map<String, Object> visitPayload(
+            String patientUuid, String visitTypeUuid, String locationUuid, Instant startDatetime) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("patient", patientUuid);
+        payload.put("visitType", visitTypeUuid);
+        payload.put(
+                "startDatetime", DateTimeFormatter.ISO_INSTANT.format(startDatetime.truncatedTo(ChronoUnit.MILLIS)));
+        payload.put("location", locationUuid);
+        return payload;
+    }
+
+    static String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload cannot be serialized: " + payload, e);
+        }
+    }
+
+    /**
+     * @param body the body of an answer of the OpenMRS REST API
+     * @return the UUID of the resource the answer describes
+     */
+    static String uuidOf(String body) {
+        try {
+            JsonNode uuid = objectMapper.readTree(body).get("uuid");
+            if (uuid == null || !uuid.isTextual()) {
+                throw new IllegalStateException("No uuid in the answer: " + body);
+            }
+            return uuid.asText();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("The answer is not JSON: " + body, e);
+        }
+    }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import lombok.Getter;
+
+/**
+ * Thrown when the OpenMRS REST API answers with a status other than 2xx. Carries the status code and the body of the
+ * answer.
+ */
+@Getter
+public class OpenmrsRestException extends RuntimeException {
+
+    private final int statusCode;
+
+    private final String responseBody;
+
+    public OpenmrsRestException(int statusCode, String responseBody) {
+        super("Failed : HTTP error code : " + statusCode + responseBody);
+        this.statusCode = statusCode;
+        this.responseBody = responseBody;
+    }
+}
@@ -7,18 +7,53 @@
  */
 package com.ozonehis.it.commons;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.list.UnmodifiableList;
-import org.springframework.http.HttpStatusCode;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * This class is responsible for checking the readiness of Ozone applications. It can be extended to implement specific
  * readiness checks for different applications.
+ *
+ * <p>All probes share one HTTP client. Waiting for several apps probes every app concurrently on its own thread, with a
+ * jittered exponential backoff between probes and a deadline measured on the monotonic clock.
  */
 @Slf4j
 public class OzoneAppReadinessChecker {
 
+    private static final Duration DEFAULT_PROBE_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Duration INITIAL_BACKOFF = Duration.ofMillis(250);
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    private static final double BACKOFF_JITTER = 0.2;
+
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(DEFAULT_PROBE_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private static final Map<OzoneApp, Duration> probeTimeouts = new EnumMap<>(Map.of(
+            // The started endpoint of OpenMRS answers slowly while modules are still loading
+            OzoneApp.OPENMRS, Duration.ofSeconds(10)));
+
+    private static final Map<OzoneApp, Instant> readySince = new ConcurrentHashMap<>();
+
     /**
      * Checks if a specific Ozone application is ready by making a GET request to its health check endpoint.
      *
@@ -26,64 +61,166 @@ public class OzoneAppReadinessChecker {
      * @return true if the application is ready, false otherwise
      */
     public static boolean isReady(OzoneApp app) {
-        RestTemplate restTemplate = new RestTemplate();
+        return isReady(app, probeTimeout(app));
+    }
+
+    private static boolean isReady(OzoneApp app, Duration timeout) {
         String readinessUri = app.baseUrl() + app.healthCheckEndpoint();
         try {
-            HttpStatusCode status =
-                    restTemplate.getForEntity(readinessUri, String.class).getStatusCode();
-            if (status.is2xxSuccessful()) {
-                log.info("{} application is ready at {}", app.name(), readinessUri);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(readinessUri))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            int status = httpClient
+                    .send(request, HttpResponse.BodyHandlers.discarding())
+                    .statusCode();
+            if (status >= 200 && status < 300) {
+                if (readySince.putIfAbsent(app, Instant.now()) == null) {
+                    log.info("{} application is ready at {}", app.name(), readinessUri);
+                }
                 return true;
             } else {
                 log.warn("{} application is not available. Status code: {}", app.name(), status);
-                return false;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("{} application readiness check was interrupted", app.name());
         } catch (Exception e) {
             log.warn("{} application not ready: {}", app.name(), e.getMessage());
-            return false;
         }
+        readySince.remove(app);
+        return false;
     }
 
     /**
-     * Checks if all specified Ozone applications are ready.
+     * Checks if all specified Ozone applications are ready. The applications are probed concurrently.
      *
      * @param apps the array of Ozone applications to check
      * @return true if all applications are ready, false otherwise
      */
     public static boolean areAllAppsReady(UnmodifiableList<OzoneApp> apps) {
-        for (OzoneApp app : apps) {
-            if (!isReady(app)) {
-                log.error("{} application is not ready", app.name());
-                return false;
+        List<CompletableFuture<Boolean>> probes = apps.stream()
+                .map(app -> runOnAppThread(app, "probe", () -> isReady(app)))
+                .toList();
+        boolean allReady = true;
+        for (int i = 0; i < apps.size(); i++) {
+            if (!probes.get(i).join()) {
+                log.error("{} application is not ready", apps.get(i).name());
+                allReady = false;
             }
         }
-        log.info("All specified Ozone applications are ready.");
-        return true;
+        if (allReady) {
+            log.info("All specified Ozone applications are ready.");
+        }
+        return allReady;
     }
 
     /**
-     * Waits until all specified Ozone applications are ready.
+     * Waits until all specified Ozone applications are ready. Every application is probed on its own thread until it
+     * is ready or the timeout elapsed, so a slow application does not delay the probes of the others.
      *
      * @param apps the array of Ozone applications to check
      * @param timeoutSeconds the maximum time to wait in seconds
      * @return true if all applications are ready within the timeout,false otherwise
      */
     public static boolean waitForAppsReady(int timeoutSeconds, UnmodifiableList<OzoneApp> apps) {
-        int elapsedTime = 0;
-        while (elapsedTime < timeoutSeconds) {
-            if (areAllAppsReady(apps)) {
-                log.info("All Ozone applications are ready after {} seconds.", elapsedTime);
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        List<CompletableFuture<Boolean>> waits = apps.stream()
+                .map(app -> runOnAppThread(app, "wait", () -> awaitReady(app, deadlineNanos)))
+                .toList();
+
+        boolean allReady = true;
+        for (int i = 0; i < apps.size(); i++) {
+            if (!waits.get(i).join()) {
+                log.error(
+                        "{} application is not ready after {} seconds",
+                        apps.get(i).name(),
+                        timeoutSeconds);
+                allReady = false;
+            }
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (allReady) {
+            log.info("All Ozone applications are ready after {} ms.", elapsedMillis);
+        } else {
+            log.error("Timeout reached. Not all Ozone applications are ready after {} seconds.", timeoutSeconds);
+        }
+        return allReady;
+    }
+
+    /**
+     * Returns when an app was first seen ready since it was last seen not ready.
+     *
+     * @param app the Ozone application
+     * @return the time the application became ready, empty if it was not seen ready
+     */
+    public static Optional<Instant> getReadySince(OzoneApp app) {
+        return Optional.ofNullable(readySince.get(app));
+    }
+
+    /**
+     * Overrides the time a single probe of an application may take.
+     *
+     * @param app     the Ozone application
+     * @param timeout the timeout of a probe
+     */
+    public static void setProbeTimeout(OzoneApp app, Duration timeout) {
+        synchronized (probeTimeouts) {
+            probeTimeouts.put(app, timeout);
+        }
+    }
+
+    private static Duration probeTimeout(OzoneApp app) {
+        synchronized (probeTimeouts) {
+            return probeTimeouts.getOrDefault(app, DEFAULT_PROBE_TIMEOUT);
+        }
+    }
+
+    /**
+     * Probes an app until it is ready or the deadline passed, backing off exponentially with jitter between probes.
+     */
+    private static boolean awaitReady(OzoneApp app, long deadlineNanos) {
+        long backoffMillis = INITIAL_BACKOFF.toMillis();
+        while (true) {
+            // A probe never runs past the deadline
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return false;
+            }
+            Duration timeout = probeTimeout(app);
+            if (isReady(app, remainingMillis < timeout.toMillis() ? Duration.ofMillis(remainingMillis) : timeout)) {
                 return true;
             }
+            remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return false;
+            }
+            double jitter = 1 + ThreadLocalRandom.current().nextDouble(-BACKOFF_JITTER, BACKOFF_JITTER);
             try {
-                Thread.sleep(1000); // Wait for 1 second before checking again
+                Thread.sleep(Math.min(remainingMillis, (long) (backoffMillis * jitter)));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                log.error("Thread interrupted while waiting for apps to be ready", e);
+                log.error("Thread interrupted while waiting for {} to be ready", app.name(), e);
+                return false;
             }
-            elapsedTime++;
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF.toMillis());
         }
-        log.error("Timeout reached. Not all Ozone applications are ready after {} seconds.", timeoutSeconds);
-        return false;
+    }
+
+    private static CompletableFuture<Boolean> runOnAppThread(OzoneApp app, String purpose, Supplier<Boolean> task) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        Thread thread = new Thread(
+                () -> {
+                    try {
+                        future.complete(task.get());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                },
+                "ozone-readiness-" + purpose + "-" + app.name().toLowerCase());
+        thread.setDaemon(true);
+        thread.start();
+        return future;
     }
 }
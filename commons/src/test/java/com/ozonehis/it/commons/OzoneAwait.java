@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Waits for eventually consistent state, e.g. a patient created in OpenMRS being synchronized to Odoo. A query is
+ * polled until its result matches a condition or the deadline passes. The delay between polls starts at a fraction of
+ * the latencies observed earlier for the same check and grows exponentially, so fast synchronizations are seen quickly
+ * without hammering slow ones. The observed latency of every successful check is recorded.
+ *
+ * <p>When a {@link ChangeSignal} is given, e.g. a subscription of an {@link OdooChangeFeed}, the query is only repeated
+ * once a change is signalled, so the match is seen the moment the change is committed.
+ */
+@Slf4j
+public final class OzoneAwait {
+
+    private static final Duration MIN_POLL_DELAY = Duration.ofMillis(50);
+
+    private static final Duration DEFAULT_POLL_DELAY = Duration.ofMillis(100);
+
+    private static final Duration MAX_POLL_DELAY = Duration.ofSeconds(2);
+
+    private static final double POLL_DELAY_GROWTH = 1.5;
+
+    /**
+     * The delay after which the query is repeated even though no change was signalled, in case a signal is lost.
+     */
+    private static final Duration SIGNAL_FALLBACK_DELAY = Duration.ofSeconds(5);
+
+    private static final Map<String, List<Duration>> observedLatencies = new ConcurrentHashMap<>();
+
+    private OzoneAwait() {}
+
+    /**
+     * Signals changes that may make a query match.
+     */
+    @FunctionalInterface
+    public interface ChangeSignal {
+
+        /**
+         * @param timeout the time to wait
+         * @return true if a change was signalled within the timeout
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        boolean awaitChange(Duration timeout) throws InterruptedException;
+    }
+
+    /**
+     * Polls a query until its result matches the condition.
+     *
+     * @param check     the name of the check, latencies are recorded per check
+     * @param query     the query, exceptions it throws are treated as a result not matching yet
+     * @param condition the condition the result must match
+     * @param timeout   the time after which the check fails
+     * @param <T>       the type of the query result
+     * @return the first result matching the condition
+     * @throws AssertionError if no result matched the condition within the timeout
+     */
+    public static <T> T await(String check, Supplier<T> query, Predicate<T> condition, Duration timeout) {
+        return await(check, query, condition, timeout, null);
+    }
+
+    /**
+     * Runs a query until its result matches the condition, repeating it whenever a change is signalled.
+     *
+     * @param check     the name of the check, latencies are recorded per check
+     * @param query     the query, exceptions it throws are treated as a result not matching yet
+     * @param condition the condition the result must match
+     * @param timeout   the time after which the check fails
+     * @param signal    the signal of changes, or null to poll
+     * @param <T>       the type of the query result
+     * @return the first result matching the condition
+     * @throws AssertionError if no result matched the condition within the timeout
+     */
+    public static <T> T await(
+            String check, Supplier<T> query, Predicate<T> condition, Duration timeout, ChangeSignal signal) {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + timeout.toNanos();
+        long delayMillis = initialPollDelay(check).toMillis();
+        int polls = 0;
+        T lastResult = null;
+        RuntimeException lastError = null;
+
+        while (true) {
+            polls++;
+            try {
+                lastResult = query.get();
+                lastError = null;
+                if (condition.test(lastResult)) {
+                    Duration latency = Duration.ofNanos(System.nanoTime() - startNanos);
+                    observedLatencies
+                            .computeIfAbsent(check, key -> new CopyOnWriteArrayList<>())
+                            .add(latency);
+                    log.info("{} succeeded after {} ms and {} polls", check, latency.toMillis(), polls);
+                    return lastResult;
+                }
+            } catch (RuntimeException e) {
+                lastError = e;
+            }
+
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis <= 0) {
+                String reason = lastError != null
+                        ? "last query failed with " + lastError.getMessage()
+                        : "last result was " + lastResult;
+                AssertionError error = new AssertionError(String.format(
+                        "%s did not succeed within %d ms and %d polls, %s", check, timeout.toMillis(), polls, reason));
+                if (lastError != null) {
+                    error.initCause(lastError);
+                }
+                throw error;
+            }
+            try {
+                if (signal != null) {
+                    signal.awaitChange(Duration.ofMillis(Math.min(SIGNAL_FALLBACK_DELAY.toMillis(), remainingMillis)));
+                    continue;
+                }
+                Thread.sleep(Math.min(delayMillis, remainingMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError("Interrupted while waiting for " + check, e);
+            }
+            delayMillis = Math.min((long) (delayMillis * POLL_DELAY_GROWTH), MAX_POLL_DELAY.toMillis());
+        }
+    }
+
+    /**
+     * @return the latencies observed so far, per check
+     */
+    public static Map<String, List<Duration>> getObservedLatencies() {
+        Map<String, List<Duration>> latencies = new TreeMap<>();
+        observedLatencies.forEach((check, durations) -> latencies.put(check, List.copyOf(durations)));
+        return latencies;
+    }
+
+    /**
+     * @return one line per check with the number of samples and the minimum, median and maximum latency
+     */
+    public static String latencySummary() {
+        StringBuilder summary = new StringBuilder("Observed latencies:");
+        getObservedLatencies().forEach((check, durations) -> {
+            List<Duration> sorted = new ArrayList<>(durations);
+            sorted.sort(null);
+            summary.append(String.format(
+                    "%n  %-48s n=%d min=%d ms median=%d ms max=%d ms",
+                    check,
+                    sorted.size(),
+                    sorted.get(0).toMillis(),
+                    sorted.get(sorted.size() / 2).toMillis(),
+                    sorted.get(sorted.size() - 1).toMillis()));
+        });
+        return summary.toString();
+    }
+
+    /**
+     * Starts polling at a quarter of the median latency observed for the check, the result is unlikely to be there
+     * much earlier.
+     */
+    private static Duration initialPollDelay(String check) {
+        List<Duration> latencies = observedLatencies.get(check);
+        if (latencies == null || latencies.isEmpty()) {
+            return DEFAULT_POLL_DELAY;
+        }
+        List<Duration> sorted = new ArrayList<>(latencies);
+        sorted.sort(null);
+        Duration delay = sorted.get(sorted.size() / 2).dividedBy(4);
+        if (delay.compareTo(MIN_POLL_DELAY) < 0) {
+            return MIN_POLL_DELAY;
+        }
+        return delay.compareTo(MAX_POLL_DELAY) > 0 ? MAX_POLL_DELAY : delay;
+    }
+}
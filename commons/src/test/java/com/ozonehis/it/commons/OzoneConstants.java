@@ -7,6 +7,8 @@
  */
 package com.ozonehis.it.commons;
 
+import java.util.List;
+
 public class OzoneConstants {
 
     public static final String OZONE_PATH = "target/ozone";
@@ -14,4 +16,53 @@ public class OzoneConstants {
     public static final String OZONE_TEST_WORKSPACE = "target/ozone-test-workspace";
 
     public static final int DEFAULT_STARTUP_TIMEOUT_MINUTES = 20;
+
+    public static final String OZONE_WORKSPACE_MODE_PROPERTY = "ozone.workspace.mode";
+
+    public static final String OZONE_WORKSPACE_PARALLELISM_PROPERTY = "ozone.workspace.parallelism";
+
+    public static final String OZONE_CACHE_ENABLED_PROPERTY = "ozone.cache.enabled";
+
+    public static final String OZONE_CACHE_DIR_PROPERTY = "ozone.cache.dir";
+
+    public static final String OZONE_VERSION_PROPERTY = "ozone.version";
+
+    public static final String OZONE_DISTRO_ZIP_PROPERTY = "ozone.distro.zip";
+
+    public static final String OZONE_ATTACH_PROPERTY = "ozone.attach";
+
+    public static final String OZONE_SNAPSHOT_RESET_PROPERTY = "ozone.snapshot.reset";
+
+    public static final String OZONE_SNAPSHOT_HELPER_IMAGE = "alpine:3.20";
+
+    public static final String OZONE_SNAPSHOT_LABEL = "com.ozonehis.it.snapshot";
+
+    public static final String OZONE_SNAPSHOT_SOURCE_LABEL = "com.ozonehis.it.snapshot.source";
+
+    public static final String OZONE_STABILITY_SUCCESSES_PROPERTY = "ozone.stability.successes";
+
+    public static final String OZONE_STABILITY_MAX_LATENCY_PROPERTY = "ozone.stability.max.latency.ms";
+
+    public static final String OZONE_STABILITY_BUDGET_PROPERTY = "ozone.stability.budget.seconds";
+
+    public static final String OZONE_STABILITY_EIP_HEALTH_URL_PROPERTY = "ozone.stability.eip.health.url";
+
+    public static final String OZONE_OPENMRS_HTTP2_PROPERTY = "ozone.openmrs.http2";
+
+    public static final String OZONE_OPENMRS_CONNECT_TIMEOUT_PROPERTY = "ozone.openmrs.connect.timeout.ms";
+
+    public static final String OZONE_OPENMRS_REQUEST_TIMEOUT_PROPERTY = "ozone.openmrs.request.timeout.ms";
+
+    public static final int SCRIPT_OUTPUT_TAIL_LINES = 200;
+
+    public static final long SCRIPT_LOG_MAX_FILE_BYTES = 10 * 1024 * 1024;
+
+    public static final int SCRIPT_LOG_MAX_FILES = 3;
+
+    /**
+     * Workspace files, relative to the Ozone directory, that the runner rewrites and which therefore must never be
+     * shared with the distribution.
+     */
+    public static final List<String> OZONE_PRIVATE_WORKSPACE_FILES =
+            List.of("run/docker/scripts/docker-compose-files.txt", "run/docker/.env");
 }
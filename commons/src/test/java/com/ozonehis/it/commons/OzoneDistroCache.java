@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_CACHE_DIR_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_CACHE_ENABLED_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_DISTRO_ZIP_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_PATH;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_VERSION_PROPERTY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A cache of unpacked Ozone distributions stored outside the build directory. Entries are keyed by the Ozone version
+ * and a hash of the distribution manifest, so an entry is reused as long as neither changes and survives
+ * {@code mvn clean}.
+ *
+ * <p>The manifest is read from the central directory of the Ozone zip artifact when its location is known through the
+ * {@code ozone.distro.zip} system property, which avoids unpacking it in the build. Otherwise it is computed from the
+ * distribution unpacked in {@code target/ozone}.
+ *
+ * <p>An entry is complete once it holds a marker file. Entries are populated under a file lock per key, so concurrent
+ * builds populate an entry once, and only entries without the marker are ever deleted.
+ */
+@Slf4j
+public class OzoneDistroCache {
+
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final Path projectRoot;
+
+    private final Path cacheDir;
+
+    private final String version;
+
+    /**
+     * A resolved cache entry.
+     *
+     * @param key       the content-addressed key of the entry
+     * @param distroDir the unpacked Ozone distribution
+     * @param hit       whether the entry was already cached
+     */
+    public record Entry(String key, Path distroDir, boolean hit) {}
+
+    public OzoneDistroCache(Path projectRoot) {
+        this.projectRoot = projectRoot;
+        this.cacheDir = Paths.get(System.getProperty(
+                OZONE_CACHE_DIR_PROPERTY,
+                Paths.get(System.getProperty("user.home"), ".cache", "ozone-it").toString()));
+        this.version = System.getProperty(OZONE_VERSION_PROPERTY, "unknown");
+    }
+
+    /**
+     * @return true if the distribution cache is enabled through the {@code ozone.cache.enabled} system property
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(OZONE_CACHE_ENABLED_PROPERTY);
+    }
+
+    /**
+     * Computes the cache key of the current Ozone distribution.
+     *
+     * @return the cache key
+     * @throws IOException if neither the Ozone zip nor the unpacked distribution can be found
+     */
+    public String key() throws IOException {
+        MessageDigest digest = sha256();
+        Path distroZip = distroZip();
+        if (distroZip != null) {
+            try (ZipFile zipFile = new ZipFile(distroZip.toFile())) {
+                List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+                entries.stream()
+                        .sorted((a, b) -> a.getName().compareTo(b.getName()))
+                        .forEach(entry ->
+                                digest.update((entry.getName() + ":" + entry.getCrc() + ":" + entry.getSize() + "\n")
+                                        .getBytes(UTF_8)));
+            }
+        } else {
+            Path unpackedDistro = projectRoot.resolve(OZONE_PATH);
+            if (!Files.exists(unpackedDistro)) {
+                throw new IOException(
+                        "Neither the Ozone zip nor the unpacked Ozone directory could be found: " + unpackedDistro);
+            }
+            try (Stream<Path> files = Files.walk(unpackedDistro)) {
+                files.filter(Files::isRegularFile).sorted().forEach(file -> {
+                    try {
+                        digest.update((unpackedDistro.relativize(file) + ":" + Files.size(file) + ":"
+                                        + Files.getLastModifiedTime(file).toMillis() + "\n")
+                                .getBytes(UTF_8));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return version + "-" + HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    /**
+     * Resolves the cache entry of the current Ozone distribution, populating it on a cache miss.
+     *
+     * @return the resolved cache entry
+     * @throws IOException if the cache entry could not be populated
+     */
+    public Entry resolve() throws IOException {
+        String key = key();
+        Path entryDir = cacheDir.resolve(key);
+        Path distroDir = entryDir.resolve("ozone");
+        if (Files.exists(entryDir.resolve(COMPLETE_MARKER))) {
+            log.info("Reusing cached Ozone distribution {} at {}", key, distroDir);
+            return new Entry(key, distroDir, true);
+        }
+
+        Files.createDirectories(cacheDir);
+        // File locks are held by the JVM, so threads of this JVM wait on the class and other builds on the file
+        synchronized (OzoneDistroCache.class) {
+            try (FileChannel lockChannel = FileChannel.open(
+                            cacheDir.resolve(key + LOCK_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock ignored = lockChannel.lock()) {
+                if (Files.exists(entryDir.resolve(COMPLETE_MARKER))) {
+                    log.info("Reusing Ozone distribution {} cached by another build at {}", key, distroDir);
+                    return new Entry(key, distroDir, true);
+                }
+                populate(key, entryDir);
+            }
+        }
+        return new Entry(key, distroDir, false);
+    }
+
+    /**
+     * Populates a cache entry, while holding the lock of the entry.
+     */
+    private void populate(String key, Path entryDir) throws IOException {
+        long startTime = System.nanoTime();
+        Path stagingDir = Files.createTempDirectory(cacheDir, key + ".staging-");
+        try {
+            Path stagedDistro = stagingDir.resolve("ozone");
+            Path distroZip = distroZip();
+            if (distroZip != null) {
+                log.info("Populating Ozone distribution cache {} from {}", key, distroZip);
+                unzip(distroZip, stagedDistro);
+            } else {
+                Path unpackedDistro = projectRoot.resolve(OZONE_PATH);
+                log.info("Populating Ozone distribution cache {} from {}", key, unpackedDistro);
+                ParallelFileTree.copy(
+                                unpackedDistro,
+                                stagedDistro,
+                                (source, target, relativePath) ->
+                                        Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES))
+                        .throwIfFailed();
+            }
+            Files.createFile(stagingDir.resolve(COMPLETE_MARKER));
+
+            if (Files.exists(entryDir)) {
+                // The marker was checked under the lock, so this is an entry left behind by an interrupted run
+                ParallelFileTree.delete(entryDir).throwIfFailed();
+            }
+            Files.move(stagingDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ParallelFileTree.delete(stagingDir);
+            throw e;
+        }
+        log.info("Cached Ozone distribution {} in {} ms", key, (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private Path distroZip() {
+        String distroZip = System.getProperty(OZONE_DISTRO_ZIP_PROPERTY);
+        if (distroZip == null || distroZip.isBlank()) {
+            return null;
+        }
+        Path path = Paths.get(distroZip);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static void unzip(Path zip, Path targetDir) throws IOException {
+        Path normalizedTarget = targetDir.toAbsolutePath().normalize();
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                Path target = normalizedTarget.resolve(entry.getName()).normalize();
+                if (!target.startsWith(normalizedTarget)) {
+                    throw new IOException("Zip entry is outside of the target directory: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    Files.copy(in, target);
+                }
+                if (entry.getName().endsWith(".sh")) {
+                    target.toFile().setExecutable(true);
+                }
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
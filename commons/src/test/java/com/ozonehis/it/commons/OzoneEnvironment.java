@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The variables of an Ozone {@code .env} file. Comments, blank lines and the order of the variables are preserved when
+ * the file is written back.
+ *
+ * <p>Values are read like compose reads them: the quotes around {@code KEY="a b"} and {@code KEY='a b'} are not part of
+ * the value, double-quoted values unescape {@code \"} and {@code \\}, and {@code #} after a blank starts a comment in
+ * unquoted values. Values that need quotes are written double-quoted.
+ */
+public class OzoneEnvironment {
+
+    private static final String EXPORT_PREFIX = "export ";
+
+    private final Path file;
+
+    private final List<String> lines;
+
+    private final Map<String, Integer> lineIndexes = new LinkedHashMap<>();
+
+    private OzoneEnvironment(Path file, List<String> lines) {
+        this.file = file;
+        this.lines = lines;
+        for (int i = 0; i < lines.size(); i++) {
+            String key = keyOf(lines.get(i));
+            if (key != null) {
+                lineIndexes.put(key, i);
+            }
+        }
+    }
+
+    /**
+     * Reads an environment file.
+     *
+     * @param file the .env file
+     * @return the parsed environment
+     * @throws IOException if the file cannot be read
+     */
+    public static OzoneEnvironment read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            throw new IOException("Environment file not found at: " + file);
+        }
+        return new OzoneEnvironment(file, new ArrayList<>(Files.readAllLines(file)));
+    }
+
+    /**
+     * @param key the variable name
+     * @return the value of the variable, or null if it is not set
+     */
+    public String get(String key) {
+        Integer index = lineIndexes.get(key);
+        return index == null ? null : valueOf(lines.get(index));
+    }
+
+    /**
+     * @return the variables of the file, in file order
+     */
+    public Map<String, String> asMap() {
+        Map<String, String> variables = new LinkedHashMap<>();
+        lineIndexes.forEach((key, index) -> variables.put(key, valueOf(lines.get(index))));
+        return variables;
+    }
+
+    /**
+     * Sets variables, replacing the existing values and appending new variables at the end of the file.
+     *
+     * @param variables the variables to set
+     * @return the names of the variables whose value changed
+     */
+    public Set<String> set(Map<String, String> variables) {
+        Set<String> changed = new LinkedHashSet<>();
+        variables.forEach((key, value) -> {
+            if (Objects.equals(get(key), value)) {
+                return;
+            }
+            Integer index = lineIndexes.get(key);
+            if (index == null) {
+                lines.add(key + "=" + quote(value));
+                lineIndexes.put(key, lines.size() - 1);
+            } else {
+                String prefix = lines.get(index).trim().startsWith(EXPORT_PREFIX) ? EXPORT_PREFIX : "";
+                lines.set(index, prefix + key + "=" + quote(value));
+            }
+            changed.add(key);
+        });
+        return changed;
+    }
+
+    /**
+     * Writes the file atomically, readers see either the old or the new file. Replacing the file also breaks a hard link
+     * to the Ozone distribution, which is therefore never modified.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write() throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, lines);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String keyOf(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#") || !trimmed.contains("=")) {
+            return null;
+        }
+        if (trimmed.startsWith(EXPORT_PREFIX)) {
+            trimmed = trimmed.substring(EXPORT_PREFIX.length()).trim();
+        }
+        return trimmed.substring(0, trimmed.indexOf('=')).trim();
+    }
+
+    private static String valueOf(String line) {
+        String value = line.substring(line.indexOf('=') + 1).trim();
+        if (value.length() >= 2 && value.startsWith("'") && value.indexOf('\'', 1) > 0) {
+            return value.substring(1, value.indexOf('\'', 1));
+        }
+        if (value.startsWith("\"")) {
+            StringBuilder unquoted = new StringBuilder();
+            for (int i = 1; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    return unquoted.toString();
+                }
+                if (c == '\\' && i + 1 < value.length()) {
+                    c = value.charAt(++i);
+                    unquoted.append(c == 'n' ? '\n' : c == 't' ? '\t' : c);
+                } else {
+                    unquoted.append(c);
+                }
+            }
+            // No closing quote, the quote is part of the value
+            return value;
+        }
+        int comment = value.indexOf(" #");
+        return comment < 0 ? value : value.substring(0, comment).trim();
+    }
+
+    /**
+     * Quotes a value that would not be read back as is without quotes.
+     */
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean plain = value.equals(value.trim())
+                && !value.startsWith("\"")
+                && !value.startsWith("'")
+                && !value.contains(" #")
+                && !value.contains("\n");
+        if (plain) {
+            return value;
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+}
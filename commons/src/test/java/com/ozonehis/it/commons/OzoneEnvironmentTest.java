@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OzoneEnvironmentTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should read values like compose does.")
+    public void shouldReadValues() throws IOException {
+        OzoneEnvironment environment = environment(
+                "# Ozone",
+                "",
+                "PLAIN=value",
+                "  SPACED = padded  ",
+                "export EXPORTED=yes",
+                "DOUBLE=\"a b # not a comment\"",
+                "ESCAPED=\"say \\\"hi\\\" \\\\ there\"",
+                "SINGLE='a \"b\" \\n'",
+                "COMMENTED=value # comment",
+                "HASH=a#b",
+                "UNCLOSED=\"open",
+                "EMPTY=",
+                "NOT A VARIABLE");
+
+        assertEquals("value", environment.get("PLAIN"));
+        assertEquals("padded", environment.get("SPACED"));
+        assertEquals("yes", environment.get("EXPORTED"));
+        assertEquals("a b # not a comment", environment.get("DOUBLE"));
+        assertEquals("say \"hi\" \\ there", environment.get("ESCAPED"));
+        assertEquals("a \"b\" \\n", environment.get("SINGLE"));
+        assertEquals("value", environment.get("COMMENTED"));
+        assertEquals("a#b", environment.get("HASH"));
+        assertEquals("\"open", environment.get("UNCLOSED"));
+        assertEquals("", environment.get("EMPTY"));
+        assertNull(environment.get("MISSING"));
+        assertEquals(
+                List.of(
+                        "PLAIN",
+                        "SPACED",
+                        "EXPORTED",
+                        "DOUBLE",
+                        "ESCAPED",
+                        "SINGLE",
+                        "COMMENTED",
+                        "HASH",
+                        "UNCLOSED",
+                        "EMPTY"),
+                List.copyOf(environment.asMap().keySet()));
+    }
+
+    @Test
+    @DisplayName("should report only the variables whose value changed.")
+    public void shouldReportChangedVariables() throws IOException {
+        OzoneEnvironment environment = environment("A=1", "B=\"2\"");
+        Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("A", "1");
+        variables.put("B", "3");
+        variables.put("C", "4");
+
+        assertEquals(Set.of("B", "C"), environment.set(variables));
+        assertEquals(Set.of(), environment.set(variables));
+        assertEquals(Map.of("A", "1", "B", "3", "C", "4"), environment.asMap());
+    }
+
+    @Test
+    @DisplayName("should write the file back with its comments, order and quoting.")
+    public void shouldWriteFileBack() throws IOException {
+        OzoneEnvironment environment = environment("# Ozone", "export A=1", "", "B=2 # kept");
+        Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("A", "one two");
+        variables.put("C", "with \"quotes\" # and hash");
+        variables.put("D", " padded\nlines ");
+        environment.set(variables);
+
+        environment.write();
+
+        Path file = tempDir.resolve(".env");
+        assertEquals(
+                List.of(
+                        "# Ozone",
+                        "export A=one two",
+                        "",
+                        "B=2 # kept",
+                        "C=\"with \\\"quotes\\\" # and hash\"",
+                        "D=\" padded\\nlines \""),
+                Files.readAllLines(file));
+        OzoneEnvironment reread = OzoneEnvironment.read(file);
+        assertEquals("one two", reread.get("A"));
+        assertEquals("2", reread.get("B"));
+        assertEquals("with \"quotes\" # and hash", reread.get("C"));
+        assertEquals(" padded\nlines ", reread.get("D"));
+        assertFalse(Files.exists(tempDir.resolve(".env.tmp")));
+    }
+
+    @Test
+    @DisplayName("should fail to read a missing file.")
+    public void shouldFailOnMissingFile() {
+        assertThrows(IOException.class, () -> OzoneEnvironment.read(tempDir.resolve("missing.env")));
+    }
+
+    private OzoneEnvironment environment(String... lines) throws IOException {
+        return OzoneEnvironment.read(Files.write(tempDir.resolve(".env"), List.of(lines)));
+    }
+}
@@ -8,24 +8,49 @@
 package com.ozonehis.it.commons;
 
 import static com.ozonehis.it.commons.OzoneConstants.DEFAULT_STARTUP_TIMEOUT_MINUTES;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_ATTACH_PROPERTY;
 import static com.ozonehis.it.commons.OzoneConstants.OZONE_PATH;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_PRIVATE_WORKSPACE_FILES;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_SNAPSHOT_HELPER_IMAGE;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_SNAPSHOT_LABEL;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_SNAPSHOT_SOURCE_LABEL;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_STABILITY_EIP_HEALTH_URL_PROPERTY;
 import static com.ozonehis.it.commons.OzoneConstants.OZONE_TEST_WORKSPACE;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.list.UnmodifiableList;
 
 @Slf4j
 public class OzoneRunner implements AutoCloseable {
@@ -36,6 +61,28 @@ public class OzoneRunner implements AutoCloseable {
 
     private final Path ozoneDir;
 
+    private final OzoneWorkspaceMode workspaceMode;
+
+    private final OzoneDistroCache distroCache;
+
+    private final boolean attachEnabled;
+
+    private boolean attached;
+
+    private final AtomicBoolean linkingSupported = new AtomicBoolean(true);
+
+    private static final String WORKSPACE_KEY_FILE = ".ozone-workspace-key";
+
+    private static final String STACK_FINGERPRINT_FILE = ".ozone-stack-fingerprint";
+
+    private static final int SNAPSHOT_PARALLELISM = 4;
+
+    private static final int READY_TIMEOUT_SECONDS = 360;
+
+    private static final int POSTGRESQL_PORT = 5432;
+
+    private static final String EXCLUDED_SERVICES_COMPOSE_FILE = "docker-compose-ozone-it-excluded-services.yml";
+
     Map<String, String> xterm = Map.of("TERM", "xterm-256color");
 
     private List<OzoneApp> runningApps = List.of();
@@ -45,29 +92,166 @@ public class OzoneRunner implements AutoCloseable {
     }
 
     public OzoneRunner() throws IOException {
+        // Workspaces are copies unless linking is asked for, see OzoneWorkspaceMode#LINK for what linking shares
+        this(OzoneWorkspaceMode.fromSystemProperty());
+    }
+
+    public OzoneRunner(@NonNull OzoneWorkspaceMode workspaceMode) throws IOException {
+        this.workspaceMode = workspaceMode;
         this.projectRoot = findProjectRoot();
-        this.testDir = projectRoot.resolve(OZONE_TEST_WORKSPACE);
-        this.ozoneDir = testDir.resolve("ozone");
+        this.distroCache = OzoneDistroCache.isEnabled() ? new OzoneDistroCache(projectRoot) : null;
+        this.attachEnabled = Boolean.getBoolean(OZONE_ATTACH_PROPERTY);
 
-        if (Files.exists(testDir)) {
-            deleteDirectory(testDir.toFile());
+        // A cached workspace is only replaced once the distribution it was prepared from changes, and in attach mode
+        // the workspace of a running stack must be kept to attach to it
+        Path workspace = projectRoot.resolve(OZONE_TEST_WORKSPACE);
+        if (Files.exists(workspace) && distroCache == null && !attachEnabled) {
+            workspace = freshWorkspace(workspace);
         }
+        this.testDir = workspace;
+        this.ozoneDir = testDir.resolve("ozone");
         Files.createDirectories(projectRoot.resolve("target"));
         Files.createDirectories(testDir);
     }
 
     private void prepareOzoneEnvironment() throws IOException {
+        if (distroCache == null) {
+            if (Files.exists(ozoneDir)) {
+                deleteDirectory(ozoneDir).throwIfFailed();
+            }
+            copyOzoneToWorkspace(projectRoot.resolve(OZONE_PATH));
+            return;
+        }
+
+        OzoneDistroCache.Entry entry = distroCache.resolve();
+        Path workspaceKeyFile = testDir.resolve(WORKSPACE_KEY_FILE);
+        String workspaceKey = entry.key() + ":" + workspaceMode;
+        if (Files.exists(ozoneDir)
+                && Files.exists(workspaceKeyFile)
+                && Files.readString(workspaceKeyFile).equals(workspaceKey)) {
+            log.info("Reusing Ozone workspace {} prepared from {}", ozoneDir, entry.key());
+            restorePrivateFiles(entry.distroDir());
+            return;
+        }
+
+        Files.deleteIfExists(workspaceKeyFile);
         if (Files.exists(ozoneDir)) {
-            deleteDirectory(ozoneDir.toFile());
+            deleteDirectory(ozoneDir).throwIfFailed();
         }
-        copyOzoneToWorkspace();
+        copyOzoneToWorkspace(entry.distroDir());
+        Files.writeString(workspaceKeyFile, workspaceKey);
     }
 
     public boolean startOzone(List<OzoneApp> apps, int timeoutMinutes) throws IOException, InterruptedException {
+        return awaitScript(startAsync(apps, timeoutMinutes));
+    }
+
+    /**
+     * Starts the given apps without blocking the calling thread. The workspace is prepared before this method returns,
+     * the start.sh script then runs in the background.
+     *
+     * @param apps           the apps to start
+     * @param timeoutMinutes the time after which the script is killed
+     * @return a future completing with true once the script succeeded, cancelling it kills the script
+     * @throws IOException if the workspace cannot be prepared or the script cannot be started
+     */
+    public CompletableFuture<Boolean> startAsync(List<OzoneApp> apps, int timeoutMinutes) throws IOException {
+        return startAsync(apps, null, timeoutMinutes);
+    }
+
+    /**
+     * Starts only the services the given apps and services need without blocking the calling thread. The transitive
+     * closure of the primary services of the apps and the given services is started by an
+     * {@link OzoneStartupScheduler}, every other modelled service of the compose files is scaled to zero. Apps that do
+     * not depend on each other start concurrently and every service is only launched once the services it depends on
+     * are ready. When no app depends on another, e.g. for a single app, the start script runs once instead. Each run of
+     * the start script logs to its own file, e.g. {@code logs/start-wave-2.log}.
+     *
+     * @param apps           the apps to start
+     * @param services       additional services to start, e.g. EIP bridges, or null to start every service of the apps
+     * @param timeoutMinutes the time after which the startup fails
+     * @return a future completing with true once the start script ran or, when started in waves, once the apps and
+     *     services are ready and no run of the start script is left, cancelling it stops the startup
+     * @throws IOException if the workspace cannot be prepared or the script cannot be started
+     */
+    public CompletableFuture<Boolean> startAsync(
+            List<OzoneApp> apps, Collection<OzoneService> services, int timeoutMinutes) throws IOException {
+        Collection<OzoneService> requestedServices = services == null ? OzoneService.servicesOf(apps) : services;
+        Set<OzoneService> selectedServices =
+                apps.isEmpty() && services == null ? null : OzoneService.closure(apps, requestedServices);
+        List<OzoneApp> composeApps = selectedServices == null ? apps : composeAppsOf(apps, selectedServices);
+        String fingerprint = stackFingerprint(composeApps, selectedServices);
+        if (attachEnabled) {
+            if (tryAttach(composeApps, selectedServices, fingerprint)) {
+                this.runningApps = new ArrayList<>(composeApps);
+                return CompletableFuture.completedFuture(true);
+            }
+            destroyStaleStack();
+        }
+
+        Path fingerprintFile = testDir.resolve(STACK_FINGERPRINT_FILE);
+        Files.deleteIfExists(fingerprintFile);
         prepareOzoneEnvironment();
-        this.runningApps = new ArrayList<>(apps);
-        overrideDockerComposeFiles(apps);
-        return executeScript("start.sh", timeoutMinutes);
+        Set<OzoneService> startedServices =
+                selectedServices == null ? null : withComposeDependencies(apps, requestedServices, selectedServices);
+        List<OzoneApp> startedApps = startedServices == null ? composeApps : composeAppsOf(apps, startedServices);
+        this.runningApps = new ArrayList<>(startedApps);
+
+        CompletableFuture<Boolean> completion;
+        if (startedServices == null) {
+            completion = executeScriptAsync("start.sh", timeoutMinutes).getCompletion();
+        } else if (OzoneStartupScheduler.waves(startedServices) == 1) {
+            // Nothing to wait for between launches, a single run of the start script starts everything
+            completion = launchServices(startedApps, startedServices, "start", timeoutMinutes);
+        } else {
+            // The caller waits for the apps and the services it asked for, anything else keeps starting
+            Set<OzoneService> requiredServices = new LinkedHashSet<>();
+            apps.forEach(app -> requiredServices.add(OzoneService.primaryServiceOf(app)));
+            if (services != null) {
+                services.stream().filter(service -> service.app() != null).forEach(requiredServices::add);
+            }
+            AtomicInteger wave = new AtomicInteger();
+            OzoneStartupScheduler scheduler = new OzoneStartupScheduler(
+                    startedServices,
+                    requiredServices,
+                    launchedServices -> launchServices(
+                            startedApps, launchedServices, "start-wave-" + wave.incrementAndGet(), timeoutMinutes),
+                    this::isServiceReady,
+                    Duration.ofMinutes(timeoutMinutes));
+            completion = scheduler.start().thenApply(timeline -> true);
+            completion.whenComplete((result, error) -> {
+                if (error != null) {
+                    scheduler.cancel();
+                }
+            });
+        }
+        completion.thenRun(() -> {
+            try {
+                Files.writeString(fingerprintFile, fingerprint);
+            } catch (IOException e) {
+                log.warn("Failed to write the stack fingerprint, the next run will not be able to attach", e);
+            }
+        });
+        return completion;
+    }
+
+    /**
+     * Starts only the services the given apps and services need and waits for the start script to complete.
+     *
+     * @param apps     the apps to start
+     * @param services additional services to start, e.g. EIP bridges
+     * @return true if started successfully
+     * @throws IOException          if there's an error starting Ozone
+     * @throws InterruptedException if the process is interrupted
+     * @see #startAsync(List, Collection, int)
+     */
+    public boolean startOzone(List<OzoneApp> apps, Collection<OzoneService> services)
+            throws IOException, InterruptedException {
+        return awaitScript(startAsync(apps, services, DEFAULT_STARTUP_TIMEOUT_MINUTES));
+    }
+
+    public CompletableFuture<Boolean> startAsync(List<OzoneApp> apps) throws IOException {
+        return startAsync(apps, DEFAULT_STARTUP_TIMEOUT_MINUTES);
     }
 
     /**
@@ -116,7 +300,17 @@ public class OzoneRunner implements AutoCloseable {
      * @throws InterruptedException if the process is interrupted
      */
     public void stop() throws IOException, InterruptedException {
-        executeScript("stop-demo.sh", 2);
+        awaitScript(stopAsync());
+    }
+
+    /**
+     * Stops the Ozone instance using stop.sh script without blocking the calling thread.
+     *
+     * @return a future completing with true once the script succeeded, cancelling it kills the script
+     * @throws IOException if the script cannot be started
+     */
+    public CompletableFuture<Boolean> stopAsync() throws IOException {
+        return executeScriptAsync("stop-demo.sh", 2).getCompletion();
     }
 
     /**
@@ -129,36 +323,410 @@ public class OzoneRunner implements AutoCloseable {
         executeScript("destroy-demo.sh", 2);
     }
 
-    @Override
-    public void close() throws Exception {
+    /**
+     * Captures the named volumes of the running stack, e.g. the MySQL, PostgreSQL and Odoo filestore volumes, in
+     * snapshot volumes labelled with the given name. All volumes are captured together so that the databases and the
+     * files referencing them stay consistent. The stack is stopped while the volumes are copied and started again
+     * afterwards, this method returns once the running apps are ready and stable again, see {@link #awaitStable()}. An
+     * existing snapshot with the same name is replaced.
+     *
+     * @param name the name of the snapshot
+     * @throws IOException if the stack is not running, a volume cannot be copied or the stack is not stable again
+     */
+    public void snapshot(String name) throws IOException {
+        validateSnapshotName(name);
+        DockerCompose dockerCompose = dockerCompose();
+        List<String> volumes = dockerCompose.projectVolumes();
+        if (volumes.isEmpty()) {
+            throw new IOException("The Ozone stack has no volumes to snapshot");
+        }
+        deleteSnapshot(name);
+
+        long startTime = System.nanoTime();
+        Map<String, String> copies = new LinkedHashMap<>();
+        for (String volume : volumes) {
+            String snapshotVolume = "ozone-it-snapshot-" + name + "-" + volume;
+            dockerCompose.createVolume(
+                    snapshotVolume, Map.of(OZONE_SNAPSHOT_LABEL, name, OZONE_SNAPSHOT_SOURCE_LABEL, volume));
+            copies.put(volume, snapshotVolume);
+        }
+        dockerCompose.stop();
         try {
-            destroy();
+            copyVolumes(dockerCompose, copies);
         } finally {
-            if (testDir != null && Files.exists(testDir)) {
-                deleteDirectory(testDir.toFile());
+            dockerCompose.start();
+        }
+        if (!awaitStable()) {
+            throw new IOException("The Ozone stack did not stabilize after capturing snapshot " + name);
+        }
+        log.info(
+                "Captured snapshot {} of volumes {} in {} ms",
+                name,
+                volumes,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Restores the volumes of the stack from a snapshot and waits for the running apps to be ready and stable again, see
+     * {@link #awaitStable()}. Data written since the snapshot was taken is discarded, which gives each test class a
+     * clean stack without a cold start.
+     *
+     * @param name the name of the snapshot
+     * @return true if all running apps are ready and stable after the restore
+     * @throws IOException if the snapshot does not exist or a volume cannot be copied
+     */
+    public boolean restore(String name) throws IOException {
+        validateSnapshotName(name);
+        DockerCompose dockerCompose = dockerCompose();
+        List<String> snapshotVolumes = dockerCompose.volumesWithLabel(OZONE_SNAPSHOT_LABEL + "=" + name);
+        if (snapshotVolumes.isEmpty()) {
+            throw new IOException("No Ozone snapshot named " + name);
+        }
+
+        long startTime = System.nanoTime();
+        Map<String, String> copies = new LinkedHashMap<>();
+        for (String snapshotVolume : snapshotVolumes) {
+            copies.put(snapshotVolume, dockerCompose.volumeLabel(snapshotVolume, OZONE_SNAPSHOT_SOURCE_LABEL));
+        }
+        dockerCompose.stop();
+        try {
+            copyVolumes(dockerCompose, copies);
+        } finally {
+            dockerCompose.start();
+        }
+        boolean stable = awaitStable();
+        log.info("Restored snapshot {} in {} ms", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return stable;
+    }
+
+    /**
+     * Waits for the running apps to be ready and then for the stack to be stable, the same sequence that follows a
+     * start, see {@link #stabilityGate()}.
+     *
+     * @return true if the apps are ready and the stack is stable
+     */
+    public boolean awaitStable() {
+        List<OzoneApp> apps = new ArrayList<>(runningApps);
+        if (!OzoneAppReadinessChecker.waitForAppsReady(READY_TIMEOUT_SECONDS, new UnmodifiableList<>(apps))) {
+            return false;
+        }
+        try {
+            return stabilityGate().await().stable();
+        } catch (IOException e) {
+            log.error("Failed to probe the stability of the Ozone stack: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Creates the stability gate of the running stack, see {@link OzoneStabilityGate#forApps(Collection)}. A running
+     * EIP is probed by default: through the health endpoint set by {@code ozone.stability.eip.health.url}, or else by
+     * waiting for the line Camel logs once its routes started.
+     *
+     * @return the gate
+     * @throws IOException if the running services cannot be listed
+     */
+    public OzoneStabilityGate stabilityGate() throws IOException {
+        OzoneStabilityGate gate = OzoneStabilityGate.forApps(runningApps);
+        if (System.getProperty(OZONE_STABILITY_EIP_HEALTH_URL_PROPERTY) == null) {
+            DockerCompose dockerCompose = dockerCompose();
+            String eipService = OzoneService.EIP_ODOO_OPENMRS.serviceName();
+            if (dockerCompose.runningServices().contains(eipService)) {
+                gate.withProbe(
+                        eipService + "-camel-started",
+                        OzoneStabilityGate.logLine(dockerCompose, eipService, OzoneStabilityGate.CAMEL_STARTED));
             }
         }
+        return gate;
     }
 
-    private void deleteDirectory(File directory) {
-        if (!directory.exists()) {
-            return;
+    /**
+     * @param name the name of a snapshot
+     * @return true if a snapshot with the given name exists
+     * @throws IOException if the Docker CLI fails
+     */
+    public boolean hasSnapshot(String name) throws IOException {
+        return !dockerCompose()
+                .volumesWithLabel(OZONE_SNAPSHOT_LABEL + "=" + name)
+                .isEmpty();
+    }
+
+    /**
+     * Removes the volumes of a snapshot, if it exists.
+     *
+     * @param name the name of the snapshot
+     * @throws IOException if the volumes cannot be removed
+     */
+    public void deleteSnapshot(String name) throws IOException {
+        DockerCompose dockerCompose = dockerCompose();
+        dockerCompose.removeVolumes(dockerCompose.volumesWithLabel(OZONE_SNAPSHOT_LABEL + "=" + name));
+    }
+
+    /**
+     * Copies volumes concurrently, each copy runs in its own helper container.
+     */
+    private static void copyVolumes(DockerCompose dockerCompose, Map<String, String> copies) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(copies.size(), SNAPSHOT_PARALLELISM));
+        try {
+            CompletableFuture.allOf(copies.entrySet().stream()
+                            .map(copy -> CompletableFuture.runAsync(
+                                    () -> {
+                                        try {
+                                            dockerCompose.copyVolume(
+                                                    copy.getKey(), copy.getValue(), OZONE_SNAPSHOT_HELPER_IMAGE);
+                                        } catch (IOException e) {
+                                            throw new UncheckedIOException(e);
+                                        }
+                                    },
+                                    executor))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw e;
+        } finally {
+            executor.shutdown();
         }
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleteDirectory(file);
-                } else {
-                    if (!file.delete()) {
-                        log.warn("Failed to delete file: {}", file);
-                    }
+    }
+
+    private static void validateSnapshotName(String name) {
+        if (name == null || !name.matches("[a-zA-Z0-9][a-zA-Z0-9_.-]*")) {
+            throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        }
+    }
+
+    /**
+     * Opens a change feed on the Odoo database of the running stack. The database name and credentials are read from
+     * the .env file of the workspace.
+     *
+     * @param tables the Odoo tables to watch, e.g. {@link OdooChangeFeed#PARTNER_TABLE}
+     * @return the open feed, to be closed before the stack is stopped or restored
+     * @throws IOException  if the database container cannot be found
+     * @throws SQLException if the database cannot be reached
+     */
+    public OdooChangeFeed openOdooChangeFeed(String... tables) throws IOException, SQLException {
+        OzoneEnvironment environment = OzoneEnvironment.read(ozoneDir.resolve("run/docker/.env"));
+        InetSocketAddress address =
+                dockerCompose().serviceAddress(OzoneService.POSTGRESQL.serviceName(), POSTGRESQL_PORT);
+        String jdbcUrl = "jdbc:postgresql://" + address.getHostString() + ":" + address.getPort() + "/"
+                + Objects.requireNonNullElse(environment.get("ODOO_DB_NAME"), "odoo");
+        return OdooChangeFeed.open(
+                jdbcUrl,
+                Objects.requireNonNullElse(environment.get("ODOO_DB_USER"), "odoo"),
+                Objects.requireNonNullElse(environment.get("ODOO_DB_PASSWORD"), "password"),
+                tables);
+    }
+
+    /**
+     * @return true if attach mode is enabled through the {@code ozone.attach} system property. In attach mode a running
+     *     stack is reused and left running for the next run.
+     */
+    public boolean isAttachEnabled() {
+        return attachEnabled;
+    }
+
+    /**
+     * @return true if the runner attached to an already running stack instead of starting one
+     */
+    public boolean isAttached() {
+        return attached;
+    }
+
+    /**
+     * Attaches to the stack started by a previous run if it was started with the same apps and compose files, still
+     * has running containers for the selected services and all requested apps are healthy.
+     */
+    private boolean tryAttach(List<OzoneApp> apps, Set<OzoneService> selectedServices, String fingerprint) {
+        Path fingerprintFile = testDir.resolve(STACK_FINGERPRINT_FILE);
+        try {
+            if (!Files.exists(fingerprintFile)
+                    || !Files.readString(fingerprintFile).equals(fingerprint)) {
+                log.info("No running Ozone stack matching {} to attach to", apps);
+                return false;
+            }
+            Set<String> runningServices = dockerCompose().runningServices();
+            if (runningServices.isEmpty()) {
+                log.info("The Ozone stack matching {} is not running anymore", apps);
+                return false;
+            }
+            if (selectedServices != null) {
+                List<String> stoppedServices = selectedServices.stream()
+                        .map(OzoneService::serviceName)
+                        .filter(serviceName -> !runningServices.contains(serviceName))
+                        .toList();
+                if (!stoppedServices.isEmpty()) {
+                    log.info("The services {} of the running Ozone stack are not running anymore", stoppedServices);
+                    return false;
                 }
             }
+            if (!OzoneAppReadinessChecker.areAllAppsReady(new UnmodifiableList<>(new ArrayList<>(apps)))) {
+                log.info("The running Ozone stack is not healthy, not attaching to it");
+                return false;
+            }
+            log.info("Attached to running Ozone stack with services {}", runningServices);
+            attached = true;
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not inspect the running Ozone stack, not attaching to it: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Destroys a stack left running from this workspace that cannot be attached to, before its workspace is replaced.
+     */
+    private void destroyStaleStack() {
+        try {
+            if (Files.exists(ozoneDir) && !dockerCompose().runningServices().isEmpty()) {
+                log.info("Destroying the running Ozone stack that does not match the requested apps");
+                destroy();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to destroy the stale Ozone stack: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the start script with the compose files of the given apps, scaling every service that is not launched yet to
+     * zero. Services started by an earlier launch are left running.
+     *
+     * @param logName the name of the log file of the launch, each launch of a startup has its own
+     */
+    private CompletableFuture<Boolean> launchServices(
+            List<OzoneApp> composeApps, Set<OzoneService> launchedServices, String logName, int timeoutMinutes)
+            throws IOException {
+        overrideDockerComposeFiles(composeApps);
+        excludeUnselectedServices(composeApps, launchedServices);
+        return executeScriptAsync("start.sh", logName, timeoutMinutes).getCompletion();
+    }
+
+    /**
+     * An app is ready once its health check succeeds, any other service once its container is running.
+     */
+    private boolean isServiceReady(OzoneService service) {
+        if (service.app() != null && service == OzoneService.primaryServiceOf(service.app())) {
+            return OzoneAppReadinessChecker.isReady(service.app());
+        }
+        try {
+            return dockerCompose().runningServices().contains(service.serviceName());
+        } catch (IOException e) {
+            log.debug("Could not list the running services: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private String stackFingerprint(List<OzoneApp> apps, Set<OzoneService> selectedServices) {
+        List<String> appNames = apps.stream().map(OzoneApp::name).sorted().toList();
+        List<String> composeFiles = apps.isEmpty() ? List.of() : OzoneApp.sortedDockerComposeFiles(apps);
+        String services = selectedServices == null
+                ? "*"
+                : selectedServices.stream()
+                        .map(OzoneService::serviceName)
+                        .sorted()
+                        .collect(Collectors.joining(","));
+        return "apps=" + String.join(",", appNames) + "\ncomposeFiles=" + String.join(",", composeFiles) + "\nservices="
+                + services + "\n";
+    }
+
+    /**
+     * Returns the requested apps together with the apps whose compose files declare the selected services.
+     */
+    private static List<OzoneApp> composeAppsOf(List<OzoneApp> apps, Set<OzoneService> selectedServices) {
+        Set<OzoneApp> composeApps = new LinkedHashSet<>(apps);
+        composeApps.addAll(OzoneService.appsOf(selectedServices));
+        return composeApps.stream()
+                .sorted(Comparator.comparingInt(OzoneApp::sortOrder))
+                .toList();
+    }
+
+    /**
+     * Adds the services the {@code depends_on} declarations of the prepared compose files require to the services
+     * selected from the modelled dependencies.
+     */
+    private Set<OzoneService> withComposeDependencies(
+            List<OzoneApp> apps, Collection<OzoneService> requestedServices, Set<OzoneService> selectedServices)
+            throws IOException {
+        Set<OzoneService> composeClosure =
+                OzoneService.closure(apps, requestedServices, composeFilesOf(composeAppsOf(apps, selectedServices)));
+        if (!composeClosure.equals(selectedServices)) {
+            log.warn(
+                    "The compose files add the services {} to the modelled dependencies, update OzoneService",
+                    composeClosure.stream()
+                            .filter(service -> !selectedServices.contains(service))
+                            .map(OzoneService::serviceName)
+                            .toList());
+        }
+        return composeClosure;
+    }
+
+    /**
+     * Reads the compose files of the given apps from the workspace, skipping those the distribution does not have.
+     */
+    private List<DockerComposeFile> composeFilesOf(List<OzoneApp> apps) throws IOException {
+        List<DockerComposeFile> composeFiles = new ArrayList<>();
+        for (String composeFile : OzoneApp.sortedDockerComposeFiles(apps)) {
+            Path composeFilePath = ozoneDir.resolve("run/docker").resolve(composeFile);
+            if (Files.exists(composeFilePath)) {
+                composeFiles.add(DockerComposeFile.read(composeFilePath));
+            }
+        }
+        return composeFiles;
+    }
+
+    private DockerCompose dockerCompose() {
+        return new DockerCompose(ozoneDir.resolve("run/docker"));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (attachEnabled) {
+            log.info("Attach mode is enabled, leaving the Ozone stack running for the next run");
+            return;
+        }
+        try {
+            destroy();
+        } finally {
+            if (testDir != null && Files.exists(testDir) && distroCache == null) {
+                deleteDirectory(testDir);
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory tree in parallel. Every path that could not be deleted is reported in a single summary.
+     *
+     * @param directory the directory to delete
+     * @return the result of the delete
+     */
+    private ParallelFileTree.Result deleteDirectory(Path directory) {
+        ParallelFileTree.Result result = ParallelFileTree.delete(directory);
+        if (result.isSuccessful()) {
+            log.info(result.summary());
+        } else {
+            log.warn(result.summary());
         }
-        if (!directory.delete()) {
-            log.warn("Failed to delete directory: {}", directory);
+        return result;
+    }
+
+    /**
+     * Deletes the workspace left behind by an earlier run. Leftovers that cannot be deleted, e.g. files created by
+     * containers as root, do not fail the test class, a new workspace next to the old one is used instead.
+     *
+     * @param workspace the workspace of the earlier run
+     * @return the workspace to use
+     */
+    private Path freshWorkspace(Path workspace) {
+        ParallelFileTree.Result result = deleteDirectory(workspace);
+        if (result.isSuccessful()) {
+            return workspace;
         }
+        Path fallback = workspace.resolveSibling(workspace.getFileName() + "-" + System.currentTimeMillis());
+        log.warn("Could not delete the previous Ozone workspace {}, using {} instead", workspace, fallback);
+        return fallback;
     }
 
     private Path findProjectRoot() {
@@ -186,7 +754,7 @@ public class OzoneRunner implements AutoCloseable {
     }
 
     /**
-     * Executes a shell script in the scripts' directory.
+     * Executes a shell script in the scripts' directory and waits for it to complete.
      *
      * @param scriptName     the name of the script to execute
      * @param timeoutMinutes timeout in minutes
@@ -195,34 +763,62 @@ public class OzoneRunner implements AutoCloseable {
      * @throws InterruptedException if the process is interrupted
      */
     private boolean executeScript(String scriptName, int timeoutMinutes) throws IOException, InterruptedException {
+        return awaitScript(executeScriptAsync(scriptName, timeoutMinutes).getCompletion());
+    }
+
+    /**
+     * Starts a shell script in the scripts' directory. Its output is captured in the workspace logs directory instead
+     * of being inherited by the test JVM.
+     *
+     * @param scriptName     the name of the script to execute
+     * @param timeoutMinutes timeout in minutes
+     * @return the running script
+     * @throws IOException if the script cannot be started
+     */
+    private ScriptExecution executeScriptAsync(String scriptName, int timeoutMinutes) throws IOException {
+        return executeScriptAsync(scriptName, scriptName.replace(".sh", ""), timeoutMinutes);
+    }
+
+    /**
+     * Starts a shell script in the scripts' directory, capturing its output in a log file of the given name.
+     *
+     * @param scriptName     the name of the script to execute
+     * @param logName        the name of the log file, without extension
+     * @param timeoutMinutes timeout in minutes
+     * @return the running script
+     * @throws IOException if the script cannot be started
+     */
+    private ScriptExecution executeScriptAsync(String scriptName, String logName, int timeoutMinutes)
+            throws IOException {
         Path scriptsDir = ozoneDir.resolve("run/docker/scripts");
         if (!Files.exists(scriptsDir)) {
             throw new IOException("Scripts directory not found at: " + scriptsDir);
         }
 
-        ProcessBuilder processBuilder = new ProcessBuilder("./" + scriptName);
-        processBuilder.directory(scriptsDir.toFile());
-        processBuilder.inheritIO();
-        processBuilder.environment().putAll(xterm);
-
-        log.info("Executing script {} in directory: {}", scriptName, scriptsDir);
-        Process process = processBuilder.start();
-
-        boolean completed = process.waitFor(timeoutMinutes, TimeUnit.MINUTES);
-        if (!completed) {
-            log.error("Script {} timed out after {} minutes", scriptName, timeoutMinutes);
-            process.destroyForcibly();
-            throw new RuntimeException("Script timed out: " + scriptName);
-        }
+        Path logFile = testDir.resolve("logs").resolve(logName + ".log");
+        log.info("Executing script {} in directory: {}, output in {}", scriptName, scriptsDir, logFile);
+        return ScriptExecution.start(
+                scriptName, List.of("./" + scriptName), scriptsDir, xterm, timeoutMinutes, logFile);
+    }
 
-        int exitCode = process.exitValue();
-        if (exitCode != 0) {
-            String errorMessage = new String(process.getErrorStream().readAllBytes());
-            log.error("Script {} failed with exit code {}: {}", scriptName, exitCode, errorMessage);
-            throw new RuntimeException("Script failed with exit code: " + exitCode + " - " + errorMessage);
+    private static boolean awaitScript(CompletableFuture<Boolean> completion) throws IOException, InterruptedException {
+        try {
+            return completion.get();
+        } catch (InterruptedException e) {
+            completion.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof InterruptedException interruptedException) {
+                throw interruptedException;
+            }
+            throw new RuntimeException(e.getCause());
         }
-        log.info("Script {} executed successfully", scriptName);
-        return true;
     }
 
     public void overrideDockerComposeFiles(List<OzoneApp> apps) throws IOException {
@@ -234,6 +830,7 @@ public class OzoneRunner implements AutoCloseable {
 
             Path scriptsDir = ozoneDir.resolve("run/docker/scripts");
             Path dockerComposeFilesPath = scriptsDir.resolve("docker-compose-files.txt");
+            ensurePrivateCopy(dockerComposeFilesPath);
 
             String content = String.join("\n", dockerComposeFiles);
             Files.writeString(dockerComposeFilesPath, content);
@@ -242,65 +839,270 @@ public class OzoneRunner implements AutoCloseable {
     }
 
     /**
-     * Overrides the environment variables in the .env file.
+     * Scales every modelled service of the compose files of the given apps that is not selected to zero replicas. The
+     * scaling is done in a generated compose file appended to docker-compose-files.txt, so the start script stays the
+     * single entry point for starting the stack. Services of the compose files that are not modelled are kept, and so
+     * are the services the proxy depends on while the proxy is selected.
+     *
+     * @param apps             the apps whose compose files are used
+     * @param selectedServices the services to start
+     * @throws IOException if the compose files cannot be read or the generated file cannot be written
+     */
+    private void excludeUnselectedServices(List<OzoneApp> apps, Set<OzoneService> selectedServices) throws IOException {
+        Path dockerDir = ozoneDir.resolve("run/docker");
+        List<DockerComposeFile> composeFiles = composeFilesOf(apps);
+        // The proxy fails on upstreams that do not run, so they are never scaled to zero while it runs
+        Set<String> proxyDependencies = new TreeSet<>();
+        if (selectedServices.contains(OzoneService.PROXY)) {
+            OzoneService.proxyUpstreams().forEach(service -> proxyDependencies.add(service.serviceName()));
+            composeFiles.forEach(
+                    composeFile -> proxyDependencies.addAll(composeFile.dependsOn(OzoneService.PROXY.serviceName())));
+        }
+        Set<String> excludedServices = new TreeSet<>();
+        Set<String> unmodelledServices = new TreeSet<>();
+        Set<String> keptProxyDependencies = new TreeSet<>();
+        for (DockerComposeFile composeFile : composeFiles) {
+            for (String serviceName : composeFile.serviceNames()) {
+                OzoneService service = OzoneService.fromServiceName(serviceName);
+                if (service == null) {
+                    unmodelledServices.add(serviceName);
+                } else if (!selectedServices.contains(service)) {
+                    if (proxyDependencies.contains(serviceName)) {
+                        keptProxyDependencies.add(serviceName);
+                    } else {
+                        excludedServices.add(serviceName);
+                    }
+                }
+            }
+        }
+        if (!unmodelledServices.isEmpty()) {
+            log.info("Keeping the services {} that are not modelled in OzoneService", unmodelledServices);
+        }
+        if (!keptProxyDependencies.isEmpty()) {
+            log.info("Keeping the services {} the proxy depends on", keptProxyDependencies);
+        }
+        log.info(
+                "Starting the services {}",
+                selectedServices.stream().map(OzoneService::serviceName).toList());
+        if (excludedServices.isEmpty()) {
+            return;
+        }
+
+        StringBuilder content = new StringBuilder("# Generated by OzoneRunner, scales unselected services to zero\n");
+        content.append("services:\n");
+        excludedServices.forEach(
+                serviceName -> content.append("  ").append(serviceName).append(":\n    scale: 0\n"));
+        Files.writeString(dockerDir.resolve(EXCLUDED_SERVICES_COMPOSE_FILE), content.toString());
+
+        Path dockerComposeFilesPath = dockerDir.resolve("scripts/docker-compose-files.txt");
+        ensurePrivateCopy(dockerComposeFilesPath);
+        Files.writeString(
+                dockerComposeFilesPath,
+                Files.readString(dockerComposeFilesPath).stripTrailing() + "\n" + EXCLUDED_SERVICES_COMPOSE_FILE);
+        log.info("Excluded the services {}", excludedServices);
+    }
+
+    /**
+     * Overrides the environment variables in the .env file. If the stack is running, only the running services that
+     * reference one of the changed variables are recreated, every other container keeps running.
      *
      * @param envVars a map of environment variable names and their values
-     * @throws IOException if there's an error reading or writing the .env file
+     * @return the names of the recreated services
+     * @throws IOException if there's an error reading or writing the .env file or recreating the services
      */
-    public void overrideEnvironmentVariables(Map<String, String> envVars) throws IOException {
+    public Set<String> overrideEnvironmentVariables(Map<String, String> envVars) throws IOException {
         Path envFile = ozoneDir.resolve("run/docker/.env");
-        if (!Files.exists(envFile)) {
-            throw new IOException("Environment file not found at: " + envFile);
-        }
-
-        List<String> lines = Files.readAllLines(envFile);
-        for (Map.Entry<String, String> entry : envVars.entrySet()) {
-            String keyValue = entry.getKey() + "=" + entry.getValue();
-            boolean found = false;
-            for (int i = 0; i < lines.size(); i++) {
-                if (lines.get(i).startsWith(entry.getKey() + "=")) {
-                    lines.set(i, keyValue);
-                    found = true;
-                    break;
-                }
+        OzoneEnvironment environment = OzoneEnvironment.read(envFile);
+        Set<String> changedVariables = environment.set(envVars);
+        if (changedVariables.isEmpty()) {
+            log.info("Environment variables are already set: {}", envVars.keySet());
+            return Set.of();
+        }
+        environment.write();
+        log.info("Updated environment variables in .env file: {}", changedVariables);
+
+        DockerCompose dockerCompose = dockerCompose();
+        Set<String> runningServices;
+        try {
+            runningServices = dockerCompose.runningServices();
+        } catch (IOException e) {
+            log.debug("Could not list the running services: {}", e.getMessage());
+            return Set.of();
+        }
+        if (runningServices.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> affectedServices = new TreeSet<>();
+        for (String composeFile : OzoneApp.sortedDockerComposeFiles(runningApps)) {
+            Path composeFilePath = ozoneDir.resolve("run/docker").resolve(composeFile);
+            if (!Files.exists(composeFilePath)) {
+                continue;
             }
-            if (!found) {
-                lines.add(keyValue);
+            DockerComposeFile dockerComposeFile = DockerComposeFile.read(composeFilePath);
+            for (String serviceName : dockerComposeFile.serviceNames()) {
+                if (runningServices.contains(serviceName)
+                        && (dockerComposeFile.loadsEnvFile(serviceName)
+                                || dockerComposeFile.referencedVariables(serviceName).stream()
+                                        .anyMatch(changedVariables::contains))) {
+                    affectedServices.add(serviceName);
+                }
             }
         }
-        Files.write(envFile, lines);
-        log.info("Updated environment variables in .env file: {}", envVars);
+        if (affectedServices.isEmpty()) {
+            log.info("No running service references {}, nothing to recreate", changedVariables);
+            return affectedServices;
+        }
+        dockerCompose.recreate(affectedServices, envFile);
+        return affectedServices;
     }
 
-    private void copyOzoneToWorkspace() throws IOException {
-        Path sourceDir = projectRoot.resolve(OZONE_PATH);
+    private void copyOzoneToWorkspace(Path sourceDir) throws IOException {
         if (!Files.exists(sourceDir)) {
             throw new IOException("Source Ozone directory does not exist: " + sourceDir);
         }
 
-        log.info("Copying fresh Ozone instance from {} to {}", sourceDir, ozoneDir);
+        log.info("Cloning fresh Ozone instance from {} to {} using {} mode", sourceDir, ozoneDir, workspaceMode);
+        long startTime = System.nanoTime();
         Files.createDirectories(ozoneDir);
-        Files.walkFileTree(sourceDir, new SimpleFileVisitor<>() {
-
-            @Override
-            @NonNull public FileVisitResult preVisitDirectory(@NonNull Path dir, @NonNull BasicFileAttributes attrs)
-                    throws IOException {
-                Path targetDir = ozoneDir.resolve(sourceDir.relativize(dir));
-                Files.createDirectories(targetDir);
-                return FileVisitResult.CONTINUE;
-            }
+        if (workspaceMode == OzoneWorkspaceMode.REFLINK && cloneWithReflinks(sourceDir)) {
+            restorePrivateFiles(sourceDir);
+        } else {
+            ParallelFileTree.Result result =
+                    ParallelFileTree.copy(sourceDir, ozoneDir, (file, targetFile, relativePath) -> {
+                        cloneFile(file, targetFile, isPrivateFile(relativePath));
+                        if (file.toString().endsWith(".sh")
+                                && !targetFile.toFile().setExecutable(true)) {
+                            log.warn("Failed to make script executable: {}", targetFile);
+                        }
+                    });
+            log.info(result.summary());
+            result.throwIfFailed();
+        }
+        log.info(
+                "Cloned Ozone instance into {} in {} ms",
+                ozoneDir,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
 
-            @Override
-            @NonNull @SuppressWarnings("ResultOfMethodCallIgnored")
-            public FileVisitResult visitFile(@NonNull Path file, @NonNull BasicFileAttributes attrs)
-                    throws IOException {
-                Path targetFile = ozoneDir.resolve(sourceDir.relativize(file));
-                Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
-                if (file.toString().endsWith(".sh")) {
-                    targetFile.toFile().setExecutable(true);
+    /**
+     * Clones a single file into the workspace. In {@link OzoneWorkspaceMode#LINK} and
+     * {@link OzoneWorkspaceMode#REFLINK} modes the file is hard-linked, unless it is private to the workspace or the
+     * filesystem does not support hard links, in which case it is copied.
+     *
+     * @param source      the file in the Ozone distribution
+     * @param target      the file in the workspace
+     * @param privateFile whether the file must be a private copy
+     * @throws IOException if the file could neither be linked nor copied
+     */
+    private void cloneFile(Path source, Path target, boolean privateFile) throws IOException {
+        if (workspaceMode != OzoneWorkspaceMode.COPY && !privateFile && linkingSupported.get()) {
+            try {
+                Files.deleteIfExists(target);
+                Files.createLink(target, source);
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                if (isLinkingUnsupported(e)) {
+                    if (linkingSupported.compareAndSet(true, false)) {
+                        log.warn(
+                                "Hard links are not supported for {}, copying the remaining files: {}",
+                                target,
+                                e.getMessage());
+                    }
+                } else {
+                    log.warn("Failed to hard-link {}, copying it instead: {}", target, e.getMessage());
                 }
-                return FileVisitResult.CONTINUE;
+            } catch (IOException e) {
+                log.warn("Failed to hard-link {}, copying it instead: {}", target, e.getMessage());
             }
-        });
+        }
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Tells whether a failed hard link means that the workspace cannot hard-link any file, because the filesystem has
+     * no hard links or the workspace is on another device than the distribution. Other failures, such as a missing
+     * parent directory or a concurrently created target, only concern the one file.
+     */
+    private static boolean isLinkingUnsupported(Exception e) {
+        if (e instanceof UnsupportedOperationException) {
+            return true;
+        }
+        String reason = ((FileSystemException) e).getReason();
+        if (reason == null) {
+            return false;
+        }
+        String lowerCaseReason = reason.toLowerCase(Locale.ROOT);
+        return lowerCaseReason.contains("cross-device") || lowerCaseReason.contains("not supported");
+    }
+
+    /**
+     * Clones the whole distribution with {@code cp --reflink=always}, which shares data blocks copy-on-write on
+     * filesystems such as Btrfs and XFS.
+     *
+     * @param sourceDir the Ozone distribution directory
+     * @return true if the tree was cloned, false if reflinks are not supported
+     */
+    private boolean cloneWithReflinks(Path sourceDir) throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                "cp", "-R", "--reflink=always", sourceDir.toAbsolutePath() + "/.", ozoneDir.toAbsolutePath() + "/");
+        processBuilder.redirectErrorStream(true);
+        try {
+            Process process = processBuilder.start();
+            String output = new String(process.getInputStream().readAllBytes());
+            if (process.waitFor() == 0) {
+                return true;
+            }
+            log.warn("Reflink clone failed, falling back to hard links: {}", output.trim());
+        } catch (IOException e) {
+            log.warn("Reflink clone is not available, falling back to hard links: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while cloning Ozone with reflinks", e);
+        }
+        deleteDirectory(ozoneDir).throwIfFailed();
+        Files.createDirectories(ozoneDir);
+        return false;
+    }
+
+    /**
+     * Replaces the private workspace files with fresh copies from the distribution, discarding earlier overrides.
+     */
+    private void restorePrivateFiles(Path sourceDir) throws IOException {
+        for (String privateFile : OZONE_PRIVATE_WORKSPACE_FILES) {
+            Path source = sourceDir.resolve(privateFile);
+            if (Files.exists(source)) {
+                Files.copy(source, ozoneDir.resolve(privateFile), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private boolean isPrivateFile(Path relativePath) {
+        return OZONE_PRIVATE_WORKSPACE_FILES.contains(relativePath.toString().replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Makes sure a workspace file does not share its content with the Ozone distribution before it is rewritten. A file
+     * that is still hard-linked is replaced by a private copy.
+     *
+     * @param file the workspace file about to be rewritten
+     * @throws IOException if the private copy could not be created
+     */
+    private void ensurePrivateCopy(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        int linkCount;
+        try {
+            linkCount = (Integer) Files.getAttribute(file, "unix:nlink");
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return;
+        }
+        if (linkCount > 1) {
+            Path privateCopy = file.resolveSibling(file.getFileName() + ".private");
+            Files.copy(file, privateCopy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(privateCopy, file, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("Broke out private copy of {}", file);
+        }
     }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an Ozone script fails or times out. Carries the tail of the script output.
+ */
+@Getter
+public class OzoneScriptException extends RuntimeException {
+
+    private final String scriptName;
+
+    private final int exitCode;
+
+    private final String outputTail;
+
+    public OzoneScriptException(String message, String scriptName, int exitCode, String outputTail) {
+        super(message + System.lineSeparator() + outputTail);
+        this.scriptName = scriptName;
+        this.exitCode = exitCode;
+        this.outputTail = outputTail;
+    }
+}
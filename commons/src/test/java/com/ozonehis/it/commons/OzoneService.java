@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The docker compose services of the Ozone distribution and the services each of them needs to be usable from the
+ * tests. Services are declared in dependency order, a service only depends on services declared before it.
+ *
+ * <p>The modelled dependencies include what compose does not know about, e.g. that OpenMRS is only reachable through
+ * the proxy. The {@code depends_on} declarations of the compose files are added to them once the files are known, see
+ * {@link #closure(Collection, Collection, Collection)}, and the services the proxy forwards to are never left out
+ * while the proxy runs.
+ */
+public enum OzoneService {
+    PROXY("proxy", null, false),
+
+    ENV_SUBSTITUTION("env-substitution", null, false),
+
+    MYSQL("mysql", null, false),
+
+    POSTGRESQL("postgresql", null, false),
+
+    KEYCLOAK("keycloak", OzoneApp.KEYCLOAK, true, POSTGRESQL, PROXY),
+
+    OPENMRS("openmrs", OzoneApp.OPENMRS, true, MYSQL, ENV_SUBSTITUTION, PROXY),
+
+    FRONTEND("frontend", OzoneApp.OPENMRS, false, OPENMRS),
+
+    ODOO("odoo", OzoneApp.ODOO, true, POSTGRESQL, ENV_SUBSTITUTION),
+
+    /**
+     * The EIP bridge synchronizing OpenMRS patients and orders to Odoo partners and sale orders.
+     */
+    EIP_ODOO_OPENMRS("eip-odoo-openmrs", OzoneApp.ODOO, false, MYSQL, OPENMRS, ODOO);
+
+    /**
+     * The services the proxy forwards requests to, the proxy fails to serve their app without them.
+     */
+    private static final Set<OzoneService> PROXY_UPSTREAMS = EnumSet.of(OPENMRS, FRONTEND);
+
+    private final String serviceName;
+
+    private final OzoneApp app;
+
+    private final boolean primary;
+
+    private final List<OzoneService> dependencies;
+
+    OzoneService(String serviceName, OzoneApp app, boolean primary, OzoneService... dependencies) {
+        this.serviceName = serviceName;
+        this.app = app;
+        this.primary = primary;
+        this.dependencies = List.of(dependencies);
+    }
+
+    /**
+     * @return the name of the service in the docker compose files
+     */
+    public String serviceName() {
+        return serviceName;
+    }
+
+    /**
+     * @return the app whose compose files declare this service, or null for services of the common compose file
+     */
+    public OzoneApp app() {
+        return app;
+    }
+
+    public List<OzoneService> dependencies() {
+        return dependencies;
+    }
+
+    /**
+     * @return the services the proxy forwards requests to, which must run whenever the proxy runs
+     */
+    public static Set<OzoneService> proxyUpstreams() {
+        return Collections.unmodifiableSet(PROXY_UPSTREAMS);
+    }
+
+    /**
+     * Returns the service that runs the app itself, e.g. {@link #OPENMRS} for {@link OzoneApp#OPENMRS}.
+     *
+     * @param app the Ozone app
+     * @return the primary service of the app
+     */
+    public static OzoneService primaryServiceOf(OzoneApp app) {
+        return Arrays.stream(values())
+                .filter(service -> service.primary && service.app == app)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No primary service for app " + app));
+    }
+
+    /**
+     * Computes the transitive closure of the given services and the primary services of the given apps.
+     *
+     * @param apps     the apps to run
+     * @param services additional services to run, e.g. EIP bridges
+     * @return the services to run, in dependency order
+     */
+    public static Set<OzoneService> closure(Collection<OzoneApp> apps, Collection<OzoneService> services) {
+        return closure(apps, services, List.of());
+    }
+
+    /**
+     * Computes the transitive closure of the given services and the primary services of the given apps, following both
+     * the modelled dependencies and the {@code depends_on} declarations of the given compose files. While the proxy
+     * runs, the services it forwards to for the apps of the closure are part of it too.
+     *
+     * @param apps         the apps to run
+     * @param services     additional services to run, e.g. EIP bridges
+     * @param composeFiles the compose files the services are started from
+     * @return the services to run, in dependency order
+     */
+    public static Set<OzoneService> closure(
+            Collection<OzoneApp> apps, Collection<OzoneService> services, Collection<DockerComposeFile> composeFiles) {
+        Map<OzoneService, Set<OzoneService>> composeDependencies = composeDependencies(composeFiles);
+        Set<OzoneService> closure = new LinkedHashSet<>();
+        apps.forEach(app -> addWithDependencies(primaryServiceOf(app), closure, composeDependencies));
+        services.forEach(service -> addWithDependencies(service, closure, composeDependencies));
+        while (closure.contains(PROXY)) {
+            Set<OzoneApp> closureApps = Set.copyOf(appsOf(closure));
+            List<OzoneService> missingUpstreams = PROXY_UPSTREAMS.stream()
+                    .filter(upstream -> closureApps.contains(upstream.app) && !closure.contains(upstream))
+                    .toList();
+            if (missingUpstreams.isEmpty()) {
+                break;
+            }
+            missingUpstreams.forEach(upstream -> addWithDependencies(upstream, closure, composeDependencies));
+        }
+        return closure;
+    }
+
+    /**
+     * Returns the {@code depends_on} declarations of the given compose files between modelled services that the
+     * modelled dependencies lack, e.g. after the distribution added a dependency.
+     *
+     * @param composeFiles the compose files of the distribution
+     * @return the missing dependencies, as {@code service -> dependency}
+     */
+    public static List<String> missingDependencies(Collection<DockerComposeFile> composeFiles) {
+        List<String> missing = new ArrayList<>();
+        composeDependencies(composeFiles).forEach((service, dependencies) -> dependencies.stream()
+                .filter(dependency -> !service.dependencies.contains(dependency)
+                        && !(service == PROXY && PROXY_UPSTREAMS.contains(dependency)))
+                .forEach(dependency -> missing.add(service.serviceName + " -> " + dependency.serviceName)));
+        return missing;
+    }
+
+    /**
+     * Returns every modelled service declared by the compose files of the given apps.
+     *
+     * @param apps the Ozone apps
+     * @return the services of the apps, in declaration order
+     */
+    public static List<OzoneService> servicesOf(Collection<OzoneApp> apps) {
+        return Arrays.stream(values())
+                .filter(service -> service.app != null && apps.contains(service.app))
+                .toList();
+    }
+
+    /**
+     * Returns the apps whose compose files are needed to run the given services.
+     *
+     * @param services the services to run
+     * @return the apps declaring the services, in {@link OzoneApp#sortOrder()} order
+     */
+    public static List<OzoneApp> appsOf(Collection<OzoneService> services) {
+        return services.stream()
+                .map(OzoneService::app)
+                .filter(app -> app != null)
+                .distinct()
+                .sorted((a, b) -> Integer.compare(a.sortOrder(), b.sortOrder()))
+                .toList();
+    }
+
+    /**
+     * Looks up a service by its name in the compose files.
+     *
+     * @param serviceName the name of the compose service
+     * @return the service, or null if the service is not modelled
+     */
+    public static OzoneService fromServiceName(String serviceName) {
+        return Arrays.stream(values())
+                .filter(service -> service.serviceName.equals(serviceName))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Reads the {@code depends_on} declarations between modelled services. Services that are not modelled are kept
+     * running anyway, so dependencies on them need no following.
+     */
+    private static Map<OzoneService, Set<OzoneService>> composeDependencies(
+            Collection<DockerComposeFile> composeFiles) {
+        Map<OzoneService, Set<OzoneService>> composeDependencies = new EnumMap<>(OzoneService.class);
+        for (DockerComposeFile composeFile : composeFiles) {
+            for (String serviceName : composeFile.serviceNames()) {
+                OzoneService service = fromServiceName(serviceName);
+                if (service == null) {
+                    continue;
+                }
+                composeFile.dependsOn(serviceName).stream()
+                        .map(OzoneService::fromServiceName)
+                        .filter(Objects::nonNull)
+                        .forEach(dependency -> composeDependencies
+                                .computeIfAbsent(service, key -> EnumSet.noneOf(OzoneService.class))
+                                .add(dependency));
+            }
+        }
+        return composeDependencies;
+    }
+
+    private static void addWithDependencies(
+            OzoneService service, Set<OzoneService> closure, Map<OzoneService, Set<OzoneService>> composeDependencies) {
+        addWithDependencies(service, closure, composeDependencies, EnumSet.noneOf(OzoneService.class));
+    }
+
+    private static void addWithDependencies(
+            OzoneService service,
+            Set<OzoneService> closure,
+            Map<OzoneService, Set<OzoneService>> composeDependencies,
+            Set<OzoneService> visiting) {
+        // A service already being visited is part of a cycle, e.g. the proxy and the services it forwards to
+        if (closure.contains(service) || !visiting.add(service)) {
+            return;
+        }
+        service.dependencies.forEach(
+                dependency -> addWithDependencies(dependency, closure, composeDependencies, visiting));
+        composeDependencies
+                .getOrDefault(service, Set.of())
+                .forEach(dependency -> addWithDependencies(dependency, closure, composeDependencies, visiting));
+        closure.add(service);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_DISTRO_ZIP_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_PATH;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OzoneServiceTest {
+
+    private static final Pattern DISTRO_COMPOSE_FILE = Pattern.compile("(.*/)?run/docker/docker-compose-[^/]+\\.yml");
+
+    @Test
+    @DisplayName("should match the depends_on declarations of the distro compose files.")
+    public void shouldMatchDistroComposeDependencies() throws IOException {
+        List<DockerComposeFile> composeFiles = distroComposeFiles();
+        assumeFalse(composeFiles.isEmpty(), "The Ozone distribution is not available");
+
+        assertEquals(List.of(), OzoneService.missingDependencies(composeFiles));
+    }
+
+    @Test
+    @DisplayName("should keep the services the proxy forwards to.")
+    public void shouldKeepProxyUpstreams() {
+        Set<OzoneService> closure = OzoneService.closure(List.of(OzoneApp.OPENMRS), List.of());
+
+        assertTrue(closure.contains(OzoneService.PROXY));
+        assertTrue(closure.contains(OzoneService.FRONTEND));
+        assertFalse(OzoneService.closure(List.of(OzoneApp.ODOO), List.of()).contains(OzoneService.FRONTEND));
+    }
+
+    @Test
+    @DisplayName("should follow depends_on declarations missing from the model.")
+    public void shouldFollowComposeDependencies() {
+        DockerComposeFile composeFile = composeFile(
+                "services:",
+                "  odoo:",
+                "    image: odoo",
+                "    depends_on:",
+                "      postgresql:",
+                "        condition: service_healthy",
+                "      mysql:",
+                "        condition: service_started",
+                "  proxy:",
+                "    depends_on:",
+                "      - openmrs",
+                "      - \"frontend\"",
+                "  openmrs:",
+                "    depends_on: [mysql, 'env-substitution']");
+
+        assertEquals(Set.of("postgresql", "mysql"), composeFile.dependsOn("odoo"));
+        assertEquals(Set.of("openmrs", "frontend"), composeFile.dependsOn("proxy"));
+        assertEquals(Set.of("mysql", "env-substitution"), composeFile.dependsOn("openmrs"));
+        assertEquals(List.of("odoo -> mysql"), OzoneService.missingDependencies(List.of(composeFile)));
+        assertTrue(OzoneService.closure(List.of(OzoneApp.ODOO), List.of(), List.of(composeFile))
+                .contains(OzoneService.MYSQL));
+    }
+
+    private static DockerComposeFile composeFile(String... lines) {
+        return DockerComposeFile.parse(Paths.get("docker-compose-test.yml"), Arrays.asList(lines));
+    }
+
+    /**
+     * Reads the compose files of the distribution, from the Ozone zip if its location is known or else from the
+     * unpacked distribution.
+     */
+    private static List<DockerComposeFile> distroComposeFiles() throws IOException {
+        List<DockerComposeFile> composeFiles = new ArrayList<>();
+        String distroZip = System.getProperty(OZONE_DISTRO_ZIP_PROPERTY);
+        if (distroZip != null && Files.isRegularFile(Paths.get(distroZip))) {
+            try (ZipFile zipFile = new ZipFile(distroZip)) {
+                for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                    if (!DISTRO_COMPOSE_FILE.matcher(entry.getName()).matches()) {
+                        continue;
+                    }
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        composeFiles.add(DockerComposeFile.parse(
+                                Paths.get(entry.getName()),
+                                new String(in.readAllBytes(), UTF_8).lines().toList()));
+                    }
+                }
+            }
+            return composeFiles;
+        }
+        Path dockerDir = Paths.get(OZONE_PATH).resolve("run/docker");
+        if (!Files.isDirectory(dockerDir)) {
+            return composeFiles;
+        }
+        try (Stream<Path> files = Files.list(dockerDir)) {
+            for (Path file : files.filter(file -> DISTRO_COMPOSE_FILE
+                            .matcher(file.toString().replace('\\', '/'))
+                            .matches())
+                    .sorted()
+                    .toList()) {
+                composeFiles.add(DockerComposeFile.read(file));
+            }
+        }
+        return composeFiles;
+    }
+}
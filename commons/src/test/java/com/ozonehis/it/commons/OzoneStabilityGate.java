@@ -0,0 +1,390 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_STABILITY_BUDGET_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_STABILITY_EIP_HEALTH_URL_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_STABILITY_MAX_LATENCY_PROPERTY;
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_STABILITY_SUCCESSES_PROPERTY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Waits until a started stack is stable rather than just up. Deep probes, e.g. a FHIR metadata read or an Odoo login,
+ * run concurrently in rounds. The gate releases once a configured number of consecutive rounds succeeded with every
+ * probe answering within the latency bound, or fails once the budget is spent.
+ */
+@Slf4j
+public class OzoneStabilityGate {
+
+    /**
+     * A deep probe of a service.
+     */
+    @FunctionalInterface
+    public interface Probe {
+
+        /**
+         * @param timeout the time the probe may take
+         * @return true if the service answered correctly
+         * @throws Exception if the probe failed
+         */
+        boolean check(Duration timeout) throws Exception;
+    }
+
+    private static final int DEFAULT_REQUIRED_SUCCESSES = 3;
+
+    private static final long DEFAULT_MAX_LATENCY_MILLIS = 2000;
+
+    private static final long DEFAULT_BUDGET_SECONDS = 180;
+
+    private static final Duration ROUND_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The line Camel logs once the context and all its routes started.
+     */
+    public static final Pattern CAMEL_STARTED = Pattern.compile("Apache Camel \\S+ \\(\\S+\\) started in");
+
+    private static final Pattern XML_RPC_UID = Pattern.compile("<(?:int|i4)>(\\d+)</(?:int|i4)>");
+
+    private static final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final Map<String, Probe> probes = new LinkedHashMap<>();
+
+    private final int requiredSuccesses;
+
+    private final Duration maxLatency;
+
+    private final Duration budget;
+
+    /**
+     * @param requiredSuccesses the number of consecutive successful rounds needed to release the gate
+     * @param maxLatency        the time within which every probe of a round must succeed
+     * @param budget            the time after which the gate gives up
+     */
+    public OzoneStabilityGate(int requiredSuccesses, Duration maxLatency, Duration budget) {
+        this.requiredSuccesses = requiredSuccesses;
+        this.maxLatency = maxLatency;
+        this.budget = budget;
+    }
+
+    /**
+     * Creates a gate configured by the {@code ozone.stability.successes}, {@code ozone.stability.max.latency.ms} and
+     * {@code ozone.stability.budget.seconds} system properties.
+     *
+     * @return a gate without probes
+     */
+    public static OzoneStabilityGate fromSystemProperties() {
+        return new OzoneStabilityGate(
+                Integer.getInteger(OZONE_STABILITY_SUCCESSES_PROPERTY, DEFAULT_REQUIRED_SUCCESSES),
+                Duration.ofMillis(Long.getLong(OZONE_STABILITY_MAX_LATENCY_PROPERTY, DEFAULT_MAX_LATENCY_MILLIS)),
+                Duration.ofSeconds(Long.getLong(OZONE_STABILITY_BUDGET_PROPERTY, DEFAULT_BUDGET_SECONDS)));
+    }
+
+    /**
+     * Creates a gate configured by system properties, see {@link #fromSystemProperties()}, probing the given apps the
+     * way the EIP uses them: the OpenMRS FHIR API and the Odoo XML-RPC login. The health endpoint of the EIP is probed
+     * too when {@code ozone.stability.eip.health.url} is set, {@link OzoneRunner#stabilityGate()} probes the EIP of the
+     * running stack otherwise.
+     *
+     * @param apps the running apps
+     * @return the gate
+     */
+    public static OzoneStabilityGate forApps(Collection<OzoneApp> apps) {
+        OzoneStabilityGate gate = fromSystemProperties();
+        if (apps.contains(OzoneApp.OPENMRS)) {
+            gate.withProbe("openmrs-fhir-metadata", fhirMetadata());
+        }
+        if (apps.contains(OzoneApp.ODOO)) {
+            gate.withProbe("odoo-xmlrpc-login", odooLogin("odoo"));
+        }
+        String eipHealthUrl = System.getProperty(OZONE_STABILITY_EIP_HEALTH_URL_PROPERTY);
+        if (eipHealthUrl != null) {
+            gate.withProbe("eip-route-health", httpHealth(eipHealthUrl));
+        }
+        return gate;
+    }
+
+    /**
+     * Adds a probe to every round.
+     *
+     * @param name  the name of the probe in the report
+     * @param probe the probe
+     * @return this gate
+     */
+    public OzoneStabilityGate withProbe(String name, Probe probe) {
+        probes.put(name, probe);
+        return this;
+    }
+
+    /**
+     * Runs probe rounds until the stack is stable or the budget is spent.
+     *
+     * @return the report of the stabilization
+     */
+    public StabilityReport await() {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + budget.toNanos();
+        Map<String, Duration> maxLatencies = new LinkedHashMap<>();
+        Map<String, Integer> failures = new LinkedHashMap<>();
+        probes.keySet().forEach(name -> {
+            maxLatencies.put(name, Duration.ZERO);
+            failures.put(name, 0);
+        });
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, probes.size()), runnable -> {
+            Thread thread = new Thread(runnable, "ozone-stability-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int rounds = 0;
+        int consecutiveSuccesses = 0;
+        try {
+            // Every sleep is followed by a round, a stack that stabilizes during the last interval is not failed
+            while (true) {
+                rounds++;
+                if (runRound(executor, maxLatencies, failures)) {
+                    consecutiveSuccesses++;
+                } else {
+                    consecutiveSuccesses = 0;
+                }
+                if (consecutiveSuccesses >= requiredSuccesses || System.nanoTime() - deadlineNanos >= 0) {
+                    break;
+                }
+                Thread.sleep(ROUND_INTERVAL.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting for the Ozone stack to stabilize");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        StabilityReport report = new StabilityReport(
+                consecutiveSuccesses >= requiredSuccesses,
+                Duration.ofNanos(System.nanoTime() - startNanos),
+                rounds,
+                maxLatencies,
+                failures);
+        if (report.stable()) {
+            log.info(report.summary());
+        } else {
+            log.error(report.summary());
+        }
+        return report;
+    }
+
+    /**
+     * Runs every probe once, concurrently.
+     *
+     * @return true if every probe succeeded within the latency bound
+     */
+    private boolean runRound(
+            ExecutorService executor, Map<String, Duration> maxLatencies, Map<String, Integer> failures)
+            throws InterruptedException {
+        List<String> names = new ArrayList<>(probes.keySet());
+        List<Future<Long>> results = new ArrayList<>();
+        for (String name : names) {
+            Probe probe = probes.get(name);
+            results.add(executor.submit(() -> {
+                long probeStart = System.nanoTime();
+                return probe.check(maxLatency) ? System.nanoTime() - probeStart : -1L;
+            }));
+        }
+
+        boolean success = true;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            String failure = null;
+            try {
+                long latencyNanos = results.get(i).get(maxLatency.toNanos(), TimeUnit.NANOSECONDS);
+                if (latencyNanos < 0) {
+                    failure = "unexpected answer";
+                } else {
+                    Duration latency = Duration.ofNanos(latencyNanos);
+                    maxLatencies.merge(name, latency, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+                    if (latency.compareTo(maxLatency) > 0) {
+                        failure = "answered in " + latency.toMillis() + " ms";
+                    }
+                }
+            } catch (TimeoutException e) {
+                results.get(i).cancel(true);
+                failure = "no answer within " + maxLatency.toMillis() + " ms";
+            } catch (ExecutionException e) {
+                failure = e.getCause().getMessage();
+            }
+            if (failure != null) {
+                failures.merge(name, 1, Integer::sum);
+                log.debug("Stability probe {} failed: {}", name, failure);
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Reads the FHIR capability statement of OpenMRS, which needs the FHIR module and the database to be up.
+     *
+     * @return the probe
+     */
+    public static Probe fhirMetadata() {
+        return timeout -> {
+            OzoneAppCredentials credentials = OzoneApp.OPENMRS.credentials();
+            HttpRequest request = HttpRequest.newBuilder(
+                            URI.create(OzoneApp.OPENMRS.baseUrl() + "/ws/fhir2/R4/metadata"))
+                    .timeout(timeout)
+                    .header("Accept", "application/fhir+json")
+                    .header("Authorization", basicAuth(credentials))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 && response.body().contains("CapabilityStatement");
+        };
+    }
+
+    /**
+     * Logs in to Odoo over XML-RPC, the protocol the EIP routes use to talk to Odoo.
+     *
+     * @param database the Odoo database
+     * @return the probe
+     */
+    public static Probe odooLogin(String database) {
+        return timeout -> {
+            OzoneAppCredentials credentials = OzoneApp.ODOO.credentials();
+            String body = "<?xml version=\"1.0\"?><methodCall><methodName>authenticate</methodName><params>"
+                    + xmlRpcString(database) + xmlRpcString(credentials.username())
+                    + xmlRpcString(credentials.password())
+                    + "<param><value><struct></struct></value></param></params></methodCall>";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(OzoneApp.ODOO.baseUrl() + "/xmlrpc/2/common"))
+                    .timeout(timeout)
+                    .header("Content-Type", "text/xml")
+                    .POST(HttpRequest.BodyPublishers.ofString(body, UTF_8))
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200 || response.body().contains("<fault>")) {
+                return false;
+            }
+            Matcher uid = XML_RPC_UID.matcher(response.body());
+            return uid.find() && Integer.parseInt(uid.group(1)) > 0;
+        };
+    }
+
+    /**
+     * Reads a health endpoint, e.g. the Spring Boot health endpoint of an EIP application.
+     *
+     * @param url the URL of the health endpoint
+     * @return the probe, succeeding if the endpoint answers 2xx and does not report a DOWN status
+     */
+    public static Probe httpHealth(String url) {
+        return timeout -> {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() >= 200
+                    && response.statusCode() < 300
+                    && !response.body().contains("\"DOWN\"");
+        };
+    }
+
+    /**
+     * Looks for a line in the log of a service since its container started, for services without a reachable health
+     * endpoint, e.g. the EIP applications. Each check only reads the lines logged since the previous check, and once
+     * the line was seen the log is not read anymore.
+     *
+     * @param dockerCompose the compose project running the service
+     * @param service       the compose service
+     * @param line          the pattern of the line
+     * @return the probe, succeeding once the service logged a matching line
+     */
+    public static Probe logLine(DockerCompose dockerCompose, String service, Pattern line) {
+        AtomicBoolean seen = new AtomicBoolean();
+        AtomicReference<String> lastTimestamp = new AtomicReference<>();
+        return timeout -> {
+            if (seen.get()) {
+                return true;
+            }
+            String logs = dockerCompose.logsSince(service, lastTimestamp.get());
+            for (String logLine : logs.lines().toList()) {
+                int timestampEnd = logLine.indexOf(' ');
+                if (timestampEnd > 0) {
+                    lastTimestamp.set(logLine.substring(0, timestampEnd));
+                }
+                if (line.matcher(logLine).find()) {
+                    seen.set(true);
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static String basicAuth(OzoneAppCredentials credentials) {
+        String token = credentials.username() + ":" + credentials.password();
+        return "Basic " + Base64.getEncoder().encodeToString(token.getBytes(UTF_8));
+    }
+
+    private static String xmlRpcString(String value) {
+        String escaped = value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        return "<param><value><string>" + escaped + "</string></value></param>";
+    }
+
+    /**
+     * The outcome of a stabilization.
+     *
+     * @param stable       whether the stack stabilized within the budget
+     * @param duration     how long the stabilization took
+     * @param rounds       the number of probe rounds
+     * @param maxLatencies the highest latency of every probe
+     * @param failures     the number of failed attempts of every probe
+     */
+    public record StabilityReport(
+            boolean stable,
+            Duration duration,
+            int rounds,
+            Map<String, Duration> maxLatencies,
+            Map<String, Integer> failures) {
+
+        public String summary() {
+            StringBuilder summary = new StringBuilder(String.format(
+                    "Ozone stack %s after %d ms and %d probe rounds",
+                    stable ? "stabilized" : "did not stabilize", duration.toMillis(), rounds));
+            maxLatencies.forEach((name, latency) -> summary.append(String.format(
+                    "%n  %-24s max latency %6d ms, %d failed attempts",
+                    name, latency.toMillis(), failures.getOrDefault(name, 0))));
+            return summary.toString();
+        }
+    }
+}
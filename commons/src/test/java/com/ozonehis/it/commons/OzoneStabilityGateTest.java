@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OzoneStabilityGateTest {
+
+    @Test
+    @DisplayName("should only read the new log lines and stop reading once the line was seen.")
+    public void shouldReadLogIncrementally() throws Exception {
+        ScriptedLogs dockerCompose = new ScriptedLogs(
+                "2025-01-01T10:00:00.000000001Z Starting\n2025-01-01T10:00:01.000000002Z Loading routes\n",
+                "2025-01-01T10:00:01.000000002Z Loading routes\n",
+                "2025-01-01T10:00:02.5Z Apache Camel 4.8.0 (camel-1) started in 2s\n");
+        OzoneStabilityGate.Probe probe =
+                OzoneStabilityGate.logLine(dockerCompose, "eip", OzoneStabilityGate.CAMEL_STARTED);
+        Duration timeout = Duration.ofSeconds(2);
+
+        assertFalse(probe.check(timeout));
+        assertFalse(probe.check(timeout));
+        assertTrue(probe.check(timeout));
+        assertTrue(probe.check(timeout));
+
+        assertEquals(
+                Arrays.asList(null, "2025-01-01T10:00:01.000000002Z", "2025-01-01T10:00:01.000000002Z"),
+                dockerCompose.sinces);
+    }
+
+    private static final class ScriptedLogs extends DockerCompose {
+
+        private final Queue<String> logs;
+
+        private final List<String> sinces = new ArrayList<>();
+
+        private ScriptedLogs(String... logs) {
+            super(Path.of("."));
+            this.logs = new LinkedList<>(List.of(logs));
+        }
+
+        @Override
+        public String logsSince(String service, String since) {
+            sinces.add(since);
+            return logs.remove();
+        }
+    }
+}
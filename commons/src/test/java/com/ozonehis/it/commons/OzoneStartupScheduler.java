@@ -0,0 +1,498 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Starts the services of an Ozone stack in dependency order. Every selected service that belongs to an app is a node
+ * of a DAG whose edges are the dependencies of {@link OzoneService}, an edge may only point to an app with a lower or
+ * equal {@link OzoneApp#sortOrder()}. A node is launched as soon as the nodes it depends on are ready, so independent
+ * apps start concurrently. Launches requested while another launch is running are coalesced into the next one.
+ * Infrastructure services are launched together with the first node that needs them.
+ *
+ * <p>The future returned by {@link #start()} completes once the required services are ready and no launch is running
+ * anymore. Services whose launch is still waiting for their dependencies are then launched together in a last launch,
+ * which is awaited too, without waiting for them to be ready. As soon as a required service fails or times out, the
+ * running launch is killed and every readiness check is stopped before the future completes exceptionally. No launch
+ * outlives the startup.
+ */
+@Slf4j
+public class OzoneStartupScheduler {
+
+    /**
+     * Launches a selection of services. The selection grows with every call, services already running are expected to
+     * be left untouched.
+     */
+    @FunctionalInterface
+    public interface ServiceLauncher {
+
+        CompletableFuture<Boolean> launch(Set<OzoneService> services) throws IOException;
+    }
+
+    /**
+     * Checks whether a launched service is ready to be used by the services depending on it.
+     */
+    @FunctionalInterface
+    public interface ReadinessProbe {
+
+        boolean isReady(OzoneService service);
+    }
+
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final Map<OzoneService, Node> nodes = new LinkedHashMap<>();
+
+    private final List<Node> requiredNodes = new ArrayList<>();
+
+    private final ServiceLauncher launcher;
+
+    private final ReadinessProbe probe;
+
+    private final Duration timeout;
+
+    private final ExecutorService executor;
+
+    private final Set<OzoneService> selectedServices;
+
+    private final Set<OzoneService> launchedServices = new LinkedHashSet<>();
+
+    private final List<Node> pendingNodes = new ArrayList<>();
+
+    private CompletableFuture<Boolean> launchInFlight;
+
+    private boolean holdLaunches;
+
+    private boolean draining;
+
+    private long startNanos;
+
+    private long deadlineNanos;
+
+    /**
+     * @param selectedServices the services to start, closed under their dependencies
+     * @param requiredServices the services the caller waits for, every other service is started in the background
+     * @param launcher         launches a selection of services
+     * @param probe            checks whether a launched service is ready
+     * @param timeout          the time after which services that are not ready fail the startup
+     */
+    public OzoneStartupScheduler(
+            Set<OzoneService> selectedServices,
+            Collection<OzoneService> requiredServices,
+            ServiceLauncher launcher,
+            ReadinessProbe probe,
+            Duration timeout) {
+        this.selectedServices = new LinkedHashSet<>(selectedServices);
+        this.launcher = launcher;
+        this.probe = probe;
+        this.timeout = timeout;
+
+        selectedServices.stream()
+                .filter(service -> service.app() != null)
+                .forEach(service -> nodes.put(service, new Node(service)));
+        for (Node node : nodes.values()) {
+            for (OzoneService dependency : nodeDependencies(node.service, selectedServices)) {
+                Node dependencyNode = nodes.get(dependency);
+                if (dependency.app().sortOrder() > node.service.app().sortOrder()) {
+                    throw new IllegalStateException(String.format(
+                            "Service %s of app %s depends on service %s of app %s, which has a higher sort order",
+                            node.service.serviceName(),
+                            node.service.app(),
+                            dependency.serviceName(),
+                            dependency.app()));
+                }
+                node.dependencies.add(dependencyNode);
+            }
+        }
+        for (OzoneService service : requiredServices) {
+            Node node = nodes.get(service);
+            if (node == null) {
+                throw new IllegalArgumentException("Required service " + service + " is not a selected app service");
+            }
+            requiredNodes.add(node);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ozone-startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Counts the waves a startup of the given services takes, the length of the longest chain of apps depending on
+     * each other. Services of the same app are launched together by compose, so a single app is a single wave.
+     *
+     * @param selectedServices the services to start, closed under their dependencies
+     * @return the number of waves, 1 if the services can be launched at once
+     */
+    public static int waves(Set<OzoneService> selectedServices) {
+        Map<OzoneService, Integer> waves = new LinkedHashMap<>();
+        int maxWaves = 1;
+        for (OzoneService service : selectedServices) {
+            if (service.app() != null) {
+                maxWaves = Math.max(maxWaves, wave(service, selectedServices, waves));
+            }
+        }
+        return maxWaves;
+    }
+
+    private static int wave(
+            OzoneService service, Set<OzoneService> selectedServices, Map<OzoneService, Integer> waves) {
+        Integer known = waves.get(service);
+        if (known != null) {
+            return known;
+        }
+        int wave = 1;
+        for (OzoneService dependency : nodeDependencies(service, selectedServices)) {
+            int dependencyWave = wave(dependency, selectedServices, waves);
+            wave = Math.max(wave, dependency.app() == service.app() ? dependencyWave : dependencyWave + 1);
+        }
+        waves.put(service, wave);
+        return wave;
+    }
+
+    /**
+     * Starts the stack.
+     *
+     * @return a future completing with the startup timeline once the required services are ready and the launches
+     *     have completed
+     */
+    public CompletableFuture<StartupTimeline> start() {
+        startNanos = System.nanoTime();
+        deadlineNanos = startNanos + timeout.toNanos();
+        log.info("Starting Ozone services {}", nodes.keySet());
+
+        synchronized (this) {
+            // Nodes without dependencies are collected first so that they are all launched together
+            holdLaunches = true;
+            for (Node node : nodes.values()) {
+                CompletableFuture.allOf(node.dependencies.stream()
+                                .map(dependency -> dependency.ready)
+                                .toArray(CompletableFuture[]::new))
+                        .whenComplete((result, error) -> {
+                            if (error != null) {
+                                node.ready.completeExceptionally(error);
+                            } else {
+                                node.dependenciesReadyAt = System.nanoTime();
+                                requestLaunch(node);
+                            }
+                        });
+            }
+            holdLaunches = false;
+            if (!pendingNodes.isEmpty()) {
+                launchPending();
+            }
+        }
+        CompletableFuture.allOf(nodes.values().stream().map(node -> node.ready).toArray(CompletableFuture[]::new))
+                .whenComplete((result, error) -> executor.shutdown());
+
+        // Fails as soon as any required service fails, without waiting for the others
+        CompletableFuture<Void> requiredReady = new CompletableFuture<>();
+        requiredNodes.forEach(node -> node.ready.whenComplete((result, error) -> {
+            if (error != null) {
+                requiredReady.completeExceptionally(error);
+            }
+        }));
+        CompletableFuture.allOf(requiredNodes.stream().map(node -> node.ready).toArray(CompletableFuture[]::new))
+                .thenRun(() -> requiredReady.complete(null));
+
+        return requiredReady
+                .thenCompose(result -> drain())
+                .whenComplete((result, error) -> {
+                    if (error != null) {
+                        // Kills the launches and readiness checks still running before the caller sees the failure
+                        cancel();
+                    }
+                })
+                .thenApply(result -> {
+                    StartupTimeline timeline = timeline();
+                    log.info("Required Ozone services are ready{}{}", System.lineSeparator(), timeline.format());
+                    return timeline;
+                });
+    }
+
+    /**
+     * Cancels the startup, killing a running launch and stopping all readiness checks.
+     */
+    public void cancel() {
+        CompletableFuture<Boolean> launch;
+        synchronized (this) {
+            launch = launchInFlight;
+            pendingNodes.clear();
+        }
+        if (launch != null) {
+            launch.cancel(true);
+        }
+        nodes.values()
+                .forEach(node -> node.ready.completeExceptionally(new CancellationException("Startup cancelled")));
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the timeline of the services started so far
+     */
+    public StartupTimeline timeline() {
+        List<StartupTimeline.Entry> entries = nodes.values().stream()
+                .map(node -> new StartupTimeline.Entry(
+                        node.service,
+                        sinceStart(node.dependenciesReadyAt),
+                        sinceStart(node.launchedAt),
+                        sinceStart(node.readyAt)))
+                .toList();
+        return new StartupTimeline(entries, criticalPath());
+    }
+
+    private synchronized void requestLaunch(Node node) {
+        pendingNodes.add(node);
+        if (launchInFlight == null && !holdLaunches && !draining) {
+            launchPending();
+        }
+    }
+
+    /**
+     * Stops launching services once they become ready, waits for the running launch and then launches every service
+     * not launched yet at once, so that no launch keeps running after the startup completed.
+     */
+    private CompletableFuture<Void> drain() {
+        CompletableFuture<Boolean> inFlight;
+        synchronized (this) {
+            draining = true;
+            inFlight = launchInFlight;
+        }
+        CompletableFuture<Void> previousLaunch =
+                inFlight == null ? CompletableFuture.completedFuture(null) : inFlight.handle((result, error) -> null);
+        return previousLaunch.thenCompose(ignored -> launchRemaining()).whenComplete((result, error) -> {
+            // Stops the readiness checks of the services nobody waits for
+            executor.shutdownNow();
+        });
+    }
+
+    private CompletableFuture<Void> launchRemaining() {
+        List<String> remaining;
+        CompletableFuture<Boolean> launch;
+        synchronized (this) {
+            pendingNodes.clear();
+            remaining = selectedServices.stream()
+                    .filter(service -> !launchedServices.contains(service))
+                    .map(OzoneService::serviceName)
+                    .toList();
+            if (remaining.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            log.info("Launching {} without waiting for them to be ready", remaining);
+            launchedServices.addAll(selectedServices);
+            try {
+                launch = launcher.launch(new LinkedHashSet<>(launchedServices));
+            } catch (IOException | RuntimeException e) {
+                launch = CompletableFuture.failedFuture(e);
+            }
+            launchInFlight = launch;
+        }
+        return launch.thenApply(result -> null);
+    }
+
+    /**
+     * Launches the pending nodes together with every service launched before, must be called holding the lock.
+     */
+    private void launchPending() {
+        List<Node> batch = new ArrayList<>(pendingNodes);
+        pendingNodes.clear();
+        batch.forEach(node -> launchedServices.addAll(OzoneService.closure(List.of(), List.of(node.service))));
+        log.info(
+                "Launching {} after their dependencies became ready",
+                batch.stream().map(node -> node.service.serviceName()).toList());
+
+        CompletableFuture<Boolean> launch;
+        try {
+            launch = launcher.launch(new LinkedHashSet<>(launchedServices));
+        } catch (IOException | RuntimeException e) {
+            launch = CompletableFuture.failedFuture(e);
+        }
+        launchInFlight = launch;
+        CompletableFuture<Boolean> thisLaunch = launch;
+        launch.whenComplete((result, error) -> onLaunched(thisLaunch, batch, error));
+    }
+
+    private void onLaunched(CompletableFuture<Boolean> launch, List<Node> batch, Throwable error) {
+        long launchedAt = System.nanoTime();
+        for (Node node : batch) {
+            if (error != null) {
+                node.ready.completeExceptionally(error);
+            } else {
+                node.launchedAt = launchedAt;
+                try {
+                    executor.execute(() -> awaitReady(node));
+                } catch (RuntimeException e) {
+                    node.ready.completeExceptionally(e);
+                }
+            }
+        }
+        synchronized (this) {
+            if (launchInFlight == launch) {
+                launchInFlight = null;
+            }
+            if (launchInFlight == null && !pendingNodes.isEmpty() && !draining) {
+                launchPending();
+            }
+        }
+    }
+
+    private void awaitReady(Node node) {
+        while (!node.ready.isDone()) {
+            if (isReady(node.service)) {
+                node.readyAt = System.nanoTime();
+                node.ready.complete(null);
+                log.info(
+                        "{} is ready after {} ms",
+                        node.service.serviceName(),
+                        sinceStart(node.readyAt).toMillis());
+                return;
+            }
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                node.ready.completeExceptionally(new TimeoutException(
+                        node.service.serviceName() + " was not ready within " + timeout.toMinutes() + " minutes"));
+                return;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                node.ready.completeExceptionally(e);
+                return;
+            }
+        }
+    }
+
+    private boolean isReady(OzoneService service) {
+        try {
+            return probe.isReady(service);
+        } catch (RuntimeException e) {
+            log.debug("Readiness check of {} failed: {}", service.serviceName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Follows the dependency that became ready last, starting from the required service that became ready last.
+     */
+    private List<OzoneService> criticalPath() {
+        Comparator<Node> byReadyAt = Comparator.comparingLong(node -> node.readyAt);
+        LinkedList<OzoneService> path = new LinkedList<>();
+        Node current = requiredNodes.stream()
+                .filter(node -> node.readyAt != 0)
+                .max(byReadyAt)
+                .orElse(null);
+        while (current != null) {
+            path.addFirst(current.service);
+            current = current.dependencies.stream()
+                    .filter(node -> node.readyAt != 0)
+                    .max(byReadyAt)
+                    .orElse(null);
+        }
+        return path;
+    }
+
+    private Duration sinceStart(long nanos) {
+        return nanos == 0 ? null : Duration.ofNanos(nanos - startNanos);
+    }
+
+    /**
+     * Returns the nearest app services the given service depends on, looking through infrastructure services.
+     */
+    private static Set<OzoneService> nodeDependencies(OzoneService service, Set<OzoneService> selectedServices) {
+        Set<OzoneService> dependencies = new LinkedHashSet<>();
+        for (OzoneService dependency : service.dependencies()) {
+            if (!selectedServices.contains(dependency)) {
+                continue;
+            }
+            if (dependency.app() != null) {
+                dependencies.add(dependency);
+            } else {
+                dependencies.addAll(nodeDependencies(dependency, selectedServices));
+            }
+        }
+        return dependencies;
+    }
+
+    private static final class Node {
+
+        private final OzoneService service;
+
+        private final List<Node> dependencies = new ArrayList<>();
+
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+        private volatile long dependenciesReadyAt;
+
+        private volatile long launchedAt;
+
+        private volatile long readyAt;
+
+        private Node(OzoneService service) {
+            this.service = service;
+        }
+    }
+
+    /**
+     * The startup timeline of the services of a stack, relative to the start of the scheduler.
+     *
+     * @param entries      the startup times of every service
+     * @param criticalPath the chain of services that determined when the required services were ready
+     */
+    public record StartupTimeline(List<Entry> entries, List<OzoneService> criticalPath) {
+
+        /**
+         * @param service           the service
+         * @param dependenciesReady when the services it depends on were ready, null if they are not ready yet
+         * @param launched          when the launch of the service completed, null if it is not launched yet
+         * @param ready             when the service was ready, null if it is not ready yet
+         */
+        public record Entry(OzoneService service, Duration dependenciesReady, Duration launched, Duration ready) {}
+
+        /**
+         * @return the timeline as a table, services on the critical path are marked with a {@code *}
+         */
+        public String format() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("  %-20s %12s %12s %12s%n", "service", "deps ready", "launched", "ready"));
+            for (Entry entry : entries) {
+                builder.append(String.format(
+                        "%s %-20s %12s %12s %12s%n",
+                        criticalPath.contains(entry.service()) ? "*" : " ",
+                        entry.service().serviceName(),
+                        format(entry.dependenciesReady()),
+                        format(entry.launched()),
+                        format(entry.ready())));
+            }
+            return builder.toString();
+        }
+
+        private static String format(Duration duration) {
+            return duration == null ? "-" : String.format("+%.1fs", duration.toMillis() / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OzoneStartupSchedulerTest {
+
+    @Test
+    @DisplayName("should count the waves of chains of dependent apps.")
+    public void shouldCountWaves() {
+        assertEquals(1, OzoneStartupScheduler.waves(OzoneService.closure(List.of(OzoneApp.OPENMRS), List.of())));
+        assertEquals(
+                1,
+                OzoneStartupScheduler.waves(
+                        OzoneService.closure(List.of(OzoneApp.OPENMRS, OzoneApp.ODOO, OzoneApp.KEYCLOAK), List.of())));
+        assertEquals(
+                2,
+                OzoneStartupScheduler.waves(OzoneService.closure(
+                        List.of(OzoneApp.OPENMRS, OzoneApp.ODOO), List.of(OzoneService.EIP_ODOO_OPENMRS))));
+    }
+
+    @Test
+    @DisplayName("should launch independent apps together and their dependents once they are ready.")
+    public void shouldLaunchInDependencyOrder() {
+        Set<OzoneService> selected =
+                OzoneService.closure(List.of(OzoneApp.OPENMRS, OzoneApp.ODOO), List.of(OzoneService.EIP_ODOO_OPENMRS));
+        List<Set<OzoneService>> launches = new CopyOnWriteArrayList<>();
+        Set<OzoneService> launched = ConcurrentHashMap.newKeySet();
+        OzoneStartupScheduler scheduler = new OzoneStartupScheduler(
+                selected,
+                List.of(OzoneService.OPENMRS, OzoneService.ODOO, OzoneService.EIP_ODOO_OPENMRS),
+                services -> {
+                    launches.add(new LinkedHashSet<>(services));
+                    launched.addAll(services);
+                    return CompletableFuture.completedFuture(true);
+                },
+                launched::contains,
+                Duration.ofMinutes(1));
+
+        OzoneStartupScheduler.StartupTimeline timeline =
+                scheduler.start().orTimeout(30, TimeUnit.SECONDS).join();
+
+        Set<OzoneService> first = launches.get(0);
+        assertTrue(first.containsAll(Set.of(OzoneService.OPENMRS, OzoneService.ODOO)), first.toString());
+        assertFalse(first.contains(OzoneService.EIP_ODOO_OPENMRS), first.toString());
+        assertTrue(launches.get(launches.size() - 1).containsAll(selected));
+        assertEquals(
+                OzoneService.EIP_ODOO_OPENMRS,
+                timeline.criticalPath().get(timeline.criticalPath().size() - 1));
+        assertTrue(timeline.entries().stream()
+                .filter(entry -> entry.service() == OzoneService.EIP_ODOO_OPENMRS)
+                .allMatch(entry -> entry.ready() != null));
+    }
+
+    @Test
+    @DisplayName("should kill running launches and stop probing when a required service times out.")
+    public void shouldCancelLaunchesWhenRequiredServiceFails() throws InterruptedException {
+        Set<OzoneService> selected = OzoneService.closure(
+                List.of(OzoneApp.KEYCLOAK, OzoneApp.OPENMRS, OzoneApp.ODOO), List.of(OzoneService.EIP_ODOO_OPENMRS));
+        List<CompletableFuture<Boolean>> laterLaunches = new CopyOnWriteArrayList<>();
+        AtomicInteger launchCount = new AtomicInteger();
+        AtomicInteger probeCount = new AtomicInteger();
+        OzoneStartupScheduler scheduler = new OzoneStartupScheduler(
+                selected,
+                List.of(OzoneService.KEYCLOAK, OzoneService.EIP_ODOO_OPENMRS),
+                services -> {
+                    if (launchCount.incrementAndGet() == 1) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    // The launches of the dependent services hang until they are killed
+                    CompletableFuture<Boolean> launch = new CompletableFuture<>();
+                    laterLaunches.add(launch);
+                    return launch;
+                },
+                service -> {
+                    probeCount.incrementAndGet();
+                    return service != OzoneService.KEYCLOAK;
+                },
+                Duration.ofMillis(1500));
+
+        CompletionException thrown = assertThrows(
+                CompletionException.class,
+                () -> scheduler.start().orTimeout(30, TimeUnit.SECONDS).join());
+
+        assertInstanceOf(TimeoutException.class, thrown.getCause());
+        assertTrue(
+                String.valueOf(thrown.getCause().getMessage()).startsWith("keycloak"),
+                thrown.getCause().getMessage());
+        assertFalse(laterLaunches.isEmpty());
+        assertTrue(laterLaunches.stream().allMatch(CompletableFuture::isCancelled));
+        int probes = probeCount.get();
+        Thread.sleep(2500);
+        assertEquals(probes, probeCount.get());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_WORKSPACE_MODE_PROPERTY;
+
+import java.util.Locale;
+
+/**
+ * Defines how the unpacked Ozone distribution is materialized into the test workspace.
+ */
+public enum OzoneWorkspaceMode {
+
+    /**
+     * Every file of the distribution is copied into the workspace. This is the default, as nothing written to the
+     * workspace can reach the distribution or the cache.
+     */
+    COPY,
+
+    /**
+     * Files are hard-linked into the workspace, a linked file and its source are the same file. Only the files the
+     * runner rewrites, those of {@link OzoneConstants#OZONE_PRIVATE_WORKSPACE_FILES}, are copied instead:
+     *
+     * <ul>
+     *   <li>{@code run/docker/.env}, rewritten when environment variables are overridden</li>
+     *   <li>{@code run/docker/scripts/docker-compose-files.txt}, rewritten to select the compose files of the apps</li>
+     * </ul>
+     *
+     * Any other file written in place, e.g. a configuration an app edits through a bind mount, is written to the
+     * distribution and, with the distribution cache enabled, to every later workspace. Only use this mode with apps
+     * that do not write to their bind-mounted files.
+     */
+    LINK,
+
+    /**
+     * The distribution is cloned with copy-on-write reflinks, so writes stay in the workspace. Falls back to
+     * {@link #LINK}, with its caveats, when the filesystem does not support reflinks.
+     */
+    REFLINK;
+
+    /**
+     * Resolves the workspace mode from the {@code ozone.workspace.mode} system property.
+     *
+     * @return the configured workspace mode, {@link #COPY} if none is configured
+     */
+    public static OzoneWorkspaceMode fromSystemProperty() {
+        return fromSystemProperty(COPY);
+    }
+
+    /**
+     * Resolves the workspace mode from the {@code ozone.workspace.mode} system property.
+     *
+     * @param defaultMode the mode to use if none is configured
+     * @return the configured workspace mode
+     */
+    public static OzoneWorkspaceMode fromSystemProperty(OzoneWorkspaceMode defaultMode) {
+        String value = System.getProperty(OZONE_WORKSPACE_MODE_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return defaultMode;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_WORKSPACE_PARALLELISM_PROPERTY;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Copies and deletes file trees in parallel on a {@link ForkJoinPool}. Each directory is processed by its own task and
+ * large directories are split into batches of files, which keeps many I/O requests in flight on fast disks.
+ */
+public final class ParallelFileTree {
+
+    private static final int FILES_PER_TASK = 64;
+
+    private ParallelFileTree() {}
+
+    /**
+     * Clones a single file from the source tree into the target tree.
+     */
+    @FunctionalInterface
+    public interface FileCloner {
+
+        /**
+         * @param source       the file in the source tree
+         * @param target       the file in the target tree, its parent directory already exists
+         * @param relativePath the path of the file relative to the source tree root
+         * @throws IOException if the file could not be cloned
+         */
+        void clone(Path source, Path target, Path relativePath) throws IOException;
+    }
+
+    /**
+     * A path the operation failed on, with the reason.
+     */
+    public record Failure(Path path, String reason) {
+
+        @Override
+        public String toString() {
+            return path + " (" + reason + ")";
+        }
+    }
+
+    /**
+     * The outcome of a tree operation.
+     */
+    public record Result(
+            String operation, Path root, long files, long directories, Duration duration, List<Failure> failures) {
+
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * @throws IOException listing every failure if the operation did not fully succeed
+         */
+        public void throwIfFailed() throws IOException {
+            if (!isSuccessful()) {
+                throw new IOException(summary());
+            }
+        }
+
+        /**
+         * @return a one-line summary of the operation, followed by the failed paths if any
+         */
+        public String summary() {
+            String summary = String.format(
+                    "%s %s: %d files and %d directories in %d ms",
+                    operation, root, files, directories, duration.toMillis());
+            if (failures.isEmpty()) {
+                return summary;
+            }
+            return summary + ", " + failures.size() + " failures: "
+                    + failures.stream().map(Failure::toString).collect(Collectors.joining(", "));
+        }
+    }
+
+    /**
+     * Copies the source tree into the target directory, creating directories as needed.
+     *
+     * @param sourceDir the root of the tree to copy
+     * @param targetDir the directory to copy the tree into
+     * @param cloner    clones each regular file
+     * @return the result of the copy
+     */
+    public static Result copy(Path sourceDir, Path targetDir, FileCloner cloner) {
+        Operation operation = new Operation("Copy", sourceDir);
+        operation.run(new CopyDirectoryTask(operation, sourceDir, targetDir, cloner));
+        return operation.result();
+    }
+
+    /**
+     * Deletes the directory and everything below it. Symbolic links are deleted, never followed, including the
+     * directory itself when it is a link.
+     *
+     * @param directory the directory to delete
+     * @return the result of the delete, including every path that could not be deleted
+     */
+    public static Result delete(Path directory) {
+        Operation operation = new Operation("Delete", directory);
+        if (Files.isSymbolicLink(directory)) {
+            try {
+                Files.delete(directory);
+                operation.files.increment();
+            } catch (IOException e) {
+                operation.fail(directory, e);
+            }
+        } else if (Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            operation.run(new DeleteDirectoryTask(operation, directory));
+        }
+        return operation.result();
+    }
+
+    /**
+     * @return the parallelism set by {@code ozone.workspace.parallelism}, or twice the number of cores
+     * @throws IllegalArgumentException if the property is not a positive integer
+     */
+    static int parallelism() {
+        String value = System.getProperty(OZONE_WORKSPACE_PARALLELISM_PROPERTY);
+        if (value != null && !value.isBlank()) {
+            int parallelism;
+            try {
+                parallelism = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        OZONE_WORKSPACE_PARALLELISM_PROPERTY + " must be a positive integer, got '" + value + "'", e);
+            }
+            if (parallelism < 1) {
+                throw new IllegalArgumentException(
+                        OZONE_WORKSPACE_PARALLELISM_PROPERTY + " must be a positive integer, got '" + value + "'");
+            }
+            return parallelism;
+        }
+        // The work is I/O bound, so keep more requests in flight than there are cores
+        return Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    private static List<Path> list(Operation operation, Path directory) {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            stream.forEach(entries::add);
+        } catch (IOException e) {
+            operation.fail(directory, e);
+        }
+        return entries;
+    }
+
+    private static final class Operation {
+
+        private final String name;
+
+        private final Path root;
+
+        private final LongAdder files = new LongAdder();
+
+        private final LongAdder directories = new LongAdder();
+
+        private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+        private long startTime;
+
+        private long endTime;
+
+        Operation(String name, Path root) {
+            this.name = name;
+            this.root = root;
+        }
+
+        void run(RecursiveAction rootTask) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism());
+            startTime = System.nanoTime();
+            try {
+                pool.invoke(rootTask);
+            } finally {
+                endTime = System.nanoTime();
+                pool.shutdown();
+            }
+        }
+
+        void fail(Path path, Exception e) {
+            failures.add(new Failure(path, e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+
+        Result result() {
+            return new Result(
+                    name,
+                    root,
+                    files.sum(),
+                    directories.sum(),
+                    Duration.ofNanos(endTime - startTime),
+                    List.copyOf(failures));
+        }
+    }
+
+    private static final class CopyDirectoryTask extends RecursiveAction {
+
+        private final Operation operation;
+
+        private final Path sourceDir;
+
+        private final Path targetDir;
+
+        private final FileCloner cloner;
+
+        CopyDirectoryTask(Operation operation, Path sourceDir, Path targetDir, FileCloner cloner) {
+            this.operation = operation;
+            this.sourceDir = sourceDir;
+            this.targetDir = targetDir;
+            this.cloner = cloner;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                Files.createDirectories(targetDir);
+                operation.directories.increment();
+            } catch (IOException e) {
+                operation.fail(targetDir, e);
+                return;
+            }
+
+            List<RecursiveAction> tasks = new ArrayList<>();
+            List<Path> files = new ArrayList<>();
+            for (Path entry : list(operation, sourceDir)) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    tasks.add(new CopyDirectoryTask(
+                            operation,
+                            entry,
+                            targetDir.resolve(entry.getFileName().toString()),
+                            cloner));
+                } else {
+                    files.add(entry);
+                }
+            }
+            for (int i = 0; i < files.size(); i += FILES_PER_TASK) {
+                tasks.add(new CopyFilesTask(this, files.subList(i, Math.min(i + FILES_PER_TASK, files.size()))));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static final class CopyFilesTask extends RecursiveAction {
+
+        private final CopyDirectoryTask parent;
+
+        private final List<Path> files;
+
+        CopyFilesTask(CopyDirectoryTask parent, List<Path> files) {
+            this.parent = parent;
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            Operation operation = parent.operation;
+            for (Path file : files) {
+                Path target = parent.targetDir.resolve(file.getFileName().toString());
+                try {
+                    parent.cloner.clone(file, target, operation.root.relativize(file));
+                    operation.files.increment();
+                } catch (IOException | RuntimeException e) {
+                    operation.fail(file, e);
+                }
+            }
+        }
+    }
+
+    private static final class DeleteDirectoryTask extends RecursiveAction {
+
+        private final Operation operation;
+
+        private final Path directory;
+
+        DeleteDirectoryTask(Operation operation, Path directory) {
+            this.operation = operation;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            List<DeleteDirectoryTask> subdirectories = new ArrayList<>();
+            for (Path entry : list(operation, directory)) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    subdirectories.add(new DeleteDirectoryTask(operation, entry));
+                } else {
+                    try {
+                        Files.delete(entry);
+                        operation.files.increment();
+                    } catch (IOException e) {
+                        operation.fail(entry, e);
+                    }
+                }
+            }
+            invokeAll(subdirectories);
+
+            try {
+                Files.delete(directory);
+                operation.directories.increment();
+            } catch (IOException e) {
+                operation.fail(directory, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_WORKSPACE_PARALLELISM_PROPERTY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelFileTreeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path outside;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        outside = Files.createDirectories(tempDir.resolve("outside"));
+        Files.writeString(outside.resolve("keep.txt"), "keep");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(OZONE_WORKSPACE_PARALLELISM_PROPERTY);
+    }
+
+    @Test
+    @DisplayName("should copy a tree and hand links to the cloner without following them.")
+    public void shouldCopyTree() throws IOException {
+        Path source = tree(tempDir.resolve("source"));
+        Path target = tempDir.resolve("target");
+        Set<Path> cloned = ConcurrentHashMap.newKeySet();
+
+        ParallelFileTree.Result result = ParallelFileTree.copy(source, target, (file, targetFile, relativePath) -> {
+            cloned.add(relativePath);
+            Files.copy(file, targetFile, LinkOption.NOFOLLOW_LINKS, StandardCopyOption.REPLACE_EXISTING);
+        });
+
+        assertTrue(result.isSuccessful(), result.summary());
+        assertEquals(Set.of(Path.of("a.txt"), Path.of("sub/b.txt"), Path.of("sub/link")), cloned);
+        assertEquals(3, result.files());
+        assertEquals(2, result.directories());
+        assertEquals("b", Files.readString(target.resolve("sub/b.txt")));
+        assertTrue(Files.isSymbolicLink(target.resolve("sub/link")));
+    }
+
+    @Test
+    @DisplayName("should report the files the cloner fails on and copy the others.")
+    public void shouldReportCopyFailures() throws IOException {
+        Path source = tree(tempDir.resolve("source"));
+        Path target = tempDir.resolve("target");
+
+        ParallelFileTree.Result result = ParallelFileTree.copy(source, target, (file, targetFile, relativePath) -> {
+            if (relativePath.equals(Path.of("a.txt"))) {
+                throw new IOException("disk full");
+            }
+            Files.copy(file, targetFile, LinkOption.NOFOLLOW_LINKS);
+        });
+
+        assertFalse(result.isSuccessful());
+        assertEquals(
+                List.of(new ParallelFileTree.Failure(source.resolve("a.txt"), "IOException: disk full")),
+                result.failures());
+        assertEquals(2, result.files());
+        assertTrue(Files.exists(target.resolve("sub/b.txt")));
+        IOException thrown = assertThrows(IOException.class, result::throwIfFailed);
+        assertTrue(thrown.getMessage().contains("1 failures: " + source.resolve("a.txt")), thrown.getMessage());
+    }
+
+    @Test
+    @DisplayName("should delete links inside the tree without following them.")
+    public void shouldDeleteTreeWithoutFollowingLinks() throws IOException {
+        Path root = tree(tempDir.resolve("root"));
+
+        ParallelFileTree.Result result = ParallelFileTree.delete(root);
+
+        assertTrue(result.isSuccessful(), result.summary());
+        assertEquals(3, result.files());
+        assertEquals(2, result.directories());
+        assertFalse(Files.exists(root, LinkOption.NOFOLLOW_LINKS));
+        assertTrue(Files.exists(outside.resolve("keep.txt")));
+    }
+
+    @Test
+    @DisplayName("should delete only the link when the root is a link.")
+    public void shouldDeleteOnlyRootLink() throws IOException {
+        Path link = Files.createSymbolicLink(tempDir.resolve("link"), outside);
+
+        ParallelFileTree.Result result = ParallelFileTree.delete(link);
+
+        assertTrue(result.isSuccessful(), result.summary());
+        assertFalse(Files.exists(link, LinkOption.NOFOLLOW_LINKS));
+        assertTrue(Files.exists(outside.resolve("keep.txt")));
+    }
+
+    @Test
+    @DisplayName("should do nothing when the tree to delete does not exist.")
+    public void shouldDeleteMissingTree() {
+        ParallelFileTree.Result result = ParallelFileTree.delete(tempDir.resolve("missing"));
+
+        assertTrue(result.isSuccessful());
+        assertEquals(0, result.files() + result.directories());
+    }
+
+    @Test
+    @DisplayName("should reject a parallelism that is not a positive integer.")
+    public void shouldRejectInvalidParallelism() {
+        System.setProperty(OZONE_WORKSPACE_PARALLELISM_PROPERTY, "3");
+        assertEquals(3, ParallelFileTree.parallelism());
+
+        for (String value : List.of("four", "0", "-2")) {
+            System.setProperty(OZONE_WORKSPACE_PARALLELISM_PROPERTY, value);
+            IllegalArgumentException thrown =
+                    assertThrows(IllegalArgumentException.class, ParallelFileTree::parallelism, value);
+            assertTrue(thrown.getMessage().contains(OZONE_WORKSPACE_PARALLELISM_PROPERTY), thrown.getMessage());
+        }
+    }
+
+    /**
+     * Creates {@code a.txt}, {@code sub/b.txt} and {@code sub/link}, a link to a directory outside the tree.
+     */
+    private Path tree(Path root) throws IOException {
+        Files.createDirectories(root.resolve("sub"));
+        Files.writeString(root.resolve("a.txt"), "a");
+        Files.writeString(root.resolve("sub/b.txt"), "b");
+        Files.createSymbolicLink(root.resolve("sub/link"), outside);
+        return root;
+    }
+}
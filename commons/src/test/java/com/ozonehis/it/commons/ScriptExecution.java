@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static com.ozonehis.it.commons.OzoneConstants.SCRIPT_LOG_MAX_FILES;
+import static com.ozonehis.it.commons.OzoneConstants.SCRIPT_LOG_MAX_FILE_BYTES;
+import static com.ozonehis.it.commons.OzoneConstants.SCRIPT_OUTPUT_TAIL_LINES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A running script. Standard output and error are streamed into a {@link ScriptOutputCapture} and the completion of
+ * the script is exposed as a {@link CompletableFuture}. Cancelling the future kills the script and its child
+ * processes.
+ */
+@Slf4j
+@Getter
+public class ScriptExecution {
+
+    private final String scriptName;
+
+    private final Process process;
+
+    private final ScriptOutputCapture output;
+
+    private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+
+    private ScriptExecution(String scriptName, Process process, ScriptOutputCapture output) {
+        this.scriptName = scriptName;
+        this.process = process;
+        this.output = output;
+    }
+
+    /**
+     * Starts a command without blocking the calling thread.
+     *
+     * @param name           the name of the script, used for logging and thread names
+     * @param command        the command to run
+     * @param workingDir     the working directory of the command
+     * @param environment    additional environment variables
+     * @param timeoutMinutes the time after which the command is killed
+     * @param logFile        the file the output of the command is written to
+     * @return the running execution
+     * @throws IOException if the command cannot be started
+     */
+    public static ScriptExecution start(
+            String name,
+            List<String> command,
+            Path workingDir,
+            Map<String, String> environment,
+            int timeoutMinutes,
+            Path logFile)
+            throws IOException {
+        ScriptOutputCapture output = new ScriptOutputCapture(
+                logFile, SCRIPT_OUTPUT_TAIL_LINES, SCRIPT_LOG_MAX_FILE_BYTES, SCRIPT_LOG_MAX_FILES);
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.directory(workingDir.toFile());
+        processBuilder.environment().putAll(environment);
+
+        Process process;
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+
+        ScriptExecution execution = new ScriptExecution(name, process, output);
+        Thread stdout = execution.pump("stdout", process.getInputStream());
+        Thread stderr = execution.pump("stderr", process.getErrorStream());
+        execution.completion.whenComplete((result, error) -> {
+            if (execution.completion.isCancelled() && process.isAlive()) {
+                log.warn("Script {} was cancelled, killing it", name);
+                execution.kill();
+            }
+        });
+
+        Thread waiter =
+                new Thread(() -> execution.awaitExit(timeoutMinutes, stdout, stderr), "ozone-" + name + "-waiter");
+        waiter.setDaemon(true);
+        waiter.start();
+        return execution;
+    }
+
+    /**
+     * @return the most recent lines of output
+     */
+    public String outputTail() {
+        return output.tailAsString();
+    }
+
+    /**
+     * Kills the script and all of its child processes.
+     */
+    public void kill() {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private Thread pump(String stream, InputStream inputStream) {
+        Thread thread = new Thread(
+                () -> {
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            output.append(stream, line);
+                            log.debug("[{}] {}", scriptName, line);
+                        }
+                    } catch (IOException e) {
+                        log.debug("Stopped reading {} of script {}: {}", stream, scriptName, e.getMessage());
+                    }
+                },
+                "ozone-" + scriptName + "-" + stream);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void awaitExit(int timeoutMinutes, Thread stdout, Thread stderr) {
+        try {
+            boolean exited = process.waitFor(timeoutMinutes, TimeUnit.MINUTES);
+            if (!exited) {
+                kill();
+            }
+            // Drain the remaining output so the tail is complete
+            stdout.join(TimeUnit.SECONDS.toMillis(5));
+            stderr.join(TimeUnit.SECONDS.toMillis(5));
+            output.close();
+
+            if (!exited) {
+                log.error("Script {} timed out after {} minutes", scriptName, timeoutMinutes);
+                completion.completeExceptionally(
+                        new OzoneScriptException("Script timed out: " + scriptName, scriptName, -1, outputTail()));
+                return;
+            }
+
+            int exitCode = process.exitValue();
+            if (exitCode != 0) {
+                log.error(
+                        "Script {} failed with exit code {}, full output in {}:{}{}",
+                        scriptName,
+                        exitCode,
+                        output.getLogFile(),
+                        System.lineSeparator(),
+                        outputTail());
+                completion.completeExceptionally(new OzoneScriptException(
+                        "Script failed with exit code: " + exitCode + " - " + scriptName,
+                        scriptName,
+                        exitCode,
+                        outputTail()));
+                return;
+            }
+            log.info("Script {} executed successfully", scriptName);
+            completion.complete(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            kill();
+            output.close();
+            completion.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.it.commons;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Captures the output of a script. The most recent lines are kept in a bounded in-memory ring buffer, so a useful tail
+ * can be reported when the script fails, while the full output goes to a log file that is rotated once it reaches its
+ * size limit.
+ */
+@Slf4j
+public class ScriptOutputCapture implements Closeable {
+
+    private final Deque<String> tail;
+
+    private final int maxTailLines;
+
+    private final Path logFile;
+
+    private final long maxFileBytes;
+
+    private final int maxFiles;
+
+    private OutputStream output;
+
+    private long writtenBytes;
+
+    /**
+     * @param logFile      the file the full output is written to
+     * @param maxTailLines the number of lines kept in memory
+     * @param maxFileBytes the size at which the log file is rotated
+     * @param maxFiles     the number of rotated log files to keep, including the current one
+     * @throws IOException if the log file cannot be opened
+     */
+    public ScriptOutputCapture(Path logFile, int maxTailLines, long maxFileBytes, int maxFiles) throws IOException {
+        this.tail = new ArrayDeque<>(maxTailLines);
+        this.maxTailLines = maxTailLines;
+        this.logFile = logFile;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        Files.createDirectories(logFile.getParent());
+        rotate();
+    }
+
+    /**
+     * Appends a line of output.
+     *
+     * @param stream the name of the stream the line was read from, e.g. stdout
+     * @param line   the line of output
+     */
+    public synchronized void append(String stream, String line) {
+        String entry = "[" + stream + "] " + line;
+        if (tail.size() == maxTailLines) {
+            tail.removeFirst();
+        }
+        tail.addLast(entry);
+
+        if (output == null) {
+            return;
+        }
+        try {
+            if (writtenBytes >= maxFileBytes) {
+                rotate();
+            }
+            // Encoded here so that the size limit counts the bytes of the file, not characters
+            byte[] bytes = (entry + System.lineSeparator()).getBytes(UTF_8);
+            output.write(bytes);
+            writtenBytes += bytes.length;
+        } catch (IOException e) {
+            log.warn("Failed to write script output to {}, only keeping the tail: {}", logFile, e.getMessage());
+            closeOutput();
+        }
+    }
+
+    /**
+     * @return a copy of the most recent lines of output
+     */
+    public synchronized List<String> tail() {
+        return new ArrayList<>(tail);
+    }
+
+    /**
+     * @return the most recent lines of output as a single string
+     */
+    public String tailAsString() {
+        return String.join(System.lineSeparator(), tail());
+    }
+
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeOutput();
+    }
+
+    private void rotate() throws IOException {
+        closeOutput();
+        for (int i = maxFiles - 1; i > 0; i--) {
+            Path source = i == 1 ? logFile : rotatedFile(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rotatedFile(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        output = new BufferedOutputStream(
+                Files.newOutputStream(logFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+        writtenBytes = 0;
+    }
+
+    private Path rotatedFile(int index) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + index);
+    }
+
+    private void closeOutput() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.warn("Failed to close script log {}: {}", logFile, e.getMessage());
+            }
+            output = null;
+        }
+    }
+}
@@ -7,21 +7,39 @@
  */
 package com.ozonehis.eip.odoo.openmrs.it;
 
+import static com.ozonehis.it.commons.OzoneConstants.OZONE_SNAPSHOT_RESET_PROPERTY;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.ozonehis.it.commons.OdooChangeFeed;
+import com.ozonehis.it.commons.OpenmrsRestClient;
 import com.ozonehis.it.commons.OzoneApp;
 import com.ozonehis.it.commons.OzoneAppReadinessChecker;
+import com.ozonehis.it.commons.OzoneAwait;
 import com.ozonehis.it.commons.OzoneRunner;
+import com.ozonehis.it.commons.OzoneService;
+import com.ozonehis.it.commons.OzoneStabilityGate;
+import com.ozonehis.it.commons.RequiresOzoneServices;
 import java.util.List;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.list.UnmodifiableList;
 import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.BeforeAllCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
 
-class BaseOdooOpenmrsExtension implements BeforeAllCallback, AfterAllCallback {
+/**
+ * Starts OpenMRS, Odoo and the EIP once for all test classes using it, and opens the Odoo change feed. Also used by the
+ * performance tests of the {@code ozone-perf} module.
+ */
+@Slf4j
+public class BaseOdooOpenmrsExtension implements BeforeAllCallback, AfterAllCallback {
 
     private static boolean isRunning = false;
 
+    private static final String BASELINE_SNAPSHOT = "baseline";
+
+    private static final boolean resetWithSnapshot = Boolean.getBoolean(OZONE_SNAPSHOT_RESET_PROPERTY);
+
     private static final UnmodifiableList<OzoneApp> apps =
             new UnmodifiableList<>(List.of(OzoneApp.OPENMRS, OzoneApp.ODOO));
 
@@ -29,11 +47,22 @@ class BaseOdooOpenmrsExtension implements BeforeAllCallback, AfterAllCallback {
 
     protected static boolean started;
 
+    /**
+     * Notifies the tests of partner and sale order changes, null if the Odoo database cannot be reached and the tests
+     * poll Odoo instead.
+     */
+    static OdooChangeFeed changeFeed;
+
     @Override
     public void beforeAll(ExtensionContext context) throws Exception {
         if (!isRunning) {
             runner = new OzoneRunner();
-            started = runner.startOzone(apps);
+            // Only the services declared by the test class and their dependencies are started
+            List<OzoneService> services = AnnotationSupport.findAnnotation(
+                            context.getRequiredTestClass(), RequiresOzoneServices.class)
+                    .map(annotation -> List.of(annotation.value()))
+                    .orElse(null);
+            started = services == null ? runner.startOzone(apps) : runner.startOzone(apps, services);
             boolean allReady = OzoneAppReadinessChecker.waitForAppsReady(360, apps);
 
             assertTrue(started);
@@ -41,26 +70,81 @@ class BaseOdooOpenmrsExtension implements BeforeAllCallback, AfterAllCallback {
 
             isRunning = true;
 
-            // Wait for 30 secs to ensure stability before running tests
-            Thread.sleep(30000);
+            // Deep probes instead of a fixed sleep, released once the stack answers consistently
+            OzoneStabilityGate.StabilityReport stability =
+                    runner.stabilityGate().await();
+            assertTrue(stability.stable(), stability.summary());
 
             var ozoneApps = runner.getRunningApps();
 
             assertTrue(ozoneApps.contains(OzoneApp.ODOO));
             assertTrue(ozoneApps.contains(OzoneApp.OPENMRS));
 
+            if (resetWithSnapshot) {
+                // An attached stack holds data of earlier runs, the snapshot it was started with is restored
+                if (runner.isAttached() && runner.hasSnapshot(BASELINE_SNAPSHOT)) {
+                    assertTrue(runner.restore(BASELINE_SNAPSHOT));
+                } else {
+                    runner.snapshot(BASELINE_SNAPSHOT);
+                }
+            }
+            openChangeFeed();
+
             context.getRoot()
                     .getStore(ExtensionContext.Namespace.GLOBAL)
                     .put("ozoneRunner", (ExtensionContext.Store.CloseableResource) () -> {
-                        runner.destroy();
+                        log.info(OzoneAwait.latencySummary());
+                        closeChangeFeed();
+                        OpenmrsRestClient.shutdown();
+                        // In attach mode the stack is left running for the next run to attach to
+                        if (!runner.isAttachEnabled()) {
+                            if (resetWithSnapshot) {
+                                runner.deleteSnapshot(BASELINE_SNAPSHOT);
+                            }
+                            runner.destroy();
+                        }
                         isRunning = false;
                     });
+        } else if (resetWithSnapshot) {
+            // Discard the data of the previous test class instead of starting a new stack, the restore restarts the
+            // database and with it the change feed
+            closeChangeFeed();
+            assertTrue(runner.restore(BASELINE_SNAPSHOT));
+            openChangeFeed();
+        }
+    }
+
+    /**
+     * @return the Odoo change feed, or null if the Odoo database cannot be reached and Odoo must be polled
+     */
+    public static OdooChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    private static void openChangeFeed() {
+        try {
+            changeFeed = runner.openOdooChangeFeed(OdooChangeFeed.PARTNER_TABLE, OdooChangeFeed.SALE_ORDER_TABLE);
+        } catch (Exception e) {
+            log.warn("Odoo change feed not available, falling back to polling Odoo: {}", e.getMessage());
+            changeFeed = null;
+        }
+    }
+
+    private static void closeChangeFeed() {
+        if (changeFeed != null) {
+            try {
+                changeFeed.close();
+            } catch (Exception e) {
+                log.warn("Failed to close the Odoo change feed: {}", e.getMessage());
+            }
+            changeFeed = null;
         }
     }
 
     @Override
     public void afterAll(ExtensionContext context) throws Exception {
-        if (isRunning) {
+        // With snapshot resets the stack is kept for the next test class and destroyed once all tests ran
+        if (isRunning && !resetWithSnapshot) {
             try {
                 context.getRoot()
                         .getStore(ExtensionContext.Namespace.GLOBAL)
@@ -7,21 +7,37 @@
  */
 package com.ozonehis.eip.odoo.openmrs.it;
 
+import static java.util.Arrays.asList;
+import static java.util.Arrays.stream;
+
+import com.ozonehis.eip.odoo.openmrs.Constants;
 import com.ozonehis.eip.odoo.openmrs.client.OdooClient;
 import com.ozonehis.eip.odoo.openmrs.client.OdooUtils;
+import com.ozonehis.eip.odoo.openmrs.model.Partner;
 import com.ozonehis.it.commons.BaseOzoneIntegrationTest;
+import com.ozonehis.it.commons.OdooChangeFeed;
 import com.ozonehis.it.commons.OzoneApp;
+import com.ozonehis.it.commons.OzoneAwait;
+import com.ozonehis.it.commons.OzoneService;
+import com.ozonehis.it.commons.RequiresOzoneServices;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import lombok.Getter;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.core.env.StandardEnvironment;
 
 @Getter
 @ExtendWith(BaseOdooOpenmrsExtension.class)
+@RequiresOzoneServices(OzoneService.EIP_ODOO_OPENMRS)
 public abstract class BaseOdooOpenmrsIntegrationTest extends BaseOzoneIntegrationTest {
 
     protected static OdooUtils odooUtils;
 
+    protected static final Duration SYNC_TIMEOUT = Duration.ofSeconds(60);
+
     public static final String odooCustomerDobField = "x_customer_dob";
 
     public static final List<String> partnerDefaultAttributes =
@@ -32,6 +48,47 @@ public abstract class BaseOdooOpenmrsIntegrationTest extends BaseOzoneIntegratio
         odooUtils.setEnvironment(new StandardEnvironment());
     }
 
+    /**
+     * Waits until the partner with the given ref exists in Odoo and matches the condition. With the Odoo change feed
+     * the partner is only read again once its row changed, otherwise Odoo is polled.
+     *
+     * @param check     the name of the check, sync latencies are recorded per check
+     * @param ref       the ref of the partner, i.e. the UUID of the OpenMRS patient
+     * @param condition the condition the partner must match
+     * @return the matching partner
+     */
+    @SuppressWarnings("unchecked")
+    protected static Partner awaitPartner(String check, String ref, Predicate<Partner> condition) {
+        OdooClient odooClient = odooClient();
+        Supplier<Partner> query = () -> {
+            Object[] result = odooClient.searchAndRead(
+                    Constants.PARTNER_MODEL, List.of(asList("ref", "=", ref)), partnerDefaultAttributes);
+            return result == null || result.length == 0
+                    ? null
+                    : odooUtils.convertToObject((Map<String, Object>) result[0], Partner.class);
+        };
+        Predicate<Partner> matches = partner -> partner != null && condition.test(partner);
+
+        OdooChangeFeed changeFeed = BaseOdooOpenmrsExtension.changeFeed;
+        if (changeFeed == null || !changeFeed.isOpen()) {
+            return OzoneAwait.await(check, query, matches, SYNC_TIMEOUT);
+        }
+        // Subscribed before the first read, so a change committed in between is not missed
+        try (OdooChangeFeed.Subscription subscription =
+                changeFeed.subscribe(OdooChangeFeed.PARTNER_TABLE, "ref = ?", ref)) {
+            return OzoneAwait.await(check, query, matches, SYNC_TIMEOUT, subscription);
+        }
+    }
+
+    /**
+     * @param parts the parts the partner name must contain
+     * @return a condition matching partners whose name contains all parts
+     */
+    protected static Predicate<Partner> partnerNameContains(String... parts) {
+        return partner ->
+                partner.getPartnerName() != null && stream(parts).allMatch(partner.getPartnerName()::contains);
+    }
+
     protected static OdooClient odooClient() {
         return new OdooClient(
                 OzoneApp.ODOO.baseUrl(),
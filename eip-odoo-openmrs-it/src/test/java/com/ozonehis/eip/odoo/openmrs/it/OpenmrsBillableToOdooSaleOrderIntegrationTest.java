@@ -30,7 +30,7 @@ public class OpenmrsBillableToOdooSaleOrderIntegrationTest extends BaseOdooOpenm
     @Test
     public void shouldCreateSaleOrderFromBillable() {
         // create a Patient in OpenMRS
-        var maryPatient = (Patient) FhirDataset.MARY_JANE.getResource();
+        var maryPatient = FhirDataset.MARY_JANE.getResource(Patient.class);
         MethodOutcome outcome =
                 openmrsFhirClient().create().resource(maryPatient).execute();
         assertNotNull(outcome.getId());
@@ -7,18 +7,14 @@
  */
 package com.ozonehis.eip.odoo.openmrs.it;
 
-import static java.util.Arrays.asList;
-import static java.util.Arrays.stream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import ca.uhn.fhir.rest.api.MethodOutcome;
-import com.ozonehis.eip.odoo.openmrs.Constants;
 import com.ozonehis.eip.odoo.openmrs.model.Partner;
 import com.ozonehis.fhir.dataset.FhirDataset;
 import java.util.List;
-import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.StringType;
@@ -35,7 +31,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsIntegrationTest {
 
-    private static final Patient patientJamesSmith = (Patient) FhirDataset.JAMES_SMITH.getResource();
+    private static final Patient patientJamesSmith = FhirDataset.JAMES_SMITH.getResource(Patient.class);
 
     private static String patientIdForJamesSmith;
 
@@ -62,7 +58,7 @@ public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsI
     @Order(2)
     @DisplayName("should create patient in OpenMRS and synchronized as partner in Odoo")
     void shouldCreateRichardJonePatientInOpenMRSandSynchronizedAsPartnerInOdoo() {
-        Patient patientRichardJones = (Patient) FhirDataset.RICHARD_JONES.getResource();
+        Patient patientRichardJones = FhirDataset.RICHARD_JONES.getResource(Patient.class);
         MethodOutcome outcome = openmrsFhirClient()
                 .create()
                 .resource(patientRichardJones)
@@ -94,19 +90,11 @@ public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsI
                 createdPatient.getAddressFirstRep().getCity());
 
         // Verify the patient was synchronized to Odoo
-        // wait for 30 seconds to allow the synchronization to complete
-        wait(20);
         String ref = createdPatient.getIdPart();
         log.info("Verifying patient(s) in Odoo: {}", ref);
 
-        Object[] result = odooClient()
-                .searchAndRead(Constants.PARTNER_MODEL, List.of(asList("ref", "=", ref)), partnerDefaultAttributes);
-
-        assertNotNull(result);
-        assertTrue(stream(result).findAny().isPresent());
-        log.info("Found partner(s) in Odoo: {}", result);
-
-        Partner createdPartner = odooUtils.convertToObject((Map<String, Object>) result[0], Partner.class);
+        Partner createdPartner = awaitPartner("patient create to partner", ref, partner -> true);
+        log.info("Found partner in Odoo: {}", createdPartner);
 
         assertNotNull(createdPartner);
         assertEquals(createdPartner.getPartnerRef(), createdPatient.getIdPart());
@@ -127,13 +115,7 @@ public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsI
     void shouldUpdatePatientInOpenMRSAndVerifySynchronizationToOdoo() {
         // Verify the patient was synchronized to Odoo
         log.info("Verifying patient(s) in Odoo with ref: {}", patientIdForJamesSmith);
-        Object[] result = odooClient()
-                .searchAndRead(
-                        Constants.PARTNER_MODEL,
-                        List.of(asList("ref", "=", patientIdForJamesSmith)),
-                        partnerDefaultAttributes);
-        assertNotNull(result);
-        assertTrue(result.length > 0);
+        assertNotNull(awaitPartner("patient create to partner", patientIdForJamesSmith, partner -> true));
 
         // Update the patient
         Patient existingPatient = openmrsFhirClient()
@@ -155,32 +137,20 @@ public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsI
 
         log.info("Updating patient in OpenMRS with UUID: {}", existingPatient.getIdPart());
 
-        // Update the patient details
-        existingPatient.getNameFirstRep().setFamily("Smith");
+        // Update the patient details, the family name differs from the synchronized one to tell the update apart
+        existingPatient.getNameFirstRep().setFamily("Carter");
         existingPatient.getAddressFirstRep().setCity("NewCity");
 
         openmrsFhirClient().update().resource(existingPatient).execute();
 
-        // Wait for sync to complete
-        wait(20);
-
         // Verify the partner was updated in Odoo
-        Object[] synchronizedPartnerInfo = odooClient()
-                .searchAndRead(
-                        Constants.PARTNER_MODEL,
-                        List.of(asList("ref", "=", existingPatient.getIdPart())),
-                        partnerDefaultAttributes);
-
-        assertNotNull(synchronizedPartnerInfo);
-        assertTrue(synchronizedPartnerInfo.length > 0);
-
         Partner updatedPartner =
-                odooUtils.convertToObject((Map<String, Object>) synchronizedPartnerInfo[0], Partner.class);
+                awaitPartner("patient update to partner", existingPatient.getIdPart(), partnerNameContains("Carter"));
 
         assertNotNull(updatedPartner);
         assertEquals(existingPatient.getIdPart(), updatedPartner.getPartnerRef());
         // assertEquals("NewCity", updatedPartner.getPartnerCity());
-        assertTrue(updatedPartner.getPartnerName().contains("Smith"));
+        assertTrue(updatedPartner.getPartnerName().contains("Carter"));
     }
 
     @Test
@@ -202,17 +172,9 @@ public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsI
 
         openmrsFhirClient().update().resource(existingPatient).execute();
 
-        // Wait for sync
-        wait(20);
-
         // Verify all changes in Odoo
-        Object[] result = odooClient()
-                .searchAndRead(
-                        Constants.PARTNER_MODEL,
-                        List.of(asList("ref", "=", patientIdForJamesSmith)),
-                        partnerDefaultAttributes);
-
-        Partner updatedPartner = odooUtils.convertToObject((Map<String, Object>) result[0], Partner.class);
+        Partner updatedPartner = awaitPartner(
+                "patient update to partner", patientIdForJamesSmith, partnerNameContains("Anderson", "Thomas"));
 
         assertNotNull(updatedPartner);
         assertEquals(patientIdForJamesSmith, updatedPartner.getPartnerRef());
@@ -241,17 +203,9 @@ public class OpenmrsPatientToOdooPartnerIntegrationTest extends BaseOdooOpenmrsI
         // existingPatient.getAddressFirstRep().setCity("Boston");
         openmrsFhirClient().update().resource(existingPatient).execute();
 
-        // Wait for sync to complete
-        wait(20);
-
         // Verify the final state in Odoo
-        Object[] result = odooClient()
-                .searchAndRead(
-                        Constants.PARTNER_MODEL,
-                        List.of(asList("ref", "=", patientIdForJamesSmith)),
-                        partnerDefaultAttributes);
-
-        Partner finalPartner = odooUtils.convertToObject((Map<String, Object>) result[0], Partner.class);
+        Partner finalPartner = awaitPartner(
+                "patient concurrent updates to partner", patientIdForJamesSmith, partnerNameContains("Williams"));
 
         assertNotNull(finalPartner);
         assertEquals(patientIdForJamesSmith, finalPartner.getPartnerRef());
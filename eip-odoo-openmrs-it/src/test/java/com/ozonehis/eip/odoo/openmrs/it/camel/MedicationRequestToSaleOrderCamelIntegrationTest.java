@@ -7,10 +7,6 @@
  */
 package com.ozonehis.eip.odoo.openmrs.it.camel;
 
-import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
-import static com.github.tomakehurst.wiremock.client.WireMock.get;
-import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
-import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -38,7 +34,6 @@ import java.util.Map;
 import org.apache.camel.CamelContext;
 import org.apache.camel.test.infra.core.annotations.RouteFixture;
 import org.hl7.fhir.r4.model.Bundle;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -60,13 +55,6 @@ public class MedicationRequestToSaleOrderCamelIntegrationTest extends BaseRouteC
         for (Object id : result) {
             getOdooClient().delete(Constants.SALE_ORDER_MODEL, Collections.singletonList((Integer) id));
         }
-        // Mock OpenMRS FHIR metadata endpoint
-        mockOpenmrsFhirServer();
-    }
-
-    @AfterEach
-    public void tearDown() {
-        wireMockServer.stop();
     }
 
     @RouteFixture
@@ -98,10 +86,7 @@ public class MedicationRequestToSaleOrderCamelIntegrationTest extends BaseRouteC
     @DisplayName("Should create sale order with Patient Weight and DOB in Odoo given medication request bundle.")
     public void shouldCreateSaleOrderInOdooGivenMedicationRequestBundle() {
         // Setup
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/observation-weight-bundle.json"))));
+        storeInOpenmrs(loadResource("fhir.bundle/observation-weight-bundle.json", new Bundle()));
         // Act
         var headers = new HashMap<String, Object>();
         headers.put(HEADER_FHIR_EVENT_TYPE, "c");
@@ -144,7 +129,8 @@ public class MedicationRequestToSaleOrderCamelIntegrationTest extends BaseRouteC
 
         assertNotNull(createdSaleOrderLine);
         assertEquals(
-                "Aspirin 81mg | 20.0 Tablet | 2.0 Tablet - Oral - Twice daily - 5 day | Orderer: Super User (Identifier: admin)",
+                "Aspirin 81mg | 20.0 Tablet | 2.0 Tablet - Oral - Twice daily - 5 day | Orderer: Super User"
+                        + " (Identifier: admin)",
                 createdSaleOrderLine.getSaleOrderLineName());
 
         // Verify partner created
@@ -166,11 +152,7 @@ public class MedicationRequestToSaleOrderCamelIntegrationTest extends BaseRouteC
     @Test
     @DisplayName("Should create sale order without Patient Weight in Odoo given medication request bundle.")
     public void shouldCreateSaleOrderWithoutPatientWeightInOdooGivenMedicationRequestBundle() {
-        // Setup
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/observation-empty-bundle.json"))));
+        // Setup, no weight observation is stored in OpenMRS
 
         // Act
         var headers = new HashMap<String, Object>();
@@ -213,7 +195,8 @@ public class MedicationRequestToSaleOrderCamelIntegrationTest extends BaseRouteC
 
         assertNotNull(createdSaleOrderLine);
         assertEquals(
-                "Aspirin 81mg | 20.0 Tablet | 2.0 Tablet - Oral - Twice daily - 5 day | Orderer: Super User (Identifier: admin)",
+                "Aspirin 81mg | 20.0 Tablet | 2.0 Tablet - Oral - Twice daily - 5 day | Orderer: Super User"
+                        + " (Identifier: admin)",
                 createdSaleOrderLine.getSaleOrderLineName());
 
         // Verify partner created
@@ -236,10 +219,7 @@ public class MedicationRequestToSaleOrderCamelIntegrationTest extends BaseRouteC
     @DisplayName("Should cancel sale order in Odoo given medication request bundle when medication discontinued")
     public void shouldCancelSaleOrderInOdooGivenMedicationRequestBundle() {
         // Act
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/observation-weight-bundle.json"))));
+        storeInOpenmrs(loadResource("fhir.bundle/observation-weight-bundle.json", new Bundle()));
 
         // Create sale order
         var headers = new HashMap<String, Object>();
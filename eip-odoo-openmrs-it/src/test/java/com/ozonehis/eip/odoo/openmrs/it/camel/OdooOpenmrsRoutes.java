@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.eip.odoo.openmrs.it.camel;
+
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ADHESIVE_MEDICAL_SUPPLY_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ASPIRIN_81MG_MEDICATION_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.HEPATITIS_C_TEST_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.SUPPLY_QUANTITY_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.TABLET_CONCEPT;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.client.interceptor.BasicAuthInterceptor;
+import com.ozonehis.camel.test.infra.odoo.embedded.OdooModelStore;
+import com.ozonehis.eip.odoo.openmrs.client.OdooClient;
+import com.ozonehis.eip.odoo.openmrs.client.OdooUtils;
+import com.ozonehis.eip.odoo.openmrs.component.OdooComponent;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.CountryHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.CountryStateHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.PartnerHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.ProductHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.SaleOrderHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.SaleOrderLineHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.odoo.UomHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.openmrs.EncounterHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.openmrs.ObservationHandler;
+import com.ozonehis.eip.odoo.openmrs.handlers.openmrs.PatientHandler;
+import com.ozonehis.eip.odoo.openmrs.mapper.odoo.PartnerMapper;
+import com.ozonehis.eip.odoo.openmrs.mapper.odoo.SaleOrderLineMapper;
+import com.ozonehis.eip.odoo.openmrs.mapper.odoo.SaleOrderMapper;
+import com.ozonehis.eip.odoo.openmrs.processors.MedicationRequestProcessor;
+import com.ozonehis.eip.odoo.openmrs.processors.PatientProcessor;
+import com.ozonehis.eip.odoo.openmrs.processors.ServiceRequestProcessor;
+import com.ozonehis.eip.odoo.openmrs.processors.SupplyRequestProcessor;
+import com.ozonehis.eip.odoo.openmrs.routes.MedicationRequestRouting;
+import com.ozonehis.eip.odoo.openmrs.routes.PatientRouting;
+import com.ozonehis.eip.odoo.openmrs.routes.ProcedureRouting;
+import com.ozonehis.eip.odoo.openmrs.routes.ServiceRequestRouting;
+import com.ozonehis.eip.odoo.openmrs.routes.SupplyRequestRouting;
+import com.ozonehis.eip.odoo.openmrs.routes.partner.CreatePartnerRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.partner.DeletePartnerRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.partner.UpdatePartnerRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.saleorder.CreateSaleOrderRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.saleorder.DeleteSaleOrderRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.saleorder.UpdateSaleOrderRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.saleorderline.CreateSaleOrderLineRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.saleorderline.DeleteSaleOrderLineRoute;
+import com.ozonehis.eip.odoo.openmrs.routes.saleorderline.UpdateSaleOrderLineRoute;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import java.util.List;
+import java.util.Map;
+import org.apache.camel.CamelContext;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Wires the EIP routes from OpenMRS FHIR resources to Odoo the way the EIP application does, for the route tests and
+ * the route benchmarks. The Odoo and OpenMRS clients are given, so the routes run against a real stack or stand-ins.
+ */
+public final class OdooOpenmrsRoutes {
+
+    public static final String ODOO_CUSTOMER_WEIGHT_FIELD = "x_customer_weight";
+
+    public static final String ODOO_CUSTOMER_DOB_FIELD = "x_customer_dob";
+
+    public static final String OPENMRS_USERNAME = "admin";
+
+    public static final String OPENMRS_PASSWORD = "Admin123";
+
+    public static final String WEIGHT_CONCEPT = "5089AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final List<String> ORDER_DEFAULT_ATTRIBUTES = List.of(
+            "id",
+            "client_order_ref",
+            "partner_id",
+            "state",
+            "order_line",
+            ODOO_CUSTOMER_WEIGHT_FIELD,
+            ODOO_CUSTOMER_DOB_FIELD);
+
+    public static final List<String> PARTNER_DEFAULT_ATTRIBUTES = List.of(
+            "id", "name", "ref", "street", "street2", "city", "zip", "active", "comment", ODOO_CUSTOMER_DOB_FIELD);
+
+    private OdooOpenmrsRoutes() {}
+
+    /**
+     * @param serverBase the base URL of the FHIR API, e.g. {@code http://localhost:8080/openmrs/ws/fhir2/R4}
+     * @return a FHIR client of the OpenMRS FHIR API, with the credentials of the test admin
+     */
+    public static IGenericClient openmrsFhirClient(String serverBase) {
+        IGenericClient client = FhirResourceParser.fhirContext().newRestfulGenericClient(serverBase);
+        client.registerInterceptor(new BasicAuthInterceptor(OPENMRS_USERNAME, OPENMRS_PASSWORD));
+        return client;
+    }
+
+    /**
+     * Configures the {@code odoo} component used by the Odoo routes.
+     */
+    public static void configureOdooComponent(CamelContext context, OdooClient odooClient, OdooUtils odooUtils) {
+        OdooComponent odooComponent = context.getComponent("odoo", OdooComponent.class);
+        odooComponent.setOdooUtils(odooUtils);
+        odooComponent.setOdooClient(odooClient);
+    }
+
+    /**
+     * Adds the routes from OpenMRS FHIR resources, i.e. patients, medication requests, service requests, procedures and
+     * supply requests.
+     *
+     * @return the context
+     */
+    public static CamelContext addFhirRoutes(
+            CamelContext context, OdooClient odooClient, OdooUtils odooUtils, IGenericClient openmrsFhirClient)
+            throws Exception {
+        CountryHandler countryHandler = new CountryHandler();
+        countryHandler.setOdooClient(odooClient);
+
+        CountryStateHandler countryStateHandler = new CountryStateHandler();
+        countryStateHandler.setOdooClient(odooClient);
+
+        SaleOrderLineMapper<Resource> saleOrderLineMapper = new SaleOrderLineMapper<>();
+
+        UomHandler uomHandler = new UomHandler();
+        uomHandler.setOdooClient(odooClient);
+        uomHandler.setOdooUtils(odooUtils);
+
+        ProductHandler productHandler = new ProductHandler();
+        productHandler.setOdooClient(odooClient);
+        productHandler.setOdooUtils(odooUtils);
+
+        SaleOrderMapper saleOrderMapper = new SaleOrderMapper();
+
+        SaleOrderLineHandler saleOrderLineHandler = new SaleOrderLineHandler();
+        saleOrderLineHandler.setOdooClient(odooClient);
+        saleOrderLineHandler.setProductHandler(productHandler);
+        saleOrderLineHandler.setUomHandler(uomHandler);
+        saleOrderLineHandler.setSaleOrderLineMapper(saleOrderLineMapper);
+        saleOrderLineHandler.setOdooUtils(odooUtils);
+
+        PartnerMapper partnerMapper = new PartnerMapper();
+        partnerMapper.setCountryHandler(countryHandler);
+        partnerMapper.setCountryStateHandler(countryStateHandler);
+
+        PartnerHandler partnerHandler = new PartnerHandler();
+        partnerHandler.setOdooClient(odooClient);
+        partnerHandler.setPartnerMapper(partnerMapper);
+        partnerHandler.setOdooUtils(odooUtils);
+        partnerHandler.setOdooCustomerDobField(ODOO_CUSTOMER_DOB_FIELD);
+        partnerHandler.setPartnerDefaultAttributes(PARTNER_DEFAULT_ATTRIBUTES);
+
+        PatientHandler patientHandler = new PatientHandler(openmrsFhirClient);
+        patientHandler.setOpenmrsFhirClient(openmrsFhirClient);
+
+        EncounterHandler encounterHandler = new EncounterHandler();
+        encounterHandler.setOpenmrsFhirClient(openmrsFhirClient);
+
+        ObservationHandler observationHandler = new ObservationHandler();
+        observationHandler.setOpenmrsFhirClient(openmrsFhirClient);
+
+        SaleOrderHandler saleOrderHandler = new SaleOrderHandler();
+        saleOrderHandler.setOdooClient(odooClient);
+        saleOrderHandler.setSaleOrderLineHandler(saleOrderLineHandler);
+        saleOrderHandler.setSaleOrderMapper(saleOrderMapper);
+        saleOrderHandler.setProductHandler(productHandler);
+        saleOrderHandler.setObservationHandler(observationHandler);
+        saleOrderHandler.setWeightConcept(WEIGHT_CONCEPT);
+        saleOrderHandler.setOdooCustomerWeightField(ODOO_CUSTOMER_WEIGHT_FIELD);
+        saleOrderHandler.setOdooCustomerDobField(ODOO_CUSTOMER_DOB_FIELD);
+        saleOrderHandler.setOrderDefaultAttributes(ORDER_DEFAULT_ATTRIBUTES);
+        saleOrderHandler.setOdooUtils(odooUtils);
+
+        PatientProcessor patientProcessor = new PatientProcessor();
+        patientProcessor.setPartnerHandler(partnerHandler);
+        patientProcessor.setMapper(partnerMapper);
+
+        PatientRouting patientRouting = new PatientRouting();
+        patientRouting.setPatientProcessor(patientProcessor);
+        patientRouting.setPatientSyncEnabled(true);
+
+        MedicationRequestProcessor medicationRequestProcessor = new MedicationRequestProcessor();
+        medicationRequestProcessor.setSaleOrderHandler(saleOrderHandler);
+        medicationRequestProcessor.setPartnerHandler(partnerHandler);
+
+        MedicationRequestRouting medicationRequestRouting = new MedicationRequestRouting();
+        medicationRequestRouting.setMedicationRequestProcessor(medicationRequestProcessor);
+
+        ServiceRequestProcessor serviceRequestProcessor = new ServiceRequestProcessor();
+        serviceRequestProcessor.setSaleOrderHandler(saleOrderHandler);
+        serviceRequestProcessor.setPartnerHandler(partnerHandler);
+
+        ServiceRequestRouting serviceRequestRouting = new ServiceRequestRouting();
+        serviceRequestRouting.setServiceRequestProcessor(serviceRequestProcessor);
+
+        ProcedureRouting procedureRouting = new ProcedureRouting();
+        procedureRouting.setServiceRequestProcessor(serviceRequestProcessor);
+
+        SupplyRequestProcessor supplyRequestProcessor = new SupplyRequestProcessor();
+        supplyRequestProcessor.setSaleOrderHandler(saleOrderHandler);
+        supplyRequestProcessor.setPartnerHandler(partnerHandler);
+        supplyRequestProcessor.setEncounterHandler(encounterHandler);
+        supplyRequestProcessor.setPatientHandler(patientHandler);
+
+        SupplyRequestRouting supplyRequestRouting = new SupplyRequestRouting();
+        supplyRequestRouting.setSupplyRequestProcessor(supplyRequestProcessor);
+
+        context.addRoutes(patientRouting);
+        context.addRoutes(medicationRequestRouting);
+        context.addRoutes(serviceRequestRouting);
+        context.addRoutes(procedureRouting);
+        context.addRoutes(supplyRequestRouting);
+
+        return context;
+    }
+
+    /**
+     * Adds the routes creating, updating and deleting partners, sale orders and sale order lines in Odoo.
+     *
+     * @return the context
+     */
+    public static CamelContext addOdooRoutes(CamelContext context) throws Exception {
+        context.addRoutes(new CreatePartnerRoute());
+        context.addRoutes(new UpdatePartnerRoute());
+        context.addRoutes(new DeletePartnerRoute());
+        context.addRoutes(new CreateSaleOrderRoute());
+        context.addRoutes(new UpdateSaleOrderRoute());
+        context.addRoutes(new DeleteSaleOrderRoute());
+        context.addRoutes(new CreateSaleOrderLineRoute());
+        context.addRoutes(new UpdateSaleOrderLineRoute());
+        context.addRoutes(new DeleteSaleOrderLineRoute());
+        return context;
+    }
+
+    /**
+     * Seeds an embedded Odoo with the products and units of measure of the fixtures, which the Ozone distro loads into
+     * Odoo and the EIP resolves through their external ids. Does nothing if they are already seeded.
+     */
+    public static void seedOdoo(OdooModelStore store) {
+        if (!store.search(OdooModelStore.EXTERNAL_ID_MODEL, List.of(List.of("name", "=", TABLET_CONCEPT)))
+                .isEmpty()) {
+            return;
+        }
+        int tablet = store.createWithExternalId("uom.uom", TABLET_CONCEPT, Map.of("name", "Tablet"));
+        int units = store.createWithExternalId("uom.uom", SUPPLY_QUANTITY_CONCEPT, Map.of("name", "Units"));
+        store.createWithExternalId(
+                "product.product", ASPIRIN_81MG_MEDICATION_UUID, Map.of("name", "Aspirin 81mg", "uom_id", tablet));
+        store.createWithExternalId(
+                "product.product", ADHESIVE_MEDICAL_SUPPLY_UUID, Map.of("name", "Adhesive 5cm x 9m", "uom_id", units));
+        store.createWithExternalId(
+                "product.product",
+                HEPATITIS_C_TEST_CONCEPT,
+                Map.of("name", "Hepatitis C test - qualitative", "uom_id", units));
+    }
+}
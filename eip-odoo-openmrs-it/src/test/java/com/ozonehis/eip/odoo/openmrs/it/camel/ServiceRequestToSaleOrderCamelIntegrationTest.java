@@ -7,10 +7,6 @@
  */
 package com.ozonehis.eip.odoo.openmrs.it.camel;
 
-import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
-import static com.github.tomakehurst.wiremock.client.WireMock.get;
-import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
-import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -38,7 +34,6 @@ import java.util.Map;
 import org.apache.camel.CamelContext;
 import org.apache.camel.test.infra.core.annotations.RouteFixture;
 import org.hl7.fhir.r4.model.Bundle;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -60,14 +55,6 @@ public class ServiceRequestToSaleOrderCamelIntegrationTest extends BaseRouteCame
         for (Object id : result) {
             getOdooClient().delete(Constants.SALE_ORDER_MODEL, Collections.singletonList((Integer) id));
         }
-
-        // Mock OpenMRS FHIR metadata endpoint
-        mockOpenmrsFhirServer();
-    }
-
-    @AfterEach
-    public void tearDown() {
-        wireMockServer.stop();
     }
 
     @RouteFixture
@@ -98,10 +85,7 @@ public class ServiceRequestToSaleOrderCamelIntegrationTest extends BaseRouteCame
     @DisplayName("Should create sale order with Patient Weight and DOB in Odoo given service request bundle.")
     public void shouldCreateSaleOrderInOdooGivenServiceRequestBundle() {
         // Setup
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/observation-weight-bundle.json"))));
+        storeInOpenmrs(loadResource("fhir.bundle/observation-weight-bundle.json", new Bundle()));
 
         // Act
         var headers = new HashMap<String, Object>();
@@ -167,11 +151,7 @@ public class ServiceRequestToSaleOrderCamelIntegrationTest extends BaseRouteCame
     @Test
     @DisplayName("Should create sale order without Patient Weight in Odoo given service request bundle.")
     public void shouldCreateSaleOrderWithoutPatientWeightInOdooGivenServiceRequestBundle() {
-        // Setup
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/observation-empty-bundle.json"))));
+        // Setup, no weight observation is stored in OpenMRS
 
         // Act
         var headers = new HashMap<String, Object>();
@@ -237,10 +217,7 @@ public class ServiceRequestToSaleOrderCamelIntegrationTest extends BaseRouteCame
     @DisplayName("Should cancel sale order in Odoo given service request bundle when service discontinued")
     public void shouldCancelSaleOrderInOdooGivenMedicationRequestBundle() {
         // Act
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/observation-weight-bundle.json"))));
+        storeInOpenmrs(loadResource("fhir.bundle/observation-weight-bundle.json", new Bundle()));
 
         // Create sale order
         var headers = new HashMap<String, Object>();
@@ -7,10 +7,6 @@
  */
 package com.ozonehis.eip.odoo.openmrs.it.camel;
 
-import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
-import static com.github.tomakehurst.wiremock.client.WireMock.get;
-import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
-import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -35,8 +31,9 @@ import java.util.Map;
 import org.apache.camel.CamelContext;
 import org.apache.camel.test.infra.core.annotations.RouteFixture;
 import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.SupplyRequest;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -47,10 +44,6 @@ public class SupplyRequestToSaleOrderCamelIntegrationTest extends BaseRouteCamel
 
     private static final String ENCOUNTER_PART_OF_UUID = "97552cbc-8e75-4c4b-b17f-3e746d0cfceb";
 
-    private static final String ENCOUNTER_UUID = "4d6d21cc-a6a5-4714-9c44-631d9d4cb3fc";
-
-    private static final String PATIENT_UUID = "3ee4f5fc-6299-4c0e-a56e-dad957118edc";
-
     @BeforeEach
     public void initializeData() {
         supplyRequest = loadResource("fhir.supplyrequest/supply-request.json", new SupplyRequest());
@@ -60,14 +53,6 @@ public class SupplyRequestToSaleOrderCamelIntegrationTest extends BaseRouteCamel
         for (Object id : result) {
             getOdooClient().delete(Constants.SALE_ORDER_MODEL, Collections.singletonList((Integer) id));
         }
-
-        // Mock OpenMRS FHIR metadata endpoint
-        mockOpenmrsFhirServer();
-    }
-
-    @AfterEach
-    public void tearDown() {
-        wireMockServer.stop();
     }
 
     @RouteFixture
@@ -97,21 +82,10 @@ public class SupplyRequestToSaleOrderCamelIntegrationTest extends BaseRouteCamel
     @Test
     @DisplayName("Should create sale order with in Odoo given supply request")
     public void shouldCreateSaleOrderInOdooGivenServiceRequestBundle() {
-        // Setup
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Observation\\?.*"))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.bundle/empty-bundle.json"))));
-
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Encounter/" + ENCOUNTER_UUID))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir.encounter/encounter.json"))));
-
-        stubFor(get(urlMatching("/openmrs/ws/fhir2/R4/Patient/" + PATIENT_UUID))
-                .willReturn(aResponse()
-                        .withHeader("Content-Type", "application/json")
-                        .withBody(readJSON("fhir/patient/patient-3.json"))));
+        // Setup, no weight observation is stored in OpenMRS
+        storeInOpenmrs(
+                loadResource("fhir.encounter/encounter.json", new Encounter()),
+                loadResource("fhir/patient/patient-3.json", new Patient()));
 
         // Act
         var headers = new HashMap<String, Object>();
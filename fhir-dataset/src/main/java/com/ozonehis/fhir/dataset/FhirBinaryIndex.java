@@ -0,0 +1,342 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import jakarta.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pre-parsed binary form of FHIR fixtures with an index of their positions, generated at build time next to the JSON
+ * files. Resources are loaded by key without parsing JSON, and without creating a FHIR context, which dominates the
+ * startup of a test JVM.
+ *
+ * <p>Every resource is stored as a Java serialized object, followed by an index mapping the name of the JSON file of
+ * each resource to its position and the {@link #sourceHash(byte[]) hash} of the file. Keys are file names rather than
+ * {@code Type/id}, since fixtures such as {@code patient-2.json} and {@code patient-2-updated.json} hold two versions
+ * of the same resource. Resources are decoded when asked for, a reader compares the hash with the current file to
+ * detect an index older than its source. Decoding only accepts the classes of the FHIR model.
+ *
+ * <p>The build generates one {@value #INDEX_FILE_NAME} per fixture directory with {@link #main(String[])}, and
+ * {@link FhirResourceParser} uses it when present.
+ */
+public final class FhirBinaryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(FhirBinaryIndex.class);
+
+    /**
+     * The name of the index of a directory.
+     */
+    public static final String INDEX_FILE_NAME = "resources.fhirbin";
+
+    private static final byte[] MAGIC = "OZFHIR3\n".getBytes(UTF_8);
+
+    /**
+     * The offset of the index and the closing magic.
+     */
+    private static final int FOOTER_SIZE = Long.BYTES + 8;
+
+    /**
+     * The classes a serialized resource is made of, anything else in a record is rejected before it is instantiated.
+     */
+    private static final ObjectInputFilter RECORD_FILTER = ObjectInputFilter.Config.createFilter(
+            "org.hl7.fhir.r4.model.*;org.hl7.fhir.utilities.xhtml.*;java.lang.Object;java.lang.Boolean;java.lang.Enum;"
+                    + "java.util.ArrayList;java.util.HashMap;java.util.Map$Entry;!*");
+
+    private final ByteBuffer data;
+
+    private final Map<String, Entry> entries;
+
+    private FhirBinaryIndex(ByteBuffer data, Map<String, Entry> entries) {
+        this.data = data;
+        this.entries = entries;
+    }
+
+    /**
+     * Opens an index file, the file is memory-mapped.
+     *
+     * @param file the index file
+     * @return the index
+     * @throws IllegalArgumentException if the file is not an index
+     */
+    public static FhirBinaryIndex open(@Nonnull Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Index larger than 2 GiB, split the dataset: " + file);
+            }
+            return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + file, e);
+        }
+    }
+
+    /**
+     * Opens an index of the classpath. An index in a directory of the classpath is memory-mapped, an index within a jar
+     * cannot be and is read into memory.
+     *
+     * @param filePath the classpath location of the index
+     * @return the index, or empty if the classpath has no such file
+     */
+    public static Optional<FhirBinaryIndex> openClasspath(@Nonnull String filePath) {
+        URL url = FhirBinaryIndex.class.getClassLoader().getResource(filePath);
+        if (url == null) {
+            return Optional.empty();
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return Optional.of(open(Path.of(url.toURI())));
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid location of " + filePath + ": " + url, e);
+            }
+        }
+        try (InputStream is = url.openStream()) {
+            return Optional.of(open(ByteBuffer.wrap(is.readAllBytes()), filePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + filePath, e);
+        }
+    }
+
+    /**
+     * Hashes the content of a fixture file, to tell whether a resource was indexed from the current version of its file.
+     *
+     * @param source the content of the file
+     * @return the hash of the content
+     */
+    public static long sourceHash(@Nonnull byte[] source) {
+        CRC32C crc = new CRC32C();
+        crc.update(source);
+        return crc.getValue();
+    }
+
+    private static FhirBinaryIndex open(ByteBuffer data, String name) {
+        if (data.limit() < MAGIC.length + FOOTER_SIZE
+                || !hasMagic(data, 0)
+                || !hasMagic(data, data.limit() - MAGIC.length)) {
+            throw new IllegalArgumentException("Not a FHIR binary index: " + name);
+        }
+        ByteBuffer index = data.duplicate().position(Math.toIntExact(data.getLong(data.limit() - FOOTER_SIZE)));
+        int count = index.getInt();
+        Map<String, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[index.getShort() & 0xffff];
+            index.get(key);
+            entries.put(new String(key, UTF_8), new Entry(index.getInt(), index.getInt(), index.getLong()));
+        }
+        return new FhirBinaryIndex(data, Collections.unmodifiableMap(entries));
+    }
+
+    /**
+     * @param key the name of a JSON file
+     * @return true if the index has a resource for the key
+     */
+    public boolean contains(@Nonnull String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * @param key the name of a JSON file
+     * @return a new instance of the resource, owned by the caller, or null if the index has no resource for the key
+     */
+    public Resource get(@Nonnull String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : decode(entry);
+    }
+
+    /**
+     * Decodes a resource unless the index was built from another version of its file.
+     *
+     * @param key        the name of a JSON file
+     * @param sourceHash the {@link #sourceHash(byte[]) hash} of the current content of the file of the resource
+     * @return a new instance of the resource, owned by the caller, or null if the index has no resource for the key or
+     *     indexed it from other content
+     */
+    public Resource get(@Nonnull String key, long sourceHash) {
+        Entry entry = entries.get(key);
+        return entry == null || entry.sourceHash() != sourceHash ? null : decode(entry);
+    }
+
+    /**
+     * @return the keys of the index
+     */
+    public Set<String> keys() {
+        return entries.keySet();
+    }
+
+    /**
+     * @return the number of resources
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return a lazy stream of the resources in file order
+     */
+    public Stream<Resource> resources() {
+        return entries.values().stream()
+                .sorted((first, second) -> Integer.compare(first.offset(), second.offset()))
+                .map(this::decode);
+    }
+
+    private Resource decode(Entry entry) {
+        ByteBuffer record = data.slice(entry.offset(), entry.length());
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(record))) {
+            ois.setObjectInputFilter(RECORD_FILTER);
+            return (Resource) ois.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode a resource of the index", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("The index was built with another FHIR model", e);
+        }
+    }
+
+    private static boolean hasMagic(ByteBuffer data, int offset) {
+        byte[] magic = new byte[MAGIC.length];
+        data.get(offset, magic);
+        return Arrays.equals(magic, MAGIC);
+    }
+
+    /**
+     * Writes the index of every directory given as argument to {@value #INDEX_FILE_NAME} within the directory. The
+     * JSON files of the directory are indexed, sub-directories and NDJSON datasets are not, {@link FhirNdjson} parses
+     * those as it streams them.
+     *
+     * @param args the directories
+     */
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Path directory = Path.of(arg);
+            if (!Files.isDirectory(directory)) {
+                log.warn("Skipping missing directory {}", directory);
+                continue;
+            }
+            Path target = directory.resolve(INDEX_FILE_NAME);
+            try (Stream<Path> files = Files.list(directory);
+                    Writer writer = new Writer(target)) {
+                for (Path file : files.sorted().toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(".json")) {
+                        byte[] source = Files.readAllBytes(file);
+                        Resource resource = (Resource) FhirResourceParser.fhirContext()
+                                .newJsonParser()
+                                .parseResource(new String(source, UTF_8));
+                        writer.add(name, resource, sourceHash(source));
+                    }
+                }
+                log.info("Indexed {} FHIR resources of {} in {}", writer.entries.size(), directory, target);
+            }
+        }
+    }
+
+    /**
+     * Writes an index file. Resources are written as they are added, the index is written on close.
+     */
+    public static final class Writer implements AutoCloseable {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+
+        private int offset;
+
+        /**
+         * @param file the index file, replaced if it exists
+         */
+        public Writer(@Nonnull Path file) throws IOException {
+            OutputStream os = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+            this.out = new DataOutputStream(os);
+            out.write(MAGIC);
+            offset = MAGIC.length;
+        }
+
+        /**
+         * Adds a resource, indexed by the name of the file it was read from.
+         *
+         * @param key        the name of the JSON file of the resource
+         * @param resource   the resource
+         * @param sourceHash the {@link #sourceHash(byte[]) hash} of the file
+         * @return this writer
+         * @throws IllegalArgumentException if the index already has a resource for the key
+         */
+        public Writer add(@Nonnull String key, @Nonnull Resource resource, long sourceHash) {
+            if (entries.containsKey(key)) {
+                throw new IllegalArgumentException("Duplicate key " + key + " in the index");
+            }
+            record.reset();
+            try (ObjectOutputStream oos = new ObjectOutputStream(record)) {
+                oos.writeObject(resource);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to serialize " + resource.getId(), e);
+            }
+            if ((long) offset + record.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Index larger than 2 GiB, split the dataset");
+            }
+            Entry entry = new Entry(offset, record.size(), sourceHash);
+            try {
+                record.writeTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the index", e);
+            }
+            offset += record.size();
+            entries.put(key, entry);
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                long indexOffset = offset;
+                out.writeInt(entries.size());
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    byte[] key = entry.getKey().getBytes(UTF_8);
+                    out.writeShort(key.length);
+                    out.write(key);
+                    out.writeInt(entry.getValue().offset());
+                    out.writeInt(entry.getValue().length());
+                    out.writeLong(entry.getValue().sourceHash());
+                }
+                out.writeLong(indexOffset);
+                out.write(MAGIC);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private record Entry(int offset, int length, long sourceHash) {}
+}
@@ -11,26 +11,54 @@ import jakarta.annotation.Nonnull;
 import org.hl7.fhir.r4.model.Patient;
 import org.hl7.fhir.r4.model.Resource;
 
+/**
+ * The resources of the dataset. An entry is parsed the first time it is used, the parsed resource is kept as a
+ * prototype nobody else sees and every call hands out a copy of it. Callers may therefore modify the returned resources
+ * without affecting other callers.
+ */
 public enum FhirDataset {
-    RICHARD_JONES(getPatient("fhir/dataset/richard.patient.json")),
+    RICHARD_JONES("fhir/dataset/richard.patient.json", Patient.class),
 
-    JOSHUA_JOHNSON(getPatient("fhir/dataset/joshua.patient.json")),
+    JOSHUA_JOHNSON("fhir/dataset/joshua.patient.json", Patient.class),
 
-    JAMES_SMITH(getPatient("fhir/dataset/james.patient.json")),
+    JAMES_SMITH("fhir/dataset/james.patient.json", Patient.class),
 
-    MARY_JANE(getPatient("fhir/dataset/mary.patient.json"));
+    MARY_JANE("fhir/dataset/mary.patient.json", Patient.class);
 
-    private final Resource resource;
+    private final String filePath;
 
-    FhirDataset(Resource resource) {
-        this.resource = resource;
-    }
+    private final Class<? extends Resource> type;
 
-    static Patient getPatient(@Nonnull String filePath) {
-        return FhirDatasetUtils.loadResource(filePath, new Patient());
+    FhirDataset(String filePath, Class<? extends Resource> type) {
+        this.filePath = filePath;
+        this.type = type;
     }
 
+    /**
+     * @return a copy of the resource, owned by the caller
+     */
     public Resource getResource() {
-        return resource;
+        return FhirResourceParser.parse(filePath, type);
+    }
+
+    /**
+     * @param type the type of the resource, e.g. Patient
+     * @param <T>  the type of the resource
+     * @return a copy of the resource, owned by the caller
+     * @throws IllegalArgumentException if the resource is not of the type
+     */
+    public <T extends Resource> T getResource(@Nonnull Class<T> type) {
+        if (!type.isAssignableFrom(this.type)) {
+            throw new IllegalArgumentException(
+                    name() + " is of type " + this.type.getSimpleName() + ", not " + type.getSimpleName());
+        }
+        return type.cast(getResource());
+    }
+
+    /**
+     * @return the type of the resource
+     */
+    public Class<? extends Resource> getType() {
+        return type;
     }
 }
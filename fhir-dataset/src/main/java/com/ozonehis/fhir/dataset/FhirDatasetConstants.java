@@ -7,4 +7,59 @@
  */
 package com.ozonehis.fhir.dataset;
 
-public class FhirDatasetConstants {}
+public class FhirDatasetConstants {
+
+    public static final String OPENMRS_ID_IDENTIFIER_TYPE_UUID = "05a29f94-c0ed-11e2-94be-8c13b969e334";
+
+    public static final String OPENMRS_ID_IDENTIFIER_TYPE_NAME = "OpenMRS ID";
+
+    public static final String IDENTIFIER_LOCATION_EXTENSION_URL =
+            "http://fhir.openmrs.org/ext/patient/identifier#location";
+
+    public static final String ADDRESS_EXTENSION_URL = "http://fhir.openmrs.org/ext/address";
+
+    public static final String ADDRESS1_EXTENSION_URL = "http://fhir.openmrs.org/ext/address#address1";
+
+    public static final String ENCOUNTER_TAG_SYSTEM = "http://fhir.openmrs.org/ext/encounter-tag";
+
+    public static final String VISIT_TYPE_SYSTEM = "http://fhir.openmrs.org/code-system/visit-type";
+
+    public static final String VISIT_TYPE_UUID = "7b0f5697-27e3-40c4-8bae-f4049abfb4ed";
+
+    public static final String ENCOUNTER_TYPE_SYSTEM = "http://fhir.openmrs.org/code-system/encounter-type";
+
+    public static final String CONSULTATION_ENCOUNTER_TYPE_UUID = "dd528487-82a5-4082-9c72-ed246bd49591";
+
+    public static final String ORDERS_ENCOUNTER_TYPE_UUID = "39da3525-afe4-45ff-8977-c53b7b359158";
+
+    public static final String WARD_50_LOCATION_UUID = "736b08f9-94d6-4b50-ad58-6bc69b9cbfb8";
+
+    public static final String MOBILE_CLINIC_LOCATION_UUID = "8d9045ad-50f0-45b8-93c8-3ed4bce19dbf";
+
+    public static final String SUPER_USER_PRACTITIONER_UUID = "16decb1a-f439-405c-83df-ef09089eafa8";
+
+    public static final String ASPIRIN_81MG_MEDICATION_UUID = "09e58895-e7f0-4649-b7c0-e665c5c08e93";
+
+    public static final String ADHESIVE_MEDICAL_SUPPLY_UUID = "90165e66-615d-4219-ba2c-50ed46a51bff";
+
+    public static final String HEPATITIS_C_TEST_CONCEPT = "1325AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final String TWICE_DAILY_CONCEPT = "160858AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final String SUPPLY_QUANTITY_CONCEPT = "162396AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final String TABLET_CONCEPT = "1513AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final String ORAL_ROUTE_CONCEPT = "160240AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final String WEIGHT_CONCEPT = "5089AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+
+    public static final String CIEL_SYSTEM = "https://cielterminology.org";
+
+    public static final String UCUM_SYSTEM = "http://unitsofmeasure.org";
+
+    public static final String OBSERVATION_CATEGORY_SYSTEM =
+            "http://terminology.hl7.org/CodeSystem/observation-category";
+
+    public static final String ACT_CODE_SYSTEM = "http://terminology.hl7.org/CodeSystem/v3-ActCode";
+}
@@ -7,27 +7,22 @@
  */
 package com.ozonehis.fhir.dataset;
 
-import ca.uhn.fhir.context.FhirContext;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.stream.Collectors;
 import org.hl7.fhir.r4.model.Resource;
 
 public class FhirDatasetUtils {
 
     /**
-     * Load resource from a file path.
+     * Load resource from a file path. The file is parsed once, every call returns a copy.
      *
      * @param filePath the file path of the resource to load.
      * @param resource resource object
      * @param <T>      The type of the resource to load e.g., Patient, Encounter, etc.
      * @return resource object
+     * @see FhirResourceParser#parse(String, Class)
      */
     @SuppressWarnings("unchecked")
     protected static <T extends Resource> T loadResource(String filePath, T resource) {
-        FhirContext ctx = FhirContext.forR4();
-        return (T) ctx.newJsonParser().parseResource(resource.getClass(), readJSON(filePath));
+        return FhirResourceParser.parse(filePath, (Class<T>) resource.getClass());
     }
 
     /**
@@ -37,12 +32,6 @@ public class FhirDatasetUtils {
      * @return JSON content as a string
      */
     protected static String readJSON(String filePath) {
-        InputStream is = FhirDatasetUtils.class.getClassLoader().getResourceAsStream(filePath);
-        if (is == null) {
-            throw new IllegalArgumentException("File not found! " + filePath);
-        } else {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-            return reader.lines().collect(Collectors.joining(System.lineSeparator()));
-        }
+        return FhirResourceParser.read(filePath);
     }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ca.uhn.fhir.parser.IParser;
+import jakarta.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Reads and writes FHIR resources in the NDJSON format of FHIR Bulk Data, one JSON resource per line. Files ending with
+ * {@code .gz} are gzip-compressed.
+ *
+ * <p>Uncompressed files are memory-mapped and split on newlines in place, the lines are parsed straight from the
+ * mapping. The returned streams are lazy and may be parallel, so files of millions of resources are read with flat
+ * memory use.
+ *
+ * <pre>{@code
+ * try (Stream<Resource> resources = FhirNdjson.read(Path.of("patients.ndjson"))) {
+ *     resources.parallel().forEach(...);
+ * }
+ * }</pre>
+ */
+public final class FhirNdjson {
+
+    /**
+     * The largest region of a file mapped at once, the size of a mapping is limited to 2 GiB.
+     */
+    private static final int MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    private FhirNdjson() {}
+
+    /**
+     * Reads the resources of an NDJSON file.
+     *
+     * @param file the NDJSON file, gzip-compressed if its name ends with {@code .gz}
+     * @return a lazy stream of the resources in file order, to be closed once consumed
+     */
+    public static Stream<Resource> read(@Nonnull Path file) {
+        if (isGzip(file.toString())) {
+            try {
+                return readLines(Files.newInputStream(file), file.toString());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        }
+        return map(file).stream()
+                .map(region -> StreamSupport.stream(new LineSpliterator(region, 0, region.limit()), false))
+                .reduce(Stream::concat)
+                .orElseGet(Stream::empty)
+                .map(line -> parse(line, file));
+    }
+
+    /**
+     * Reads the resources of an NDJSON file of the classpath. Classpath files cannot be mapped, they are read as a
+     * stream of lines.
+     *
+     * @param filePath the classpath location of the NDJSON file, gzip-compressed if it ends with {@code .gz}
+     * @return a lazy stream of the resources in file order, to be closed once consumed
+     * @throws IllegalArgumentException if the file does not exist
+     */
+    public static Stream<Resource> read(@Nonnull String filePath) {
+        InputStream is = FhirNdjson.class.getClassLoader().getResourceAsStream(filePath);
+        if (is == null) {
+            throw new IllegalArgumentException("File not found! " + filePath);
+        }
+        return readLines(is, filePath);
+    }
+
+    /**
+     * Reads the resources of a given type from an NDJSON file, e.g. the patients of a mixed file.
+     *
+     * @param file the NDJSON file
+     * @param type the type of the resources
+     * @param <T>  the type of the resources
+     * @return a lazy stream of the resources of the type, to be closed once consumed
+     */
+    public static <T extends Resource> Stream<T> read(@Nonnull Path file, @Nonnull Class<T> type) {
+        return read(file).filter(type::isInstance).map(type::cast);
+    }
+
+    /**
+     * Writes resources to an NDJSON file, replacing the file if it exists. The resources are encoded one at a time in
+     * stream order, so a lazy stream is written with flat memory use.
+     *
+     * @param file      the NDJSON file, gzip-compressed if its name ends with {@code .gz}
+     * @param resources the resources to write, e.g. of a {@link FhirPopulationGenerator}
+     * @return the number of written resources
+     */
+    public static long write(@Nonnull Path file, @Nonnull Stream<? extends Resource> resources) {
+        IParser parser = parser().setPrettyPrint(false);
+        long count = 0;
+        try (OutputStream os = Files.newOutputStream(file);
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(isGzip(file.toString()) ? new GZIPOutputStream(os) : os, UTF_8),
+                        1 << 16)) {
+            Iterator<? extends Resource> iterator = resources.iterator();
+            while (iterator.hasNext()) {
+                parser.encodeResourceToWriter(iterator.next(), writer);
+                writer.write('\n');
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+        return count;
+    }
+
+    private static Stream<Resource> readLines(InputStream is, String name) {
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(
+                    new InputStreamReader(isGzip(name) ? new GZIPInputStream(is, 1 << 16) : is, UTF_8), 1 << 16);
+        } catch (IOException e) {
+            closeQuietly(is);
+            throw new UncheckedIOException("Failed to read " + name, e);
+        }
+        return reader.lines()
+                .filter(line -> !line.isBlank())
+                .map(line -> (Resource) parser().parseResource(line))
+                .onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Maps the file in regions ending with a newline, so that no line spans two regions. The mappings stay valid once
+     * the channel is closed.
+     */
+    private static List<MappedByteBuffer> map(Path file) {
+        List<MappedByteBuffer> regions = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(MAX_REGION_SIZE, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                if (position + length < size) {
+                    int end = (int) length;
+                    while (end > 0 && region.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new IllegalStateException("Line longer than 2 GiB in " + file);
+                    }
+                    length = end;
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                }
+                regions.add(region);
+                position += length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map " + file, e);
+        }
+        return regions;
+    }
+
+    private static Resource parse(ByteBuffer line, Path file) {
+        try (InputStream is = new ByteBufferInputStream(line)) {
+            return (Resource) parser().parseResource(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse a line of " + file, e);
+        }
+    }
+
+    /**
+     * Parsers are not thread-safe but cheap to create from the shared context.
+     */
+    private static IParser parser() {
+        return FhirResourceParser.fhirContext().newJsonParser();
+    }
+
+    private static boolean isGzip(String name) {
+        return name.endsWith(".gz");
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Splits a mapped region into lines, as views of the region. A split divides the remaining bytes at the first
+     * newline after their middle.
+     */
+    private static final class LineSpliterator implements Spliterator<ByteBuffer> {
+
+        /**
+         * Below this many bytes the remaining lines are not worth handing to another thread.
+         */
+        private static final int MIN_SPLIT_SIZE = 1 << 16;
+
+        private final ByteBuffer region;
+
+        private int position;
+
+        private final int end;
+
+        private LineSpliterator(ByteBuffer region, int position, int end) {
+            this.region = region;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+            while (position < end) {
+                int lineEnd = nextNewline(position);
+                int next = lineEnd < end ? lineEnd + 1 : end;
+                int length = lineEnd - position;
+                if (length > 0 && region.get(lineEnd - 1) == '\r') {
+                    length--;
+                }
+                int start = position;
+                position = next;
+                if (!isBlank(start, length)) {
+                    action.accept(region.slice(start, length));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<ByteBuffer> trySplit() {
+            if (end - position < MIN_SPLIT_SIZE) {
+                return null;
+            }
+            int middle = nextNewline(position + (end - position) / 2);
+            if (middle >= end - 1) {
+                return null;
+            }
+            LineSpliterator prefix = new LineSpliterator(region, position, middle + 1);
+            position = middle + 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        /**
+         * @return the index of the next newline from the index, or the end of the range
+         */
+        private int nextNewline(int from) {
+            int index = from;
+            while (index < end && region.get(index) != '\n') {
+                index++;
+            }
+            return index;
+        }
+
+        private boolean isBlank(int start, int length) {
+            for (int i = start; i < start + length; i++) {
+                byte b = region.get(i);
+                if (b != ' ' && b != '\t' && b != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,630 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ACT_CODE_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ADDRESS1_EXTENSION_URL;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ADDRESS_EXTENSION_URL;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ADHESIVE_MEDICAL_SUPPLY_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ASPIRIN_81MG_MEDICATION_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.CIEL_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.CONSULTATION_ENCOUNTER_TYPE_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ENCOUNTER_TAG_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ENCOUNTER_TYPE_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.HEPATITIS_C_TEST_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.IDENTIFIER_LOCATION_EXTENSION_URL;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.MOBILE_CLINIC_LOCATION_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.OBSERVATION_CATEGORY_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.OPENMRS_ID_IDENTIFIER_TYPE_NAME;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.OPENMRS_ID_IDENTIFIER_TYPE_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ORAL_ROUTE_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ORDERS_ENCOUNTER_TYPE_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.SUPER_USER_PRACTITIONER_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.SUPPLY_QUANTITY_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.TABLET_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.TWICE_DAILY_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.UCUM_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.VISIT_TYPE_SYSTEM;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.VISIT_TYPE_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.WARD_50_LOCATION_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.WEIGHT_CONCEPT;
+
+import jakarta.annotation.Nonnull;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.hl7.fhir.r4.model.Address;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.ServiceRequest;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.SupplyRequest;
+import org.hl7.fhir.r4.model.Timing;
+
+/**
+ * Generates a synthetic population of OpenMRS patients with their visits, encounters, orders and weights, shaped like
+ * the resources the OpenMRS FHIR module emits.
+ *
+ * <p>The population is a pure function of the seed: every patient is derived from the seed and its index alone, so the
+ * same seed yields the same resources on every run, in any order and in parallel streams. Patients are generated on
+ * demand while the stream is consumed, so a population of millions is never held in memory.
+ *
+ * <pre>{@code
+ * new FhirPopulationGenerator(42)
+ *         .withVisitsPerPatient(Distribution.uniform(1, 3))
+ *         .withMedicationRequestsPerEncounter(Distribution.poisson(1.5))
+ *         .patients(1_000_000)
+ *         .forEach(patient -> ...);
+ * }</pre>
+ */
+public class FhirPopulationGenerator {
+
+    private static final LocalDate DEFAULT_REFERENCE_DATE = LocalDate.of(2025, 1, 1);
+
+    /**
+     * Generated identifiers start after the ones OpenMRS assigns first, e.g. {@code 100000Y}.
+     */
+    private static final long DEFAULT_IDENTIFIER_OFFSET = 30L * 30 * 30 * 30 * 30 * 2;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static final String IDENTIFIER_ALPHABET = "0123456789ACDEFGHJKLMNPRTUVWXY";
+
+    /**
+     * The CIEL codes of the concepts, the concept UUIDs cannot be turned into codes in general.
+     */
+    private static final Map<String, String> CIEL_CODES = Map.of(
+            HEPATITIS_C_TEST_CONCEPT, "1325",
+            TWICE_DAILY_CONCEPT, "160858",
+            ORAL_ROUTE_CONCEPT, "160240",
+            WEIGHT_CONCEPT, "5089");
+
+    private static final String[] MALE_GIVEN_NAMES = {
+        "Joseph", "Peter", "John", "David", "James", "Daniel", "Samuel", "Brian", "Kevin", "Dennis",
+        "Kamau", "Otieno", "Kipchoge", "Mwangi", "Omondi", "Wafula", "Kiprono", "Baraka", "Juma", "Odhiambo"
+    };
+
+    private static final String[] FEMALE_GIVEN_NAMES = {
+        "Mary", "Grace", "Faith", "Esther", "Ruth", "Jane", "Sarah", "Mercy", "Ann", "Lucy",
+        "Wanjiku", "Achieng", "Njeri", "Akinyi", "Chebet", "Wambui", "Nafula", "Atieno", "Zawadi", "Auma"
+    };
+
+    private static final String[] FAMILY_NAMES = {
+        "Kamau", "Otieno", "Mwangi", "Ochieng", "Kariuki", "Njoroge", "Kiprop", "Wekesa", "Mutua", "Ndungu",
+        "Onyango", "Kimani", "Were", "Barasa", "Cheruiyot", "Mohamed", "Hassan", "Smith", "Johnson", "Jones"
+    };
+
+    private static final String[] STREETS = {
+        "Moi Avenue", "Kenyatta Avenue", "Ngong Road", "Haile Selassie Avenue", "Oginga Odinga Street",
+        "Uhuru Highway", "Nyerere Road", "Digo Road", "Jomo Kenyatta Highway", "Kimathi Street"
+    };
+
+    /**
+     * City, county and postal code.
+     */
+    private static final String[][] CITIES = {
+        {"Nairobi", "Nairobi", "00100"},
+        {"Mombasa", "Mombasa", "80100"},
+        {"Kisumu", "Kisumu", "40100"},
+        {"Nakuru", "Nakuru", "20100"},
+        {"Eldoret", "Uasin Gishu", "30100"},
+        {"Thika", "Kiambu", "01000"},
+        {"Malindi", "Kilifi", "80200"},
+        {"Kitale", "Trans Nzoia", "30200"},
+        {"Garissa", "Garissa", "70100"},
+        {"Nyeri", "Nyeri", "10100"}
+    };
+
+    private static final String[][] LOCATIONS = {
+        {WARD_50_LOCATION_UUID, "Ward 50"}, {MOBILE_CLINIC_LOCATION_UUID, "Mobile Clinic"}
+    };
+
+    private final long seed;
+
+    private Distribution visitsPerPatient = Distribution.uniform(1, 3);
+
+    private Distribution medicationRequestsPerEncounter = Distribution.poisson(1);
+
+    private Distribution serviceRequestsPerEncounter = Distribution.poisson(0.5);
+
+    private Distribution supplyRequestsPerEncounter = Distribution.poisson(0.3);
+
+    private Distribution weightsPerEncounter = Distribution.fixed(1);
+
+    private Distribution ageInYears = Distribution.uniform(0, 90);
+
+    private LocalDate referenceDate = DEFAULT_REFERENCE_DATE;
+
+    private long identifierOffset = DEFAULT_IDENTIFIER_OFFSET;
+
+    /**
+     * @param seed the seed of the population, equal seeds yield equal populations
+     */
+    public FhirPopulationGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param visitsPerPatient the number of visits of a patient, every visit has one orders encounter
+     * @return this generator
+     */
+    public FhirPopulationGenerator withVisitsPerPatient(@Nonnull Distribution visitsPerPatient) {
+        this.visitsPerPatient = visitsPerPatient;
+        return this;
+    }
+
+    /**
+     * @param medicationRequestsPerEncounter the number of drug orders of an encounter
+     * @return this generator
+     */
+    public FhirPopulationGenerator withMedicationRequestsPerEncounter(
+            @Nonnull Distribution medicationRequestsPerEncounter) {
+        this.medicationRequestsPerEncounter = medicationRequestsPerEncounter;
+        return this;
+    }
+
+    /**
+     * @param serviceRequestsPerEncounter the number of test orders of an encounter
+     * @return this generator
+     */
+    public FhirPopulationGenerator withServiceRequestsPerEncounter(@Nonnull Distribution serviceRequestsPerEncounter) {
+        this.serviceRequestsPerEncounter = serviceRequestsPerEncounter;
+        return this;
+    }
+
+    /**
+     * @param supplyRequestsPerEncounter the number of medical supply orders of an encounter
+     * @return this generator
+     */
+    public FhirPopulationGenerator withSupplyRequestsPerEncounter(@Nonnull Distribution supplyRequestsPerEncounter) {
+        this.supplyRequestsPerEncounter = supplyRequestsPerEncounter;
+        return this;
+    }
+
+    /**
+     * @param weightsPerEncounter the number of weight observations of an encounter
+     * @return this generator
+     */
+    public FhirPopulationGenerator withWeightsPerEncounter(@Nonnull Distribution weightsPerEncounter) {
+        this.weightsPerEncounter = weightsPerEncounter;
+        return this;
+    }
+
+    /**
+     * @param ageInYears the age of a patient at the reference date
+     * @return this generator
+     */
+    public FhirPopulationGenerator withAgeInYears(@Nonnull Distribution ageInYears) {
+        this.ageInYears = ageInYears;
+        return this;
+    }
+
+    /**
+     * @param referenceDate the date ages are computed at, visits take place in the two years before it
+     * @return this generator
+     */
+    public FhirPopulationGenerator withReferenceDate(@Nonnull LocalDate referenceDate) {
+        this.referenceDate = referenceDate;
+        return this;
+    }
+
+    /**
+     * @param identifierOffset the number of identifiers skipped after {@code 100000}, so that generated identifiers do
+     *                         not collide with the ones of another population or of the OpenMRS instance
+     * @return this generator
+     */
+    public FhirPopulationGenerator withIdentifierOffset(long identifierOffset) {
+        if (identifierOffset < 0) {
+            throw new IllegalArgumentException("Identifier offset must not be negative");
+        }
+        this.identifierOffset = identifierOffset;
+        return this;
+    }
+
+    /**
+     * @param count the number of patients
+     * @return a lazy stream of the patients with their resources
+     */
+    public Stream<SyntheticPatient> patients(long count) {
+        return LongStream.range(0, count).mapToObj(this::patient);
+    }
+
+    /**
+     * @param count the number of patients
+     * @return a lazy stream of the resources of the patients, every resource follows the resources it references
+     */
+    public Stream<Resource> resources(long count) {
+        return patients(count).flatMap(patient -> patient.resources().stream());
+    }
+
+    /**
+     * @param index the index of the patient in the population
+     * @return the patient with its resources
+     */
+    public SyntheticPatient patient(long index) {
+        SplittableRandom random = new SplittableRandom(mix(seed + GOLDEN_GAMMA * (index + 1)));
+        Patient patient = newPatient(index, random);
+        Reference subject = new Reference("Patient/" + patient.getIdPart())
+                .setType("Patient")
+                .setDisplay(patient.getNameFirstRep().getText() + " (" + OPENMRS_ID_IDENTIFIER_TYPE_NAME + ": "
+                        + patient.getIdentifierFirstRep().getValue() + ")");
+        int ageInDays = (int) ChronoUnit.DAYS.between(
+                LocalDate.parse(patient.getBirthDateElement().getValueAsString()), referenceDate);
+
+        SyntheticPatient synthetic = new SyntheticPatient(
+                patient, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        int visits = visitsPerPatient.sample(random);
+        // Visits take place in the two years before the reference date, but not before the birth of the patient
+        int window = Math.max(1, Math.min(730, ageInDays));
+        List<Integer> daysAgo = new ArrayList<>(visits);
+        for (int i = 0; i < visits; i++) {
+            daysAgo.add(random.nextInt(window));
+        }
+        daysAgo.sort((first, second) -> second - first);
+        for (int day : daysAgo) {
+            Date start = Date.from(referenceDate
+                    .minusDays(day)
+                    .atTime(8, 0)
+                    .plusMinutes(random.nextInt(9 * 60))
+                    .toInstant(ZoneOffset.UTC));
+            addVisit(synthetic, subject, start, (ageInDays - day) / 365.25, random);
+        }
+        return synthetic;
+    }
+
+    private Patient newPatient(long index, SplittableRandom random) {
+        Patient patient = new Patient();
+        patient.setId(uuid(random));
+        patient.setActive(true);
+
+        String[] location = pick(LOCATIONS, random);
+        Identifier identifier = patient.addIdentifier()
+                .setUse(Identifier.IdentifierUse.OFFICIAL)
+                .setValue(openmrsId(index))
+                .setType(new CodeableConcept(new Coding().setCode(OPENMRS_ID_IDENTIFIER_TYPE_UUID))
+                        .setText(OPENMRS_ID_IDENTIFIER_TYPE_NAME));
+        identifier.setId(uuid(random));
+        identifier.addExtension(
+                IDENTIFIER_LOCATION_EXTENSION_URL,
+                new Reference("Location/" + location[0]).setType("Location").setDisplay(location[1]));
+
+        boolean male = random.nextBoolean();
+        String given = pick(male ? MALE_GIVEN_NAMES : FEMALE_GIVEN_NAMES, random);
+        String family = pick(FAMILY_NAMES, random);
+        HumanName name = patient.addName().setFamily(family).addGiven(given).setText(given + " " + family);
+        name.setId(uuid(random));
+        patient.setGender(male ? Enumerations.AdministrativeGender.MALE : Enumerations.AdministrativeGender.FEMALE);
+
+        int age = Math.max(0, ageInYears.sample(random));
+        LocalDate birthDate = referenceDate.minusYears(age).minusDays(random.nextInt(365));
+        patient.getBirthDateElement().setValueAsString(birthDate.toString());
+        patient.setDeceased(new BooleanType(false));
+
+        String[] city = pick(CITIES, random);
+        Address address = patient.addAddress()
+                .setUse(Address.AddressUse.HOME)
+                .setCity(city[0])
+                .setState(city[1])
+                .setPostalCode(city[2])
+                .setCountry("Kenya");
+        address.setId(uuid(random));
+        Extension openmrsAddress = address.addExtension().setUrl(ADDRESS_EXTENSION_URL);
+        openmrsAddress.addExtension(
+                ADDRESS1_EXTENSION_URL, new StringType((1 + random.nextInt(999)) + " " + pick(STREETS, random)));
+        return patient;
+    }
+
+    private void addVisit(
+            SyntheticPatient synthetic, Reference subject, Date start, double ageInYears, SplittableRandom random) {
+        String[] location = pick(LOCATIONS, random);
+        Reference locationReference =
+                new Reference("Location/" + location[0]).setType("Location").setDisplay(location[1]);
+
+        Encounter visit = new Encounter();
+        visit.setId(uuid(random));
+        visit.getMeta().addTag(ENCOUNTER_TAG_SYSTEM, "visit", "Visit");
+        visit.setStatus(Encounter.EncounterStatus.UNKNOWN);
+        visit.setClass_(new Coding().setSystem(ACT_CODE_SYSTEM).setCode("AMB"));
+        visit.addType().addCoding(new Coding().setSystem(VISIT_TYPE_SYSTEM).setCode(VISIT_TYPE_UUID));
+        visit.setSubject(subject);
+        visit.setPeriod(new Period().setStart(start));
+        visit.addLocation().setLocation(locationReference);
+        synthetic.encounters().add(visit);
+
+        Encounter encounter = new Encounter();
+        encounter.setId(uuid(random));
+        encounter.getMeta().addTag(ENCOUNTER_TAG_SYSTEM, "encounter", "Encounter");
+        encounter.setStatus(Encounter.EncounterStatus.UNKNOWN);
+        encounter.setClass_(new Coding().setSystem(ACT_CODE_SYSTEM).setCode("AMB"));
+        boolean consultation = random.nextInt(4) == 0;
+        encounter
+                .addType()
+                .addCoding(new Coding(
+                        ENCOUNTER_TYPE_SYSTEM,
+                        consultation ? CONSULTATION_ENCOUNTER_TYPE_UUID : ORDERS_ENCOUNTER_TYPE_UUID,
+                        consultation ? "Consultation" : "Orders"));
+        encounter.setSubject(subject);
+        encounter.setPeriod(new Period().setStart(start));
+        encounter.addLocation().setLocation(locationReference);
+        encounter.setPartOf(new Reference("Encounter/" + visit.getIdPart()).setType("Encounter"));
+        synthetic.encounters().add(encounter);
+
+        Reference encounterReference = new Reference("Encounter/" + encounter.getIdPart()).setType("Encounter");
+        Reference requester = new Reference("Practitioner/" + SUPER_USER_PRACTITIONER_UUID)
+                .setType("Practitioner")
+                .setDisplay("Super User (Identifier: admin)");
+
+        for (int i = medicationRequestsPerEncounter.sample(random); i > 0; i--) {
+            synthetic
+                    .medicationRequests()
+                    .add(medicationRequest(subject, encounterReference, requester, start, random));
+        }
+        for (int i = serviceRequestsPerEncounter.sample(random); i > 0; i--) {
+            synthetic.serviceRequests().add(serviceRequest(subject, encounterReference, requester, start, random));
+        }
+        for (int i = supplyRequestsPerEncounter.sample(random); i > 0; i--) {
+            synthetic.supplyRequests().add(supplyRequest(subject, encounterReference, requester, random));
+        }
+        for (int i = weightsPerEncounter.sample(random); i > 0; i--) {
+            synthetic.weightObservations().add(weight(subject, encounterReference, start, ageInYears, random));
+        }
+    }
+
+    private MedicationRequest medicationRequest(
+            Reference subject, Reference encounter, Reference requester, Date authoredOn, SplittableRandom random) {
+        MedicationRequest request = new MedicationRequest();
+        request.setId(uuid(random));
+        request.setStatus(MedicationRequest.MedicationRequestStatus.ACTIVE);
+        request.setIntent(MedicationRequest.MedicationRequestIntent.ORDER);
+        request.setPriority(MedicationRequest.MedicationRequestPriority.ROUTINE);
+        request.setMedication(new Reference("Medication/" + ASPIRIN_81MG_MEDICATION_UUID)
+                .setType("Medication")
+                .setDisplay("Aspirin 81mg"));
+        request.setSubject(subject.copy());
+        request.setEncounter(encounter.copy());
+        request.setAuthoredOn(authoredOn);
+        request.setRequester(requester.copy());
+
+        int dose = 1 + random.nextInt(2);
+        int days = 3 + random.nextInt(12);
+        var dosage = request.addDosageInstruction();
+        dosage.getTiming().getRepeat().setDuration(days).setDurationUnit(Timing.UnitsOfTime.D);
+        dosage.getTiming().setCode(concept(TWICE_DAILY_CONCEPT, "Twice daily"));
+        dosage.setAsNeeded(new BooleanType(false));
+        dosage.setRoute(concept(ORAL_ROUTE_CONCEPT, "Oral"));
+        dosage.addDoseAndRate().setDose(tablets(dose));
+
+        request.getDispenseRequest().getValidityPeriod().setStart(authoredOn);
+        request.getDispenseRequest().setNumberOfRepeatsAllowed(0);
+        request.getDispenseRequest().setQuantity(tablets(dose * 2 * days));
+        return request;
+    }
+
+    private ServiceRequest serviceRequest(
+            Reference subject, Reference encounter, Reference requester, Date start, SplittableRandom random) {
+        ServiceRequest request = new ServiceRequest();
+        request.setId(uuid(random));
+        request.setStatus(ServiceRequest.ServiceRequestStatus.ACTIVE);
+        request.setIntent(ServiceRequest.ServiceRequestIntent.ORDER);
+        request.setCode(concept(HEPATITIS_C_TEST_CONCEPT, "Hepatitis C test - qualitative"));
+        request.setSubject(subject.copy());
+        request.setEncounter(encounter.copy());
+        request.setOccurrence(new Period().setStart(start));
+        request.setRequester(requester.copy());
+        return request;
+    }
+
+    private SupplyRequest supplyRequest(
+            Reference subject, Reference encounter, Reference requester, SplittableRandom random) {
+        SupplyRequest request = new SupplyRequest();
+        request.setId(uuid(random));
+        request.setStatus(SupplyRequest.SupplyRequestStatus.ACTIVE);
+        request.setItem(new Reference("MedicalSupply/" + ADHESIVE_MEDICAL_SUPPLY_UUID).setDisplay("Adhesive 5cm x 9m"));
+        request.setQuantity(new Quantity().setValue(1 + random.nextInt(20)).setCode(SUPPLY_QUANTITY_CONCEPT));
+        request.setRequester(requester.copy());
+        request.addReasonReference(encounter.copy());
+        request.setDeliverTo(subject.copy());
+        return request;
+    }
+
+    private Observation weight(
+            Reference subject, Reference encounter, Date effective, double ageInYears, SplittableRandom random) {
+        Observation observation = new Observation();
+        observation.setId(uuid(random));
+        observation.setStatus(Observation.ObservationStatus.FINAL);
+        observation.addCategory(new CodeableConcept(new Coding(OBSERVATION_CATEGORY_SYSTEM, "exam", "Exam")));
+        observation.setCode(concept(WEIGHT_CONCEPT, "Weight (kg)"));
+        observation.setSubject(subject.copy());
+        observation.setEncounter(encounter.copy());
+        observation.setEffective(new DateTimeType(effective));
+        observation.setIssued(effective);
+        observation.setValue(new Quantity()
+                .setValue(Math.round(weightInKg(ageInYears, random) * 10) / 10.0)
+                .setUnit("kg")
+                .setSystem(UCUM_SYSTEM)
+                .setCode("kg"));
+        return observation;
+    }
+
+    /**
+     * A rough growth curve up to adulthood, then a normal spread around the adult mean.
+     */
+    private static double weightInKg(double ageInYears, SplittableRandom random) {
+        double spread = random.nextGaussian();
+        if (ageInYears < 1) {
+            return Math.max(2, 3.5 + ageInYears * 6.5 + spread * 0.8);
+        }
+        if (ageInYears < 18) {
+            return Math.max(8, 8 + ageInYears * 3.1 + spread * ageInYears * 0.4);
+        }
+        return Math.max(35, 68 + spread * 12);
+    }
+
+    private static CodeableConcept concept(String code, String display) {
+        CodeableConcept concept = new CodeableConcept(new Coding().setCode(code).setDisplay(display)).setText(display);
+        String cielCode = CIEL_CODES.get(code);
+        if (cielCode != null) {
+            concept.addCoding(new Coding().setSystem(CIEL_SYSTEM).setCode(cielCode));
+        }
+        return concept;
+    }
+
+    private static Quantity tablets(int value) {
+        return new Quantity().setValue(value).setUnit("Tablet").setCode(TABLET_CONCEPT);
+    }
+
+    /**
+     * Numbers identifiers the way the OpenMRS ID generator does, in base 30 starting from {@code 100000}, followed by
+     * their check digit.
+     */
+    private String openmrsId(long index) {
+        long number = 30L * 30 * 30 * 30 * 30 + identifierOffset + index;
+        StringBuilder identifier = new StringBuilder();
+        for (; number > 0; number /= IDENTIFIER_ALPHABET.length()) {
+            identifier.append(IDENTIFIER_ALPHABET.charAt((int) (number % IDENTIFIER_ALPHABET.length())));
+        }
+        return LuhnMod30.withCheckDigit(identifier.reverse().toString());
+    }
+
+    /**
+     * A random version 4 UUID drawn from the generator, so it is reproducible.
+     */
+    private static String uuid(SplittableRandom random) {
+        long most = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long least = (random.nextLong() & ~(0xc0L << 56)) | (0x80L << 56);
+        return new UUID(most, least).toString();
+    }
+
+    private static <T> T pick(T[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * The finalizer of SplitMix64, it spreads the seeds of neighbouring patients over the whole range.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A distribution of counts, e.g. of visits per patient.
+     */
+    @FunctionalInterface
+    public interface Distribution {
+
+        /**
+         * @param random the generator of the patient being generated
+         * @return a count, not negative
+         */
+        int sample(SplittableRandom random);
+
+        /**
+         * @param value the count
+         * @return a distribution always yielding the count
+         */
+        static Distribution fixed(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Count must not be negative");
+            }
+            return random -> value;
+        }
+
+        /**
+         * @param min the smallest count
+         * @param max the largest count, inclusive
+         * @return a distribution yielding every count between min and max with equal probability
+         */
+        static Distribution uniform(int min, int max) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("Invalid range [" + min + ", " + max + "]");
+            }
+            return random -> random.nextInt(min, max + 1);
+        }
+
+        /**
+         * @param mean the mean count
+         * @return a Poisson distribution, e.g. for the orders of an encounter
+         */
+        static Distribution poisson(double mean) {
+            if (mean < 0 || mean > 30) {
+                throw new IllegalArgumentException("Mean must be between 0 and 30");
+            }
+            double limit = Math.exp(-mean);
+            return random -> {
+                int count = 0;
+                for (double product = random.nextDouble(); product > limit; product *= random.nextDouble()) {
+                    count++;
+                }
+                return count;
+            };
+        }
+    }
+
+    /**
+     * A generated patient with its resources. Visits and encounters are both FHIR encounters, every visit is followed by
+     * its encounter.
+     *
+     * @param patient            the patient
+     * @param encounters         the visits and encounters of the patient, oldest first
+     * @param medicationRequests the drug orders of the encounters
+     * @param serviceRequests    the test orders of the encounters
+     * @param supplyRequests     the medical supply orders of the encounters
+     * @param weightObservations the weights measured during the encounters
+     */
+    public record SyntheticPatient(
+            Patient patient,
+            List<Encounter> encounters,
+            List<MedicationRequest> medicationRequests,
+            List<ServiceRequest> serviceRequests,
+            List<SupplyRequest> supplyRequests,
+            List<Observation> weightObservations) {
+
+        /**
+         * @return all resources of the patient, every resource after the resources it references
+         */
+        public List<Resource> resources() {
+            List<Resource> resources = new ArrayList<>(1
+                    + encounters.size()
+                    + medicationRequests.size()
+                    + serviceRequests.size()
+                    + supplyRequests.size()
+                    + weightObservations.size());
+            resources.add(patient);
+            resources.addAll(encounters);
+            resources.addAll(medicationRequests);
+            resources.addAll(serviceRequests);
+            resources.addAll(supplyRequests);
+            resources.addAll(weightObservations);
+            return resources;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ca.uhn.fhir.context.FhirContext;
+import jakarta.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * Parses FHIR resources from classpath files with one R4 context for the whole JVM. Creating a context scans the whole
+ * model and is expensive, parsers created from a warm context are cheap.
+ *
+ * <p>Every file is parsed once. Callers receive deep copies of the parsed resource, so they may modify them freely and
+ * concurrently.
+ *
+ * <p>Files of a directory indexed at build time are decoded from its {@link FhirBinaryIndex} instead of being parsed,
+ * the JSON file is only parsed if the index does not have it or indexed another version of the file, e.g. one edited
+ * since the last build.
+ */
+public final class FhirResourceParser {
+
+    private static final Map<CacheKey, Resource> parsedResources = new ConcurrentHashMap<>();
+
+    private static final Map<String, Optional<FhirBinaryIndex>> indexes = new ConcurrentHashMap<>();
+
+    private FhirResourceParser() {}
+
+    /**
+     * @return the FHIR R4 context shared by the JVM
+     */
+    public static FhirContext fhirContext() {
+        return FhirContext.forR4Cached();
+    }
+
+    /**
+     * Parses a JSON resource from the classpath.
+     *
+     * @param filePath the classpath location of the JSON file
+     * @param type     the type of the resource, e.g. Patient
+     * @param <T>      the type of the resource
+     * @return a copy of the parsed resource, owned by the caller
+     * @throws IllegalArgumentException if the file does not exist
+     */
+    public static <T extends Resource> T parse(@Nonnull String filePath, @Nonnull Class<T> type) {
+        Resource parsed = parsedResources.computeIfAbsent(new CacheKey(filePath, type), key -> {
+            byte[] source = readBytes(filePath);
+            return decode(filePath, type, source).orElseGet(() -> {
+                try (Reader reader = new InputStreamReader(new ByteArrayInputStream(source), UTF_8)) {
+                    return fhirContext().newJsonParser().parseResource(type, reader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read " + filePath, e);
+                }
+            });
+        });
+        return type.cast(parsed.copy());
+    }
+
+    /**
+     * Decodes a file from the binary index of its directory if the index was built from the same content. An index
+     * that cannot be decoded, e.g. built with another version of the FHIR model, is ignored in favor of the JSON file.
+     */
+    private static Optional<Resource> decode(String filePath, Class<? extends Resource> type, byte[] source) {
+        int separator = filePath.lastIndexOf('/');
+        String directory = filePath.substring(0, separator + 1);
+        try {
+            return indexes.computeIfAbsent(
+                            directory, key -> FhirBinaryIndex.openClasspath(key + FhirBinaryIndex.INDEX_FILE_NAME))
+                    .map(index -> index.get(filePath.substring(separator + 1), FhirBinaryIndex.sourceHash(source)))
+                    .filter(type::isInstance);
+        } catch (RuntimeException e) {
+            indexes.put(directory, Optional.empty());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads a UTF-8 file from the classpath, e.g. a canned server response.
+     *
+     * @param filePath the classpath location of the file
+     * @return the content of the file
+     * @throws IllegalArgumentException if the file does not exist
+     */
+    public static String read(@Nonnull String filePath) {
+        return new String(readBytes(filePath), UTF_8);
+    }
+
+    private static byte[] readBytes(String filePath) {
+        try (InputStream is = open(filePath)) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + filePath, e);
+        }
+    }
+
+    private static InputStream open(String filePath) {
+        InputStream is = FhirResourceParser.class.getClassLoader().getResourceAsStream(filePath);
+        if (is == null) {
+            throw new IllegalArgumentException("File not found! " + filePath);
+        }
+        return is;
+    }
+
+    private record CacheKey(String filePath, Class<? extends Resource> type) {}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import jakarta.annotation.Nonnull;
+
+/**
+ * The Luhn mod 30 check digit of OpenMRS IDs, as computed by the OpenMRS ID generation module. The alphabet leaves out
+ * letters easily confused with digits.
+ */
+public final class LuhnMod30 {
+
+    private static final String ALPHABET = "0123456789ACDEFGHJKLMNPRTUVWXY";
+
+    private LuhnMod30() {}
+
+    /**
+     * @param identifier an identifier without check digit, made of characters of the alphabet
+     * @return the check digit of the identifier
+     * @throws IllegalArgumentException if the identifier contains a character outside the alphabet
+     */
+    public static char checkDigit(@Nonnull String identifier) {
+        int base = ALPHABET.length();
+        int factor = 2;
+        int sum = 0;
+        for (int i = identifier.length() - 1; i >= 0; i--) {
+            int codePoint = ALPHABET.indexOf(Character.toUpperCase(identifier.charAt(i)));
+            if (codePoint < 0) {
+                throw new IllegalArgumentException(
+                        "Invalid character '" + identifier.charAt(i) + "' in identifier " + identifier);
+            }
+            int addend = factor * codePoint;
+            factor = factor == 2 ? 1 : 2;
+            sum += addend / base + addend % base;
+        }
+        return ALPHABET.charAt((base - sum % base) % base);
+    }
+
+    /**
+     * @param identifier an identifier without check digit
+     * @return the identifier followed by its check digit
+     */
+    public static String withCheckDigit(@Nonnull String identifier) {
+        return identifier + checkDigit(identifier);
+    }
+
+    /**
+     * @param identifier an identifier ending with its check digit
+     * @return true if the check digit matches
+     */
+    public static boolean isValid(@Nonnull String identifier) {
+        if (identifier.length() < 2) {
+            return false;
+        }
+        String base = identifier.substring(0, identifier.length() - 1);
+        try {
+            return Character.toUpperCase(identifier.charAt(identifier.length() - 1)) == checkDigit(base);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
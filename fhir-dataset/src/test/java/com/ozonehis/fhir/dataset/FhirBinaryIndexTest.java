@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FhirBinaryIndexTest {
+
+    private static final String PATIENT = "{\"resourceType\":\"Patient\",\"id\":\"patient-2\",\"gender\":\"%s\"}";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should keep the resources of files holding the same Type/id apart.")
+    public void shouldIndexByFileName() throws IOException {
+        Files.writeString(tempDir.resolve("patient-2.json"), PATIENT.formatted("female"), UTF_8);
+        Files.writeString(tempDir.resolve("patient-2-updated.json"), PATIENT.formatted("male"), UTF_8);
+
+        FhirBinaryIndex.main(new String[] {tempDir.toString()});
+        FhirBinaryIndex index = FhirBinaryIndex.open(tempDir.resolve(FhirBinaryIndex.INDEX_FILE_NAME));
+
+        assertEquals(Set.of("patient-2.json", "patient-2-updated.json"), index.keys());
+        assertEquals(2, index.size());
+        assertEquals(
+                "female", ((Patient) index.get("patient-2.json")).getGender().toCode());
+        assertEquals(
+                "male",
+                ((Patient) index.get("patient-2-updated.json")).getGender().toCode());
+        assertNull(index.get("Patient/patient-2"));
+    }
+
+    @Test
+    @DisplayName("should not decode a resource indexed from another version of its file.")
+    public void shouldSkipStaleRecords() throws IOException {
+        Path file = tempDir.resolve("patient-2.json");
+        Files.writeString(file, PATIENT.formatted("female"), UTF_8);
+        FhirBinaryIndex.main(new String[] {tempDir.toString()});
+        Files.writeString(file, PATIENT.formatted("other"), UTF_8);
+
+        FhirBinaryIndex index = FhirBinaryIndex.open(tempDir.resolve(FhirBinaryIndex.INDEX_FILE_NAME));
+
+        assertNull(index.get("patient-2.json", FhirBinaryIndex.sourceHash(Files.readAllBytes(file))));
+        assertInstanceOf(
+                Patient.class,
+                index.get(
+                        "patient-2.json",
+                        FhirBinaryIndex.sourceHash(PATIENT.formatted("female").getBytes(UTF_8))));
+    }
+
+    @Test
+    @DisplayName("should reject a key added twice.")
+    public void shouldRejectDuplicateKeys() throws IOException {
+        try (FhirBinaryIndex.Writer writer = new FhirBinaryIndex.Writer(tempDir.resolve("duplicates.fhirbin"))) {
+            writer.add("patient-2.json", new Patient(), 1);
+
+            assertThrows(IllegalArgumentException.class, () -> writer.add("patient-2.json", new Patient(), 2));
+        }
+    }
+
+    @Test
+    @DisplayName("should refuse to decode classes that are not part of the FHIR model.")
+    public void shouldRejectForeignClasses() throws IOException {
+        Path file = tempDir.resolve("foreign.fhirbin");
+        try (FhirBinaryIndex.Writer writer = new FhirBinaryIndex.Writer(file)) {
+            writer.add("patient.json", new ForeignPatient(), 1);
+        }
+
+        FhirBinaryIndex index = FhirBinaryIndex.open(file);
+
+        assertThrows(UncheckedIOException.class, () -> index.get("patient.json"));
+    }
+
+    private static final class ForeignPatient extends Patient {}
+}
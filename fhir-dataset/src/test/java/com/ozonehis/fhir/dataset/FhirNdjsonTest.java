@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FhirNdjsonTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should read back the resources it wrote, plain and gzip-compressed.")
+    public void shouldRoundTrip() {
+        for (String name : List.of("resources.ndjson", "resources.ndjson.gz")) {
+            Path file = tempDir.resolve(name);
+
+            assertEquals(100, FhirNdjson.write(file, resources(100)));
+
+            try (Stream<Resource> resources = FhirNdjson.read(file)) {
+                assertEquals(ids(resources(100)), ids(resources), name);
+            }
+            try (Stream<Patient> patients = FhirNdjson.read(file, Patient.class)) {
+                assertEquals(50, patients.count(), name);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should skip blank lines and strip carriage returns.")
+    public void shouldSkipBlankLines() throws IOException {
+        Path file = tempDir.resolve("crlf.ndjson");
+        Files.writeString(
+                file,
+                "\r\n{\"resourceType\":\"Patient\",\"id\":\"a\"}\r\n  \n\n"
+                        + "{\"resourceType\":\"Observation\",\"id\":\"b\",\"status\":\"final\"}",
+                UTF_8);
+
+        try (Stream<Resource> resources = FhirNdjson.read(file)) {
+            assertEquals(List.of("Patient/a", "Observation/b"), ids(resources));
+        }
+        try (Stream<Resource> resources = FhirNdjson.read(Files.writeString(tempDir.resolve("empty.ndjson"), ""))) {
+            assertEquals(0, resources.count());
+        }
+    }
+
+    @Test
+    @DisplayName("should split large files across threads without losing or reordering lines.")
+    public void shouldReadInParallel() {
+        Path file = tempDir.resolve("large.ndjson");
+        FhirNdjson.write(file, resources(20000));
+        assertTrue(file.toFile().length() > 4 << 16, "the file must span several splits");
+
+        try (Stream<Resource> resources = FhirNdjson.read(file)) {
+            assertEquals(ids(resources(20000)), ids(resources.parallel()));
+        }
+    }
+
+    @Test
+    @DisplayName("should fail to read a classpath file that does not exist.")
+    public void shouldFailOnMissingClasspathFile() {
+        assertThrows(IllegalArgumentException.class, () -> FhirNdjson.read("missing.ndjson"));
+    }
+
+    /**
+     * Returns patients and observations in turn, with ids in stream order.
+     */
+    private static Stream<Resource> resources(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            Resource resource =
+                    i % 2 == 0 ? new Patient() : new Observation().setStatus(Observation.ObservationStatus.FINAL);
+            resource.setId("r" + i);
+            return resource;
+        });
+    }
+
+    private static List<String> ids(Stream<? extends Resource> resources) {
+        return resources
+                .map(resource ->
+                        resource.fhirType() + "/" + resource.getIdElement().getIdPart())
+                .toList();
+    }
+}
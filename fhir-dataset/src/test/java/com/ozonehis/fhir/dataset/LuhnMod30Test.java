@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.fhir.dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class LuhnMod30Test {
+
+    /**
+     * Identifiers the OpenMRS ID generator assigned to the patients of the dataset.
+     */
+    private static final List<String> OPENMRS_IDS = List.of("100003R", "100008E", "10000GX", "100010X");
+
+    @Test
+    @DisplayName("should compute the check digits of identifiers assigned by OpenMRS.")
+    public void shouldComputeOpenmrsCheckDigits() {
+        for (String id : OPENMRS_IDS) {
+            assertEquals(id, LuhnMod30.withCheckDigit(id.substring(0, id.length() - 1)));
+            assertTrue(LuhnMod30.isValid(id), id);
+        }
+    }
+
+    @Test
+    @DisplayName("should reject identifiers with a wrong check digit.")
+    public void shouldRejectWrongCheckDigits() {
+        assertFalse(LuhnMod30.isValid("100008F"));
+        assertFalse(LuhnMod30.isValid("100080E"));
+        assertFalse(LuhnMod30.isValid("E"));
+        assertFalse(LuhnMod30.isValid("10000BE"));
+    }
+
+    @Test
+    @DisplayName("should not compute check digits of characters outside the alphabet.")
+    public void shouldRejectInvalidCharacters() {
+        assertThrows(IllegalArgumentException.class, () -> LuhnMod30.checkDigit("1000I"));
+    }
+}
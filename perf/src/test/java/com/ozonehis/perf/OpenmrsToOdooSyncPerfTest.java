@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.perf;
+
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.HEPATITIS_C_TEST_CONCEPT;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.ORDERS_ENCOUNTER_TYPE_UUID;
+import static com.ozonehis.fhir.dataset.FhirDatasetConstants.SUPER_USER_PRACTITIONER_UUID;
+import static com.ozonehis.perf.PerfConstants.OUTPATIENT_CARE_SETTING_UUID;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_CARE_SETTING_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_CONCURRENCY_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_DRAIN_TIMEOUT_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_IDENTIFIER_OFFSET_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_ORDERER_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_ORDERS_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_POLL_INTERVAL_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_RATE_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_SAMPLES_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.OZONE_PERF_SEED_PROPERTY;
+import static com.ozonehis.perf.PerfConstants.PERF_REPORT_DIR;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ozonehis.eip.odoo.openmrs.Constants;
+import com.ozonehis.eip.odoo.openmrs.it.BaseOdooOpenmrsExtension;
+import com.ozonehis.eip.odoo.openmrs.it.BaseOdooOpenmrsIntegrationTest;
+import com.ozonehis.fhir.dataset.FhirPopulationGenerator;
+import com.ozonehis.it.commons.OdooChangeFeed;
+import com.ozonehis.it.commons.OpenmrsRestClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures how fast the EIP moves data from OpenMRS to Odoo on a running stack. Synthetic patients, and optionally a
+ * visit with a test order for each, are created in OpenMRS at a fixed rate. The time until the matching partner and
+ * sale order appear in Odoo is recorded per flow, the percentiles and the throughput are logged and the full
+ * distributions are written to {@code target/perf}.
+ *
+ * <p>Run with {@code mvn test -Pperf -pl perf -am}. The load is set through the {@code ozone.perf.*} system
+ * properties, see {@link PerfConstants}.
+ */
+@Slf4j
+public class OpenmrsToOdooSyncPerfTest extends BaseOdooOpenmrsIntegrationTest {
+
+    private static final int samples = Integer.getInteger(OZONE_PERF_SAMPLES_PROPERTY, 100);
+
+    private static final double rate = Double.parseDouble(System.getProperty(OZONE_PERF_RATE_PROPERTY, "2"));
+
+    private static final int concurrency = Integer.getInteger(OZONE_PERF_CONCURRENCY_PROPERTY, 8);
+
+    private static final boolean withOrders =
+            Boolean.parseBoolean(System.getProperty(OZONE_PERF_ORDERS_PROPERTY, "true"));
+
+    private static final long seed = Long.getLong(OZONE_PERF_SEED_PROPERTY, 42L);
+
+    /**
+     * OpenMRS rejects identifiers already in use, every run gets its own range unless set.
+     */
+    private static final long identifierOffset =
+            Long.getLong(OZONE_PERF_IDENTIFIER_OFFSET_PROPERTY, System.currentTimeMillis() % 100_000_000L);
+
+    private static final Duration drainTimeout =
+            Duration.ofSeconds(Long.getLong(OZONE_PERF_DRAIN_TIMEOUT_PROPERTY, 300L));
+
+    private static final Duration pollInterval =
+            Duration.ofMillis(Long.getLong(OZONE_PERF_POLL_INTERVAL_PROPERTY, 250L));
+
+    private static final String ordererUuid =
+            System.getProperty(OZONE_PERF_ORDERER_PROPERTY, SUPER_USER_PRACTITIONER_UUID);
+
+    private static final String careSettingUuid =
+            System.getProperty(OZONE_PERF_CARE_SETTING_PROPERTY, OUTPATIENT_CARE_SETTING_UUID);
+
+    @Test
+    void shouldMeasureOpenmrsToOdooSyncLatency() throws Exception {
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException(
+                    OZONE_PERF_RATE_PROPERTY + " must be a positive number of samples per second, got '" + rate + "'");
+        }
+        log.info(
+                "Creating {} patients{} in OpenMRS at {} per second",
+                samples,
+                withOrders ? " with a test order" : "",
+                rate);
+        FhirPopulationGenerator generator = new FhirPopulationGenerator(seed).withIdentifierOffset(identifierOffset);
+        OdooChangeFeed changeFeed = BaseOdooOpenmrsExtension.getChangeFeed();
+        Map<Long, String> failures = new ConcurrentHashMap<>();
+
+        try (OdooChangeFeed.Subscription partnerChanges = subscribe(changeFeed, OdooChangeFeed.PARTNER_TABLE);
+                OdooChangeFeed.Subscription saleOrderChanges = subscribe(changeFeed, OdooChangeFeed.SALE_ORDER_TABLE);
+                SyncWatcher partners = new SyncWatcher(
+                        "partner", refs -> lookup(Constants.PARTNER_MODEL, "ref", refs), partnerChanges, pollInterval);
+                SyncWatcher saleOrders = withOrders
+                        ? new SyncWatcher(
+                                "sale-order",
+                                refs -> lookup(Constants.SALE_ORDER_MODEL, "client_order_ref", refs),
+                                saleOrderChanges,
+                                pollInterval)
+                        : null) {
+
+            // Samples are started at a fixed rate whatever the response times, a bounded pool keeps them in flight
+            ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+            List<CompletableFuture<Void>> started = new ArrayList<>(samples);
+            CompletableFuture<Void> allStarted = new CompletableFuture<>();
+            AtomicInteger next = new AtomicInteger();
+            long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            long startNanos = System.nanoTime();
+            try {
+                scheduler.scheduleAtFixedRate(
+                        () -> {
+                            // A failing run would silently cancel the schedule and leave the test waiting forever
+                            try {
+                                int index = next.getAndIncrement();
+                                if (index >= samples) {
+                                    allStarted.complete(null);
+                                    return;
+                                }
+                                synchronized (started) {
+                                    started.add(CompletableFuture.runAsync(
+                                            () -> createSample(index, generator, partners, saleOrders, failures),
+                                            workers));
+                                }
+                            } catch (Throwable e) {
+                                allStarted.completeExceptionally(e);
+                                throw e;
+                            }
+                        },
+                        0,
+                        periodNanos,
+                        TimeUnit.NANOSECONDS);
+                allStarted.join();
+                synchronized (started) {
+                    CompletableFuture.allOf(started.toArray(CompletableFuture[]::new))
+                            .join();
+                }
+            } finally {
+                scheduler.shutdownNow();
+                workers.shutdownNow();
+            }
+            log.info(
+                    "Created {} samples in {} ms, {} failed",
+                    samples,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    failures.size());
+
+            boolean synced =
+                    partners.awaitSynced(drainTimeout) && (saleOrders == null || saleOrders.awaitSynced(drainTimeout));
+
+            List<SyncWatcher.SyncReport> reports = new ArrayList<>();
+            reports.add(partners.report());
+            if (saleOrders != null) {
+                reports.add(saleOrders.report());
+            }
+            for (SyncWatcher.SyncReport report : reports) {
+                log.info("{}, distribution written to {}", report.summary(), report.write(Path.of(PERF_REPORT_DIR)));
+            }
+
+            assertEquals(Map.of(), failures, "Samples failed to be created in OpenMRS");
+            assertTrue(synced, "Not all records were synchronized within " + drainTimeout);
+        }
+    }
+
+    /**
+     * Creates a patient and, with orders, a visit with an encounter holding a test order.
+     */
+    private static void createSample(
+            long index,
+            FhirPopulationGenerator generator,
+            SyncWatcher partners,
+            SyncWatcher saleOrders,
+            Map<Long, String> failures) {
+        try {
+            Patient patient = generator.patient(index).patient();
+            // Expected before the patient is sent, the partner may be synchronized before the create returns
+            partners.expect(patient.getIdPart(), System.nanoTime());
+            String patientUuid;
+            try {
+                patientUuid = openmrsFhirClient()
+                        .create()
+                        .resource(patient)
+                        .execute()
+                        .getId()
+                        .getIdPart();
+            } catch (RuntimeException e) {
+                partners.cancel(patient.getIdPart());
+                throw e;
+            }
+            partners.rekey(patient.getIdPart(), patientUuid);
+
+            if (saleOrders != null) {
+                // Backdated a little, OpenMRS rejects visits starting after its own clock
+                Instant start = Instant.now().minusSeconds(60).truncatedTo(ChronoUnit.SECONDS);
+                String visitUuid = OpenmrsRestClient.create(
+                        "visit",
+                        OpenmrsRestClient.visitPayload(
+                                patientUuid,
+                                OpenmrsRestClient.DEFAULT_VISIT_TYPE_UUID,
+                                OpenmrsRestClient.DEFAULT_LOCATION_UUID,
+                                start));
+                // The EIP keys the sale order of a visit by the visit UUID and creates it once the order is created
+                saleOrders.expect(visitUuid, System.nanoTime());
+                try {
+                    OpenmrsRestClient.create("encounter", testOrderEncounterPayload(patientUuid, visitUuid, start));
+                } catch (RuntimeException e) {
+                    saleOrders.cancel(visitUuid);
+                    throw e;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to create sample {}: {}", index, e.getMessage());
+            failures.put(index, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> testOrderEncounterPayload(String patientUuid, String visitUuid, Instant start) {
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("type", "testorder");
+        order.put("patient", patientUuid);
+        order.put("concept", HEPATITIS_C_TEST_CONCEPT);
+        order.put("careSetting", careSettingUuid);
+        order.put("orderer", ordererUuid);
+
+        Map<String, Object> encounter = new LinkedHashMap<>();
+        encounter.put("patient", patientUuid);
+        encounter.put("encounterType", ORDERS_ENCOUNTER_TYPE_UUID);
+        encounter.put("visit", visitUuid);
+        encounter.put("location", OpenmrsRestClient.DEFAULT_LOCATION_UUID);
+        encounter.put("encounterDatetime", DateTimeFormatter.ISO_INSTANT.format(start));
+        encounter.put("orders", List.of(order));
+        return encounter;
+    }
+
+    /**
+     * @return the ids of the records of the model whose field has one of the refs as value, by ref
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> lookup(String model, String field, List<String> refs) {
+        Object[] records = odooClient().searchAndRead(model, List.of(asList(field, "in", refs)), List.of(field));
+        Map<String, Long> found = new HashMap<>();
+        if (records != null) {
+            for (Object record : records) {
+                Map<String, Object> values = (Map<String, Object>) record;
+                if (values.get(field) instanceof String ref && values.get("id") instanceof Number id) {
+                    found.put(ref, id.longValue());
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return a subscription to all changes of the table, or null to poll Odoo
+     */
+    private static OdooChangeFeed.Subscription subscribe(OdooChangeFeed changeFeed, String table) {
+        if (changeFeed == null || !changeFeed.isOpen()) {
+            return null;
+        }
+        return changeFeed.subscribe(table, "TRUE");
+    }
+}
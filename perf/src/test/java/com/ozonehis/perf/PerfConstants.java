@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.perf;
+
+public class PerfConstants {
+
+    public static final String PERF_REPORT_DIR = "target/perf";
+
+    public static final String OZONE_PERF_SAMPLES_PROPERTY = "ozone.perf.samples";
+
+    public static final String OZONE_PERF_RATE_PROPERTY = "ozone.perf.rate";
+
+    public static final String OZONE_PERF_CONCURRENCY_PROPERTY = "ozone.perf.concurrency";
+
+    public static final String OZONE_PERF_ORDERS_PROPERTY = "ozone.perf.orders";
+
+    public static final String OZONE_PERF_SEED_PROPERTY = "ozone.perf.seed";
+
+    public static final String OZONE_PERF_IDENTIFIER_OFFSET_PROPERTY = "ozone.perf.identifier.offset";
+
+    public static final String OZONE_PERF_DRAIN_TIMEOUT_PROPERTY = "ozone.perf.drain.timeout.seconds";
+
+    public static final String OZONE_PERF_POLL_INTERVAL_PROPERTY = "ozone.perf.poll.interval.ms";
+
+    public static final String OZONE_PERF_ORDERER_PROPERTY = "ozone.perf.orderer.uuid";
+
+    public static final String OZONE_PERF_CARE_SETTING_PROPERTY = "ozone.perf.care.setting.uuid";
+
+    /**
+     * The outpatient care setting of OpenMRS.
+     */
+    public static final String OUTPATIENT_CARE_SETTING_UUID = "6f0c9a92-6f24-11e3-af88-005056821db0";
+}
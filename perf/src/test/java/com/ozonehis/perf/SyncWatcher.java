@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.perf;
+
+import com.ozonehis.it.commons.OdooChangeFeed;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Watches Odoo for records expected from OpenMRS, e.g. the partners of created patients, and records the time each took
+ * to appear in an HdrHistogram. A watcher thread looks up all pending records at once, every poll interval or, with a
+ * subscription of the Odoo change feed, as soon as a change is notified.
+ *
+ * <p>The latency of a record runs from the moment the source entity was sent to OpenMRS, the expectation is registered
+ * before, to the moment the record was detected: the notification of the change of its row with the change feed, so the
+ * lookup itself is not measured, or the lookup that found it without.
+ */
+@Slf4j
+public class SyncWatcher implements AutoCloseable {
+
+    private static final int LOOKUP_BATCH_SIZE = 200;
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+
+    private final Function<List<String>, Map<String, Long>> lookup;
+
+    private final OdooChangeFeed.Subscription changes;
+
+    private final Duration pollInterval;
+
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * The {@link System#nanoTime()} of the first notified change of every row, used by the watcher thread only.
+     */
+    private final Map<Long, Long> changedNanos = new HashMap<>();
+
+    /**
+     * Latencies in microseconds, written by the watcher thread only.
+     */
+    private final Histogram latencies = new Histogram(SIGNIFICANT_DIGITS);
+
+    private final AtomicLong expected = new AtomicLong();
+
+    private final AtomicLong firstExpectedNanos = new AtomicLong(Long.MAX_VALUE);
+
+    private volatile long lastSyncedNanos;
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * @param name         the name of the watched flow, e.g. {@code partner}
+     * @param lookup       returns the ids of the records of the given refs that exist in Odoo, by ref
+     * @param changes      the changes of the table of the watched records, or null to poll
+     * @param pollInterval the time between lookups without a change feed, the fallback delay with a change feed
+     */
+    public SyncWatcher(
+            String name,
+            Function<List<String>, Map<String, Long>> lookup,
+            OdooChangeFeed.Subscription changes,
+            Duration pollInterval) {
+        this.name = name;
+        this.lookup = lookup;
+        this.changes = changes;
+        this.pollInterval = pollInterval;
+        this.thread = new Thread(this::watch, "ozone-perf-watcher-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Expects a record to appear in Odoo, called before the source entity is sent to OpenMRS.
+     *
+     * @param ref         the ref of the record, e.g. the UUID of the patient
+     * @param startNanos  the {@link System#nanoTime()} the source entity is sent to OpenMRS at
+     */
+    public void expect(String ref, long startNanos) {
+        pending.put(ref, startNanos);
+        expected.incrementAndGet();
+        firstExpectedNanos.accumulateAndGet(startNanos, Math::min);
+    }
+
+    /**
+     * Changes the ref of an expected record, e.g. because OpenMRS assigned another UUID than the one sent.
+     *
+     * @param ref       the expected ref
+     * @param actualRef the ref of the record
+     */
+    public void rekey(String ref, String actualRef) {
+        Long startNanos = pending.remove(ref);
+        if (startNanos != null) {
+            pending.put(actualRef, startNanos);
+        }
+    }
+
+    /**
+     * Stops expecting a record, e.g. because its source entity could not be created.
+     *
+     * @param ref the ref of the record
+     */
+    public void cancel(String ref) {
+        if (pending.remove(ref) != null) {
+            expected.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until every expected record appeared.
+     *
+     * @param timeout the time to wait
+     * @return true if no record is pending anymore
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean awaitSynced(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!pending.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(pollInterval.toMillis(), 100));
+        }
+        return pending.isEmpty();
+    }
+
+    private void watch() {
+        while (!closed) {
+            try {
+                if (changes == null) {
+                    Thread.sleep(pollInterval.toMillis());
+                } else {
+                    for (OdooChangeFeed.ChangeEvent event = changes.next(pollInterval);
+                            event != null;
+                            event = changes.next(Duration.ZERO)) {
+                        changedNanos.putIfAbsent(event.id(), event.receivedNanos());
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            List<String> refs = new ArrayList<>(pending.keySet());
+            for (int from = 0; from < refs.size() && !closed; from += LOOKUP_BATCH_SIZE) {
+                List<String> batch = refs.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, refs.size()));
+                Map<String, Long> found;
+                try {
+                    found = lookup.apply(batch);
+                } catch (RuntimeException e) {
+                    log.debug("Lookup of {} records failed, retrying: {}", name, e.getMessage());
+                    continue;
+                }
+                long lookedUpNanos = System.nanoTime();
+                found.forEach((ref, id) -> {
+                    Long startNanos = pending.remove(ref);
+                    if (startNanos != null) {
+                        Long notifiedNanos = changedNanos.remove(id);
+                        long detectedNanos = notifiedNanos != null && notifiedNanos - startNanos >= 0
+                                ? notifiedNanos
+                                : lookedUpNanos;
+                        record(detectedNanos - startNanos);
+                        lastSyncedNanos = Math.max(lastSyncedNanos, detectedNanos);
+                    }
+                });
+            }
+            pruneChanges();
+        }
+    }
+
+    /**
+     * Forgets the changes notified before the oldest pending record was sent, they are changes of other rows.
+     */
+    private void pruneChanges() {
+        long oldestNanos =
+                pending.values().stream().mapToLong(Long::longValue).min().orElse(System.nanoTime());
+        changedNanos.values().removeIf(nanos -> nanos - oldestNanos < 0);
+    }
+
+    private synchronized void record(long latencyNanos) {
+        latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, latencyNanos)));
+    }
+
+    /**
+     * @return the latencies and throughput recorded so far
+     */
+    public synchronized SyncReport report() {
+        long synced = latencies.getTotalCount();
+        Duration elapsed = synced == 0 ? Duration.ZERO : Duration.ofNanos(lastSyncedNanos - firstExpectedNanos.get());
+        return new SyncReport(name, expected.get(), synced, pending.size(), latencies.copy(), elapsed);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        thread.interrupt();
+        thread.join(pollInterval.toMillis() * 2);
+    }
+
+    /**
+     * The synchronization latencies of a flow.
+     *
+     * @param name      the name of the flow
+     * @param expected  the number of expected records
+     * @param synced    the number of records that appeared in Odoo
+     * @param pending   the number of records that did not appear
+     * @param latencies the latencies in microseconds
+     * @param elapsed   the time from the first expected record to the last record that appeared
+     */
+    public record SyncReport(
+            String name, long expected, long synced, long pending, Histogram latencies, Duration elapsed) {
+
+        /**
+         * @return the number of records that appeared in Odoo per second
+         */
+        public double throughput() {
+            return elapsed.isZero() ? 0 : synced * 1e9 / elapsed.toNanos();
+        }
+
+        public String summary() {
+            return String.format(
+                    "%s: %d/%d synced, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms, %.2f records/s",
+                    name,
+                    synced,
+                    expected,
+                    latencies.getValueAtPercentile(50) / 1000.0,
+                    latencies.getValueAtPercentile(95) / 1000.0,
+                    latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getMaxValue() / 1000.0,
+                    throughput());
+        }
+
+        /**
+         * Writes the full percentile distribution in milliseconds, in the format of the HdrHistogram plotter.
+         *
+         * @param directory the directory of the report, created if missing
+         * @return the written file
+         */
+        public Path write(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(name + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+                latencies.outputPercentileDistribution(out, 1000.0);
+            }
+            return file;
+        }
+    }
+}
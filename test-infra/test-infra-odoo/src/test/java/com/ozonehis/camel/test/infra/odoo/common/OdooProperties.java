@@ -17,4 +17,11 @@ public final class OdooProperties {
     public static final String ODOO_PORT = "odoo.port";
 
     public static final int DEFAULT_SERVICE_PORT = 8069;
+
+    public static final String ODOO_EMBEDDED_PORT = "odoo.embedded.port";
+
+    /**
+     * The port of the embedded Odoo, the host port of the Odoo container, which the route tests connect to.
+     */
+    public static final int DEFAULT_EMBEDDED_PORT = 8061;
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.odoo.embedded;
+
+import com.ozonehis.camel.test.infra.odoo.embedded.XmlRpcCodec.MethodCall;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An in-process stand-in for the Odoo XML-RPC API, backed by an {@link OdooModelStore}. It answers the
+ * {@code /xmlrpc/2/common} and {@code /xmlrpc/2/object} endpoints used by the EIP {@code OdooClient}, so routes run
+ * against it unchanged, without the minutes an Odoo container takes to start. The model methods {@code search},
+ * {@code search_count}, {@code search_read}, {@code read}, {@code create}, {@code write} and {@code unlink} are
+ * implemented, with the offset, limit and order of searches.
+ *
+ * <p>Without TCP_NODELAY every response waits for the delayed ACK of the client, about 40 ms. The JDK server only sets
+ * it when the JVM runs with {@code -Dsun.net.httpserver.nodelay=true}, read once for all servers of the JVM, so it is
+ * left to the launcher: the route tests and the benchmarks set it.
+ *
+ * <pre>{@code
+ * try (EmbeddedOdooServer odoo = new EmbeddedOdooServer(0).start()) {
+ *     OdooClient client = new OdooClient(odoo.getUrl(), odoo.getDatabase(), "admin", "admin");
+ *     ...
+ * }
+ * }</pre>
+ */
+@Slf4j
+public class EmbeddedOdooServer implements AutoCloseable {
+
+    public static final String DEFAULT_DATABASE = "odoo";
+
+    public static final String DEFAULT_USERNAME = "admin";
+
+    public static final String DEFAULT_PASSWORD = "admin";
+
+    /**
+     * The id of the admin user in Odoo.
+     */
+    private static final int USER_ID = 2;
+
+    private final int port;
+
+    private final String database;
+
+    private final String username;
+
+    private final String password;
+
+    private final OdooModelStore store = new OdooModelStore();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     */
+    public EmbeddedOdooServer(int port) {
+        this(port, DEFAULT_DATABASE, DEFAULT_USERNAME, DEFAULT_PASSWORD);
+    }
+
+    public EmbeddedOdooServer(int port, String database, String username, String password) {
+        this.port = port;
+        this.database = database;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Starts listening on the loopback interface.
+     *
+     * @return this server
+     */
+    public EmbeddedOdooServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/xmlrpc/2/common", exchange -> handle(exchange, this::common));
+        server.createContext("/xmlrpc/2/object", exchange -> handle(exchange, this::object));
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-odoo-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Embedded Odoo listening on {}", getUrl());
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    public String getHost() {
+        return server == null
+                ? InetAddress.getLoopbackAddress().getHostAddress()
+                : server.getAddress().getHostString();
+    }
+
+    /**
+     * @return the base URL of the server, as configured for the EIP {@code OdooClient}
+     */
+    public String getUrl() {
+        return "http://" + getHost() + ":" + getPort();
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return the records served, e.g. to seed products or to clear sale orders between runs
+     */
+    public OdooModelStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        byte[] response;
+        try (InputStream is = exchange.getRequestBody()) {
+            MethodCall call = XmlRpcCodec.decodeCall(is);
+            response = XmlRpcCodec.encodeResponse(handler.handle(call.methodName(), call.params()));
+        } catch (OdooFault e) {
+            response = XmlRpcCodec.encodeFault(e.code, e.getMessage());
+        } catch (Exception e) {
+            log.debug("Failed to handle an XML-RPC call", e);
+            response = XmlRpcCodec.encodeFault(1, String.valueOf(e));
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    private Object common(String method, List<Object> params) {
+        return switch (method) {
+            case "version" -> {
+                Map<String, Object> version = new LinkedHashMap<>();
+                version.put("server_version", "17.0");
+                version.put("server_version_info", List.of(17, 0, 0, "final", 0, ""));
+                version.put("server_serie", "17.0");
+                version.put("protocol_version", 1);
+                yield version;
+            }
+            case "authenticate", "login" -> {
+                // Odoo answers False to wrong credentials
+                boolean valid = isValid(param(params, 0), param(params, 1), param(params, 2));
+                yield valid ? (Object) USER_ID : Boolean.FALSE;
+            }
+            default -> throw new OdooFault(1, "The method " + method + " does not exist");
+        };
+    }
+
+    private Object object(String method, List<Object> params) {
+        if (!"execute_kw".equals(method) && !"execute".equals(method)) {
+            throw new OdooFault(1, "The method " + method + " does not exist");
+        }
+        if (params.size() < 5
+                || !database.equals(params.get(0))
+                || !Integer.valueOf(USER_ID).equals(params.get(1))
+                || !password.equals(params.get(2))) {
+            throw new OdooFault(3, "Access Denied");
+        }
+        String model = String.valueOf(params.get(3));
+        String modelMethod = String.valueOf(params.get(4));
+        List<Object> args;
+        Map<String, Object> kwargs;
+        if ("execute_kw".equals(method)) {
+            args = params.size() > 5 ? asList(params.get(5)) : List.of();
+            kwargs = params.size() > 6 && params.get(6) instanceof Map<?, ?> map ? asMap(map) : Map.of();
+        } else {
+            args = params.subList(5, params.size());
+            kwargs = Map.of();
+        }
+        return execute(model, modelMethod, args, kwargs);
+    }
+
+    private Object execute(String model, String method, List<Object> args, Map<String, Object> kwargs) {
+        return switch (method) {
+            case "search" -> search(model, args, kwargs, 1);
+            case "search_count" -> store.search(model, asList(argument(args, kwargs, 0, "domain")))
+                    .size();
+            case "search_read" -> store.read(
+                    model, search(model, args, kwargs, 2), fields(argument(args, kwargs, 1, "fields")));
+            case "read" -> store.read(
+                    model, ids(argument(args, kwargs, 0, "ids")), fields(argument(args, kwargs, 1, "fields")));
+            case "create" -> {
+                Object values = argument(args, kwargs, 0, "vals_list");
+                if (values instanceof List<?> list) {
+                    List<Integer> ids = new ArrayList<>(list.size());
+                    for (Object element : list) {
+                        ids.add(store.create(model, asMap(element)));
+                    }
+                    yield ids;
+                }
+                yield store.create(model, asMap(values));
+            }
+            case "write" -> store.write(
+                    model, ids(argument(args, kwargs, 0, "ids")), asMap(argument(args, kwargs, 1, "vals")));
+            case "unlink" -> store.unlink(
+                    model, ids(args.isEmpty() ? kwargs.get("ids") : args.size() == 1 ? args.get(0) : args));
+            default -> throw new OdooFault(2, "The method " + model + "." + method + " does not exist");
+        };
+    }
+
+    /**
+     * Searches with the offset, limit and order given after the domain, or as keyword arguments.
+     *
+     * @param first the index of the offset in the arguments, after the domain and the fields of search_read
+     */
+    private List<Integer> search(String model, List<Object> args, Map<String, Object> kwargs, int first) {
+        List<Object> domain = asList(argument(args, kwargs, 0, "domain"));
+        Object offset = argument(args, kwargs, first, "offset");
+        Object limit = argument(args, kwargs, first + 1, "limit");
+        Object order = argument(args, kwargs, first + 2, "order");
+        return store.search(
+                model,
+                domain,
+                offset instanceof Number number ? number.intValue() : 0,
+                limit instanceof Number number ? number.intValue() : 0,
+                order instanceof String text ? text : null);
+    }
+
+    private static Object argument(List<Object> args, Map<String, Object> kwargs, int index, String name) {
+        return index < args.size() ? args.get(index) : kwargs.get(name);
+    }
+
+    private static Object param(List<Object> params, int index) {
+        return index < params.size() ? params.get(index) : null;
+    }
+
+    private boolean isValid(Object database, Object username, Object password) {
+        return this.database.equals(database) && this.username.equals(username) && this.password.equals(password);
+    }
+
+    /**
+     * @return the ids of a single id or a list of ids
+     */
+    private static Collection<Integer> ids(Object value) {
+        List<Integer> ids = new ArrayList<>();
+        for (Object id : value instanceof List<?> list ? list : List.of(value)) {
+            ids.add(((Number) id).intValue());
+        }
+        return ids;
+    }
+
+    private static List<String> fields(Object value) {
+        List<String> fields = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            list.forEach(field -> fields.add(String.valueOf(field)));
+        }
+        return fields;
+    }
+
+    private static List<Object> asList(Object value) {
+        if (value == null || Boolean.FALSE.equals(value)) {
+            return List.of();
+        }
+        if (value instanceof List<?> list) {
+            return new ArrayList<>(list);
+        }
+        throw new OdooFault(1, "Expected a list but got " + value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<String, Object>) map;
+        }
+        throw new OdooFault(1, "Expected a struct but got " + value);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+
+        Object handle(String method, List<Object> params);
+    }
+
+    /**
+     * A fault answered to the client, as Odoo answers errors.
+     */
+    private static final class OdooFault extends RuntimeException {
+
+        private final int code;
+
+        private OdooFault(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}
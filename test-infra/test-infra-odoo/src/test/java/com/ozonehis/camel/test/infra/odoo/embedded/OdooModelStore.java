@@ -0,0 +1,842 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.odoo.embedded;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory Odoo records, of any model. Records are maps of field values, the relational fields the EIP reads are
+ * declared so that many2one fields are read as {@code [id, name]} and one2many fields as lists of ids, like Odoo does.
+ * Models with an {@code active} field hide archived records from searches that do not mention {@code active}.
+ *
+ * <p>Domains are lists of {@code [field, operator, value]} leaves combined with the prefix operators {@code &},
+ * {@code |} and {@code !}, leaves are implicitly combined with {@code &}.
+ *
+ * <p>The fields the EIP searches by are indexed, e.g. {@code ref} of partners and {@code client_order_ref} of sale
+ * orders, so that searches only test the records an index returns and stay fast with millions of records. Hash
+ * indexes answer {@code =} and {@code in}, sorted indexes also answer {@code <}, {@code <=}, {@code >}, {@code >=} and
+ * {@code =like} with a prefix. Domains without an indexed leaf scan all records. Searches and reads run concurrently,
+ * writes one at a time.
+ */
+public class OdooModelStore {
+
+    public static final String EXTERNAL_ID_MODEL = "ir.model.data";
+
+    /**
+     * The kinds of index of a field.
+     */
+    public enum IndexType {
+        HASH,
+        SORTED
+    }
+
+    private static final Map<String, Map<String, Relation>> relations = Map.of(
+            "res.partner",
+            Map.of(
+                    "country_id", Relation.many2one("res.country"),
+                    "state_id", Relation.many2one("res.country.state"),
+                    "parent_id", Relation.many2one("res.partner")),
+            "res.country.state",
+            Map.of("country_id", Relation.many2one("res.country")),
+            "product.product",
+            Map.of("uom_id", Relation.many2one("uom.uom")),
+            "sale.order",
+            Map.of(
+                    "partner_id", Relation.many2one("res.partner"),
+                    "order_line", Relation.one2many("sale.order.line", "order_id")),
+            "sale.order.line",
+            Map.of(
+                    "order_id", Relation.many2one("sale.order"),
+                    "product_id", Relation.many2one("product.product"),
+                    "product_uom", Relation.many2one("uom.uom")));
+
+    /**
+     * The fields indexed by default, those the EIP searches by and the inverse fields of one2many fields.
+     */
+    private static final Map<String, Map<String, IndexType>> defaultIndexes = Map.of(
+            "res.partner",
+            Map.of("ref", IndexType.SORTED, "name", IndexType.SORTED, "parent_id", IndexType.HASH),
+            "res.country",
+            Map.of("code", IndexType.HASH, "name", IndexType.HASH),
+            "res.country.state",
+            Map.of("code", IndexType.HASH, "name", IndexType.HASH, "country_id", IndexType.HASH),
+            "product.product",
+            Map.of("default_code", IndexType.HASH, "name", IndexType.HASH),
+            "uom.uom",
+            Map.of("name", IndexType.HASH),
+            "sale.order",
+            Map.of("client_order_ref", IndexType.SORTED, "partner_id", IndexType.HASH, "state", IndexType.HASH),
+            "sale.order.line",
+            Map.of("order_id", IndexType.HASH, "product_id", IndexType.HASH),
+            EXTERNAL_ID_MODEL,
+            Map.of("name", IndexType.HASH, "res_id", IndexType.HASH));
+
+    /**
+     * The key of empty values, false and null are the same in Odoo.
+     */
+    private static final Object EMPTY = new Object();
+
+    /**
+     * Orders index keys, empty first, then numbers by value, then strings.
+     */
+    private static final Comparator<Object> keyOrder = OdooModelStore::compareKeys;
+
+    private final Map<String, Model> models = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates a record.
+     *
+     * @param model  the model, e.g. res.partner
+     * @param values the field values, one2many fields as Odoo commands, e.g. {@code [[0, 0, {...}]]}
+     * @return the id of the record
+     */
+    public int create(String model, Map<String, Object> values) {
+        lock.writeLock().lock();
+        try {
+            Model records = model(model);
+            int id = ++records.lastId;
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", id);
+            applyDefaults(model, id, record);
+            records.byId.put(id, record);
+            records.indexes.forEach((field, index) -> index.add(record.get(field), id));
+            setFields(model, records, record, values);
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Creates a record with an external id, as resolved by the EIP through {@value #EXTERNAL_ID_MODEL}.
+     *
+     * @param model      the model, e.g. product.product
+     * @param externalId the external id, e.g. the UUID of an OpenMRS concept
+     * @param values     the field values
+     * @return the id of the record
+     */
+    public int createWithExternalId(String model, String externalId, Map<String, Object> values) {
+        lock.writeLock().lock();
+        try {
+            int id = create(model, values);
+            Map<String, Object> externalIdValues = new LinkedHashMap<>();
+            externalIdValues.put("module", "__export__");
+            externalIdValues.put("name", externalId);
+            externalIdValues.put("complete_name", "__export__." + externalId);
+            externalIdValues.put("model", model);
+            externalIdValues.put("res_id", id);
+            create(EXTERNAL_ID_MODEL, externalIdValues);
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a field of a model, in addition to the fields indexed by default.
+     *
+     * @param model the model, e.g. res.partner
+     * @param field the field, e.g. email
+     * @param type  the kind of index, sorted to also answer ranges and prefixes
+     */
+    public void addIndex(String model, String field, IndexType type) {
+        lock.writeLock().lock();
+        try {
+            Model records = model(model);
+            Index index = new Index(type);
+            records.byId.forEach((id, record) -> index.add(record.get(field), id));
+            records.indexes.put(field, index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param model  the model
+     * @param domain the domain, empty for all records
+     * @return the ids of the matching records in ascending order
+     */
+    public List<Integer> search(String model, List<?> domain) {
+        return search(model, domain, 0, 0, null);
+    }
+
+    /**
+     * @param model  the model
+     * @param domain the domain, empty for all records
+     * @param offset the number of matching records to skip
+     * @param limit  the maximum number of ids, 0 for all
+     * @param order  the fields to sort by, e.g. {@code name desc, id}, ascending ids if null or empty
+     * @return the ids of the matching records
+     */
+    public List<Integer> search(String model, List<?> domain, int offset, int limit, String order) {
+        lock.readLock().lock();
+        try {
+            Model records = model(model);
+            Query query = compile(records, model, domain);
+            Comparator<Map<String, Object>> comparator = order == null || order.isBlank() ? null : comparator(order);
+            List<Map<String, Object>> matches = new ArrayList<>();
+            for (Map<String, Object> record : candidates(records, query)) {
+                if (query.filter().test(record)) {
+                    matches.add(record);
+                    // Records are tested in ascending ids, so without an order the search stops at the limit
+                    if (comparator == null && limit > 0 && matches.size() >= offset + limit) {
+                        break;
+                    }
+                }
+            }
+            if (comparator != null) {
+                matches.sort(comparator);
+            }
+            int from = Math.min(offset, matches.size());
+            int to = limit > 0 ? Math.min(from + limit, matches.size()) : matches.size();
+            List<Integer> ids = new ArrayList<>(to - from);
+            for (Map<String, Object> record : matches.subList(from, to)) {
+                ids.add((Integer) record.get("id"));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param model  the model
+     * @param ids    the ids of the records, unknown ids are skipped
+     * @param fields the fields to read, all if empty
+     * @return the records, with relational fields in their Odoo form and false for empty fields
+     */
+    public List<Map<String, Object>> read(String model, Collection<Integer> ids, List<String> fields) {
+        lock.readLock().lock();
+        try {
+            Model records = model(model);
+            List<Map<String, Object>> result = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                Map<String, Object> record = records.byId.get(id);
+                if (record != null) {
+                    result.add(present(model, record, fields));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param values the field values, one2many fields as Odoo commands
+     * @return true, unknown ids are skipped
+     */
+    public boolean write(String model, Collection<Integer> ids, Map<String, Object> values) {
+        lock.writeLock().lock();
+        try {
+            Model records = model(model);
+            for (Integer id : ids) {
+                Map<String, Object> record = records.byId.get(id);
+                if (record != null) {
+                    setFields(model, records, record, values);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes records, and the records of their one2many fields like Odoo cascades sale order lines.
+     *
+     * @return true, unknown ids are skipped
+     */
+    public boolean unlink(String model, Collection<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            Model records = model(model);
+            for (Integer id : ids) {
+                Map<String, Object> record = records.byId.remove(id);
+                if (record == null) {
+                    continue;
+                }
+                records.indexes.forEach((field, index) -> index.remove(record.get(field), id));
+                for (Relation relation : relations.getOrDefault(model, Map.of()).values()) {
+                    if (relation.inverse() != null) {
+                        unlink(
+                                relation.comodel(),
+                                search(relation.comodel(), List.of(List.of(relation.inverse(), "=", id))));
+                    }
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of records of the model, archived ones included
+     */
+    public int count(String model) {
+        lock.readLock().lock();
+        try {
+            return model(model).byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes all records of the models, ids keep increasing.
+     */
+    public void clear(String... models) {
+        lock.writeLock().lock();
+        try {
+            for (String model : models) {
+                Model records = model(model);
+                records.byId.clear();
+                records.indexes.values().forEach(index -> index.postings.clear());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Model model(String model) {
+        return models.computeIfAbsent(model, Model::new);
+    }
+
+    private static void applyDefaults(String model, int id, Map<String, Object> record) {
+        switch (model) {
+            case "res.partner", "product.product", "uom.uom" -> record.put("active", true);
+            case "sale.order" -> {
+                record.put("name", String.format("S%05d", id));
+                record.put("state", "draft");
+            }
+            default -> {}
+        }
+    }
+
+    private void setFields(String model, Model records, Map<String, Object> record, Map<String, Object> values) {
+        Map<String, Relation> modelRelations = relations.getOrDefault(model, Map.of());
+        int id = (Integer) record.get("id");
+        values.forEach((field, value) -> {
+            Relation relation = modelRelations.get(field);
+            if (relation != null && relation.inverse() != null) {
+                applyCommands(relation, id, value);
+                return;
+            }
+            Object normalized = normalize(model, field, value);
+            Object previous = record.put(field, normalized);
+            Index index = records.indexes.get(field);
+            if (index != null) {
+                index.remove(previous, id);
+                index.add(normalized, id);
+            }
+        });
+    }
+
+    /**
+     * Applies the commands Odoo writes one2many fields with, e.g. {@code [0, 0, {...}]} to create a sale order line
+     * with its order.
+     */
+    private void applyCommands(Relation relation, int id, Object commands) {
+        if (!(commands instanceof List<?> list)) {
+            return;
+        }
+        String comodel = relation.comodel();
+        Map<String, Object> unset = Collections.singletonMap(relation.inverse(), null);
+        for (Object element : list) {
+            if (!(element instanceof List<?> command) || command.isEmpty()) {
+                throw new IllegalArgumentException("Invalid one2many command " + element);
+            }
+            switch (((Number) command.get(0)).intValue()) {
+                case 0 -> {
+                    Map<String, Object> values = new LinkedHashMap<>(asMap(command.get(2)));
+                    values.put(relation.inverse(), id);
+                    create(comodel, values);
+                }
+                case 1 -> write(comodel, List.of(commandId(command)), asMap(command.get(2)));
+                case 2 -> unlink(comodel, List.of(commandId(command)));
+                case 3 -> write(comodel, List.of(commandId(command)), unset);
+                case 4 -> write(comodel, List.of(commandId(command)), Map.of(relation.inverse(), id));
+                case 5 -> write(comodel, search(comodel, List.of(List.of(relation.inverse(), "=", id))), unset);
+                case 6 -> {
+                    write(comodel, search(comodel, List.of(List.of(relation.inverse(), "=", id))), unset);
+                    List<Integer> linked = new ArrayList<>();
+                    for (Object linkedId : (List<?>) command.get(2)) {
+                        linked.add(((Number) linkedId).intValue());
+                    }
+                    write(comodel, linked, Map.of(relation.inverse(), id));
+                }
+                default -> throw new IllegalArgumentException("Unsupported one2many command " + command);
+            }
+        }
+    }
+
+    private static int commandId(List<?> command) {
+        return ((Number) command.get(1)).intValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map<?, ?> map ? (Map<String, Object>) map : Map.of();
+    }
+
+    /**
+     * Stores many2one values as ids, whether given as an id or as {@code [id, name]}, and false as null.
+     */
+    private static Object normalize(String model, String field, Object value) {
+        Relation relation = relations.getOrDefault(model, Map.of()).get(field);
+        if (relation != null && relation.inverse() == null) {
+            if (value instanceof List<?> list) {
+                return list.isEmpty() ? null : list.get(0);
+            }
+            return Boolean.FALSE.equals(value) ? null : value;
+        }
+        return value;
+    }
+
+    private Map<String, Object> present(String model, Map<String, Object> record, List<String> fields) {
+        Map<String, Relation> modelRelations = relations.getOrDefault(model, Map.of());
+        Collection<String> names = fields;
+        if (fields == null || fields.isEmpty()) {
+            List<String> all = new ArrayList<>(record.keySet());
+            modelRelations.forEach((field, relation) -> {
+                if (!all.contains(field)) {
+                    all.add(field);
+                }
+            });
+            all.add("display_name");
+            names = all;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", record.get("id"));
+        for (String field : names) {
+            Relation relation = modelRelations.get(field);
+            if ("display_name".equals(field)) {
+                result.put(field, displayName(model, record));
+            } else if (relation == null) {
+                result.put(field, record.get(field));
+            } else if (relation.inverse() != null) {
+                result.put(
+                        field, search(relation.comodel(), List.of(List.of(relation.inverse(), "=", record.get("id")))));
+            } else {
+                Map<String, Object> target = record.get(field) == null
+                        ? null
+                        : model(relation.comodel()).byId.get(record.get(field));
+                result.put(
+                        field,
+                        target == null ? null : List.of(target.get("id"), displayName(relation.comodel(), target)));
+            }
+        }
+        return result;
+    }
+
+    private static String displayName(String model, Map<String, Object> record) {
+        Object name = record.containsKey("display_name") ? record.get("display_name") : record.get("name");
+        return name == null ? model + "," + record.get("id") : name.toString();
+    }
+
+    private static Collection<Map<String, Object>> candidates(Model records, Query query) {
+        if (query.ids() == null) {
+            return records.byId.values();
+        }
+        List<Map<String, Object>> candidates = new ArrayList<>(query.ids().size());
+        for (Integer id : query.ids()) {
+            candidates.add(records.byId.get(id));
+        }
+        return candidates;
+    }
+
+    private Query compile(Model records, String model, List<?> domain) {
+        List<?> terms = domain;
+        // A single leaf is accepted as a domain
+        if (terms.size() == 3 && terms.get(0) instanceof String first && !isOperator(first)) {
+            terms = List.of(terms);
+        }
+        boolean filtersActive = false;
+        Deque<Query> stack = new ArrayDeque<>();
+        // Prefix notation is evaluated from the end
+        for (int i = terms.size() - 1; i >= 0; i--) {
+            Object term = terms.get(i);
+            if (term instanceof String operator && isOperator(operator)) {
+                Query first = stack.pop();
+                switch (operator) {
+                    case "!" -> stack.push(new Query(first.filter().negate(), null));
+                    case "|" -> stack.push(first.or(stack.pop()));
+                    default -> stack.push(first.and(stack.pop()));
+                }
+            } else if (term instanceof List<?> leaf && leaf.size() == 3) {
+                String field = String.valueOf(leaf.get(0));
+                filtersActive |= "active".equals(field);
+                stack.push(leaf(records, model, field, String.valueOf(leaf.get(1)), leaf.get(2)));
+            } else {
+                throw new IllegalArgumentException("Invalid domain term " + term);
+            }
+        }
+        Query query = new Query(record -> true, null);
+        // Remaining terms are implicitly combined with &
+        while (!stack.isEmpty()) {
+            query = query.and(stack.pop());
+        }
+        if (!filtersActive) {
+            query = query.and(new Query(record -> !Boolean.FALSE.equals(record.get("active")), null));
+        }
+        return query;
+    }
+
+    private Query leaf(Model records, String model, String field, String operator, Object value) {
+        // Lists are the values of in and not in, not many2one values
+        Object expected = value instanceof List<?> ? value : normalize(model, field, value);
+        Predicate<Map<String, Object>> filter =
+                switch (operator) {
+                    case "=" -> record -> same(record.get(field), expected);
+                    case "!=", "<>" -> record -> !same(record.get(field), expected);
+                    case "in" -> record -> contains(expected, record.get(field));
+                    case "not in" -> record -> !contains(expected, record.get(field));
+                    case "<", "<=", ">", ">=" -> record -> compare(record.get(field), expected, operator);
+                    case "like", "ilike", "not like", "not ilike", "=like", "=ilike" -> like(field, operator, expected);
+                    default -> throw new IllegalArgumentException("Unsupported domain operator " + operator);
+                };
+        Index index = records.indexes.get(field);
+        return new Query(filter, index == null ? null : index.lookup(operator, expected));
+    }
+
+    private static Predicate<Map<String, Object>> like(String field, String operator, Object expected) {
+        boolean ignoreCase = operator.contains("ilike");
+        String pattern = ignoreCase ? String.valueOf(expected).toLowerCase(Locale.ROOT) : String.valueOf(expected);
+        Predicate<String> matches =
+                operator.startsWith("=") ? text -> text.matches(toRegex(pattern)) : text -> text.contains(pattern);
+        Predicate<Map<String, Object>> predicate = record -> {
+            Object actual = record.get(field);
+            if (actual == null || Boolean.FALSE.equals(actual)) {
+                return false;
+            }
+            String text = actual.toString();
+            return matches.test(ignoreCase ? text.toLowerCase(Locale.ROOT) : text);
+        };
+        return operator.startsWith("not") ? predicate.negate() : predicate;
+    }
+
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            switch (c) {
+                case '%' -> regex.append(".*");
+                case '_' -> regex.append('.');
+                default -> regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    private static Comparator<Map<String, Object>> comparator(String order) {
+        Comparator<Map<String, Object>> comparator = null;
+        for (String term : order.split(",")) {
+            String[] parts = term.trim().split("\\s+");
+            String field = parts[0];
+            Comparator<Map<String, Object>> byField = Comparator.comparing(record -> key(record.get(field)), keyOrder);
+            if (parts.length > 1 && "desc".equalsIgnoreCase(parts[1])) {
+                byField = byField.reversed();
+            }
+            comparator = comparator == null ? byField : comparator.thenComparing(byField);
+        }
+        return comparator.thenComparing(record -> (Integer) record.get("id"));
+    }
+
+    /**
+     * Compares like Odoo, false and empty are the same and numbers are compared by value.
+     */
+    static boolean same(Object actual, Object expected) {
+        Object left = Boolean.FALSE.equals(actual) ? null : actual;
+        Object right = Boolean.FALSE.equals(expected) ? null : expected;
+        if (left instanceof Number l && right instanceof Number r) {
+            return l.doubleValue() == r.doubleValue();
+        }
+        return Objects.equals(left, right);
+    }
+
+    private static boolean contains(Object values, Object actual) {
+        if (values instanceof Collection<?> collection) {
+            for (Object value : collection) {
+                if (same(actual, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return same(actual, values);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean compare(Object actual, Object expected, String operator) {
+        if (actual == null || expected == null || Boolean.FALSE.equals(actual)) {
+            return false;
+        }
+        int comparison;
+        if (actual instanceof Number l && expected instanceof Number r) {
+            comparison = Double.compare(l.doubleValue(), r.doubleValue());
+        } else if (actual instanceof Comparable c && actual.getClass().isInstance(expected)) {
+            comparison = c.compareTo(expected);
+        } else {
+            comparison = actual.toString().compareTo(expected.toString());
+        }
+        return switch (operator) {
+            case "<" -> comparison < 0;
+            case "<=" -> comparison <= 0;
+            case ">" -> comparison > 0;
+            default -> comparison >= 0;
+        };
+    }
+
+    private static boolean isOperator(String term) {
+        return "&".equals(term) || "|".equals(term) || "!".equals(term);
+    }
+
+    /**
+     * @return the index key of a value, numbers that are the same by value have the same key
+     */
+    private static Object key(Object value) {
+        if (value == null || Boolean.FALSE.equals(value)) {
+            return EMPTY;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return number == Math.rint(number) && !Double.isInfinite(number) ? (Object) (long) number : number;
+        }
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value;
+    }
+
+    private static int rank(Object key) {
+        if (key == EMPTY) {
+            return 0;
+        }
+        if (key instanceof Number) {
+            return 1;
+        }
+        return key instanceof String ? 2 : 3;
+    }
+
+    private static int compareKeys(Object left, Object right) {
+        int comparison = Integer.compare(rank(left), rank(right));
+        if (comparison != 0) {
+            return comparison;
+        }
+        return switch (rank(left)) {
+            case 0 -> 0;
+            case 1 -> left instanceof Long l && right instanceof Long r
+                    ? Long.compare(l, r)
+                    : Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+            case 2 -> ((String) left).compareTo((String) right);
+            default -> left.toString().compareTo(right.toString());
+        };
+    }
+
+    /**
+     * A compiled domain, the filter of the records and the ids of the records to test, or null to test all records.
+     */
+    private record Query(Predicate<Map<String, Object>> filter, Set<Integer> ids) {
+
+        Query and(Query other) {
+            Set<Integer> smallest;
+            if (ids == null || other.ids == null) {
+                smallest = ids == null ? other.ids : ids;
+            } else {
+                smallest = ids.size() <= other.ids.size() ? ids : other.ids;
+            }
+            return new Query(filter.and(other.filter), smallest);
+        }
+
+        Query or(Query other) {
+            Set<Integer> union = null;
+            if (ids != null && other.ids != null) {
+                union = new TreeSet<>(ids);
+                union.addAll(other.ids);
+            }
+            return new Query(filter.or(other.filter), union);
+        }
+    }
+
+    /**
+     * The ids of the records by the value of a field. A value of a single record is mapped to its id, a value of
+     * several records to the set of their ids, which saves the memory of a set for unique fields like {@code ref}.
+     * Empty values are not indexed, most records of a model leave most fields empty, so searches for false scan.
+     */
+    private static final class Index {
+
+        private final Map<Object, Object> postings;
+
+        private Index(IndexType type) {
+            postings = type == IndexType.SORTED ? new TreeMap<>(keyOrder) : new HashMap<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(Object value, int id) {
+            Object key = key(value);
+            if (key == EMPTY) {
+                return;
+            }
+            Object ids = postings.get(key);
+            if (ids == null) {
+                postings.put(key, id);
+            } else if (ids instanceof Integer single) {
+                Set<Integer> set = new TreeSet<>();
+                set.add(single);
+                set.add(id);
+                postings.put(key, set);
+            } else {
+                ((Set<Integer>) ids).add(id);
+            }
+        }
+
+        void remove(Object value, int id) {
+            Object key = key(value);
+            Object ids = postings.get(key);
+            if (ids instanceof Integer single) {
+                if (single == id) {
+                    postings.remove(key);
+                }
+            } else if (ids instanceof Set<?> set) {
+                set.remove(id);
+                if (set.size() == 1) {
+                    postings.put(key, set.iterator().next());
+                }
+            }
+        }
+
+        /**
+         * @return the ids of the records the leaf may match, or null if this index does not answer the operator
+         */
+        Set<Integer> lookup(String operator, Object expected) {
+            Set<Integer> ids = new TreeSet<>();
+            switch (operator) {
+                case "=" -> {
+                    if (expected instanceof Collection<?> || key(expected) == EMPTY) {
+                        return null;
+                    }
+                    collect(postings.get(key(expected)), ids);
+                }
+                case "in" -> {
+                    for (Object value : expected instanceof Collection<?> values ? values : List.of(expected)) {
+                        if (key(value) == EMPTY) {
+                            return null;
+                        }
+                        collect(postings.get(key(value)), ids);
+                    }
+                }
+                case "<", "<=", ">", ">=" -> {
+                    Object bound = key(expected);
+                    if (!(postings instanceof NavigableMap<Object, Object> sorted) || lowest(bound) == null) {
+                        return null;
+                    }
+                    boolean inclusive = operator.endsWith("=");
+                    Map<Object, Object> view = operator.startsWith("<")
+                            ? sorted.subMap(lowest(bound), true, bound, inclusive)
+                            : sorted.tailMap(bound, inclusive);
+                    range(view, bound, key -> true).forEach(posting -> collect(posting, ids));
+                }
+                case "=like" -> {
+                    String pattern = String.valueOf(expected);
+                    String prefix = pattern.endsWith("%") ? pattern.substring(0, pattern.length() - 1) : pattern;
+                    if (!(postings instanceof NavigableMap<Object, Object> sorted)
+                            || prefix.contains("%")
+                            || prefix.contains("_")) {
+                        return null;
+                    }
+                    range(sorted.tailMap(prefix, true), prefix, key -> ((String) key).startsWith(prefix))
+                            .forEach(posting -> collect(posting, ids));
+                }
+                default -> {
+                    return null;
+                }
+            }
+            return ids;
+        }
+
+        /**
+         * @return the postings from the start of the view while the keys have the type of the bound and match
+         */
+        private static List<Object> range(Map<Object, Object> view, Object bound, Predicate<Object> matches) {
+            List<Object> postings = new ArrayList<>();
+            for (Map.Entry<Object, Object> entry : view.entrySet()) {
+                if (rank(entry.getKey()) != rank(bound) || !matches.test(entry.getKey())) {
+                    break;
+                }
+                postings.add(entry.getValue());
+            }
+            return postings;
+        }
+
+        /**
+         * @return the lowest key of the type of the key, null if ranges of the type are not indexed
+         */
+        private static Object lowest(Object key) {
+            return switch (rank(key)) {
+                case 1 -> Double.NEGATIVE_INFINITY;
+                case 2 -> "";
+                default -> null;
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static void collect(Object posting, Set<Integer> ids) {
+            if (posting instanceof Integer id) {
+                ids.add(id);
+            } else if (posting != null) {
+                ids.addAll((Set<Integer>) posting);
+            }
+        }
+    }
+
+    private static final class Model {
+
+        private final TreeMap<Integer, Map<String, Object>> byId = new TreeMap<>();
+
+        private final Map<String, Index> indexes = new HashMap<>();
+
+        private int lastId;
+
+        private Model(String model) {
+            defaultIndexes.getOrDefault(model, Map.of()).forEach((field, type) -> indexes.put(field, new Index(type)));
+        }
+    }
+
+    private record Relation(String comodel, String inverse) {
+
+        static Relation many2one(String comodel) {
+            return new Relation(comodel, null);
+        }
+
+        static Relation one2many(String comodel, String inverse) {
+            return new Relation(comodel, inverse);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.odoo.embedded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class OdooModelStoreTest {
+
+    private static final String PARTNER = "res.partner";
+
+    private static final String AGE = "x_age";
+
+    private static final String CODE = "x_code";
+
+    private OdooModelStore store;
+
+    private int alice;
+
+    private int bob;
+
+    private int carol;
+
+    private int dave;
+
+    @BeforeEach
+    public void setUp() {
+        store = new OdooModelStore();
+        store.addIndex(PARTNER, AGE, OdooModelStore.IndexType.SORTED);
+        alice = partner("P0001", "Alice Smith", 34, "alice@example.org");
+        bob = partner("P0002", "Bob Jones", 7, null);
+        carol = partner("P0010", "Carol Smith", 61, "carol@example.org");
+        dave = partner("Q0001", "Dave Brown", 34, null);
+    }
+
+    @Test
+    @DisplayName("should match the comparison operators like Odoo.")
+    public void shouldMatchComparisonOperators() {
+        assertEquals(List.of(bob), search(List.of(List.of("ref", "=", "P0002"))));
+        assertEquals(List.of(alice, carol, dave), search(List.of(List.of("ref", "!=", "P0002"))));
+        assertEquals(List.of(alice, carol, dave), search(List.of(List.of("ref", "<>", "P0002"))));
+        assertEquals(List.of(alice, dave), search(List.of(List.of(AGE, "=", 34.0))));
+        assertEquals(List.of(alice, carol), search(List.of(List.of("ref", "in", List.of("P0001", "P0010", "X")))));
+        assertEquals(List.of(bob, dave), search(List.of(List.of("ref", "not in", List.of("P0001", "P0010")))));
+        assertEquals(List.of(bob), search(List.of(List.of(AGE, "<", 34))));
+        assertEquals(List.of(alice, bob, dave), search(List.of(List.of(AGE, "<=", 34))));
+        assertEquals(List.of(carol), search(List.of(List.of(AGE, ">", 34))));
+        assertEquals(List.of(alice, carol, dave), search(List.of(List.of(AGE, ">=", 34))));
+    }
+
+    @Test
+    @DisplayName("should match false to empty fields.")
+    public void shouldMatchFalseToEmptyFields() {
+        assertEquals(List.of(bob, dave), search(List.of(List.of("email", "=", false))));
+        assertEquals(List.of(alice, carol), search(List.of(List.of("email", "!=", false))));
+        assertEquals(List.of(bob, dave), search(List.of(List.of("email", "in", List.of(false)))));
+    }
+
+    @Test
+    @DisplayName("should match the like operators like Odoo.")
+    public void shouldMatchLikeOperators() {
+        assertEquals(List.of(alice, carol), search(List.of(List.of("name", "like", "Smith"))));
+        assertEquals(List.of(), search(List.of(List.of("name", "like", "smith"))));
+        assertEquals(List.of(alice, carol), search(List.of(List.of("name", "ilike", "smith"))));
+        assertEquals(List.of(bob, dave), search(List.of(List.of("name", "not ilike", "SMITH"))));
+        assertEquals(List.of(bob, carol, dave), search(List.of(List.of("name", "not like", "Alice"))));
+        assertEquals(List.of(alice, bob, carol), search(List.of(List.of("ref", "=like", "P%"))));
+        assertEquals(List.of(alice, bob), search(List.of(List.of("ref", "=like", "P000_"))));
+        assertEquals(List.of(carol), search(List.of(List.of("name", "=ilike", "carol%"))));
+        // Empty fields never match like, so they match not like
+        assertEquals(List.of(alice, carol), search(List.of(List.of("email", "like", "example"))));
+        assertEquals(List.of(bob, dave), search(List.of(List.of("email", "not like", "example"))));
+    }
+
+    @Test
+    @DisplayName("should reject unsupported operators and malformed terms.")
+    public void shouldRejectInvalidDomains() {
+        assertThrows(IllegalArgumentException.class, () -> search(List.of(List.of("ref", "child_of", 1))));
+        assertThrows(IllegalArgumentException.class, () -> search(List.of(List.of("ref", "="))));
+    }
+
+    @Test
+    @DisplayName("should evaluate the prefix operators of domains.")
+    public void shouldEvaluatePrefixOperators() {
+        List<Object> smith = List.of("name", "ilike", "smith");
+        List<Object> young = List.of(AGE, "<", 40);
+        List<Object> withEmail = List.of("email", "!=", false);
+
+        assertEquals(List.of(alice, bob, carol, dave), search(List.of("|", smith, young)));
+        assertEquals(List.of(bob, dave), search(List.of("!", smith)));
+        assertEquals(List.of(alice), search(List.of("&", smith, young)));
+        // Leaves are implicitly combined with &
+        assertEquals(List.of(alice), search(List.of(smith, young)));
+        // ! applies to the next term only: (not smith) or young
+        assertEquals(List.of(alice, bob, dave), search(List.of("|", "!", smith, young)));
+        // not (smith or young)
+        assertEquals(List.of(), search(List.of("!", "|", smith, young)));
+        // smith and (young or with email), then implicitly and the last leaf
+        assertEquals(List.of(alice, carol), search(List.of("&", smith, "|", young, withEmail)));
+        assertEquals(List.of(carol), search(List.of("&", smith, "|", young, withEmail, List.of(AGE, ">", 40))));
+        // | of three terms is written with two operators
+        assertEquals(
+                List.of(alice, bob, dave),
+                search(List.of(
+                        "|", "|", List.of("ref", "=", "P0001"), List.of("ref", "=", "P0002"), List.of(AGE, "=", 34))));
+    }
+
+    @Test
+    @DisplayName("should accept a single leaf as a domain.")
+    public void shouldAcceptSingleLeaf() {
+        assertEquals(List.of(carol), store.search(PARTNER, List.of("ref", "=", "P0010")));
+    }
+
+    @Test
+    @DisplayName("should hide archived records unless the domain mentions active.")
+    public void shouldHideArchivedRecords() {
+        store.write(PARTNER, List.of(bob), Map.of("active", false));
+
+        assertEquals(List.of(alice, carol, dave), search(List.of()));
+        assertEquals(List.of(), search(List.of(List.of("ref", "=", "P0002"))));
+        assertEquals(List.of(bob), search(List.of(List.of("active", "=", false))));
+        assertEquals(
+                List.of(alice, bob),
+                search(List.of(
+                        List.of("active", "in", List.of(true, false)),
+                        List.of(AGE, "<", 40),
+                        List.of("name", "not like", "Dave"))));
+    }
+
+    @Test
+    @DisplayName("should answer range queries of sorted indexes like a scan.")
+    public void shouldAnswerSortedIndexRanges() {
+        OdooModelStore indexed = new OdooModelStore();
+        indexed.addIndex(PARTNER, AGE, OdooModelStore.IndexType.SORTED);
+        indexed.addIndex(PARTNER, CODE, OdooModelStore.IndexType.SORTED);
+        OdooModelStore scanned = new OdooModelStore();
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put(CODE, String.format("R%04d", i % 150));
+            values.put("name", "Patient " + i);
+            // Mixes integers, doubles equal to them and empty values, which range queries skip
+            values.put(AGE, i % 10 == 0 ? null : i % 7 == 0 ? (Object) (i / 2.0) : (Object) (i / 2));
+            indexed.create(PARTNER, values);
+            scanned.create(PARTNER, values);
+        }
+
+        for (String operator : List.of("<", "<=", ">", ">=")) {
+            for (Object bound : List.of(0, 10, 10.5, 49, 49.0, 99, 100, 1000, -1)) {
+                List<?> domain = List.of(List.of(AGE, operator, bound));
+                assertEquals(scanned.search(PARTNER, domain), indexed.search(PARTNER, domain), domain.toString());
+            }
+            for (String bound : List.of("R0000", "R0075", "R0149", "R9999", "A")) {
+                List<?> domain = List.of(List.of(CODE, operator, bound));
+                assertEquals(scanned.search(PARTNER, domain), indexed.search(PARTNER, domain), domain.toString());
+            }
+        }
+        for (String prefix : List.of("R00%", "R01", "R014%", "S%", "R0%")) {
+            List<?> domain = List.of(List.of(CODE, "=like", prefix));
+            assertEquals(scanned.search(PARTNER, domain), indexed.search(PARTNER, domain), domain.toString());
+        }
+        List<?> between = List.of("&", List.of(AGE, ">=", 20), List.of(AGE, "<", 30.5));
+        assertEquals(scanned.search(PARTNER, between), indexed.search(PARTNER, between));
+        // Records 40 to 61, but the empty ages of 40, 50 and 60
+        assertEquals(19, indexed.search(PARTNER, between).size());
+    }
+
+    @Test
+    @DisplayName("should keep indexes in sync with writes and deletes.")
+    public void shouldUpdateIndexesOnWrite() {
+        store.write(PARTNER, List.of(bob), Map.of(AGE, 70, "ref", "Q0002"));
+        store.unlink(PARTNER, List.of(carol));
+
+        assertEquals(List.of(bob), search(List.of(List.of(AGE, ">", 40))));
+        assertEquals(List.of(dave, bob), search(List.of(List.of("ref", "=like", "Q%")), "ref"));
+        assertEquals(List.of(alice), search(List.of(List.of("ref", "<", "Q"))));
+        assertEquals(List.of(), search(List.of(List.of("ref", "=", "P0010"))));
+    }
+
+    @Test
+    @DisplayName("should sort and page search results.")
+    public void shouldSortAndPage() {
+        assertEquals(List.of(carol, alice, dave, bob), search(List.of(), AGE + " desc, name"));
+        assertEquals(List.of(carol, bob), store.search(PARTNER, List.of(), 1, 2, "name desc"));
+        assertEquals(List.of(bob, carol), store.search(PARTNER, List.of(), 1, 2, null));
+    }
+
+    private int partner(String ref, String name, int age, String email) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("ref", ref);
+        values.put("name", name);
+        values.put(AGE, age);
+        values.put("email", email);
+        return store.create(PARTNER, values);
+    }
+
+    private List<Integer> search(List<?> domain) {
+        return store.search(PARTNER, domain);
+    }
+
+    private List<Integer> search(List<?> domain, String order) {
+        return store.search(PARTNER, domain, 0, 0, order);
+    }
+}
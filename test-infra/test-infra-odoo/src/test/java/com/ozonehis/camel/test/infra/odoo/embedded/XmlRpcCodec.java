@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.odoo.embedded;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Decodes XML-RPC calls and encodes responses the way Odoo does. Calls may use the Apache XML-RPC extensions, e.g.
+ * {@code ex:i8} and {@code ex:nil}, responses only use standard types and encode null as false like Odoo.
+ */
+final class XmlRpcCodec {
+
+    private static final XMLInputFactory inputFactory = createInputFactory();
+
+    private XmlRpcCodec() {}
+
+    /**
+     * A decoded call, arrays are decoded to lists and structs to maps.
+     */
+    record MethodCall(String methodName, List<Object> params) {}
+
+    static MethodCall decodeCall(InputStream is) throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(is, UTF_8.name());
+        try {
+            String methodName = null;
+            List<Object> params = new ArrayList<>();
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamReader.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "methodName" -> methodName = reader.getElementText().trim();
+                    case "value" -> params.add(decodeValue(reader));
+                    default -> {
+                        // methodCall, params and param only wrap values
+                    }
+                }
+            }
+            if (methodName == null) {
+                throw new XMLStreamException("Not an XML-RPC call, no method name");
+            }
+            return new MethodCall(methodName, params);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Decodes the value the reader is positioned on, and leaves the reader on its end.
+     */
+    private static Object decodeValue(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        Object value = null;
+        boolean typed = false;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamReader.CHARACTERS, XMLStreamReader.CDATA, XMLStreamReader.SPACE -> text.append(
+                        reader.getText());
+                case XMLStreamReader.START_ELEMENT -> {
+                    typed = true;
+                    value = decodeTyped(reader);
+                }
+                case XMLStreamReader.END_ELEMENT -> {
+                    // An untyped value is a string
+                    return typed ? value : text.toString();
+                }
+                default -> {}
+            }
+        }
+    }
+
+    private static Object decodeTyped(XMLStreamReader reader) throws XMLStreamException {
+        String type = reader.getLocalName();
+        return switch (type) {
+            case "int", "i4", "i2", "i1" -> Integer.valueOf(
+                    reader.getElementText().trim());
+            case "i8" -> Long.valueOf(reader.getElementText().trim());
+            case "boolean" -> "1".equals(reader.getElementText().trim());
+            case "double", "float" -> Double.valueOf(reader.getElementText().trim());
+            case "string", "dateTime.iso8601" -> reader.getElementText();
+            case "base64" -> Base64.getMimeDecoder()
+                    .decode(reader.getElementText().trim());
+            case "nil" -> {
+                skipToEnd(reader);
+                yield null;
+            }
+            case "array" -> decodeArray(reader);
+            case "struct" -> decodeStruct(reader);
+            default -> throw new XMLStreamException("Unsupported XML-RPC type " + type);
+        };
+    }
+
+    private static List<Object> decodeArray(XMLStreamReader reader) throws XMLStreamException {
+        List<Object> values = new ArrayList<>();
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT && "value".equals(reader.getLocalName())) {
+                values.add(decodeValue(reader));
+            } else if (event == XMLStreamReader.END_ELEMENT && "array".equals(reader.getLocalName())) {
+                return values;
+            }
+        }
+    }
+
+    private static Map<String, Object> decodeStruct(XMLStreamReader reader) throws XMLStreamException {
+        Map<String, Object> members = new LinkedHashMap<>();
+        String name = null;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                if ("name".equals(reader.getLocalName())) {
+                    name = reader.getElementText();
+                } else if ("value".equals(reader.getLocalName())) {
+                    members.put(name, decodeValue(reader));
+                }
+            } else if (event == XMLStreamReader.END_ELEMENT && "struct".equals(reader.getLocalName())) {
+                return members;
+            }
+        }
+    }
+
+    private static void skipToEnd(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    static byte[] encodeResponse(Object result) {
+        StringBuilder xml = new StringBuilder(256)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<methodResponse><params><param>");
+        encodeValue(result, xml);
+        return xml.append("</param></params></methodResponse>").toString().getBytes(UTF_8);
+    }
+
+    static byte[] encodeFault(int code, String message) {
+        StringBuilder xml = new StringBuilder(256)
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<methodResponse><fault>");
+        Map<String, Object> fault = new LinkedHashMap<>();
+        fault.put("faultCode", code);
+        fault.put("faultString", message);
+        encodeValue(fault, xml);
+        return xml.append("</fault></methodResponse>").toString().getBytes(UTF_8);
+    }
+
+    private static void encodeValue(Object value, StringBuilder xml) {
+        xml.append("<value>");
+        if (value == null || value instanceof Boolean) {
+            // Odoo answers False for empty values
+            xml.append("<boolean>")
+                    .append(Boolean.TRUE.equals(value) ? '1' : '0')
+                    .append("</boolean>");
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            xml.append("<int>").append(value).append("</int>");
+        } else if (value instanceof Long l && l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+            xml.append("<int>").append(l).append("</int>");
+        } else if (value instanceof Number n) {
+            xml.append("<double>").append(n.doubleValue()).append("</double>");
+        } else if (value instanceof byte[] bytes) {
+            xml.append("<base64>")
+                    .append(Base64.getEncoder().encodeToString(bytes))
+                    .append("</base64>");
+        } else if (value instanceof Map<?, ?> map) {
+            xml.append("<struct>");
+            for (Map.Entry<?, ?> member : map.entrySet()) {
+                xml.append("<member><name>");
+                escape(String.valueOf(member.getKey()), xml);
+                xml.append("</name>");
+                encodeValue(member.getValue(), xml);
+                xml.append("</member>");
+            }
+            xml.append("</struct>");
+        } else if (value instanceof Collection<?> || value instanceof Object[]) {
+            xml.append("<array><data>");
+            for (Object element : value instanceof Object[] array ? List.of(array) : (Collection<?>) value) {
+                encodeValue(element, xml);
+            }
+            xml.append("</data></array>");
+        } else {
+            xml.append("<string>");
+            escape(value.toString(), xml);
+            xml.append("</string>");
+        }
+        xml.append("</value>");
+    }
+
+    private static void escape(String text, StringBuilder xml) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> xml.append("&amp;");
+                case '<' -> xml.append("&lt;");
+                case '>' -> xml.append("&gt;");
+                case '\r' -> xml.append("&#13;");
+                default -> xml.append(c);
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.odoo.services;
+
+import com.ozonehis.camel.test.infra.odoo.common.OdooProperties;
+import com.ozonehis.camel.test.infra.odoo.embedded.EmbeddedOdooServer;
+import com.ozonehis.camel.test.infra.odoo.embedded.OdooModelStore;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An Odoo served in-process by an {@link EmbeddedOdooServer}, which starts in milliseconds. Selected with
+ * {@code -Dodoo.instance.type=embedded}, it listens on {@value OdooProperties#DEFAULT_EMBEDDED_PORT} unless
+ * {@value OdooProperties#ODOO_EMBEDDED_PORT} is set. It starts empty, the products and units of measure the Ozone
+ * distro loads into Odoo are seeded through {@link #getStore()}, also reachable through the singleton service.
+ */
+@Slf4j
+public class OdooEmbeddedService implements OdooService {
+
+    private final EmbeddedOdooServer server;
+
+    public OdooEmbeddedService() {
+        this(Integer.getInteger(OdooProperties.ODOO_EMBEDDED_PORT, OdooProperties.DEFAULT_EMBEDDED_PORT));
+    }
+
+    public OdooEmbeddedService(int port) {
+        this.server = new EmbeddedOdooServer(port);
+    }
+
+    @Override
+    public int getPort() {
+        return server.getPort();
+    }
+
+    @Override
+    public String getHost() {
+        return server.getHost();
+    }
+
+    @Override
+    public OdooModelStore getStore() {
+        return server.getStore();
+    }
+
+    @Override
+    public void registerProperties() {
+        System.setProperty(OdooProperties.ODOO_HOST, getHost());
+        System.setProperty(OdooProperties.ODOO_PORT, String.valueOf(getPort()));
+    }
+
+    @Override
+    public void initialize() {
+        log.info("Starting the embedded Odoo...");
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        registerProperties();
+        log.info("Embedded Odoo started");
+    }
+
+    @Override
+    public void shutdown() {
+        server.close();
+        log.info("Embedded Odoo stopped.");
+    }
+}
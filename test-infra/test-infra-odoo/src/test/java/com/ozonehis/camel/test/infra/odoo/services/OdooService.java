@@ -7,6 +7,7 @@
  */
 package com.ozonehis.camel.test.infra.odoo.services;
 
+import com.ozonehis.camel.test.infra.odoo.embedded.OdooModelStore;
 import org.apache.camel.test.infra.common.services.TestService;
 
 public interface OdooService extends TestService {
@@ -18,4 +19,11 @@ public interface OdooService extends TestService {
     default String getHttpHostAddress() {
         return String.format("%s:%d", getHost(), getPort());
     }
+
+    /**
+     * @return the records of an embedded Odoo, e.g. to seed products, null if Odoo runs in a container
+     */
+    default OdooModelStore getStore() {
+        return null;
+    }
 }
@@ -7,6 +7,7 @@
  */
 package com.ozonehis.camel.test.infra.odoo.services;
 
+import com.ozonehis.camel.test.infra.odoo.embedded.OdooModelStore;
 import lombok.NoArgsConstructor;
 import org.apache.camel.test.infra.common.services.SimpleTestServiceBuilder;
 import org.apache.camel.test.infra.common.services.SingletonService;
@@ -33,6 +34,11 @@ public class OdooServiceFactory {
         public String getHttpHostAddress() {
             return getService().getHttpHostAddress();
         }
+
+        @Override
+        public OdooModelStore getStore() {
+            return getService().getStore();
+        }
     }
 
     public static SimpleTestServiceBuilder<OdooService> builder() {
@@ -40,7 +46,10 @@ public class OdooServiceFactory {
     }
 
     public static OdooService createService() {
-        return builder().addLocalMapping(OdooLocalContainerService::new).build();
+        return builder()
+                .addLocalMapping(OdooLocalContainerService::new)
+                .addMapping("embedded", OdooEmbeddedService::new)
+                .build();
     }
 
     public static OdooService createSingletonService() {
@@ -54,6 +63,7 @@ public class OdooServiceFactory {
         static {
             SimpleTestServiceBuilder<OdooService> instance = builder();
             instance.addLocalMapping(() -> new SingletonOdooService(new OdooLocalContainerService(), "odoo"));
+            instance.addMapping("embedded", () -> new SingletonOdooService(new OdooEmbeddedService(), "odoo"));
             INSTANCE = instance.build();
         }
     }
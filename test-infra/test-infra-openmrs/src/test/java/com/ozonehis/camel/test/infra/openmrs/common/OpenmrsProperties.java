@@ -0,0 +1,25 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.common;
+
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+public final class OpenmrsProperties {
+
+    public static final String OPENMRS_HOST = "openmrs.host";
+
+    public static final String OPENMRS_PORT = "openmrs.port";
+
+    public static final String OPENMRS_EMBEDDED_PORT = "openmrs.embedded.port";
+
+    /**
+     * The port of the embedded OpenMRS, the port the route tests configure the FHIR client with.
+     */
+    public static final int DEFAULT_EMBEDDED_PORT = 8080;
+}
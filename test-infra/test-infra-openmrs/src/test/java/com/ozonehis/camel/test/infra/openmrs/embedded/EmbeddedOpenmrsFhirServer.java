@@ -0,0 +1,494 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.embedded;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.IParser;
+import com.ozonehis.camel.test.infra.openmrs.embedded.FhirResourceStore.StoredResource;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.CapabilityStatement;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Resource;
+
+/**
+ * An in-process stand-in for the OpenMRS FHIR R4 API, backed by a {@link FhirResourceStore}. It serves the
+ * capability statement, reads, searches, creates, updates and deletes of resources of any type under
+ * {@value #FHIR_PATH}, so the EIP FHIR client runs against it unchanged and sees the resources tests create, unlike
+ * stubbed responses.
+ *
+ * <p>Searches are answered in pages of {@code _count} resources, {@value #DEFAULT_PAGE_SIZE} by default and at most
+ * {@value #MAXIMUM_PAGE_SIZE} like OpenMRS, with links to the next and previous pages. The search parameters are those
+ * of the {@link FhirResourceStore}, {@code _sort} takes {@code date}, {@code _lastUpdated} and {@code _id}, and
+ * {@code _summary=count} and {@code _count=0} only count. Other parameters are rejected rather than ignored, so a test does not pass on
+ * results a real server would have filtered.
+ *
+ * <p>Responses are only sent without delay with {@code -Dsun.net.httpserver.nodelay=true}, see
+ * {@code EmbeddedOdooServer}.
+ *
+ * <pre>{@code
+ * try (EmbeddedOpenmrsFhirServer openmrs = new EmbeddedOpenmrsFhirServer(0).start()) {
+ *     openmrs.getStore().load(FhirDataset.RICHARD_JONES);
+ *     IGenericClient client = fhirContext.newRestfulGenericClient(openmrs.getFhirBaseUrl());
+ *     ...
+ * }
+ * }</pre>
+ */
+@Slf4j
+public class EmbeddedOpenmrsFhirServer implements AutoCloseable {
+
+    public static final String FHIR_PATH = "/openmrs/ws/fhir2/R4";
+
+    public static final int DEFAULT_PAGE_SIZE = 10;
+
+    public static final int MAXIMUM_PAGE_SIZE = 100;
+
+    private static final String FHIR_JSON = "application/fhir+json;charset=utf-8";
+
+    /**
+     * The resource types advertised by the capability statement, all types are served.
+     */
+    private static final List<String> RESOURCE_TYPES = List.of(
+            "Patient",
+            "Encounter",
+            "Observation",
+            "MedicationRequest",
+            "ServiceRequest",
+            "SupplyRequest",
+            "Medication",
+            "Location",
+            "Practitioner");
+
+    private final int port;
+
+    private final FhirResourceStore store = new FhirResourceStore();
+
+    private final String capabilityStatement = parser().encodeResourceToString(capabilityStatement());
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     */
+    public EmbeddedOpenmrsFhirServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Starts listening on the loopback interface.
+     *
+     * @return this server
+     */
+    public EmbeddedOpenmrsFhirServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(FHIR_PATH, this::handle);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "embedded-openmrs-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Embedded OpenMRS FHIR API listening on {}", getFhirBaseUrl());
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    public String getHost() {
+        return server == null
+                ? InetAddress.getLoopbackAddress().getHostAddress()
+                : server.getAddress().getHostString();
+    }
+
+    /**
+     * @return the base URL of the FHIR API, as configured for the EIP FHIR client
+     */
+    public String getFhirBaseUrl() {
+        return "http://" + getHost() + ":" + getPort() + FHIR_PATH;
+    }
+
+    /**
+     * @return the resources served, e.g. to load a dataset or to check what a route created
+     */
+    public FhirResourceStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Response response;
+        try (InputStream is = exchange.getRequestBody()) {
+            response = dispatch(exchange, new String(is.readAllBytes(), UTF_8));
+        } catch (FhirFault e) {
+            response = outcome(e.status, e.getMessage());
+        } catch (DataFormatException | IllegalArgumentException e) {
+            response = outcome(400, e.getMessage());
+        } catch (Exception e) {
+            log.debug("Failed to handle a FHIR request", e);
+            response = outcome(500, String.valueOf(e));
+        }
+        byte[] body = response.body().getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", FHIR_JSON);
+        response.headers()
+                .forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private Response dispatch(HttpExchange exchange, String body) {
+        String method = exchange.getRequestMethod();
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        String baseUrl = host == null ? getFhirBaseUrl() : "http://" + host + FHIR_PATH;
+        List<String> segments = new ArrayList<>();
+        for (String segment : exchange.getRequestURI()
+                .getRawPath()
+                .substring(FHIR_PATH.length())
+                .split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, UTF_8));
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new FhirFault(400, "Unsupported request " + method + " " + exchange.getRequestURI());
+        }
+        String type = segments.get(0);
+        if (segments.size() == 1 && "metadata".equals(type) && "GET".equals(method)) {
+            return new Response(200, capabilityStatement, Map.of());
+        }
+        if (!isResourceType(type)) {
+            throw new FhirFault(404, "Unknown resource type " + type);
+        }
+        Map<String, List<String>> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        boolean isSearch = segments.size() == 2 && "_search".equals(segments.get(1));
+        if ("GET".equals(method) && (segments.size() == 1 || isSearch)) {
+            return search(baseUrl, type, query);
+        }
+        if ("POST".equals(method) && isSearch) {
+            parseQuery(body).forEach((name, values) -> query.computeIfAbsent(name, key -> new ArrayList<>())
+                    .addAll(values));
+            return search(baseUrl, type, query);
+        }
+        if (segments.size() == 1 && "POST".equals(method)) {
+            return create(baseUrl, type, body);
+        }
+        if (segments.size() == 2) {
+            String id = segments.get(1);
+            switch (method) {
+                case "GET" -> {
+                    return read(type, id);
+                }
+                case "PUT" -> {
+                    return update(baseUrl, type, id, body);
+                }
+                case "DELETE" -> {
+                    if (!store.delete(type, id)) {
+                        throw new FhirFault(404, "Resource " + type + "/" + id + " is not known");
+                    }
+                    return outcome(200, "Successfully deleted " + type + "/" + id);
+                }
+                default -> {}
+            }
+        }
+        throw new FhirFault(405, "Unsupported request " + method + " " + exchange.getRequestURI());
+    }
+
+    private Response read(String type, String id) {
+        StoredResource stored = store.read(type, id)
+                .orElseThrow(() -> new FhirFault(404, "Resource " + type + "/" + id + " is not known"));
+        return new Response(200, stored.json(), Map.of("ETag", "W/\"" + stored.version() + "\""));
+    }
+
+    private Response create(String baseUrl, String type, String body) {
+        Resource resource = parse(type, body);
+        StoredResource stored = store.putIfAbsent(resource)
+                .orElseThrow(() -> new FhirFault(
+                        409, "Resource " + type + "/" + resource.getIdElement().getIdPart() + " exists"));
+        return written(baseUrl, type, 201, stored);
+    }
+
+    private Response update(String baseUrl, String type, String id, String body) {
+        Resource resource = parse(type, body);
+        if (resource.getIdElement().hasIdPart()
+                && !id.equals(resource.getIdElement().getIdPart())) {
+            throw new FhirFault(400, "The id of the resource is not " + id);
+        }
+        resource.setId(id);
+        StoredResource stored = store.put(resource);
+        return written(baseUrl, type, stored.version() == 1 ? 201 : 200, stored);
+    }
+
+    private static Response written(String baseUrl, String type, int status, StoredResource stored) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Location", baseUrl + "/" + type + "/" + stored.id() + "/_history/" + stored.version());
+        headers.put("ETag", "W/\"" + stored.version() + "\"");
+        return new Response(status, stored.json(), headers);
+    }
+
+    private Response search(String baseUrl, String type, Map<String, List<String>> query) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        int count = DEFAULT_PAGE_SIZE;
+        int offset = 0;
+        String sort = null;
+        boolean summaryCount = false;
+        for (Map.Entry<String, List<String>> parameter : query.entrySet()) {
+            String value = parameter.getValue().get(parameter.getValue().size() - 1);
+            switch (parameter.getKey()) {
+                case "_count" -> count = Math.min(nonNegative("_count", value), MAXIMUM_PAGE_SIZE);
+                case "_getpagesoffset" -> offset = nonNegative("_getpagesoffset", value);
+                case "_sort" -> sort = value;
+                case "_summary" -> summaryCount = "count".equals(value);
+                case "_format", "_pretty", "_total" -> {
+                    // Responses are always JSON with totals
+                }
+                default -> {
+                    String name = withoutTypeModifier(parameter.getKey());
+                    if (!FhirResourceStore.isSupported(name)) {
+                        throw new FhirFault(400, "Unsupported search parameter " + parameter.getKey());
+                    }
+                    parameters.computeIfAbsent(name, key -> new ArrayList<>()).addAll(parameter.getValue());
+                }
+            }
+        }
+        // An empty page would link to itself as the next page
+        summaryCount |= count == 0;
+        List<StoredResource> matches = store.search(type, parameters, sort);
+        List<StoredResource> page = summaryCount
+                ? List.of()
+                : matches.subList(Math.min(offset, matches.size()), Math.min(offset + count, matches.size()));
+
+        StringBuilder json = new StringBuilder(256 + page.size() * 1024)
+                .append("{\"resourceType\":\"Bundle\",\"id\":\"")
+                .append(UUID.randomUUID())
+                .append("\",\"meta\":{\"lastUpdated\":\"")
+                .append(Instant.now())
+                .append("\"},\"type\":\"searchset\",\"total\":")
+                .append(matches.size())
+                .append(",\"link\":[");
+        String searchUrl = baseUrl + "/" + type + "?" + encodeQuery(query);
+        link(json, "self", searchUrl);
+        if (!summaryCount && offset + count < matches.size()) {
+            json.append(',');
+            link(json, "next", pageUrl(baseUrl, type, query, offset + count, count));
+        }
+        if (!summaryCount && offset > 0) {
+            json.append(',');
+            link(json, "previous", pageUrl(baseUrl, type, query, Math.max(offset - count, 0), count));
+        }
+        json.append(']');
+        if (!page.isEmpty()) {
+            json.append(",\"entry\":[");
+            for (int i = 0; i < page.size(); i++) {
+                StoredResource stored = page.get(i);
+                json.append(i == 0 ? "" : ",").append("{\"fullUrl\":\"");
+                escape(baseUrl + "/" + type + "/" + stored.id(), json);
+                json.append("\",\"resource\":").append(stored.json()).append(",\"search\":{\"mode\":\"match\"}}");
+            }
+            json.append(']');
+        }
+        return new Response(200, json.append('}').toString(), Map.of());
+    }
+
+    private static String pageUrl(String baseUrl, String type, Map<String, List<String>> query, int offset, int count) {
+        Map<String, List<String>> pageQuery = new LinkedHashMap<>(query);
+        pageQuery.put("_count", List.of(String.valueOf(count)));
+        pageQuery.put("_getpagesoffset", List.of(String.valueOf(offset)));
+        return baseUrl + "/" + type + "?" + encodeQuery(pageQuery);
+    }
+
+    private static void link(StringBuilder json, String relation, String url) {
+        json.append("{\"relation\":\"").append(relation).append("\",\"url\":\"");
+        escape(url, json);
+        json.append("\"}");
+    }
+
+    private static void escape(String text, StringBuilder json) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\');
+            }
+            json.append(c);
+        }
+    }
+
+    /**
+     * @return the name of a reference parameter without its type, e.g. {@code subject} of {@code subject:Patient}
+     */
+    private static String withoutTypeModifier(String name) {
+        int colon = name.indexOf(':');
+        if (colon < 0) {
+            return name;
+        }
+        if (colon + 1 < name.length() && Character.isUpperCase(name.charAt(colon + 1))) {
+            return name.substring(0, colon);
+        }
+        throw new FhirFault(400, "Unsupported search modifier " + name);
+    }
+
+    private static int nonNegative(String name, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Answered below
+        }
+        throw new FhirFault(400, "Invalid " + name + " " + value);
+    }
+
+    private static Map<String, List<String>> parseQuery(String query) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), UTF_8);
+            parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    private static String encodeQuery(Map<String, List<String>> query) {
+        StringBuilder encoded = new StringBuilder();
+        query.forEach((name, values) -> {
+            for (String value : values) {
+                encoded.append(encoded.length() == 0 ? "" : "&")
+                        .append(URLEncoder.encode(name, UTF_8))
+                        .append('=')
+                        .append(URLEncoder.encode(value, UTF_8));
+            }
+        });
+        return encoded.toString();
+    }
+
+    /**
+     * @return whether the type is a FHIR resource type, types are case-sensitive
+     */
+    private static boolean isResourceType(String type) {
+        try {
+            return FhirResourceParser.fhirContext()
+                    .getResourceDefinition(type)
+                    .getName()
+                    .equals(type);
+        } catch (DataFormatException e) {
+            return false;
+        }
+    }
+
+    private static Resource parse(String type, String body) {
+        Resource resource = (Resource) parser().parseResource(body);
+        if (!type.equals(resource.fhirType())) {
+            throw new FhirFault(400, "Expected a " + type + " but got a " + resource.fhirType());
+        }
+        return resource;
+    }
+
+    private static Response outcome(int status, String message) {
+        OperationOutcome outcome = new OperationOutcome();
+        outcome.addIssue()
+                .setSeverity(
+                        status < 400
+                                ? OperationOutcome.IssueSeverity.INFORMATION
+                                : OperationOutcome.IssueSeverity.ERROR)
+                .setCode(status == 404 ? OperationOutcome.IssueType.NOTFOUND : OperationOutcome.IssueType.PROCESSING)
+                .setDiagnostics(message);
+        return new Response(status, parser().encodeResourceToString(outcome), Map.of());
+    }
+
+    private static IParser parser() {
+        return FhirResourceParser.fhirContext().newJsonParser();
+    }
+
+    private static CapabilityStatement capabilityStatement() {
+        CapabilityStatement capabilityStatement = new CapabilityStatement();
+        capabilityStatement
+                .setStatus(Enumerations.PublicationStatus.ACTIVE)
+                .setDate(new Date())
+                .setKind(CapabilityStatement.CapabilityStatementKind.INSTANCE)
+                .setFhirVersion(Enumerations.FHIRVersion._4_0_1)
+                .addFormat("application/fhir+json");
+        capabilityStatement.getSoftware().setName("Embedded OpenMRS FHIR API");
+        CapabilityStatement.CapabilityStatementRestComponent rest =
+                capabilityStatement.addRest().setMode(CapabilityStatement.RestfulCapabilityMode.SERVER);
+        for (String type : RESOURCE_TYPES) {
+            CapabilityStatement.CapabilityStatementRestResourceComponent resource =
+                    rest.addResource().setType(type);
+            for (CapabilityStatement.TypeRestfulInteraction interaction : List.of(
+                    CapabilityStatement.TypeRestfulInteraction.READ,
+                    CapabilityStatement.TypeRestfulInteraction.SEARCHTYPE,
+                    CapabilityStatement.TypeRestfulInteraction.CREATE,
+                    CapabilityStatement.TypeRestfulInteraction.UPDATE,
+                    CapabilityStatement.TypeRestfulInteraction.DELETE)) {
+                resource.addInteraction().setCode(interaction);
+            }
+        }
+        return capabilityStatement;
+    }
+
+    private record Response(int status, String body, Map<String, String> headers) {}
+
+    /**
+     * An error answered to the client as an OperationOutcome with the status.
+     */
+    private static final class FhirFault extends RuntimeException {
+
+        private final int status;
+
+        private FhirFault(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.embedded;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class EmbeddedOpenmrsFhirServerTest {
+
+    private static final String PATIENT_UUID = "79355a93-3a4f-4490-98aa-278f922fa87c";
+
+    private static final String OTHER_PATIENT_UUID = "3ee4f5fc-6299-4c0e-a56e-dad957118edc";
+
+    private static final String ENCOUNTER_UUID = "7216f786-de19-43ce-888b-9de5b011f1ff";
+
+    private static final String OTHER_ENCOUNTER_UUID = "4d6d21cc-a6a5-4714-9c44-631d9d4cb3fc";
+
+    private EmbeddedOpenmrsFhirServer server;
+
+    private IGenericClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new EmbeddedOpenmrsFhirServer(0).start();
+        client = FhirResourceParser.fhirContext().newRestfulGenericClient(server.getFhirBaseUrl());
+
+        Patient patient = new Patient();
+        patient.setId(PATIENT_UUID);
+        patient.addName().setFamily("Doe").addGiven("Jane");
+        Patient otherPatient = new Patient();
+        otherPatient.setId(OTHER_PATIENT_UUID);
+        server.getStore()
+                .load(Stream.of(
+                        patient,
+                        otherPatient,
+                        encounter(ENCOUNTER_UUID, PATIENT_UUID),
+                        encounter(OTHER_ENCOUNTER_UUID, PATIENT_UUID),
+                        observation("weight-1", PATIENT_UUID, ENCOUNTER_UUID),
+                        observation("weight-2", PATIENT_UUID, OTHER_ENCOUNTER_UUID),
+                        observation("weight-3", OTHER_PATIENT_UUID, null),
+                        medicationRequest("aspirin-1", PATIENT_UUID, ENCOUNTER_UUID)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("should read stored resources by id.")
+    public void shouldReadResource() {
+        Patient patient =
+                client.read().resource(Patient.class).withId(PATIENT_UUID).execute();
+
+        assertEquals(PATIENT_UUID, patient.getIdElement().getIdPart());
+        assertEquals("Doe", patient.getNameFirstRep().getFamily());
+        assertEquals("1", patient.getMeta().getVersionId());
+        assertThrows(
+                ResourceNotFoundException.class,
+                () -> client.read().resource(Patient.class).withId("unknown").execute());
+    }
+
+    @Test
+    @DisplayName("should search resources by patient and by encounter.")
+    public void shouldSearchByPatientAndEncounter() {
+        assertEquals(
+                Set.of("weight-1", "weight-2"),
+                ids(client.search()
+                        .forResource(Observation.class)
+                        .where(Observation.PATIENT.hasId(PATIENT_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+        assertEquals(
+                Set.of("weight-3"),
+                ids(client.search()
+                        .forResource(Observation.class)
+                        .where(Observation.SUBJECT.hasId("Patient/" + OTHER_PATIENT_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+        assertEquals(
+                Set.of("weight-1"),
+                ids(client.search()
+                        .forResource(Observation.class)
+                        .where(Observation.ENCOUNTER.hasId(ENCOUNTER_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+        assertEquals(
+                Set.of("weight-2"),
+                ids(client.search()
+                        .forResource(Observation.class)
+                        .where(Observation.PATIENT.hasId(PATIENT_UUID))
+                        .and(Observation.ENCOUNTER.hasId(OTHER_ENCOUNTER_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+        assertEquals(
+                Set.of("aspirin-1"),
+                ids(client.search()
+                        .forResource(MedicationRequest.class)
+                        .where(MedicationRequest.ENCOUNTER.hasId(ENCOUNTER_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+        assertEquals(
+                Set.of(ENCOUNTER_UUID, OTHER_ENCOUNTER_UUID),
+                ids(client.search()
+                        .forResource(Encounter.class)
+                        .where(Encounter.PATIENT.hasId(PATIENT_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+    }
+
+    @Test
+    @DisplayName("should page through search results and only count when asked for no results.")
+    public void shouldPageSearchResults() throws Exception {
+        Bundle first = client.search()
+                .forResource(Observation.class)
+                .count(2)
+                .returnBundle(Bundle.class)
+                .execute();
+        Bundle second = client.loadPage().next(first).execute();
+
+        assertEquals(3, first.getTotal());
+        assertEquals(2, first.getEntry().size());
+        assertEquals(1, second.getEntry().size());
+        assertNull(second.getLink(Bundle.LINK_NEXT));
+        assertNotNull(second.getLink(Bundle.LINK_PREV));
+
+        // The client leaves out a count of 0
+        Bundle countedToZero = FhirResourceParser.fhirContext()
+                .newJsonParser()
+                .parseResource(
+                        Bundle.class,
+                        send(HttpRequest.newBuilder(URI.create(server.getFhirBaseUrl() + "/Observation?_count=0"))
+                                        .GET())
+                                .body());
+        for (Bundle counted : List.of(
+                countedToZero,
+                client.search()
+                        .forResource(Observation.class)
+                        .summaryMode(SummaryEnum.COUNT)
+                        .returnBundle(Bundle.class)
+                        .execute())) {
+            assertEquals(3, counted.getTotal());
+            assertEquals(List.of(), counted.getEntry());
+            assertNull(counted.getLink(Bundle.LINK_NEXT));
+            assertNull(counted.getLink(Bundle.LINK_PREV));
+        }
+    }
+
+    @Test
+    @DisplayName("should create resources that later reads and searches see.")
+    public void shouldCreateResource() {
+        Observation observation = observation(null, OTHER_PATIENT_UUID, OTHER_ENCOUNTER_UUID);
+
+        MethodOutcome outcome = client.create().resource(observation).execute();
+
+        assertTrue(outcome.getCreated());
+        String id = outcome.getId().getIdPart();
+        assertNotNull(id);
+        assertEquals("1", outcome.getId().getVersionIdPart());
+        assertEquals(
+                "Patient/" + OTHER_PATIENT_UUID,
+                client.read()
+                        .resource(Observation.class)
+                        .withId(id)
+                        .execute()
+                        .getSubject()
+                        .getReference());
+        assertEquals(
+                Set.of(id),
+                ids(client.search()
+                        .forResource(Observation.class)
+                        .where(Observation.ENCOUNTER.hasId(OTHER_ENCOUNTER_UUID))
+                        .and(Observation.PATIENT.hasId(OTHER_PATIENT_UUID))
+                        .returnBundle(Bundle.class)
+                        .execute()));
+    }
+
+    @Test
+    @DisplayName("should reject the create of a resource with an existing id.")
+    public void shouldRejectCreateOfExistingResource() throws Exception {
+        String body = FhirResourceParser.fhirContext()
+                .newJsonParser()
+                .encodeResourceToString(observation("weight-1", OTHER_PATIENT_UUID, null));
+
+        HttpResponse<String> response =
+                send(HttpRequest.newBuilder(URI.create(server.getFhirBaseUrl() + "/Observation"))
+                        .header("Content-Type", "application/fhir+json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body, UTF_8)));
+
+        assertEquals(409, response.statusCode());
+        assertEquals(
+                "Patient/" + PATIENT_UUID,
+                server.getStore()
+                        .read(Observation.class, "weight-1")
+                        .orElseThrow()
+                        .getSubject()
+                        .getReference());
+    }
+
+    @Test
+    @DisplayName("should answer 404 for unknown resource types.")
+    public void shouldAnswerNotFoundForUnknownTypes() throws Exception {
+        for (String path : List.of("/Unknown/1", "/Unknown?patient=" + PATIENT_UUID, "/patient/" + PATIENT_UUID)) {
+            HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(server.getFhirBaseUrl() + path))
+                    .GET());
+
+            assertEquals(404, response.statusCode(), path);
+            assertTrue(response.body().contains("OperationOutcome"), path);
+        }
+    }
+
+    private static HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString(UTF_8));
+    }
+
+    private static Set<String> ids(Bundle bundle) {
+        return bundle.getEntry().stream()
+                .map(entry -> entry.getResource().getIdElement().getIdPart())
+                .collect(Collectors.toSet());
+    }
+
+    private static Encounter encounter(String id, String patientId) {
+        Encounter encounter = new Encounter();
+        encounter.setId(id);
+        encounter.setSubject(new Reference("Patient/" + patientId));
+        return encounter;
+    }
+
+    private static Observation observation(String id, String patientId, String encounterId) {
+        Observation observation = new Observation();
+        if (id != null) {
+            observation.setId(id);
+        }
+        observation.setSubject(new Reference("Patient/" + patientId));
+        if (encounterId != null) {
+            observation.setEncounter(new Reference("Encounter/" + encounterId));
+        }
+        observation
+                .getCode()
+                .addCoding()
+                .setSystem("https://cielterminology.org")
+                .setCode("5089");
+        return observation;
+    }
+
+    private static MedicationRequest medicationRequest(String id, String patientId, String encounterId) {
+        MedicationRequest medicationRequest = new MedicationRequest();
+        medicationRequest.setId(id);
+        medicationRequest.setSubject(new Reference("Patient/" + patientId));
+        medicationRequest.setEncounter(new Reference("Encounter/" + encounterId));
+        return medicationRequest;
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.embedded;
+
+import ca.uhn.fhir.parser.IParser;
+import com.ozonehis.fhir.dataset.FhirDataset;
+import com.ozonehis.fhir.dataset.FhirNdjson;
+import com.ozonehis.fhir.dataset.FhirResourceParser;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import org.hl7.fhir.r4.model.Base;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.MedicationRequest;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Property;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.Resource;
+import org.hl7.fhir.r4.model.ServiceRequest;
+import org.hl7.fhir.r4.model.SupplyRequest;
+
+/**
+ * In-memory FHIR resources, of any type. Resources are kept encoded as JSON, so reads and searches do not encode
+ * anything and millions of resources fit in memory, and every read hands out a new resource.
+ *
+ * <p>The search parameters the EIP uses are indexed by the id of the reference or by the code, and searches only
+ * look up the indexes:
+ *
+ * <ul>
+ *   <li>{@code _id}</li>
+ *   <li>{@code patient} and {@code subject}, the subject or the patient of the resource</li>
+ *   <li>{@code encounter}, the encounter of the resource</li>
+ *   <li>{@code part-of}, the visit of an encounter</li>
+ *   <li>{@code code}, as {@code code}, {@code system|code} or {@code |code}</li>
+ * </ul>
+ *
+ * References are matched by id, e.g. {@code Patient/123} and {@code 123} are the same. Values separated by commas are
+ * alternatives, repeated parameters must all match.
+ */
+public class FhirResourceStore {
+
+    /**
+     * The search parameters matched against references, with the properties holding the references.
+     */
+    private static final Map<String, List<String>> referenceParameters = Map.of(
+            "patient", List.of("subject", "patient"),
+            "subject", List.of("subject"),
+            "encounter", List.of("encounter"),
+            "part-of", List.of("partOf"));
+
+    /**
+     * The search parameters matched against codes, with the properties holding the codes.
+     */
+    private static final Map<String, List<String>> tokenParameters = Map.of("code", List.of("code"));
+
+    private final Map<String, ResourceType> types = new ConcurrentHashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * A stored version of a resource.
+     *
+     * @param id          the id of the resource
+     * @param json        the resource encoded as JSON
+     * @param version     the version, from 1
+     * @param lastUpdated the time of the version
+     * @param date        the clinical date of the resource, the order of {@code _sort=date}, null if it has none
+     * @param sequence    the order of the first version among all resources, the order of searches
+     */
+    public record StoredResource(String id, String json, int version, Date lastUpdated, Date date, long sequence) {}
+
+    /**
+     * Creates or replaces a resource. A resource without an id gets a UUID, like the EIP expects of OpenMRS.
+     *
+     * @param resource the resource, left unchanged, the stored copy gets the id and meta
+     * @return the stored version
+     */
+    public StoredResource put(Resource resource) {
+        return store(resource, true);
+    }
+
+    /**
+     * Creates a resource unless one with its id exists, atomically so that concurrent creates of the same id do not
+     * both succeed. A resource without an id gets a UUID.
+     *
+     * @param resource the resource, left unchanged
+     * @return the stored version, empty if a resource with the id exists
+     */
+    public Optional<StoredResource> putIfAbsent(Resource resource) {
+        return Optional.ofNullable(store(resource, false));
+    }
+
+    /**
+     * @return the stored version, null if the resource exists and is not replaced
+     */
+    private StoredResource store(Resource resource, boolean replace) {
+        Resource copy = resource.copy();
+        if (!copy.getIdElement().hasIdPart()) {
+            copy.setId(UUID.randomUUID().toString());
+        }
+        String type = copy.fhirType();
+        String id = copy.getIdElement().getIdPart();
+        Map<String, Set<String>> keys = keys(copy);
+        Date date = date(copy);
+        lock.writeLock().lock();
+        try {
+            ResourceType resources = type(type);
+            StoredResource previous = resources.byId.get(id);
+            if (previous != null && !replace) {
+                return null;
+            }
+            int version = previous == null ? 1 : previous.version() + 1;
+            Date lastUpdated = new Date();
+            copy.setId(type + "/" + id);
+            copy.getMeta().setVersionId(String.valueOf(version)).setLastUpdated(lastUpdated);
+            StoredResource stored = new StoredResource(
+                    id,
+                    parser().encodeResourceToString(copy),
+                    version,
+                    lastUpdated,
+                    date,
+                    previous == null ? sequence.incrementAndGet() : previous.sequence());
+            if (previous != null) {
+                resources.unindex(id);
+            }
+            resources.byId.put(id, stored);
+            resources.index(id, keys);
+            return stored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores resources, the entries of bundles are stored instead of the bundles and entries without a resource, e.g.
+     * the deletions of a history bundle, are skipped.
+     *
+     * @param resources the resources, e.g. read with {@link FhirNdjson#read(Path)}
+     * @return the number of stored resources
+     */
+    public long load(Stream<? extends Resource> resources) {
+        AtomicLong count = new AtomicLong();
+        resources
+                .flatMap(resource -> resource instanceof Bundle bundle
+                        ? bundle.getEntry().stream()
+                                .filter(Bundle.BundleEntryComponent::hasResource)
+                                .map(Bundle.BundleEntryComponent::getResource)
+                        : Stream.of(resource))
+                .forEach(resource -> {
+                    put(resource);
+                    count.incrementAndGet();
+                });
+        return count.get();
+    }
+
+    /**
+     * Stores resources of the dataset.
+     *
+     * @return the number of stored resources
+     */
+    public long load(FhirDataset... entries) {
+        return load(Stream.of(entries).map(FhirDataset::getResource));
+    }
+
+    /**
+     * Stores the resources of an NDJSON file, e.g. a population written by {@link FhirNdjson#write(Path, Stream)}.
+     *
+     * @return the number of stored resources
+     */
+    public long loadNdjson(Path file) {
+        try (Stream<Resource> resources = FhirNdjson.read(file)) {
+            return load(resources);
+        }
+    }
+
+    /**
+     * @return the resource encoded as JSON, empty if it does not exist
+     */
+    public Optional<StoredResource> read(String type, String id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(type(type).byId.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param type the type of the resource
+     * @param id   the id of the resource
+     * @param <T>  the type of the resource
+     * @return a new copy of the resource, empty if it does not exist
+     */
+    public <T extends Resource> Optional<T> read(Class<T> type, String id) {
+        return read(type.getSimpleName(), id).map(stored -> parser().parseResource(type, stored.json()));
+    }
+
+    /**
+     * @return true if the resource existed
+     */
+    public boolean delete(String type, String id) {
+        lock.writeLock().lock();
+        try {
+            ResourceType resources = type(type);
+            resources.unindex(id);
+            return resources.byId.remove(id) != null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of resources of the type
+     */
+    public int count(String type) {
+        lock.readLock().lock();
+        try {
+            return type(type).byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes all resources.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            types.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param type       the type of the resources
+     * @param parameters the search parameters, each with its repeated values
+     * @param sort       the sort parameter, e.g. {@code -date}, null for the order of creation
+     * @return the matching resources
+     * @throws IllegalArgumentException if a parameter or the sort is not supported
+     */
+    List<StoredResource> search(String type, Map<String, List<String>> parameters, String sort) {
+        Comparator<StoredResource> comparator = comparator(sort);
+        lock.readLock().lock();
+        try {
+            ResourceType resources = type(type);
+            // Every value is a condition, matched by any of its alternatives
+            List<List<Set<String>>> conditions = new ArrayList<>();
+            parameters.forEach(
+                    (parameter, values) -> values.forEach(value -> conditions.add(resources.lookup(parameter, value))));
+            Collection<String> ids = resources.byId.keySet();
+            if (!conditions.isEmpty()) {
+                // The ids of the most selective condition are tested against the others, no other set is copied
+                conditions.sort(Comparator.comparingInt(ResourceType::size));
+                Set<String> candidates = new HashSet<>();
+                conditions.get(0).forEach(candidates::addAll);
+                for (List<Set<String>> condition : conditions.subList(1, conditions.size())) {
+                    candidates.removeIf(id -> condition.stream().noneMatch(alternative -> alternative.contains(id)));
+                }
+                ids = candidates;
+            }
+            List<StoredResource> result = new ArrayList<>();
+            for (String id : ids) {
+                StoredResource stored = resources.byId.get(id);
+                if (stored != null) {
+                    result.add(stored);
+                }
+            }
+            result.sort(comparator);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return whether the search parameter is indexed
+     */
+    static boolean isSupported(String parameter) {
+        return "_id".equals(parameter)
+                || referenceParameters.containsKey(parameter)
+                || tokenParameters.containsKey(parameter);
+    }
+
+    private ResourceType type(String type) {
+        return types.computeIfAbsent(type, key -> new ResourceType());
+    }
+
+    private static IParser parser() {
+        return FhirResourceParser.fhirContext().newJsonParser();
+    }
+
+    private static Comparator<StoredResource> comparator(String sort) {
+        Comparator<StoredResource> bySequence = Comparator.comparingLong(StoredResource::sequence);
+        if (sort == null || sort.isEmpty()) {
+            return bySequence;
+        }
+        boolean descending = sort.startsWith("-");
+        Comparator<StoredResource> comparator =
+                switch (descending ? sort.substring(1) : sort) {
+                    case "date" -> Comparator.comparing(
+                            StoredResource::date, Comparator.nullsLast(Comparator.naturalOrder()));
+                    case "_lastUpdated" -> Comparator.comparing(StoredResource::lastUpdated);
+                    case "_id" -> Comparator.comparing(StoredResource::id);
+                    default -> throw new IllegalArgumentException("Unsupported sort " + sort);
+                };
+        return (descending ? comparator.reversed() : comparator).thenComparing(bySequence);
+    }
+
+    /**
+     * @return the index keys of the resource by search parameter
+     */
+    private static Map<String, Set<String>> keys(Resource resource) {
+        Map<String, Set<String>> keys = new LinkedHashMap<>();
+        referenceParameters.forEach((parameter, properties) -> {
+            for (Base value : values(resource, properties)) {
+                if (value instanceof Reference reference
+                        && reference.getReferenceElement().hasIdPart()) {
+                    keys.computeIfAbsent(parameter, key -> new HashSet<>())
+                            .add(reference.getReferenceElement().getIdPart());
+                }
+            }
+        });
+        tokenParameters.forEach((parameter, properties) -> {
+            for (Base value : values(resource, properties)) {
+                List<Coding> codings = value instanceof CodeableConcept concept
+                        ? concept.getCoding()
+                        : value instanceof Coding coding ? List.of(coding) : List.of();
+                for (Coding coding : codings) {
+                    if (coding.hasCode()) {
+                        Set<String> codes = keys.computeIfAbsent(parameter, key -> new HashSet<>());
+                        codes.add(coding.getCode());
+                        codes.add((coding.hasSystem() ? coding.getSystem() : "") + "|" + coding.getCode());
+                    }
+                }
+            }
+        });
+        return keys;
+    }
+
+    private static List<Base> values(Resource resource, Collection<String> properties) {
+        List<Base> values = new ArrayList<>();
+        for (String name : properties) {
+            Property property = resource.getNamedProperty(name);
+            if (property != null && property.hasValues()) {
+                values.addAll(property.getValues());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the date {@code _sort=date} orders by, the date of the observation, encounter or request
+     */
+    private static Date date(Resource resource) {
+        if (resource instanceof Observation observation && observation.hasEffectiveDateTimeType()) {
+            return observation.getEffectiveDateTimeType().getValue();
+        }
+        if (resource instanceof Encounter encounter && encounter.getPeriod().hasStart()) {
+            return encounter.getPeriod().getStart();
+        }
+        if (resource instanceof MedicationRequest medicationRequest) {
+            return medicationRequest.getAuthoredOn();
+        }
+        if (resource instanceof ServiceRequest serviceRequest) {
+            return serviceRequest.getAuthoredOn();
+        }
+        if (resource instanceof SupplyRequest supplyRequest) {
+            return supplyRequest.getAuthoredOn();
+        }
+        return null;
+    }
+
+    /**
+     * The resources of a type, by id and by the index keys of their search parameters.
+     */
+    private static final class ResourceType {
+
+        private final Map<String, StoredResource> byId = new HashMap<>();
+
+        private final Map<String, Map<String, Set<String>>> indexes = new HashMap<>();
+
+        private final Map<String, Map<String, Set<String>>> keysById = new HashMap<>();
+
+        void index(String id, Map<String, Set<String>> keys) {
+            keys.forEach((parameter, values) -> {
+                Map<String, Set<String>> index = indexes.computeIfAbsent(parameter, key -> new HashMap<>());
+                values.forEach(value ->
+                        index.computeIfAbsent(value, key -> new HashSet<>(2)).add(id));
+            });
+            if (!keys.isEmpty()) {
+                keysById.put(id, keys);
+            }
+        }
+
+        void unindex(String id) {
+            Map<String, Set<String>> keys = keysById.remove(id);
+            if (keys == null) {
+                return;
+            }
+            keys.forEach((parameter, values) -> {
+                Map<String, Set<String>> index = indexes.get(parameter);
+                values.forEach(value -> {
+                    Set<String> ids = index.get(value);
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        index.remove(value);
+                    }
+                });
+            });
+        }
+
+        /**
+         * @param value the value of the parameter, alternatives separated by commas
+         * @return the ids of the resources matching each alternative, the sets of the index
+         */
+        List<Set<String>> lookup(String parameter, String value) {
+            if (!isSupported(parameter)) {
+                throw new IllegalArgumentException("Unsupported search parameter " + parameter);
+            }
+            List<Set<String>> ids = new ArrayList<>();
+            for (String alternative : value.split(",")) {
+                if ("_id".equals(parameter)) {
+                    ids.add(byId.containsKey(alternative) ? Set.of(alternative) : Set.of());
+                    continue;
+                }
+                // A reference matches by id, whether given as Type/id, as an absolute URL or as an id
+                String key = referenceParameters.containsKey(parameter)
+                        ? alternative.substring(alternative.lastIndexOf('/') + 1)
+                        : alternative;
+                ids.add(indexes.getOrDefault(parameter, Map.of()).getOrDefault(key, Set.of()));
+            }
+            return ids;
+        }
+
+        static int size(List<Set<String>> alternatives) {
+            return alternatives.stream().mapToInt(Set::size).sum();
+        }
+    }
+}
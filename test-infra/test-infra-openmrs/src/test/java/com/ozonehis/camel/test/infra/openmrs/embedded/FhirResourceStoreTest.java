@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.embedded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ozonehis.camel.test.infra.openmrs.embedded.FhirResourceStore.StoredResource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class FhirResourceStoreTest {
+
+    private static final String PATIENT_UUID = "79355a93-3a4f-4490-98aa-278f922fa87c";
+
+    @Test
+    @DisplayName("should store a copy and leave the resource of the caller unchanged.")
+    public void shouldStoreCopy() {
+        FhirResourceStore store = new FhirResourceStore();
+        Patient patient = new Patient();
+        patient.addName().setFamily("Doe");
+
+        StoredResource stored = store.put(patient);
+
+        assertFalse(patient.getIdElement().hasIdPart());
+        assertFalse(patient.hasMeta());
+        Patient read = store.read(Patient.class, stored.id()).orElseThrow();
+        assertEquals(stored.id(), read.getIdElement().getIdPart());
+        assertEquals("1", read.getMeta().getVersionId());
+        assertEquals("Doe", read.getNameFirstRep().getFamily());
+    }
+
+    @Test
+    @DisplayName("should skip bundle entries without a resource.")
+    public void shouldSkipEntriesWithoutResource() {
+        FhirResourceStore store = new FhirResourceStore();
+        Bundle bundle = new Bundle();
+        bundle.addEntry().setResource(patient(PATIENT_UUID));
+        bundle.addEntry().getRequest().setMethod(Bundle.HTTPVerb.DELETE).setUrl("Patient/deleted");
+
+        assertEquals(1, store.load(Stream.of(bundle)));
+        assertEquals(1, store.count("Patient"));
+    }
+
+    @Test
+    @DisplayName("should create a resource with an id once, also when created concurrently.")
+    public void shouldPutIfAbsentOnce() throws Exception {
+        FhirResourceStore store = new FhirResourceStore();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Optional<StoredResource>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return store.putIfAbsent(patient(PATIENT_UUID));
+                }));
+            }
+            start.countDown();
+            int created = 0;
+            for (Future<Optional<StoredResource>> result : results) {
+                created += result.get().isPresent() ? 1 : 0;
+            }
+
+            assertEquals(1, created);
+            assertEquals(1, store.read("Patient", PATIENT_UUID).orElseThrow().version());
+            assertTrue(store.putIfAbsent(patient(null)).isPresent());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Patient patient(String id) {
+        Patient patient = new Patient();
+        if (id != null) {
+            patient.setId(id);
+        }
+        return patient;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.services;
+
+import com.ozonehis.camel.test.infra.openmrs.common.OpenmrsProperties;
+import com.ozonehis.camel.test.infra.openmrs.embedded.EmbeddedOpenmrsFhirServer;
+import com.ozonehis.camel.test.infra.openmrs.embedded.FhirResourceStore;
+import java.io.IOException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An OpenMRS FHIR API served in-process by an {@link EmbeddedOpenmrsFhirServer}. Selected with
+ * {@code -Dopenmrs.instance.type=embedded}, and when no instance type is set as there is no OpenMRS container service.
+ * It listens on {@value OpenmrsProperties#DEFAULT_EMBEDDED_PORT} unless
+ * {@value OpenmrsProperties#OPENMRS_EMBEDDED_PORT} is set, and starts empty, tests load the resources the routes read
+ * through {@link #getStore()}, also reachable through the singleton service.
+ */
+@Slf4j
+public class OpenmrsEmbeddedService implements OpenmrsService {
+
+    private final EmbeddedOpenmrsFhirServer server;
+
+    public OpenmrsEmbeddedService() {
+        this(Integer.getInteger(OpenmrsProperties.OPENMRS_EMBEDDED_PORT, OpenmrsProperties.DEFAULT_EMBEDDED_PORT));
+    }
+
+    public OpenmrsEmbeddedService(int port) {
+        this.server = new EmbeddedOpenmrsFhirServer(port);
+    }
+
+    @Override
+    public int getPort() {
+        return server.getPort();
+    }
+
+    @Override
+    public String getHost() {
+        return server.getHost();
+    }
+
+    @Override
+    public String getFhirBaseUrl() {
+        return server.getFhirBaseUrl();
+    }
+
+    @Override
+    public FhirResourceStore getStore() {
+        return server.getStore();
+    }
+
+    @Override
+    public void registerProperties() {
+        System.setProperty(OpenmrsProperties.OPENMRS_HOST, getHost());
+        System.setProperty(OpenmrsProperties.OPENMRS_PORT, String.valueOf(getPort()));
+    }
+
+    @Override
+    public void initialize() {
+        log.info("Starting the embedded OpenMRS...");
+        try {
+            server.start();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        registerProperties();
+        log.info("Embedded OpenMRS started");
+    }
+
+    @Override
+    public void shutdown() {
+        server.close();
+        log.info("Embedded OpenMRS stopped.");
+    }
+}
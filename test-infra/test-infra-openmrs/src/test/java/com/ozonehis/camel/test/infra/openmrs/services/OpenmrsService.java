@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.services;
+
+import com.ozonehis.camel.test.infra.openmrs.embedded.FhirResourceStore;
+import org.apache.camel.test.infra.common.services.TestService;
+
+public interface OpenmrsService extends TestService {
+
+    int getPort();
+
+    String getHost();
+
+    /**
+     * @return the base URL of the OpenMRS FHIR R4 API
+     */
+    String getFhirBaseUrl();
+
+    default String getHttpHostAddress() {
+        return String.format("%s:%d", getHost(), getPort());
+    }
+
+    /**
+     * @return the resources of an embedded OpenMRS, e.g. to load the resources the routes read, null if OpenMRS runs
+     *     in a container
+     */
+    default FhirResourceStore getStore() {
+        return null;
+    }
+}
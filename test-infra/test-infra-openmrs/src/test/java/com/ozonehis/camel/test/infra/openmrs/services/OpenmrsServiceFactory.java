@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2025, Ozone HIS <info@ozone-his.com>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package com.ozonehis.camel.test.infra.openmrs.services;
+
+import com.ozonehis.camel.test.infra.openmrs.embedded.FhirResourceStore;
+import lombok.NoArgsConstructor;
+import org.apache.camel.test.infra.common.services.SimpleTestServiceBuilder;
+import org.apache.camel.test.infra.common.services.SingletonService;
+
+@NoArgsConstructor
+public class OpenmrsServiceFactory {
+
+    static class SingletonOpenmrsService extends SingletonService<OpenmrsService> implements OpenmrsService {
+
+        public SingletonOpenmrsService(OpenmrsService service, String name) {
+            super(service, name);
+        }
+
+        @Override
+        public int getPort() {
+            return getService().getPort();
+        }
+
+        @Override
+        public String getHost() {
+            return getService().getHost();
+        }
+
+        @Override
+        public String getFhirBaseUrl() {
+            return getService().getFhirBaseUrl();
+        }
+
+        @Override
+        public String getHttpHostAddress() {
+            return getService().getHttpHostAddress();
+        }
+
+        @Override
+        public FhirResourceStore getStore() {
+            return getService().getStore();
+        }
+    }
+
+    public static SimpleTestServiceBuilder<OpenmrsService> builder() {
+        return new SimpleTestServiceBuilder<>("openmrs");
+    }
+
+    public static OpenmrsService createService() {
+        return builder()
+                .addLocalMapping(OpenmrsEmbeddedService::new)
+                .addMapping("embedded", OpenmrsEmbeddedService::new)
+                .build();
+    }
+
+    public static OpenmrsService createSingletonService() {
+        return SingletonServiceHolder.INSTANCE;
+    }
+
+    private static class SingletonServiceHolder {
+
+        static final OpenmrsService INSTANCE;
+
+        static {
+            SimpleTestServiceBuilder<OpenmrsService> instance = builder();
+            instance.addLocalMapping(() -> new SingletonOpenmrsService(new OpenmrsEmbeddedService(), "openmrs"));
+            instance.addMapping("embedded", () -> new SingletonOpenmrsService(new OpenmrsEmbeddedService(), "openmrs"));
+            INSTANCE = instance.build();
+        }
+    }
+}